@@ -0,0 +1,186 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import refactoring.AdvancedControlFlowAnalyzer;
+import refactoring.ControlFlowGraph;
+import refactoring.FindingSink;
+import refactoring.MethodFlowAnalysis;
+import refactoring.RuleEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Control flow graphs and the dataflow analyses on single generated methods
+ * with thousands of statements: a long sequence of branches, loops and try
+ * blocks over a few locals, and a parser-like state machine switching over
+ * thousands of cases. The time per operation should grow about linearly with
+ * the number of statements.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControlFlowBenchmark {
+
+    @Param({"sequence", "switch"})
+    public String shape;
+
+    @Param({"1000", "4000", "16000"})
+    public int statements;
+
+    private CompilationUnit compilationUnit;
+    private MethodDeclaration method;
+
+    @Setup
+    public void setUp() {
+        String source = shape.equals("switch") ? generateSwitch(statements) : generateSequence(statements);
+        compilationUnit = Corpus.parse(Corpus.newParser(null), source);
+        method = compilationUnit.findFirst(MethodDeclaration.class).get();
+    }
+
+    @Benchmark
+    public ControlFlowGraph buildGraph() {
+        return ControlFlowGraph.build(method.getBody().get());
+    }
+
+    @Benchmark
+    public boolean definiteAssignment() {
+        MethodFlowAnalysis analysis = MethodFlowAnalysis.of(method);
+        return analysis.isDefinitelyAssigned(ControlFlowGraph.EXIT, "v0");
+    }
+
+    @Benchmark
+    public Object nullness() {
+        return MethodFlowAnalysis.of(method).findNullDereferences();
+    }
+
+    @Benchmark
+    public boolean loopExits() {
+        MethodFlowAnalysis analysis = MethodFlowAnalysis.of(method);
+        boolean exits = false;
+        for (ControlFlowGraph.Loop loop : analysis.getGraph().getLoops()) {
+            exits |= analysis.canExitEarly(loop);
+        }
+        return exits;
+    }
+
+    @Benchmark
+    public void rules(Blackhole blackhole) {
+        FindingSink sink = blackhole::consume;
+        new RuleEngine(new AdvancedControlFlowAnalyzer("Generated.java", sink).getRules()).run(compilationUnit);
+    }
+
+    /**
+     * A method of about {@code statements} statements in groups of eight: a
+     * declaration, an if-else, a try-catch-finally and a loop with a break, on
+     * sixteen locals that are sometimes null.
+     */
+    static String generateSequence(int statements) {
+        StringBuilder source = new StringBuilder();
+        source.append("public class Generated {\n")
+                .append("    int run(String input, int limit) {\n")
+                .append("        int count = 0;\n");
+        int locals = 16;
+        for (int i = 0; i < statements / 8; i++) {
+            String v = "v" + (i % locals);
+            if (i < locals) {
+                source.append("        String ").append(v).append(" = ")
+                        .append(i % 4 == 0 ? "null" : "input").append(";\n");
+            } else {
+                source.append("        ").append(v).append(" = ").append(i % 4 == 0 ? "null" : "input").append(";\n");
+            }
+            source.append("        if (").append(v).append(" != null) {\n")
+                    .append("            ").append(v).append(" = ").append(v).append(".trim();\n")
+                    .append("        } else {\n")
+                    .append("            ").append(v).append(" = \"").append(i).append("\";\n")
+                    .append("        }\n")
+                    .append("        try {\n")
+                    .append("            count += ").append(v).append(".length();\n")
+                    .append("        } catch (RuntimeException e) {\n")
+                    .append("            count--;\n")
+                    .append("        } finally {\n")
+                    .append("            count++;\n")
+                    .append("        }\n")
+                    .append("        while (count < limit && ").append(v).append(" != null) {\n")
+                    .append("            count += 2;\n")
+                    .append("            if (count == ").append(i).append(") {\n")
+                    .append("                break;\n")
+                    .append("            }\n")
+                    .append("        }\n");
+        }
+        source.append("        return count;\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * A state machine like those of generated parsers: a loop around a switch
+     * with one case of about four statements for every four statements.
+     */
+    static String generateSwitch(int statements) {
+        int cases = Math.max(1, statements / 4);
+        StringBuilder source = new StringBuilder();
+        source.append("public class Generated {\n")
+                .append("    int run(java.util.Iterator<String> tokens) {\n")
+                .append("        int state = 0;\n")
+                .append("        String v0 = null;\n")
+                .append("        while (state >= 0) {\n")
+                .append("            switch (state) {\n");
+        for (int i = 0; i < cases; i++) {
+            source.append("                case ").append(i).append(":\n")
+                    .append("                    v0 = tokens.hasNext() ? tokens.next() : null;\n")
+                    .append("                    if (v0 == null) {\n")
+                    .append("                        return -1;\n")
+                    .append("                    }\n")
+                    .append("                    state = v0.isEmpty() ? ").append(i).append(" : ")
+                    .append(i + 1 < cases ? i + 1 : -1).append(";\n")
+                    .append("                    break;\n");
+        }
+        source.append("                default:\n")
+                .append("                    throw new IllegalStateException();\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("        return state;\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+
+import refactoring.TypeResolution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The bundled benchmark inputs in {@code src/main/resources/corpus}: a small
+ * class touching every check, a medium-sized service class and a large file of
+ * several nested copies of it.
+ */
+final class Corpus {
+
+    static final String[] FILES = {"Small", "Medium", "Large"};
+
+    private Corpus() {
+    }
+
+    static String load(String name) {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".java")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No corpus file named " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A parser resolving types through the given instance, or a plain parser for {@code null}.
+     */
+    static JavaParser newParser(TypeResolution typeResolution) {
+        ParserConfiguration configuration = new ParserConfiguration();
+        if (typeResolution != null) {
+            typeResolution.configure(configuration);
+        }
+        return new JavaParser(configuration);
+    }
+
+    static CompilationUnit parse(JavaParser parser, String source) {
+        ParseResult<CompilationUnit> parseResult = parser.parse(source);
+        return parseResult.getResult().orElseThrow(
+                () -> new IllegalStateException("Corpus file does not parse: " + parseResult.getProblems()));
+    }
+
+    /**
+     * Writes the named corpus files to {@code directory}, for benchmarks reading from disk.
+     */
+    static void copyTo(Path directory, String... names) throws IOException {
+        for (String name : names) {
+            Files.writeString(directory.resolve(name + ".java"), load(name));
+        }
+    }
+
+    static TypeResolution newTypeResolution() {
+        try {
+            return new TypeResolution();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
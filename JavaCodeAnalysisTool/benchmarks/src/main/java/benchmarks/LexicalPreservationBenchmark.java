@@ -0,0 +1,103 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LexicalPreservingPrinter#setup} on a freshly parsed unit, and printing a
+ * unit that was set up before.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexicalPreservationBenchmark {
+
+    /**
+     * A unit that has never been set up; it is parsed again before every call,
+     * outside the measurement.
+     */
+    @State(Scope.Thread)
+    public static class FreshUnit {
+
+        @Param({"Small", "Medium", "Large"})
+        public String file;
+
+        private String source;
+        private JavaParser parser;
+        CompilationUnit compilationUnit;
+
+        @Setup(Level.Trial)
+        public void load() {
+            source = Corpus.load(file);
+            parser = Corpus.newParser(null);
+        }
+
+        @Setup(Level.Invocation)
+        public void parse() {
+            compilationUnit = Corpus.parse(parser, source);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PreparedUnit {
+
+        @Param({"Small", "Medium", "Large"})
+        public String file;
+
+        CompilationUnit compilationUnit;
+
+        @Setup(Level.Trial)
+        public void prepare() {
+            compilationUnit = Corpus.parse(Corpus.newParser(null), Corpus.load(file));
+            LexicalPreservingPrinter.setup(compilationUnit);
+        }
+    }
+
+    @Benchmark
+    public CompilationUnit setup(FreshUnit unit) {
+        return LexicalPreservingPrinter.setup(unit.compilationUnit);
+    }
+
+    @Benchmark
+    public String print(PreparedUnit unit) {
+        return LexicalPreservingPrinter.print(unit.compilationUnit);
+    }
+}
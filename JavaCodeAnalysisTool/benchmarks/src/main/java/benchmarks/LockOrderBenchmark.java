@@ -0,0 +1,119 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import refactoring.LockOrderAnalyzer;
+import refactoring.NullnessFacts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lock order graph of generated projects with tens of thousands of
+ * synchronized blocks and methods, whose calls chain through every class. The
+ * files are parsed in the setup, so only building and searching the graph is
+ * measured; it should grow linearly with the number of sites.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockOrderBenchmark {
+
+    private static final int SITES_PER_CLASS = 50;
+
+    @Param({"10000", "20000", "40000"})
+    public int sites;
+
+    private List<NullnessFacts> facts;
+
+    @Setup
+    public void setUp() {
+        JavaParser parser = Corpus.newParser(null);
+        facts = new ArrayList<>();
+        int classes = sites / SITES_PER_CLASS;
+        for (int i = 0; i < classes; i++) {
+            facts.add(NullnessFacts.extract(Corpus.parse(parser, generateSource(i, classes)), "C" + i + ".java", true));
+        }
+    }
+
+    @Benchmark
+    public int analyze(Blackhole blackhole) {
+        LockOrderAnalyzer analyzer = new LockOrderAnalyzer(1, blackhole::consume);
+        analyzer.analyzeFacts(facts);
+        return analyzer.getCycles();
+    }
+
+    /**
+     * Class {@code C<index>} with {@code SITES_PER_CLASS} synchronized sites on
+     * a few lock fields. Each method calls the same method of the next class
+     * while holding a lock, so locks are only ever taken in class order, except
+     * that the last class calls back into the first: one large cycle.
+     */
+    static String generateSource(int index, int classes) {
+        int next = (index + 1) % classes;
+        int locks = 4;
+        StringBuilder source = new StringBuilder();
+        source.append("public class C").append(index).append(" {\n");
+        for (int i = 0; i < locks; i++) {
+            source.append("    private final Object lock").append(i).append(" = new Object();\n");
+        }
+        source.append("    private C").append(next).append(" next;\n");
+        for (int i = 0; i < SITES_PER_CLASS; i++) {
+            if (i % 5 == 0) {
+                source.append("    synchronized void method").append(i).append("() {\n")
+                        .append("        helper").append(i).append("();\n")
+                        .append("    }\n");
+            } else {
+                source.append("    void method").append(i).append("() {\n")
+                        .append("        synchronized (lock").append(i % locks).append(") {\n")
+                        .append("            helper").append(i).append("();\n")
+                        .append("        }\n")
+                        .append("    }\n");
+            }
+            source.append("    private void helper").append(i).append("() {\n");
+            if (index + 1 < classes || i == 0) {
+                source.append("        next.method").append(i).append("();\n");
+            }
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.CompilationUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import refactoring.AdvancedControlFlowAnalyzer;
+import refactoring.FindingSink;
+import refactoring.LockUsageIndex;
+import refactoring.RuleEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The control flow checks on generated classes with thousands of synchronized
+ * blocks. With the {@link LockUsageIndex} the time per operation grows linearly
+ * with the number of blocks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockUsageScalingBenchmark {
+
+    @Param({"1000", "2000", "4000", "8000", "16000"})
+    public int blocks;
+
+    private CompilationUnit compilationUnit;
+
+    @Setup
+    public void setUp() {
+        compilationUnit = Corpus.parse(Corpus.newParser(null), generateSource(blocks));
+    }
+
+    @Benchmark
+    public void analyze(Blackhole blackhole) {
+        FindingSink sink = blackhole::consume;
+        new RuleEngine(new AdvancedControlFlowAnalyzer("Generated.java", sink).getRules()).run(compilationUnit);
+    }
+
+    /**
+     * A class with {@code blocks} synchronized blocks spread over a few lock
+     * fields, each block also referencing its lock once.
+     */
+    static String generateSource(int blocks) {
+        StringBuilder source = new StringBuilder();
+        source.append("public class Generated {\n");
+        int locks = 16;
+        for (int i = 0; i < locks; i++) {
+            source.append("    private final Object lock").append(i).append(" = new Object();\n");
+        }
+        source.append("    private int counter;\n");
+        for (int i = 0; i < blocks; i++) {
+            String lock = "lock" + (i % locks);
+            source.append("    void method").append(i).append("() {\n")
+                    .append("        synchronized (").append(lock).append(") {\n")
+                    .append("            counter += ").append(lock).append(".hashCode();\n")
+                    .append("        }\n")
+                    .append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}
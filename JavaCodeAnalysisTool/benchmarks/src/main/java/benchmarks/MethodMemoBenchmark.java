@@ -0,0 +1,182 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import refactoring.AnalysisOptions;
+import refactoring.MethodMemo;
+import refactoring.SourceFileAnalyzer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rules on a generated corpus in which every method is one of a few
+ * templates, as in generated parsers or copy-pasted handlers, with and without
+ * the {@link MethodMemo}. The copies differ in indentation and comments. Every
+ * iteration starts with an empty memo, so the first copy of each template is
+ * analyzed and the others are replayed. {@code rules} runs them on units parsed
+ * in the setup; {@code analyzeCorpus} parses as well, which takes most of the
+ * time and bounds the speedup end to end.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MethodMemoBenchmark {
+
+    private static final int FILES = 100;
+    private static final int METHODS_PER_FILE = 40;
+
+    /** The number of distinct method templates; 0 makes every method distinct. */
+    @Param({"10", "0"})
+    public int templates;
+
+    @Param({"true", "false"})
+    public boolean memo;
+
+    List<Path> files;
+    List<String> sources;
+    List<ByteBuffer> contents;
+    List<CompilationUnit> units;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        files = new ArrayList<>();
+        sources = new ArrayList<>();
+        contents = new ArrayList<>();
+        units = new ArrayList<>();
+        JavaParser parser = Corpus.newParser(null);
+        for (int i = 0; i < FILES; i++) {
+            String source = generateSource(i, templates);
+            files.add(Path.of("Generated" + i + ".java"));
+            sources.add(source);
+            contents.add(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+            units.add(Corpus.parse(parser, source));
+        }
+    }
+
+    @Benchmark
+    public long rules(Blackhole blackhole) {
+        MethodMemo methodMemo = memo ? new MethodMemo() : null;
+        SourceFileAnalyzer analyzer = new SourceFileAnalyzer(blackhole::consume,
+                AnalysisOptions.builder().memo(methodMemo).build());
+        for (int i = 0; i < files.size(); i++) {
+            blackhole.consume(analyzer.analyze(files.get(i), sources.get(i), units.get(i)));
+        }
+        return methodMemo == null ? 0 : methodMemo.getHits();
+    }
+
+    @Benchmark
+    public long analyzeCorpus(Blackhole blackhole) {
+        MethodMemo methodMemo = memo ? new MethodMemo() : null;
+        SourceFileAnalyzer analyzer = new SourceFileAnalyzer(blackhole::consume,
+                AnalysisOptions.builder().memo(methodMemo).build());
+        for (int i = 0; i < files.size(); i++) {
+            blackhole.consume(analyzer.analyze(files.get(i), contents.get(i)));
+        }
+        return methodMemo == null ? 0 : methodMemo.getHits();
+    }
+
+    /**
+     * Class {@code Generated<index>}, whose methods loop, catch and check for
+     * null, and every fourth also locks. With templates, method {@code m} has the body of template
+     * {@code m % templates}; otherwise each body uses its own constants.
+     */
+    static String generateSource(int index, int templates) {
+        StringBuilder source = new StringBuilder();
+        source.append("import java.util.List;\n\n");
+        source.append("public class Generated").append(index).append(" {\n");
+        source.append("    private final Object lock = new Object();\n");
+        for (int m = 0; m < METHODS_PER_FILE; m++) {
+            int body = templates > 0 ? m % templates : index * METHODS_PER_FILE + m;
+            // Layout and comments vary from copy to copy; the tokens do not.
+            String indent = (index + m) % 2 == 0 ? "    " : "  ";
+            if ((index + m) % 3 == 0) {
+                source.append(indent).append("// copy ").append(index).append('.').append(m).append('\n');
+            }
+            source.append(indent).append("int method").append(body).append("(List<String> items, String key) {\n");
+            appendBody(source, indent + indent, body);
+            source.append(indent).append("}\n\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static void appendBody(StringBuilder source, String indent, int body) {
+        source.append(indent).append("int count = ").append(body).append(";\n");
+        source.append(indent).append("String current = null;\n");
+        source.append(indent).append("for (int i = 0; i < items.size(); i++) {\n");
+        source.append(indent).append("    String item = items.get(i);\n");
+        source.append(indent).append("    if (item == null) {\n");
+        source.append(indent).append("        continue;\n");
+        source.append(indent).append("    }\n");
+        source.append(indent).append("    if (item.equals(key)) {\n");
+        source.append(indent).append("        current = item;\n");
+        source.append(indent).append("    }\n");
+        source.append(indent).append("}\n");
+        source.append(indent).append("while (current != null && count < ").append(body + 100).append(") {\n");
+        source.append(indent).append("    count += current.length();\n");
+        source.append(indent).append("    if (count % 7 == 0) {\n");
+        source.append(indent).append("        current = null;\n");
+        source.append(indent).append("    }\n");
+        source.append(indent).append("}\n");
+        source.append(indent).append("try {\n");
+        source.append(indent).append("    count += Integer.parseInt(key);\n");
+        source.append(indent).append("} catch (Exception e) {\n");
+        source.append(indent).append("}\n");
+        if (body % 4 == 0) {
+            source.append(indent).append("synchronized (lock) {\n");
+            source.append(indent).append("    count++;\n");
+            source.append(indent).append("}\n");
+        }
+        source.append(indent).append("switch (count % 4) {\n");
+        for (int c = 0; c < 4; c++) {
+            source.append(indent).append("    case ").append(c).append(":\n");
+            source.append(indent).append("        count += ").append(body * 4 + c).append(";\n");
+            source.append(indent).append("        break;\n");
+        }
+        source.append(indent).append("}\n");
+        source.append(indent).append("return count;\n");
+    }
+}
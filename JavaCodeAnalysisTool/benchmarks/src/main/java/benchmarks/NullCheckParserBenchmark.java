@@ -0,0 +1,72 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.CompilationUnit;
+
+import nullcheckparser.NullCheckAnnotator;
+import nullcheckparser.NullCheckParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The annotation pass of the {@link NullCheckParser} command line tool: finding
+ * the methods with null checks in a parsed unit and inserting the annotation
+ * into the source text, as {@link NullCheckAnnotator} does for every file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NullCheckParserBenchmark {
+
+    @Param({"Small", "Medium", "Large"})
+    public String file;
+
+    private String source;
+    private CompilationUnit compilationUnit;
+
+    @Setup
+    public void setUp() {
+        source = Corpus.load(file);
+        // The pass leaves the unit unchanged, so one parse serves all calls.
+        compilationUnit = Corpus.parse(Corpus.newParser(null), source);
+    }
+
+    @Benchmark
+    public String insertAnnotations() {
+        return NullCheckAnnotator.insertAnnotations(source, NullCheckParser.findMethodsToAnnotate(compilationUnit));
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.CompilationUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import refactoring.NullCheckRewriter;
+import refactoring.TextEdit;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The null check rewrites of a generated class with thousands of annotated
+ * methods: finding the checks, planning the edits and applying them to the
+ * text in one pass. The unit is only read, so it is parsed once; the time per
+ * operation should grow linearly with the number of methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NullCheckRewriteBenchmark {
+
+    @Param({"1000", "4000", "16000"})
+    public int methods;
+
+    private String source;
+    private CompilationUnit compilationUnit;
+
+    @Setup
+    public void setUp() {
+        source = generateSource(methods);
+        compilationUnit = Corpus.parse(Corpus.newParser(null), source);
+    }
+
+    @Benchmark
+    public String rewrite() {
+        NullCheckRewriter.Plan plan = NullCheckRewriter.plan(compilationUnit, source,
+                EnumSet.allOf(NullCheckRewriter.Policy.class));
+        return TextEdit.apply(source, plan.getEdits());
+    }
+
+    /**
+     * A class whose methods each hold one check of every rewritable shape.
+     */
+    static String generateSource(int methods) {
+        StringBuilder source = new StringBuilder();
+        source.append("import java.util.List;\n\n");
+        source.append("public class Generated {\n");
+        source.append("    private static final String DEFAULT = \"\";\n");
+        for (int i = 0; i < methods; i++) {
+            source.append("    @NullCheckPerformed\n")
+                    .append("    void method").append(i).append("(Object value, String name, List<String> out) {\n")
+                    .append("        if (value == null) {\n")
+                    .append("            throw new NullPointerException(\"value\");\n")
+                    .append("        }\n")
+                    .append("        if (name == null) {\n")
+                    .append("            name = DEFAULT;\n")
+                    .append("        }\n")
+                    .append("        if (out != null) {\n")
+                    .append("            out.add(name);\n")
+                    .append("            out.add(value.toString());\n")
+                    .append("        }\n")
+                    .append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import refactoring.AnalysisOptions;
+import refactoring.FileAnalysisResult;
+import refactoring.FindingSink;
+import refactoring.JsonLinesFindingSink;
+import refactoring.ProjectAnalyzer;
+import refactoring.RefactoringTool;
+import refactoring.SourceFileAnalyzer;
+import refactoring.SourceFileLocator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The {@link RefactoringTool} pipeline end to end, from reading files on disk
+ * to serialized findings, without the result cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /**
+     * Single-file mode: reading, parsing and analyzing one file.
+     */
+    @State(Scope.Thread)
+    public static class SingleFile {
+
+        @Param({"Small", "Medium", "Large"})
+        public String file;
+
+        Path directory;
+        Path sourceFile;
+        AnalysisOptions options;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("pipeline-benchmark");
+            Corpus.copyTo(directory, file);
+            sourceFile = directory.resolve(file + ".java");
+            options = AnalysisOptions.builder().typeResolution(Corpus.newTypeResolution()).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Directory mode: all corpus files on the project analyzer's pool, with
+     * findings written as JSON Lines.
+     */
+    @State(Scope.Thread)
+    public static class Project {
+
+        @Param({"1", "4"})
+        public int parallelism;
+
+        Path directory;
+        List<Path> sourceFiles;
+        AnalysisOptions options;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("pipeline-benchmark");
+            Corpus.copyTo(directory, Corpus.FILES);
+            sourceFiles = SourceFileLocator.locate(directory.toString());
+            options = AnalysisOptions.builder().typeResolution(Corpus.newTypeResolution()).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public FileAnalysisResult singleFile(SingleFile state, Blackhole blackhole) throws IOException {
+        return new SourceFileAnalyzer(blackhole::consume, state.options).analyze(state.sourceFile);
+    }
+
+    @Benchmark
+    public int project(Project state) throws Exception {
+        FindingSink sink = new JsonLinesFindingSink(Writer.nullWriter());
+        ProjectAnalyzer projectAnalyzer = new ProjectAnalyzer(state.parallelism, sink, state.options);
+        projectAnalyzer.analyze(state.sourceFiles);
+        sink.close();
+        return projectAnalyzer.getAnalyzedFiles();
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import refactoring.AnalysisOptions;
+import refactoring.FileAnalysisResult;
+import refactoring.KeywordPrefilter;
+import refactoring.SourceFileAnalyzer;
+import refactoring.SourceFileLocator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The keyword prefilter on its own and end to end. Every iteration analyzes a
+ * whole corpus held in memory, with and without the prefilter; the difference
+ * is the time saved by not parsing files that cannot trigger any rule. The
+ * bundled corpus triggers every rule, so point {@code -p corpus=<directory>} at
+ * a real source tree (e.g. the unpacked {@code lib/src.zip} of a JDK) to see
+ * the effect on real code.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefilterBenchmark {
+
+    /** A directory of Java sources, or empty for the bundled corpus. */
+    @Param({""})
+    public String corpus;
+
+    @Param({"true", "false"})
+    public boolean prefilter;
+
+    List<Path> files;
+    List<ByteBuffer> contents;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        files = new ArrayList<>();
+        contents = new ArrayList<>();
+        if (corpus.isEmpty()) {
+            for (String name : Corpus.FILES) {
+                files.add(Path.of(name + ".java"));
+                contents.add(ByteBuffer.wrap(Corpus.load(name).getBytes(StandardCharsets.UTF_8)));
+            }
+        } else {
+            for (Path file : SourceFileLocator.locate(corpus)) {
+                files.add(file);
+                contents.add(ByteBuffer.wrap(Files.readAllBytes(file)));
+            }
+        }
+    }
+
+    @Benchmark
+    public int analyzeCorpus(Blackhole blackhole) {
+        SourceFileAnalyzer analyzer = new SourceFileAnalyzer(blackhole::consume,
+                AnalysisOptions.builder().prefilter(prefilter).build());
+        int skipped = 0;
+        for (int i = 0; i < files.size(); i++) {
+            FileAnalysisResult result = analyzer.analyze(files.get(i), contents.get(i));
+            if (result != null && result.isSkipped()) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public long scanCorpus() {
+        KeywordPrefilter keywordPrefilter = new KeywordPrefilter(
+                Arrays.asList("try", "synchronized", "for", "while", "NullCheckPerformed"));
+        long found = 0;
+        for (ByteBuffer content : contents) {
+            found += keywordPrefilter.scan(content);
+        }
+        return found;
+    }
+}
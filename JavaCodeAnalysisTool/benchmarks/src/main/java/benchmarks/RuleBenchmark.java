@@ -0,0 +1,107 @@
+package benchmarks;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.CompilationUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import refactoring.AdvancedControlFlowAnalyzer;
+import refactoring.AnalysisRule;
+import refactoring.FindingSink;
+import refactoring.NullCheckMethodVisitor;
+import refactoring.RuleEngine;
+import refactoring.TypeResolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each visitor on its own on an already parsed unit, and both visitors fused
+ * into one {@link RuleEngine} traversal versus one traversal per visitor.
+ * Analyzers are created per call, as the pipeline does per file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleBenchmark {
+
+    @Param({"Small", "Medium", "Large"})
+    public String file;
+
+    private TypeResolution typeResolution;
+    private CompilationUnit compilationUnit;
+
+    @Setup
+    public void setUp() {
+        typeResolution = Corpus.newTypeResolution();
+        compilationUnit = Corpus.parse(Corpus.newParser(typeResolution), Corpus.load(file));
+    }
+
+    @Benchmark
+    public void controlFlowAnalyzer(Blackhole blackhole) {
+        new RuleEngine(newAnalyzer(blackhole).getRules()).run(compilationUnit);
+    }
+
+    @Benchmark
+    public Object nullCheckMethodVisitor() {
+        NullCheckMethodVisitor visitor = new NullCheckMethodVisitor();
+        new RuleEngine(visitor.getRules()).run(compilationUnit);
+        return visitor.getCapturedLogic();
+    }
+
+    @Benchmark
+    public Object singlePass(Blackhole blackhole) {
+        NullCheckMethodVisitor visitor = new NullCheckMethodVisitor();
+        List<AnalysisRule> rules = new ArrayList<>(newAnalyzer(blackhole).getRules());
+        rules.addAll(visitor.getRules());
+        new RuleEngine(rules).run(compilationUnit);
+        return visitor.getCapturedLogic();
+    }
+
+    @Benchmark
+    public Object multiPass(Blackhole blackhole) {
+        NullCheckMethodVisitor visitor = new NullCheckMethodVisitor();
+        newAnalyzer(blackhole).visit(compilationUnit, null);
+        visitor.visit(compilationUnit, null);
+        return visitor.getCapturedLogic();
+    }
+
+    private AdvancedControlFlowAnalyzer newAnalyzer(Blackhole blackhole) {
+        FindingSink sink = blackhole::consume;
+        return new AdvancedControlFlowAnalyzer(file + ".java", sink, typeResolution);
+    }
+}
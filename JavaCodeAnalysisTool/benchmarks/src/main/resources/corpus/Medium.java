@@ -0,0 +1,372 @@
+package corpus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import nullcheckparser.NullCheckPerformed;
+
+/**
+ * An order book service of typical application code: collections, locking,
+ * exception handling, null checks and a few nested types.
+ */
+public class Medium {
+
+    public enum Status {
+        NEW, PAID, SHIPPED, CANCELLED
+    }
+
+    public static final class Line {
+
+        private final String sku;
+        private final int quantity;
+        private final BigDecimal price;
+
+        public Line(String sku, int quantity, BigDecimal price) {
+            this.sku = Objects.requireNonNull(sku);
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public BigDecimal total() {
+            if (price == null) {
+                return BigDecimal.ZERO;
+            }
+            return price.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    public static final class Order {
+
+        private final long id;
+        private final String customer;
+        private final List<Line> lines = new ArrayList<>();
+        private Status status = Status.NEW;
+        private Instant updated;
+
+        Order(long id, String customer) {
+            this.id = id;
+            this.customer = customer;
+            this.updated = Instant.now();
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getCustomer() {
+            return customer;
+        }
+
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        void setStatus(Status status) {
+            this.status = status;
+            this.updated = Instant.now();
+        }
+
+        public Instant getUpdated() {
+            return updated;
+        }
+    }
+
+    private final Object ordersLock = new Object();
+    private Object statisticsLock = new Object();
+    private final ReentrantLock exportLock = new ReentrantLock();
+    private final Map<Long, Order> orders = new LinkedHashMap<>();
+    private final Map<String, Integer> ordersPerCustomer = new HashMap<>();
+    private final List<String> auditLog = new ArrayList<>();
+    private long nextId = 1;
+    private int cancelled;
+
+    public Order create(String customer) {
+        synchronized (ordersLock) {
+            Order order = new Order(nextId++, customer);
+            orders.put(order.getId(), order);
+            synchronized (statisticsLock) {
+                ordersPerCustomer.merge(customer, 1, Integer::sum);
+            }
+            audit("created " + order.getId());
+            return order;
+        }
+    }
+
+    @NullCheckPerformed
+    public Order find(Long id) {
+        if (id == null) {
+            return null;
+        }
+        synchronized (ordersLock) {
+            Order order = orders.get(id);
+            if (order != null && order.getStatus() != Status.CANCELLED) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    @NullCheckPerformed
+    public void addLine(long orderId, String sku, int quantity, BigDecimal price) {
+        Order order = find(orderId);
+        if (order == null) {
+            throw new IllegalArgumentException("No such order: " + orderId);
+        }
+        if (sku == null || quantity <= 0) {
+            throw new IllegalArgumentException("Invalid line");
+        }
+        synchronized (ordersLock) {
+            order.getLines().add(new Line(sku, quantity, price));
+        }
+    }
+
+    @NullCheckPerformed
+    public void transition(long orderId, Status target) {
+        Order order = find(orderId);
+        switch (target) {
+            case PAID:
+                if (order == null || order.getStatus() != Status.NEW) {
+                    throw new IllegalStateException("Order cannot be paid");
+                }
+                break;
+            case SHIPPED:
+                if (order == null || order.getStatus() != Status.PAID) {
+                    throw new IllegalStateException("Order cannot be shipped");
+                }
+                break;
+            case CANCELLED:
+                if (order != null) {
+                    synchronized (statisticsLock) {
+                        cancelled++;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected target " + target);
+        }
+        if (order != null) {
+            order.setStatus(target);
+            audit("order " + orderId + " is now " + target);
+        }
+    }
+
+    public BigDecimal total(long orderId) {
+        Order order = find(orderId);
+        BigDecimal total = BigDecimal.ZERO;
+        if (order == null) {
+            return total;
+        }
+        List<Line> lines = order.getLines();
+        for (int i = 0; i < lines.size(); i++) {
+            total = total.add(lines.get(i).total());
+        }
+        return total;
+    }
+
+    public int totalQuantity(int[] quantities) {
+        int sum = 0;
+        for (int i = 0; i < quantities.length; i++) {
+            sum += quantities[i];
+        }
+        return sum;
+    }
+
+    public List<Order> byStatus(Status status) {
+        synchronized (ordersLock) {
+            return orders.values().stream()
+                    .filter(order -> order.getStatus() == status)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public List<Order> select(Predicate<Order> filter) {
+        List<Order> result = new ArrayList<>();
+        synchronized (ordersLock) {
+            for (Order order : orders.values()) {
+                if (filter.test(order)) {
+                    result.add(order);
+                }
+            }
+        }
+        return result;
+    }
+
+    public Map<String, BigDecimal> revenuePerCustomer() {
+        Map<String, BigDecimal> revenue = new HashMap<>();
+        for (Order order : select(order -> order.getStatus() != Status.CANCELLED)) {
+            BigDecimal total = total(order.getId());
+            revenue.merge(order.getCustomer(), total, BigDecimal::add);
+        }
+        return revenue;
+    }
+
+    public int purgeCancelled() {
+        int removed = 0;
+        synchronized (ordersLock) {
+            Iterator<Order> iterator = orders.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getStatus() == Status.CANCELLED) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int importOrders(Reader source) throws IOException {
+        int imported = 0;
+        BufferedReader reader = new BufferedReader(source);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 4) {
+                    continue;
+                }
+                Order order = create(fields[0]);
+                try {
+                    addLine(order.getId(), fields[1], Integer.parseInt(fields[2]), new BigDecimal(fields[3]));
+                    imported++;
+                } catch (NumberFormatException e) {
+                    transition(order.getId(), Status.CANCELLED);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return imported;
+    }
+
+    public String export() {
+        exportLock.lock();
+        try {
+            StringBuilder out = new StringBuilder();
+            synchronized (ordersLock) {
+                for (Order order : orders.values()) {
+                    out.append(order.getId()).append(',').append(order.getCustomer()).append(',')
+                            .append(order.getStatus()).append('\n');
+                }
+            }
+            return out.toString();
+        } finally {
+            exportLock.unlock();
+        }
+    }
+
+    public void exportQuietly(StringBuilder target) {
+        try {
+            target.append(export());
+        } catch (RuntimeException e) {
+        }
+    }
+
+    @NullCheckPerformed
+    public Optional<String> topCustomer() {
+        String best = null;
+        int bestCount = 0;
+        synchronized (statisticsLock) {
+            for (Map.Entry<String, Integer> entry : ordersPerCustomer.entrySet()) {
+                if (best == null || entry.getValue() > bestCount) {
+                    best = entry.getKey();
+                    bestCount = entry.getValue();
+                }
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    public int getCancelled() {
+        synchronized (statisticsLock) {
+            return cancelled;
+        }
+    }
+
+    public void resetStatistics() {
+        statisticsLock = new Object();
+        ordersPerCustomer.clear();
+    }
+
+    public void retry(Runnable action, int attempts) {
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            try {
+                action.run();
+                return;
+            } catch (IllegalStateException e) {
+                audit("attempt " + attempt + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public void waitForOrders(int expected) throws InterruptedException {
+        while (orders.size() < expected) {
+        }
+    }
+
+    public List<String> getAuditLog() {
+        synchronized (auditLog) {
+            return Collections.unmodifiableList(new ArrayList<>(auditLog));
+        }
+    }
+
+    private void audit(String message) {
+        synchronized (auditLog) {
+            auditLog.add(Instant.now() + " " + message);
+            if (auditLog.size() > 1000) {
+                auditLog.remove(0);
+            }
+        }
+    }
+
+    @NullCheckPerformed
+    public static String normalize(String customer) {
+        if (customer == null) {
+            return "";
+        }
+        String trimmed = customer.trim();
+        return trimmed.isEmpty() ? "" : trimmed.toLowerCase();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Medium service = new Medium();
+        for (int i = 0; i < args.length; i++) {
+            Order order = service.create(normalize(args[i]));
+            service.addLine(order.getId(), "sku-" + i, i + 1, BigDecimal.TEN);
+            service.transition(order.getId(), Status.PAID);
+        }
+        System.out.println(service.export());
+        System.out.println(service.revenuePerCustomer());
+        service.topCustomer().ifPresent(System.out::println);
+    }
+}
@@ -0,0 +1,59 @@
+package corpus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nullcheckparser.NullCheckPerformed;
+
+/**
+ * A small class touching every check once.
+ */
+public class Small {
+
+    private final Object lock = new Object();
+    private final List<String> names = new ArrayList<>();
+    private int counter;
+
+    @NullCheckPerformed
+    public String describe(String name) {
+        if (name == null) {
+            return "unknown";
+        }
+        return "name: " + name;
+    }
+
+    public void add(String name) {
+        synchronized (lock) {
+            names.add(name);
+            counter++;
+        }
+    }
+
+    public int totalLength() {
+        int total = 0;
+        for (int i = 0; i < names.size(); i++) {
+            total += names.get(i).length();
+        }
+        return total;
+    }
+
+    public int parse(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    public void drain(List<String> queue) {
+        String next = queue.isEmpty() ? null : queue.remove(0);
+        while (next != null) {
+            add(next);
+            next = queue.isEmpty() ? null : queue.remove(0);
+        }
+    }
+
+    public int getCounter() {
+        return counter;
+    }
+}
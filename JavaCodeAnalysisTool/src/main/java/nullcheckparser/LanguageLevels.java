@@ -0,0 +1,122 @@
+package nullcheckparser;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses language levels given on the command line and detects them from the
+ * Maven or Gradle build of a source tree.
+ */
+public final class LanguageLevels {
+
+    /** The most recent level the parser supports; also used when nothing is detected. */
+    public static final LanguageLevel LATEST = LanguageLevel.JAVA_17;
+
+    private static final String[] BUILD_FILES = {"pom.xml", "build.gradle", "build.gradle.kts"};
+
+    private static final Pattern[] VERSION_PATTERNS = {
+            Pattern.compile("<maven\\.compiler\\.release>\\s*([^<\\s]+)\\s*<"),
+            Pattern.compile("<maven\\.compiler\\.source>\\s*([^<\\s]+)\\s*<"),
+            Pattern.compile("<release>\\s*([^<\\s]+)\\s*<"),
+            Pattern.compile("<source>\\s*([^<\\s]+)\\s*<"),
+            Pattern.compile("<java\\.version>\\s*([^<\\s]+)\\s*<"),
+            Pattern.compile("JavaLanguageVersion\\.of\\(\\s*(\\d+)\\s*\\)"),
+            Pattern.compile("(?:source|target)Compatibility\\s*=\\s*(?:JavaVersion\\.VERSION_)?['\"]?([\\d._]+)"),
+    };
+
+    private LanguageLevels() {
+    }
+
+    /**
+     * Accepts {@code 17}, {@code 1.8}, {@code 8} or an enum name such as {@code JAVA_17}.
+     * Versions newer than the parser supports map to {@link #LATEST}.
+     */
+    public static LanguageLevel parse(String version) {
+        String trimmed = version.trim();
+        if (trimmed.startsWith("JAVA_") || !Character.isDigit(trimmed.charAt(0))) {
+            return LanguageLevel.valueOf(trimmed);
+        }
+        String normalized = trimmed.replace('_', '.');
+        if (normalized.startsWith("1.")) {
+            int minor = Integer.parseInt(normalized.substring(2).split("\\.")[0]);
+            return minor <= 4 ? LanguageLevel.valueOf("JAVA_1_" + minor) : LanguageLevel.valueOf("JAVA_" + minor);
+        }
+        int major = Integer.parseInt(normalized.split("\\.")[0]);
+        if (major >= 17) {
+            return LATEST;
+        }
+        return major < 5 ? LanguageLevel.JAVA_1_0 : LanguageLevel.valueOf("JAVA_" + major);
+    }
+
+    /**
+     * Looks for the Java version in the build files of the given directory and
+     * its parents, nearest first.
+     *
+     * @return the detected level, or {@code null} if no build declares one
+     */
+    public static LanguageLevel detect(Path start) throws IOException {
+        for (Path directory = start.toAbsolutePath().normalize(); directory != null; directory = directory.getParent()) {
+            for (String buildFile : BUILD_FILES) {
+                Path file = directory.resolve(buildFile);
+                if (Files.isRegularFile(file)) {
+                    String version = findVersion(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                    if (version != null) {
+                        return parse(version);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String findVersion(String build) {
+        for (Pattern pattern : VERSION_PATTERNS) {
+            Matcher matcher = pattern.matcher(build);
+            while (matcher.find()) {
+                String version = resolveProperty(build, matcher.group(1));
+                if (version != null && !version.isEmpty() && Character.isDigit(version.charAt(0))) {
+                    return version;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves a Maven {@code ${property}} reference against the properties of the same file.
+     */
+    private static String resolveProperty(String build, String value) {
+        if (!value.startsWith("${") || !value.endsWith("}")) {
+            return value;
+        }
+        String property = value.substring(2, value.length() - 1);
+        Matcher matcher = Pattern.compile("<" + Pattern.quote(property) + ">\\s*([^<\\s]+)\\s*<").matcher(build);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
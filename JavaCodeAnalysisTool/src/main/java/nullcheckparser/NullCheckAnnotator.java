@@ -0,0 +1,270 @@
+package nullcheckparser;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+
+import refactoring.KeywordPrefilter;
+import refactoring.SourceFiles;
+import refactoring.SourceRanges;
+import refactoring.StageStats;
+import refactoring.StagedPipeline;
+import refactoring.UnifiedDiff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Annotates the methods containing null checks across a whole source tree on a
+ * {@link StagedPipeline}, marking each null check with a comment. Files are parsed and annotated on {@code parallelism}
+ * worker threads, each with its own parser. Methods that already carry the
+ * annotation are left alone, so running the annotator again changes nothing. The changed files are either rewritten in place, or, in
+ * a dry run, collected into a single unified diff ordered by path, leaving all
+ * files untouched.
+ */
+public class NullCheckAnnotator {
+
+    private static final String ANNOTATION = "@" + NullCheckPerformed.class.getSimpleName();
+    private static final String NULL_CHECK_COMMENT = "// Null check present";
+    private static final KeywordPrefilter NULL_LITERAL = new KeywordPrefilter(Collections.singletonList("null"));
+
+    private final LanguageLevel languageLevel;
+    private final int parallelism;
+    private int changedFiles;
+    private int unchangedFiles;
+    private int failedFiles;
+    private List<StageStats> stageStats;
+
+    public NullCheckAnnotator(LanguageLevel languageLevel, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
+        this.languageLevel = languageLevel;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Rewrites every file whose annotations change; other files are not touched.
+     */
+    public void annotateInPlace(List<Path> sourceFiles) throws IOException, InterruptedException {
+        run(sourceFiles, null, outcome -> SourceFiles.writeIfChanged(outcome.file, outcome.text));
+    }
+
+    /**
+     * Writes the changes of all files as one unified diff without modifying any file.
+     *
+     * @param baseDirectory the directory the paths in the diff are relative to
+     */
+    public void writePatch(List<Path> sourceFiles, Path baseDirectory, Writer patch)
+            throws IOException, InterruptedException {
+        // Workers finish in any order; sorting by path keeps the patch reproducible.
+        Map<String, String> diffs = new TreeMap<>();
+        Path base = baseDirectory.toAbsolutePath().normalize();
+        run(sourceFiles, base, outcome -> diffs.put(outcome.path, outcome.text));
+        for (String diff : diffs.values()) {
+            patch.write(diff);
+        }
+        patch.flush();
+    }
+
+    private void run(List<Path> sourceFiles, Path diffBase, StagedPipeline.ResultWriter<FileOutcome> changeWriter)
+            throws IOException, InterruptedException {
+        changedFiles = 0;
+        unchangedFiles = 0;
+        failedFiles = 0;
+        StagedPipeline<FileOutcome> pipeline = new StagedPipeline<>(parallelism);
+        try {
+            pipeline.run(sourceFiles, () -> {
+                JavaParser parser = new JavaParser(new ParserConfiguration().setLanguageLevel(languageLevel));
+                return source -> annotate(parser, source, diffBase);
+            }, outcome -> {
+                if (outcome.failure != null) {
+                    failedFiles++;
+                    System.err.println(outcome.failure);
+                } else if (outcome.text == null) {
+                    unchangedFiles++;
+                } else {
+                    changedFiles++;
+                    changeWriter.write(outcome);
+                }
+            });
+        } finally {
+            stageStats = pipeline.getStats();
+        }
+    }
+
+    private static FileOutcome annotate(JavaParser parser, StagedPipeline.Source source, Path diffBase) {
+        Path sourceFile = source.getFile();
+        try {
+            // A null check needs the null literal; most files can be skipped unparsed.
+            if (NULL_LITERAL.scan(source.getContent()) == 0) {
+                return FileOutcome.unchanged(sourceFile);
+            }
+            String original = StandardCharsets.UTF_8.decode(source.getContent().duplicate()).toString();
+            ParseResult<CompilationUnit> parseResult = parser.parse(original);
+            if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+                return FileOutcome.failed(sourceFile, "Failed to parse the source file: " + sourceFile
+                        + parseResult.getProblems().stream().findFirst().map(p -> " (" + p.getMessage() + ")").orElse(""));
+            }
+            List<MethodDeclaration> methods = NullCheckParser.findMethodsToAnnotate(parseResult.getResult().get());
+            if (methods.isEmpty()) {
+                return FileOutcome.unchanged(sourceFile);
+            }
+            String annotated = insertAnnotations(original, methods);
+            if (diffBase == null) {
+                return new FileOutcome(sourceFile, null, annotated, null);
+            }
+            String path = diffPath(diffBase, sourceFile);
+            return new FileOutcome(sourceFile, path, UnifiedDiff.diff(path, original, annotated), null);
+        } catch (IOException e) {
+            return FileOutcome.failed(sourceFile, "Failed to read the source file: " + sourceFile + " (" + e.getMessage() + ")");
+        } catch (RuntimeException e) {
+            // One misbehaving file must not abort the annotation of the remaining files.
+            return FileOutcome.failed(sourceFile, "Failed to annotate the source file: " + sourceFile + " (" + e.getMessage() + ")");
+        } catch (StackOverflowError e) {
+            // Like any other failure, this one only costs the file.
+            return FileOutcome.failed(sourceFile, "Failed to annotate the source file: " + sourceFile
+                    + " (nested too deeply to parse)");
+        }
+    }
+
+    /**
+     * Inserts the annotation in front of each method, on a line of its own with
+     * the method's indentation when the method starts its line, and a
+     * {@code // Null check present} line in front of every line of the method
+     * body holding a null check. Editing the text directly leaves every other
+     * byte of the file as it was and avoids setting up lexical preservation for
+     * the whole unit.
+     *
+     * @param methods the methods in source order
+     */
+    public static String insertAnnotations(String source, List<MethodDeclaration> methods) {
+        int[] lineStarts = SourceRanges.lineStarts(source);
+        String lineSeparator = source.contains("\r\n") ? "\r\n" : "\n";
+        // Text to insert by offset; a nested method may share a line with a null check.
+        TreeMap<Integer, String> insertions = new TreeMap<>();
+        Set<Integer> commentedLines = new HashSet<>();
+        for (MethodDeclaration method : methods) {
+            Position begin = method.getBegin().orElseThrow(() -> new IllegalStateException("Method without position"));
+            int lineStart = lineStarts[begin.line - 1];
+            int offset = lineStart + begin.column - 1;
+            int indentEnd = indentEnd(source, lineStart, offset);
+            if (indentEnd == offset) {
+                insertions.merge(lineStart, source.substring(lineStart, indentEnd) + ANNOTATION + lineSeparator, String::concat);
+            } else {
+                insertions.merge(offset, ANNOTATION + " ", String::concat);
+            }
+            for (BinaryExpr nullCheck : method.findAll(BinaryExpr.class, NullCheckParser::isNullCheck)) {
+                int line = nullCheck.getBegin().map(position -> position.line).orElse(begin.line);
+                // A check on the method's first line would end up above the annotation.
+                if (line > begin.line && commentedLines.add(line)) {
+                    int checkLineStart = lineStarts[line - 1];
+                    String indent = source.substring(checkLineStart, indentEnd(source, checkLineStart, source.length()));
+                    insertions.merge(checkLineStart, indent + NULL_CHECK_COMMENT + lineSeparator, String::concat);
+                }
+            }
+        }
+        StringBuilder annotated = new StringBuilder(source.length() + methods.size() * (ANNOTATION.length() + 48));
+        int copied = 0;
+        for (Map.Entry<Integer, String> insertion : insertions.entrySet()) {
+            annotated.append(source, copied, insertion.getKey()).append(insertion.getValue());
+            copied = insertion.getKey();
+        }
+        return annotated.append(source, copied, source.length()).toString();
+    }
+
+    private static int indentEnd(String source, int lineStart, int limit) {
+        int indentEnd = lineStart;
+        while (indentEnd < limit && (source.charAt(indentEnd) == ' ' || source.charAt(indentEnd) == '\t')) {
+            indentEnd++;
+        }
+        return indentEnd;
+    }
+
+    private static String diffPath(Path base, Path sourceFile) {
+        Path absolute = sourceFile.toAbsolutePath().normalize();
+        // Files outside the base keep their full path, relative to the file system root.
+        Path relative = absolute.startsWith(base) ? base.relativize(absolute) : absolute.getRoot().relativize(absolute);
+        return relative.toString().replace('\\', '/');
+    }
+
+    public int getChangedFiles() {
+        return changedFiles;
+    }
+
+    public int getUnchangedFiles() {
+        return unchangedFiles;
+    }
+
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    /**
+     * The statistics of the read, process and write stages of the last run, or
+     * {@code null} before the first run.
+     */
+    public List<StageStats> getStageStats() {
+        return stageStats;
+    }
+
+    /**
+     * The annotated content or diff of one file, nothing if the file does not
+     * change, or why it could not be annotated.
+     */
+    private static final class FileOutcome {
+
+        final Path file;
+        final String path;
+        final String text;
+        final String failure;
+
+        FileOutcome(Path file, String path, String text, String failure) {
+            this.file = file;
+            this.path = path;
+            this.text = text;
+            this.failure = failure;
+        }
+
+        static FileOutcome unchanged(Path file) {
+            return new FileOutcome(file, null, null, null);
+        }
+
+        static FileOutcome failed(Path file, String failure) {
+            return new FileOutcome(file, null, null, failure);
+        }
+    }
+}
@@ -21,75 +21,132 @@ package nullcheckparser;
  * @author Freya Ebba Christ 
  */
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.BinaryExpr;
-import com.github.javaparser.ast.visitor.ModifierVisitor;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
 
-import java.io.FileInputStream;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.HashSet;
+import refactoring.AnalysisRule;
+import refactoring.RuleEngine;
+import refactoring.SourceFileLocator;
+import refactoring.StageStats;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
 
 public class NullCheckParser {
     public static void main(String[] args) throws Exception {
-        // Load and parse the Java source file
-        FileInputStream in = new FileInputStream("path/to/YourJavaFile.java");
-        CompilationUnit compilationUnit = new JavaParser(new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_8))
-                .parse(in)
-                .getResult()
-                .orElseThrow(() -> new RuntimeException("Unable to parse the file"));
+        if (args.length < 1) {
+            System.out.println("Usage: NullCheckParser <sourceFilePath|sourceDirectory|glob> [--dry-run] [--patch <file>]"
+                    + " [--language-level <version>|auto] [--parallelism <n>]");
+            return;
+        }
 
-        // Enable lexical preservation
-        LexicalPreservingPrinter.setup(compilationUnit);
+        boolean dryRun = false;
+        String patchFile = null;
+        String languageLevelOption = "auto";
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--dry-run")) {
+                dryRun = true;
+            } else if (args[i].equals("--patch") && i + 1 < args.length) {
+                dryRun = true;
+                patchFile = args[++i];
+            } else if (args[i].equals("--language-level") && i + 1 < args.length) {
+                languageLevelOption = args[++i];
+            } else if (args[i].equals("--parallelism") && i + 1 < args.length) {
+                parallelism = Integer.parseInt(args[++i]);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
 
-        // Process the file
-        NullCheckVisitor nullCheckVisitor = new NullCheckVisitor();
-        compilationUnit.accept(nullCheckVisitor, null);
-        compilationUnit.accept(new MethodAnnotationVisitor(), nullCheckVisitor.getMethodsToAnnotate());
+        List<Path> sourceFiles = SourceFileLocator.locate(args[0]);
+        if (sourceFiles.isEmpty()) {
+            System.err.println("No source files found for " + args[0]);
+            return;
+        }
+        LanguageLevel languageLevel;
+        if (languageLevelOption.equals("auto")) {
+            // The nearest Maven or Gradle build of the sources decides.
+            Path start = Files.isDirectory(Paths.get(args[0])) ? Paths.get(args[0]) : sourceFiles.get(0).toAbsolutePath().getParent();
+            LanguageLevel detected = LanguageLevels.detect(start);
+            languageLevel = detected != null ? detected : LanguageLevels.LATEST;
+            System.err.println("Language level: " + languageLevel + (detected != null ? " (detected)" : " (default)"));
+        } else {
+            languageLevel = LanguageLevels.parse(languageLevelOption);
+        }
 
-        // Save the modified compilation unit
-        saveToFile(compilationUnit, "path/to/ModifiedYourJavaFile.java");
+        long start = System.nanoTime();
+        NullCheckAnnotator annotator = new NullCheckAnnotator(languageLevel, parallelism);
+        if (dryRun) {
+            try (Writer patch = patchFile == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : Files.newBufferedWriter(Paths.get(patchFile), StandardCharsets.UTF_8)) {
+                annotator.writePatch(sourceFiles, Paths.get(""), patch);
+            }
+        } else {
+            annotator.annotateInPlace(sourceFiles);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.err.println((dryRun ? "Would change " : "Changed ") + annotator.getChangedFiles() + " of " + sourceFiles.size()
+                + " files (" + annotator.getUnchangedFiles() + " unchanged, " + annotator.getFailedFiles() + " failed) in "
+                + elapsedMillis + " ms using " + parallelism + " threads.");
+        for (StageStats stage : annotator.getStageStats()) {
+            System.err.println("  " + stage);
+        }
     }
 
-    private static class NullCheckVisitor extends VoidVisitorAdapter<Void> {
-        private final Set<MethodDeclaration> methodsToAnnotate = new HashSet<>();
-
-        @Override
-        public void visit(BinaryExpr n, Void arg) {
-            super.visit(n, arg);
-            if ((n.getOperator() == BinaryExpr.Operator.EQUALS || n.getOperator() == BinaryExpr.Operator.NOT_EQUALS)
-                    && (n.getLeft().isNullLiteralExpr() || n.getRight().isNullLiteralExpr())) {
-                n.addOrphanComment(new com.github.javaparser.ast.comments.LineComment("Null check present"));
-                n.findAncestor(MethodDeclaration.class).ifPresent(methodsToAnnotate::add);
+    /**
+     * Finds the methods containing a null check that do not carry
+     * {@code @NullCheckPerformed} yet, in source order, without modifying the unit.
+     */
+    public static List<MethodDeclaration> findMethodsToAnnotate(CompilationUnit compilationUnit) {
+        NullCheckCollector nullCheckCollector = new NullCheckCollector();
+        new RuleEngine(AnalysisRule.forNodeType(BinaryExpr.class, nullCheckCollector::checkForNullCheck))
+                .run(compilationUnit);
+        List<MethodDeclaration> methods = new ArrayList<>();
+        compilationUnit.walk(MethodDeclaration.class, method -> {
+            if (nullCheckCollector.getMethodsToAnnotate().contains(method) && !isAnnotated(method)) {
+                methods.add(method);
             }
-        }
+        });
+        return methods;
+    }
 
-        public Set<MethodDeclaration> getMethodsToAnnotate() {
-            return methodsToAnnotate;
-        }
+    static boolean isAnnotated(MethodDeclaration method) {
+        return method.isAnnotationPresent(NullCheckPerformed.class.getSimpleName())
+                || method.isAnnotationPresent(NullCheckPerformed.class.getName());
+    }
+
+    static boolean isNullCheck(BinaryExpr n) {
+        return (n.getOperator() == BinaryExpr.Operator.EQUALS || n.getOperator() == BinaryExpr.Operator.NOT_EQUALS)
+                && (n.getLeft().isNullLiteralExpr() || n.getRight().isNullLiteralExpr());
     }
 
-    private static class MethodAnnotationVisitor extends ModifierVisitor<Set<MethodDeclaration>> {
-        @Override
-        public MethodDeclaration visit(MethodDeclaration n, Set<MethodDeclaration> arg) {
-            super.visit(n, arg);
-            if (arg.contains(n)) {
-                n.addAnnotation("NullCheckPerformed");
+    private static class NullCheckCollector {
+        // Nodes compare structurally; two equal methods in different classes are still two methods.
+        private final Set<MethodDeclaration> methodsToAnnotate = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        void checkForNullCheck(BinaryExpr n) {
+            if (isNullCheck(n)) {
+                n.findAncestor(MethodDeclaration.class).ifPresent(methodsToAnnotate::add);
             }
-            return n;
         }
-    }
 
-    private static void saveToFile(CompilationUnit cu, String path) throws IOException {
-        try (FileWriter fileWriter = new FileWriter(path)) {
-            fileWriter.write(LexicalPreservingPrinter.print(cu));
+        public Set<MethodDeclaration> getMethodsToAnnotate() {
+            return methodsToAnnotate;
         }
     }
 }
-
@@ -22,7 +22,11 @@ package refactoring;
  * @author Freya Ebba Christ 
  */
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.AssignExpr;
@@ -40,37 +44,112 @@ import com.github.javaparser.ast.stmt.SynchronizedStmt;
 import com.github.javaparser.ast.stmt.TryStmt;
 import com.github.javaparser.ast.stmt.WhileStmt;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import com.github.javaparser.resolution.UnsolvedSymbolException;
-import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.resolution.types.ResolvedType;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import refactoring.Finding.Severity;
+
 public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
 
+    public static final String RULE_TRY_WITHOUT_CATCH = "try-without-catch";
+    public static final String RULE_EMPTY_CATCH = "empty-catch";
+    public static final String RULE_BROAD_CATCH = "broad-catch";
+    public static final String RULE_MISSING_FINALLY = "missing-finally";
+    public static final String RULE_NON_FINAL_LOCK = "non-final-lock";
+    public static final String RULE_EMPTY_SYNCHRONIZED = "empty-synchronized";
+    public static final String RULE_EXCESSIVE_CONTENTION = "excessive-contention";
+    public static final String RULE_NESTED_SYNCHRONIZED = "nested-synchronized";
+    public static final String RULE_REENTRANT_LOCK = "reentrant-lock";
+    public static final String RULE_LOCK_ACCESSED_OUTSIDE = "lock-accessed-outside";
+    public static final String RULE_FOR_LOOP_ENHANCEMENT = "for-loop-enhancement";
+    public static final String RULE_FOR_EACH = "for-each";
+    public static final String RULE_EMPTY_WHILE = "empty-while";
+    public static final String RULE_NULL_CHECK_LOOP = "null-check-loop";
+    public static final String RULE_NULL_DEREFERENCE = "null-dereference";
+
+    private final String file;
+    private final FindingSink sink;
+    private final TypeResolution typeResolution;
     private Set<NameExpr> lockedVariables = new HashSet<>();
+    private CompilationUnit indexedUnit;
+    private LockUsageIndex lockUsageIndex;
+    private long lockIndexVisits;
+    private Node flowOwner;
+    private MethodFlowAnalysis flowAnalysis;
+
+    public AdvancedControlFlowAnalyzer() {
+        this("<unknown>", new ConsoleFindingSink(System.out));
+    }
+
+    /**
+     * @param file the name of the analyzed file, used in every finding
+     * @param sink receives the findings
+     */
+    public AdvancedControlFlowAnalyzer(String file, FindingSink sink) {
+        this(file, sink, null);
+    }
+
+    /**
+     * @param typeResolution resolves types for the type-aware checks; it must be
+     *        the one configured on the parser of the analyzed files. With
+     *        {@code null}, those checks are skipped.
+     */
+    public AdvancedControlFlowAnalyzer(String file, FindingSink sink, TypeResolution typeResolution) {
+        this.file = file;
+        this.sink = sink;
+        this.typeResolution = typeResolution;
+    }
+
+    /**
+     * The checks of this analyzer as rules for the {@link RuleEngine}. The rules
+     * share this analyzer's state, so they must be used for one file at a time.
+     * The synchronized checks look at the whole unit, and the for-each check
+     * at resolved types if there are any; the others are method-local.
+     */
+    public List<AnalysisRule> getRules() {
+        AnalysisRule forRule = AnalysisRule.forNodeType("for", ForStmt.class, this::analyzeForLoop, "for");
+        return Arrays.asList(
+                AnalysisRule.methodLocal(AnalysisRule.forNodeType("try", TryStmt.class, this::analyzeTryStatement, "try")),
+                AnalysisRule.forNodeType("synchronized", SynchronizedStmt.class, this::analyzeSynchronizedBlock,
+                        "synchronized"),
+                typeResolution == null ? AnalysisRule.methodLocal(forRule) : forRule,
+                AnalysisRule.methodLocal(AnalysisRule.forNodeType("while", WhileStmt.class, this::analyzeWhileLoop, "while")),
+                AnalysisRule.methodLocal(AnalysisRule.forNodeType("null-dereference", CallableDeclaration.class,
+                        this::analyzeNullDereferences, "null")));
+    }
+
+    private void report(String ruleId, Severity severity, Node node, String message) {
+        sink.accept(Finding.at(ruleId, severity, file, node, message));
+    }
 
     @Override
     public void visit(TryStmt n, Void arg) {
         super.visit(n, arg);
+        analyzeTryStatement(n);
+    }
+
+    private void analyzeTryStatement(TryStmt n) {
         checkForBroadCatchClauses(n);
         checkForFinallyBlock(n);
     }
 
     private void checkForBroadCatchClauses(TryStmt n) {
         if (n.getCatchClauses().isEmpty()) {
-            System.out.println("Warning: Try block without catch clause. Consider adding catch clauses for specific exceptions.");
+            report(RULE_TRY_WITHOUT_CATCH, Severity.WARNING, n, "Try block without catch clause. Consider adding catch clauses for specific exceptions.");
             return;
         }
         n.getCatchClauses().forEach(catchClause -> {
             Parameter parameter = catchClause.getParameter();
             if (parameter == null) {
-                System.out.println("Warning: Empty catch clause. Consider adding catch clauses for specific exceptions.");
+                report(RULE_EMPTY_CATCH, Severity.WARNING, catchClause, "Empty catch clause. Consider adding catch clauses for specific exceptions.");
             } else {
                 String exceptionType = parameter.getType().asString();
                 if (exceptionType.equals("Exception") || exceptionType.equals("Throwable")) {
-                    System.out.println("Warning: Catching " + exceptionType + ". Consider catching more specific exceptions.");
+                    report(RULE_BROAD_CATCH, Severity.WARNING, catchClause, "Catching " + exceptionType + ". Consider catching more specific exceptions.");
                 }
             }
         });
@@ -78,7 +157,7 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
 
     private void checkForFinallyBlock(TryStmt n) {
         if (!n.getFinallyBlock().isPresent()) {
-            System.out.println("Warning: Try block without finally block. Consider adding a finally block for cleanup.");
+            report(RULE_MISSING_FINALLY, Severity.WARNING, n, "Try block without finally block. Consider adding a finally block for cleanup.");
         }
     }
 
@@ -89,7 +168,6 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
     }
 
     private void analyzeSynchronizedBlock(SynchronizedStmt synchronizedStmt) {
-        System.out.println("Analyzing synchronized block...");
         checkForNonFinalFieldLock(synchronizedStmt);
         checkForEmptyBlock(synchronizedStmt);
         checkForExcessiveContention(synchronizedStmt);
@@ -99,25 +177,25 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
 
     private void checkForNonFinalFieldLock(SynchronizedStmt synchronizedStmt) {
         if (!isLockOnFinalField(synchronizedStmt)) {
-            System.out.println("Warning: Synchronized block may lock on a non-final field. Consider using a private final field or a dedicated lock object.");
+            report(RULE_NON_FINAL_LOCK, Severity.WARNING, synchronizedStmt, "Synchronized block may lock on a non-final field. Consider using a private final field or a dedicated lock object.");
         }
     }
 
     private void checkForEmptyBlock(SynchronizedStmt synchronizedStmt) {
         if (isEmptySynchronizedBlock(synchronizedStmt)) {
-            System.out.println("Warning: Empty synchronized block found. Ensure it is intentional.");
+            report(RULE_EMPTY_SYNCHRONIZED, Severity.WARNING, synchronizedStmt, "Empty synchronized block found. Ensure it is intentional.");
         }
     }
 
     private void checkForExcessiveContention(SynchronizedStmt synchronizedStmt) {
         if (isExcessiveContention(synchronizedStmt)) {
-            System.out.println("Warning: Excessive contention detected. Consider using finer-grained locks or lock-free algorithms.");
+            report(RULE_EXCESSIVE_CONTENTION, Severity.WARNING, synchronizedStmt, "Excessive contention detected. Consider using finer-grained locks or lock-free algorithms.");
         }
     }
 
     private void checkForNestedSynchronizedBlocks(SynchronizedStmt synchronizedStmt) {
         if (hasNestedSynchronizedBlocks(synchronizedStmt)) {
-            System.out.println("Warning: Nested synchronized blocks found. Avoid nesting synchronized blocks as it may lead to deadlock.");
+            report(RULE_NESTED_SYNCHRONIZED, Severity.WARNING, synchronizedStmt, "Nested synchronized blocks found. Avoid nesting synchronized blocks as it may lead to deadlock.");
         }
     }
 
@@ -131,15 +209,8 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
     }
 
     private boolean isExcessiveContention(SynchronizedStmt synchronizedStmt) {
-        Optional<CompilationUnit> optionalRoot = synchronizedStmt.findCompilationUnit();
-        if (optionalRoot.isPresent()) {
-            CompilationUnit root = optionalRoot.get();
-            long count = root.findAll(SynchronizedStmt.class).stream()
-                    .filter(block -> block.getExpression().equals(synchronizedStmt.getExpression()))
-                    .count();
-            return count > 2;
-        }
-        return false;
+        LockUsageIndex index = lockUsageIndex(synchronizedStmt);
+        return index != null && index.getSynchronizedSites(synchronizedStmt.getExpression()).size() > 2;
     }
 
     private boolean hasNestedSynchronizedBlocks(SynchronizedStmt synchronizedStmt) {
@@ -158,34 +229,54 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
         if (synchronizedStmt.getExpression().isNameExpr()) {
             NameExpr lockVariable = (NameExpr) synchronizedStmt.getExpression();
             if (lockedVariables.contains(lockVariable)) {
-                System.out.println("Warning: Reentrant lock usage detected on variable '" + lockVariable.getNameAsString() + "'.");
+                report(RULE_REENTRANT_LOCK, Severity.WARNING, synchronizedStmt, "Reentrant lock usage detected on variable '" + lockVariable.getNameAsString() + "'.");
             } else {
                 lockedVariables.add(lockVariable);
-                Optional<CompilationUnit> optionalRoot = synchronizedStmt.findCompilationUnit();
-                if (optionalRoot.isPresent()) {
-                    CompilationUnit root = optionalRoot.get();
-                    root.findAll(NameExpr.class).stream()
-                            .filter(expr -> expr.equals(lockVariable))
-                            .forEach(expr -> {
-                                if (!expr.equals(synchronizedStmt.getExpression())) {
-                                    System.out.println("Warning: Lock variable '" + lockVariable.getNameAsString() + "' accessed outside synchronized block.");
-                                }
-                            });
+                LockUsageIndex index = lockUsageIndex(synchronizedStmt);
+                if (index != null) {
+                    index.getUnguardedReferences(lockVariable.getNameAsString()).forEach(expr ->
+                            report(RULE_LOCK_ACCESSED_OUTSIDE, Severity.WARNING, expr, "Lock variable '" + lockVariable.getNameAsString() + "' accessed outside synchronized block."));
                 }
             }
         }
     }
 
+    /**
+     * Returns the lock usage index of the compilation unit containing the given
+     * statement, building it on first use so each unit is traversed only once.
+     */
+    private LockUsageIndex lockUsageIndex(SynchronizedStmt synchronizedStmt) {
+        Optional<CompilationUnit> optionalRoot = synchronizedStmt.findCompilationUnit();
+        if (!optionalRoot.isPresent()) {
+            return null;
+        }
+        if (indexedUnit != optionalRoot.get()) {
+            indexedUnit = optionalRoot.get();
+            lockUsageIndex = LockUsageIndex.build(indexedUnit);
+            lockIndexVisits += lockUsageIndex.getVisitedNodes();
+        }
+        return lockUsageIndex;
+    }
+
+    /**
+     * The number of nodes the lock checks traversed so far, over all units.
+     */
+    long getLockIndexVisits() {
+        return lockIndexVisits;
+    }
+
     @Override
     public void visit(ForStmt n, Void arg) {
         super.visit(n, arg);
+        analyzeForLoop(n);
+    }
 
+    private void analyzeForLoop(ForStmt n) {
         if (checkVariableDeclaration(n) && checkIncrement(n) && !isEmptyLoop(n)) {
-            System.out.println("This for-loop might be eligible for enhancement:");
-            System.out.println(n);
+            report(RULE_FOR_LOOP_ENHANCEMENT, Severity.INFO, n, "This for-loop might be eligible for enhancement.");
         }
 
-        if (!n.getCompare().isPresent()) {
+        if (n.getCompare().isPresent()) {
             Expression compare = n.getCompare().get();
 
             if (compare.isBinaryExpr()) {
@@ -196,8 +287,7 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
 
         // Added check for array or collection iteration
         if (isArrayOrCollectionIteration(n)) {
-            System.out.println("Recommendation: Consider using a for-each loop for array/collection iteration for better readability and less error-prone code.");
-            System.out.println(n);
+            report(RULE_FOR_EACH, Severity.INFO, n, "Consider using a for-each loop for array/collection iteration for better readability and less error-prone code.");
         }
     }
 
@@ -300,6 +390,9 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
             return false;
         }
 
+        if (typeResolution == null || !methodCallExpr.getScope().isPresent()) {
+            return false;
+        }
         try {
             // Perform type resolution on the method call's scope to determine the type
             ResolvedType resolvedType = methodCallExpr.getScope().get().calculateResolvedType();
@@ -307,37 +400,14 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
             if (resolvedType.isArray()) {
                 return true;
             }
-            if (resolvedType.isReferenceType()) {
-                // Check for Collection type
-                if (resolvedType.isReferenceType()) {
-                    // Check for Collection type
-                    return isCollectionType(resolvedType);
-                }
-            }
-        } catch (UnsolvedSymbolException | UnsupportedOperationException e) {
-            System.err.println("Error resolving type: " + e.getMessage());
-        }
-        return false;
-    }
-
-    private boolean isCollectionType(ResolvedType resolvedType) {
-        if (!resolvedType.isReferenceType()) {
+            return resolvedType.isReferenceType()
+                    && typeResolution.isSubtypeOf(resolvedType.asReferenceType(), "java.util.Collection");
+        } catch (RuntimeException e) {
+            // Unresolvable code (missing dependencies, unsupported constructs) is
+            // common; it is counted instead of being reported for every loop.
+            typeResolution.recordFailure();
             return false;
         }
-
-        // Obtain the list of all ancestors of the resolved type, which includes all superclasses and interfaces.
-        try {
-            for (ResolvedReferenceType ancestor : resolvedType.asReferenceType().getAllAncestors()) {
-                String ancestorName = ancestor.getQualifiedName();
-                if (ancestorName.equals("java.util.Collection")) {
-                    return true;
-                }
-            }
-        } catch (UnsolvedSymbolException e) {
-            System.err.println("Could not resolve ancestor types for: " + resolvedType.describe());
-        }
-
-        return false;
     }
 
     private boolean checkIncrement(ForStmt forStmt) {
@@ -382,14 +452,13 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
     }
 
     private void analyzeWhileLoop(WhileStmt whileStmt) {
-        System.out.println("Analyzing while-loop...");
         checkForEmptyWhileLoop(whileStmt);
         checkForNullCheckLoop(whileStmt);
     }
 
     private void checkForEmptyWhileLoop(WhileStmt whileStmt) {
         if (isEmptyWhileLoop(whileStmt)) {
-            System.out.println("Warning: Empty while-loop found. Ensure it is intentional.");
+            report(RULE_EMPTY_WHILE, Severity.WARNING, whileStmt, "Empty while-loop found. Ensure it is intentional.");
         }
     }
 
@@ -397,14 +466,78 @@ public class AdvancedControlFlowAnalyzer extends VoidVisitorAdapter<Void> {
         return !whileStmt.getBody().isBlockStmt() || whileStmt.getBody().asBlockStmt().isEmpty();
     }
 
+    /**
+     * Reports a loop on {@code x != null} that can never end once entered: the
+     * condition is on a local variable that no path through the loop assigns, and
+     * no break, return or caught throw leaves the loop.
+     */
     private void checkForNullCheckLoop(WhileStmt whileStmt) {
         Expression condition = whileStmt.getCondition();
-        if (condition.isBinaryExpr()) {
-            BinaryExpr binaryExpr = condition.asBinaryExpr();
-            if (binaryExpr.getOperator() == BinaryExpr.Operator.NOT_EQUALS && binaryExpr.getRight() instanceof NullLiteralExpr) {
-                System.out.println("Warning: Infinite loop detected due to null check. Ensure there's a break or return statement inside the loop.");
-            }
+        if (!condition.isBinaryExpr() || condition.asBinaryExpr().getOperator() != BinaryExpr.Operator.NOT_EQUALS) {
+            return;
+        }
+        BinaryExpr binaryExpr = condition.asBinaryExpr();
+        Expression checked = binaryExpr.getRight() instanceof NullLiteralExpr ? binaryExpr.getLeft()
+                : binaryExpr.getLeft() instanceof NullLiteralExpr ? binaryExpr.getRight() : null;
+        if (checked == null || !checked.isNameExpr()) {
+            return;
+        }
+        String variable = checked.asNameExpr().getNameAsString();
+        MethodFlowAnalysis flow = flowAnalysis(MethodFlowAnalysis.findOwner(whileStmt));
+        ControlFlowGraph.Loop loop = flow == null ? null : flow.getGraph().getLoop(whileStmt);
+        if (loop == null || !flow.isLocalVariable(variable) || !flow.isReachable(loop.getHead())
+                || flow.isDefinitelyNull(loop.getHead(), variable)
+                || flow.isAssignedIn(loop, variable) || flow.canExitEarly(loop)) {
+            return;
+        }
+        report(RULE_NULL_CHECK_LOOP, Severity.WARNING, whileStmt, "Infinite loop: '" + variable
+                + "' is never assigned in the loop, and no break, return or throw leaves it.");
+    }
+
+    @Override
+    public void visit(MethodDeclaration n, Void arg) {
+        super.visit(n, arg);
+        analyzeNullDereferences(n);
+    }
+
+    @Override
+    public void visit(ConstructorDeclaration n, Void arg) {
+        super.visit(n, arg);
+        analyzeNullDereferences(n);
+    }
+
+    /**
+     * Reports dereferences of local variables that are null on every path to
+     * them. Only bodies containing a null literal can have such variables.
+     */
+    private void analyzeNullDereferences(CallableDeclaration<?> callable) {
+        if (!callable.findFirst(NullLiteralExpr.class).isPresent()) {
+            return;
+        }
+        MethodFlowAnalysis flow = flowAnalysis(callable);
+        if (flow == null) {
+            return;
+        }
+        for (MethodFlowAnalysis.NullDereference dereference : flow.findNullDereferences()) {
+            report(RULE_NULL_DEREFERENCE, Severity.WARNING, dereference.getNode(), "'" + dereference.getVariable()
+                    + "' is always null here; dereferencing it throws a NullPointerException.");
+        }
+    }
+
+    /**
+     * Returns the flow analysis of the given method, constructor, initializer or
+     * lambda, reusing the last one, since the rules of a body are run one after
+     * another.
+     */
+    private MethodFlowAnalysis flowAnalysis(Node owner) {
+        if (owner == null) {
+            return null;
+        }
+        if (flowOwner != owner) {
+            flowOwner = owner;
+            flowAnalysis = MethodFlowAnalysis.of(owner);
         }
+        return flowAnalysis;
     }
 
     private boolean isEmptyLoop(ForStmt forStmt) {
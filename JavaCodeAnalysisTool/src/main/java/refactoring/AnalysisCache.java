@@ -0,0 +1,361 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.expr.BinaryExpr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of per-file analysis results, keyed by the SHA-256 of the file
+ * content, the analysis version and the rule configuration. A hit lets the
+ * caller skip parsing entirely.
+ * <p>
+ * Every entry is a small binary file ({@code <dir>/ab/abcdef....bin}) holding a
+ * string table followed by variable-length encoded integers. Entries are written
+ * to a temporary file and atomically renamed into place, so any number of worker
+ * threads (or processes) can share one cache directory; an unreadable entry is
+ * simply treated as a miss. The cache is bounded in size: a hit refreshes the
+ * entry's modification time, and when the bound is exceeded the least recently
+ * used entries are deleted.
+ */
+public class AnalysisCache {
+
+    private static final int MAGIC = 0x4A434143; // "JCAC"
+    private static final int FORMAT_VERSION = 5;
+    private static final String ENTRY_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final byte[] keyPrefix;
+    private final AtomicLong currentBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory the cache directory, created if missing
+     * @param maxBytes the size bound of all entries together
+     * @param configuration everything besides the file content that influences
+     *        the result, e.g. the analysis version and the enabled rules
+     */
+    public AnalysisCache(Path directory, long maxBytes, String configuration) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.keyPrefix = (FORMAT_VERSION + "\0" + configuration + "\0").getBytes(StandardCharsets.UTF_8);
+        Files.createDirectories(directory);
+        try (Stream<Path> entries = listEntries()) {
+            currentBytes.set(entries.mapToLong(AnalysisCache::sizeOf).sum());
+        }
+    }
+
+    public String keyFor(byte[] content) {
+        return keyFor(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Same as {@link #keyFor(byte[])} for content in a buffer, e.g. a memory-mapped
+     * file. The buffer's position is not changed.
+     */
+    public String keyFor(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(keyPrefix);
+            digest.update(content.duplicate());
+            byte[] hash = digest.digest();
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Returns the cached result for {@code key}, or {@code null} on a miss.
+     * Entries are shared by all files with the same content, so the findings
+     * are attributed to {@code file}.
+     */
+    public FileAnalysisResult get(String key, String file) {
+        Path entry = entryPath(key);
+        FileAnalysisResult result;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            result = read(in, file);
+        } catch (IOException | RuntimeException e) {
+            // Missing, corrupt, truncated or concurrently evicted entries count as misses.
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        try {
+            // The modification time doubles as the last access time for eviction.
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Evicted concurrently; the result read above is still valid.
+        }
+        return result;
+    }
+
+    public void put(String key, FileAnalysisResult result) {
+        Path entry = entryPath(key);
+        Path temporary = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            temporary = Files.createTempFile(entry.getParent(), key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                write(out, result);
+            }
+            long size = Files.size(temporary);
+            // Another thread or process may have stored the same content; its entry is overwritten.
+            long replaced = sizeOf(entry);
+            Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temporary = null;
+            if (currentBytes.addAndGet(size - replaced) > maxBytes) {
+                evict();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // The cache is an optimization only; failing to store an entry is not an error.
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // Nothing left to do.
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Deletes least recently used entries until the cache is below 90% of its
+     * bound. Only one thread evicts at a time; others continue without waiting.
+     */
+    private void evict() throws IOException {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Path> entries;
+            try (Stream<Path> stream = listEntries()) {
+                entries = stream.collect(Collectors.toList());
+            }
+            Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+            long total = 0;
+            for (Path entry : entries) {
+                try {
+                    BasicFileAttributes entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    attributes.put(entry, entryAttributes);
+                    total += entryAttributes.size();
+                } catch (IOException e) {
+                    // Removed concurrently.
+                }
+            }
+            List<Path> byLastAccess = new ArrayList<>(attributes.keySet());
+            byLastAccess.sort((a, b) -> attributes.get(a).lastModifiedTime().compareTo(attributes.get(b).lastModifiedTime()));
+            long target = maxBytes / 10 * 9;
+            for (Path entry : byLastAccess) {
+                if (total <= target) {
+                    break;
+                }
+                if (Files.deleteIfExists(entry)) {
+                    total -= attributes.get(entry).size();
+                }
+            }
+            currentBytes.set(total);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private Stream<Path> listEntries() throws IOException {
+        return Files.walk(directory, 2)
+                .filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                .filter(Files::isRegularFile);
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void write(DataOutputStream out, FileAnalysisResult result) throws IOException {
+        // Collect the distinct strings first so that repeated values are stored once.
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        result.getFindings().forEach(finding -> {
+            strings.putIfAbsent(finding.getRuleId(), strings.size());
+            strings.putIfAbsent(finding.getMessage(), strings.size());
+            if (finding.getMember() != null) {
+                strings.putIfAbsent(finding.getMember(), strings.size());
+            }
+        });
+        result.getCapturedLogic().forEach((signature, checks) -> {
+            strings.putIfAbsent(signature, strings.size());
+            for (NullCheckMethodVisitor.NullCheckInfo check : checks) {
+                strings.putIfAbsent(check.variable, strings.size());
+            }
+        });
+
+        out.writeInt(MAGIC);
+        writeVarInt(out, FORMAT_VERSION);
+        writeVarInt(out, strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+        writeVarInt(out, result.getFindings().size());
+        for (Finding finding : result.getFindings()) {
+            writeVarInt(out, strings.get(finding.getRuleId()));
+            writeVarInt(out, finding.getSeverity().ordinal());
+            writeVarInt(out, finding.getBeginLine());
+            writeVarInt(out, finding.getBeginColumn());
+            writeVarInt(out, finding.getEndLine());
+            writeVarInt(out, finding.getEndColumn());
+            writeVarInt(out, strings.get(finding.getMessage()));
+            // Member ids are shifted by one, 0 standing for an unknown member.
+            writeVarInt(out, finding.getMember() == null ? 0 : strings.get(finding.getMember()) + 1);
+            out.writeLong(finding.getFingerprint());
+        }
+        writeVarInt(out, result.getCapturedLogic().size());
+        for (Map.Entry<String, List<NullCheckMethodVisitor.NullCheckInfo>> method : result.getCapturedLogic().entrySet()) {
+            writeVarInt(out, strings.get(method.getKey()));
+            writeVarInt(out, method.getValue().size());
+            for (NullCheckMethodVisitor.NullCheckInfo check : method.getValue()) {
+                writeVarInt(out, check.context.ordinal());
+                writeVarInt(out, check.statementBeginLine);
+                writeVarInt(out, check.statementBeginColumn);
+                writeVarInt(out, check.statementEndLine);
+                writeVarInt(out, check.statementEndColumn);
+                writeVarInt(out, check.operator.ordinal());
+                writeVarInt(out, strings.get(check.variable));
+                writeVarInt(out, check.line);
+            }
+        }
+    }
+
+    private static FileAnalysisResult read(DataInputStream in, String file) throws IOException {
+        if (in.readInt() != MAGIC || readVarInt(in) != FORMAT_VERSION) {
+            throw new IOException("Not a cache entry of this version");
+        }
+        String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int findingCount = readVarInt(in);
+        List<Finding> findings = new ArrayList<>(findingCount);
+        for (int i = 0; i < findingCount; i++) {
+            String ruleId = strings[readVarInt(in)];
+            Finding.Severity severity = Finding.Severity.values()[readVarInt(in)];
+            int beginLine = readVarInt(in);
+            int beginColumn = readVarInt(in);
+            int endLine = readVarInt(in);
+            int endColumn = readVarInt(in);
+            String message = strings[readVarInt(in)];
+            int member = readVarInt(in);
+            long fingerprint = in.readLong();
+            findings.add(new Finding(ruleId, severity, file, beginLine, beginColumn, endLine, endColumn, message,
+                    member == 0 ? null : strings[member - 1], fingerprint));
+        }
+        int methodCount = readVarInt(in);
+        Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> capturedLogic = new HashMap<>();
+        for (int i = 0; i < methodCount; i++) {
+            String signature = strings[readVarInt(in)];
+            int checkCount = readVarInt(in);
+            List<NullCheckMethodVisitor.NullCheckInfo> checks = new ArrayList<>(checkCount);
+            for (int j = 0; j < checkCount; j++) {
+                NullCheckMethodVisitor.Context context = NullCheckMethodVisitor.Context.values()[readVarInt(in)];
+                int statementBeginLine = readVarInt(in);
+                int statementBeginColumn = readVarInt(in);
+                int statementEndLine = readVarInt(in);
+                int statementEndColumn = readVarInt(in);
+                BinaryExpr.Operator operator = BinaryExpr.Operator.values()[readVarInt(in)];
+                String variable = strings[readVarInt(in)];
+                int line = readVarInt(in);
+                checks.add(new NullCheckMethodVisitor.NullCheckInfo(context, statementBeginLine, statementBeginColumn,
+                        statementEndLine, statementEndColumn, operator, variable, line));
+            }
+            capturedLogic.put(signature, checks);
+        }
+        return new FileAnalysisResult(findings, capturedLogic, null);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
@@ -0,0 +1,96 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * The command line client of an {@link AnalysisDaemon}. It only forwards the
+ * request and copies the response, so it loads none of the parser classes and
+ * starts about as fast as a JVM can.
+ * <pre>
+ * java refactoring.AnalysisClient &lt;socket&gt; [--format text|jsonl] &lt;sourceFile&gt;...
+ * java refactoring.AnalysisClient &lt;socket&gt; --status|--shutdown
+ * </pre>
+ * Findings are printed to standard output and problems to standard error. The
+ * exit status is 1 if there were findings, 2 if there were problems and 0 otherwise.
+ */
+public class AnalysisClient {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: AnalysisClient <socket> [--format text|jsonl] <sourceFile>...");
+            System.out.println("       AnalysisClient <socket> --status|--shutdown");
+            return;
+        }
+
+        StringBuilder request = new StringBuilder();
+        boolean analyze = !args[1].equals("--status") && !args[1].equals("--shutdown");
+        if (!analyze) {
+            request.append(args[1].substring(2)).append('\n');
+        } else {
+            int first = 1;
+            String format = "text";
+            if (args[1].equals("--format") && args.length > 3) {
+                format = args[2];
+                first = 3;
+            }
+            request.append("analyze\n").append(format).append('\n');
+            for (int i = first; i < args.length; i++) {
+                // The daemon runs in another directory; relative paths are resolved here.
+                request.append(Path.of(args[i]).toAbsolutePath().normalize()).append('\n');
+            }
+        }
+
+        int status = 0;
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(args[0]));
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(request.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            channel.shutdownOutput();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith("error: ")) {
+                    System.err.println(line.substring("error: ".length()));
+                    status = 2;
+                } else {
+                    System.out.println(line);
+                    if (analyze) {
+                        status = Math.max(status, 1);
+                    }
+                }
+            }
+        }
+        System.out.flush();
+        System.exit(status);
+    }
+}
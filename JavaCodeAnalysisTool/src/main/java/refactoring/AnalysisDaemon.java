@@ -0,0 +1,398 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the analysis resident between runs, so that editors and pre-commit
+ * hooks do not pay for JVM startup, class loading and a cold JIT on every call.
+ * The daemon analyzes all sources under its roots once, keeps the findings of
+ * every file in memory together with the shared {@link TypeResolution}, and
+ * watches the roots to re-analyze files as soon as they change.
+ * <p>
+ * Clients connect over a Unix domain socket (see {@link AnalysisClient}). A
+ * request is a command on the first line followed by one argument per line;
+ * the client then shuts down its output and reads the response until the
+ * daemon closes the connection:
+ * <pre>
+ * analyze text|jsonl    findings of the given files, one per line; problems as "error: ..." lines
+ * status                counters of the daemon
+ * shutdown              stops the daemon
+ * </pre>
+ * A requested file whose size or modification time differs from the analyzed
+ * version is analyzed before answering, so responses never lag behind the
+ * watcher.
+ */
+public class AnalysisDaemon {
+
+    /** Editors often write a file several times per save; events this close together are handled once. */
+    private static final long DEBOUNCE_MILLIS = 20;
+
+    private final List<Path> roots = new ArrayList<>();
+    private final TypeResolution typeResolution;
+    private final Map<Path, FileState> files = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final ThreadLocal<SourceFileAnalyzer> analyzers;
+    private final ExecutorService connections = Executors.newFixedThreadPool(4,
+            StagedPipeline.namedThreads("daemon-connection-"));
+    private final LongAdder analyses = new LongAdder();
+    private final LongAdder freshHits = new LongAdder();
+    private WatchService watchService;
+    private ServerSocketChannel server;
+    private volatile boolean running = true;
+
+    /**
+     * @param typeResolution the type resolution kept for the lifetime of the daemon, or {@code null} to skip type-aware checks
+     */
+    public AnalysisDaemon(List<Path> roots, TypeResolution typeResolution) {
+        for (Path root : roots) {
+            this.roots.add(root.toAbsolutePath().normalize());
+        }
+        this.typeResolution = typeResolution;
+        // Findings are taken from the results; every thread analyzes with its own parser.
+        AnalysisOptions options = AnalysisOptions.builder().typeResolution(typeResolution).build();
+        this.analyzers = ThreadLocal.withInitial(() -> new SourceFileAnalyzer(finding -> {
+        }, options));
+    }
+
+    /**
+     * Binds the socket, starts watching and warming up, and serves requests until
+     * a client sends {@code shutdown}.
+     */
+    public void serve(Path socket) throws IOException {
+        removeStaleSocket(socket);
+        watchService = FileSystems.getDefault().newWatchService();
+        List<Path> sourceFiles = new ArrayList<>();
+        for (Path root : roots) {
+            registerAll(root, sourceFiles);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        System.err.println("Listening on " + socket + ", watching " + watchedDirectories.size() + " directories with "
+                + sourceFiles.size() + " source files.");
+
+        startThread("daemon-warmup", () -> warmUp(sourceFiles));
+        startThread("daemon-watcher", this::watch);
+        try {
+            while (running) {
+                SocketChannel connection;
+                try {
+                    connection = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                connections.execute(() -> handle(connection));
+            }
+        } finally {
+            stop();
+            connections.shutdown();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * Deletes a socket file left behind by a daemon that was killed, which would
+     * block the bind. The file is only deleted if nothing accepts connections on
+     * it any more.
+     *
+     * @throws IOException if another daemon is listening on the socket, or the
+     *         file is in the way for another reason
+     */
+    private static void removeStaleSocket(Path socket) throws IOException {
+        if (!Files.exists(socket)) {
+            return;
+        }
+        if (!Files.readAttributes(socket, BasicFileAttributes.class).isOther()) {
+            throw new IOException("Not a socket: " + socket);
+        }
+        try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            probe.connect(UnixDomainSocketAddress.of(socket));
+        } catch (ConnectException e) {
+            Files.deleteIfExists(socket);
+            return;
+        }
+        throw new IOException("Another daemon is already listening on " + socket);
+    }
+
+    private void stop() {
+        running = false;
+        try {
+            server.close();
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Failed to stop cleanly: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Analyzes every file once, which fills the result map, the type solver
+     * caches and, not least, gets the hot paths compiled by the JIT.
+     */
+    private void warmUp(List<Path> sourceFiles) {
+        long start = System.nanoTime();
+        for (Path sourceFile : sourceFiles) {
+            if (!running) {
+                return;
+            }
+            stateOf(sourceFile, false);
+        }
+        System.err.println("Analyzed " + sourceFiles.size() + " files in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    private void watch() {
+        try {
+            while (running) {
+                WatchKey key = watchService.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = collect(key, changed);
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changed);
+                }
+                if (overflow) {
+                    // Events were lost; stale files are found by their size and modification time.
+                    for (Path file : files.keySet()) {
+                        stateOf(file, false);
+                    }
+                }
+                long start = System.nanoTime();
+                for (Path file : changed) {
+                    stateOf(file, true);
+                }
+                System.err.println("Re-analyzed " + changed.size() + " changed files in "
+                        + (System.nanoTime() - start) / 1_000 + " us.");
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // The daemon is shutting down.
+        }
+    }
+
+    /**
+     * @return whether events were lost
+     */
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        Path directory = watchedDirectories.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                overflow = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                List<Path> created = new ArrayList<>();
+                try {
+                    registerAll(path, created);
+                } catch (IOException e) {
+                    System.err.println("Failed to watch " + path + ": " + e.getMessage());
+                }
+                changed.addAll(created);
+            } else if (path.toString().endsWith(".java")) {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+        return overflow;
+    }
+
+    private void registerAll(Path root, List<Path> sourceFiles) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    WatchKey key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirectories.put(key, path);
+                } else if (path.toString().endsWith(".java")) {
+                    sourceFiles.add(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the analysis state of a file, analyzing it first if it was never
+     * analyzed, changed on disk since, or {@code force} is set.
+     *
+     * @return the state, or {@code null} if the file does not exist (any more)
+     */
+    private FileState stateOf(Path file, boolean force) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            files.remove(file);
+            return null;
+        }
+        long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        FileState state = files.get(file);
+        if (!force && state != null && state.modified == modified && state.size == attributes.size()) {
+            freshHits.increment();
+            return state;
+        }
+        try {
+            FileAnalysisResult result = analyzers.get().analyze(file, ByteBuffer.wrap(Files.readAllBytes(file)));
+            state = result != null
+                    ? new FileState(modified, attributes.size(), result.getFindings(), null)
+                    : new FileState(modified, attributes.size(), null, "Failed to parse the source file: " + file);
+        } catch (NoSuchFileException e) {
+            files.remove(file);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            state = new FileState(modified, attributes.size(), null, "Failed to analyze the source file: " + file
+                    + " (" + e.getMessage() + ")");
+        } catch (StackOverflowError e) {
+            // Uncaught, it would end the watcher or warm-up thread for good.
+            state = new FileState(modified, attributes.size(), null, "Failed to analyze the source file: " + file
+                    + " (nested too deeply to parse)");
+        }
+        analyses.increment();
+        files.put(file, state);
+        return state;
+    }
+
+    private void handle(SocketChannel connection) {
+        try (SocketChannel channel = connection;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8))) {
+            String command = in.readLine();
+            List<String> arguments = new ArrayList<>();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                arguments.add(line);
+            }
+            if ("analyze".equals(command)) {
+                analyze(arguments, out);
+            } else if ("status".equals(command)) {
+                out.write("files " + files.size() + "\nanalyses " + analyses.sum() + "\nfresh " + freshHits.sum()
+                        + "\ndirectories " + watchedDirectories.size() + "\n"
+                        + (typeResolution == null ? "" : "types " + typeResolution.getTypeHits() + " hits "
+                        + typeResolution.getTypeMisses() + " misses\n"));
+            } else if ("shutdown".equals(command)) {
+                out.write("stopping\n");
+                stop();
+            } else {
+                out.write("error: unknown command " + command + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to answer a request: " + e.getMessage());
+        }
+    }
+
+    private void analyze(List<String> arguments, Writer out) throws IOException {
+        if (arguments.isEmpty() || !(arguments.get(0).equals("text") || arguments.get(0).equals("jsonl"))) {
+            out.write("error: expected the format text or jsonl\n");
+            return;
+        }
+        long start = System.nanoTime();
+        int analyzed = 0;
+        // Both sinks write straight to the connection's buffered writer, interleaved with error lines.
+        FindingSink sink = arguments.get(0).equals("jsonl") ? new JsonLinesFindingSink(out) : finding -> {
+            try {
+                out.write(finding + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        for (String argument : arguments.subList(1, arguments.size())) {
+            Path file = resolve(argument);
+            FileState previous = files.get(file);
+            FileState state = stateOf(file, false);
+            if (state != previous) {
+                analyzed++;
+            }
+            if (state == null) {
+                out.write("error: no such file " + argument + "\n");
+            } else if (state.failure != null) {
+                out.write("error: " + state.failure + "\n");
+            } else {
+                state.findings.forEach(sink::accept);
+            }
+        }
+        System.err.println("Answered " + (arguments.size() - 1) + " files (" + analyzed + " analyzed) in " + (System.nanoTime() - start) / 1_000 + " us.");
+    }
+
+    private Path resolve(String argument) {
+        Path path = Path.of(argument);
+        return (path.isAbsolute() ? path : roots.get(0).resolve(path)).normalize();
+    }
+
+    private static void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * What is known about one file: the version it was analyzed in, and its
+     * findings or why it could not be analyzed.
+     */
+    private static final class FileState {
+
+        final long modified;
+        final long size;
+        final List<Finding> findings;
+        final String failure;
+
+        FileState(long modified, long size, List<Finding> findings, String failure) {
+            this.modified = modified;
+            this.size = size;
+            this.findings = findings;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+
+/**
+ * The optional collaborators and settings of a {@link SourceFileAnalyzer} or
+ * {@link ProjectAnalyzer}. Everything not set keeps its default: no cache, no
+ * type resolution, no null check store, no metrics, prefilter on, no method
+ * memo and the {@link FileBudget#DEFAULT} budget.
+ * <pre>
+ * AnalysisOptions options = AnalysisOptions.builder().cache(cache).typeResolution(typeResolution).build();
+ * </pre>
+ * Options are immutable; the shared objects they hold must be safe to use from
+ * all worker threads.
+ */
+public final class AnalysisOptions {
+
+    public static final AnalysisOptions DEFAULT = builder().build();
+
+    private final AnalysisCache cache;
+    private final TypeResolution typeResolution;
+    private final NullCheckStore nullCheckStore;
+    private final PerformanceMetrics metrics;
+    private final boolean prefilter;
+    private final MethodMemo memo;
+    private final FileBudget budget;
+
+    private AnalysisOptions(Builder builder) {
+        this.cache = builder.cache;
+        this.typeResolution = builder.typeResolution;
+        this.nullCheckStore = builder.nullCheckStore;
+        this.metrics = builder.metrics;
+        this.prefilter = builder.prefilter;
+        this.memo = builder.memo;
+        this.budget = builder.budget;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public AnalysisCache getCache() {
+        return cache;
+    }
+
+    public TypeResolution getTypeResolution() {
+        return typeResolution;
+    }
+
+    public NullCheckStore getNullCheckStore() {
+        return nullCheckStore;
+    }
+
+    public PerformanceMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isPrefilter() {
+        return prefilter;
+    }
+
+    public MethodMemo getMemo() {
+        return memo;
+    }
+
+    public FileBudget getBudget() {
+        return budget;
+    }
+
+    public static final class Builder {
+
+        private AnalysisCache cache;
+        private TypeResolution typeResolution;
+        private NullCheckStore nullCheckStore;
+        private PerformanceMetrics metrics;
+        private boolean prefilter = true;
+        private MethodMemo memo;
+        private FileBudget budget = FileBudget.DEFAULT;
+
+        private Builder() {
+        }
+
+        /**
+         * @param cache the result cache, or {@code null} to always analyze
+         */
+        public Builder cache(AnalysisCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * @param typeResolution the shared type resolution, or {@code null} to skip type-aware checks
+         */
+        public Builder typeResolution(TypeResolution typeResolution) {
+            this.typeResolution = typeResolution;
+            return this;
+        }
+
+        /**
+         * @param nullCheckStore collects the null checks captured in all files, or
+         *        {@code null} to discard them; only used by the {@link ProjectAnalyzer}
+         */
+        public Builder nullCheckStore(NullCheckStore nullCheckStore) {
+            this.nullCheckStore = nullCheckStore;
+            return this;
+        }
+
+        /**
+         * @param metrics receives the phase and rule metrics, or {@code null} to measure nothing
+         */
+        public Builder metrics(PerformanceMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param prefilter whether to scan files for the rules' trigger keywords first,
+         *        skipping files and rules that cannot produce anything
+         */
+        public Builder prefilter(boolean prefilter) {
+            this.prefilter = prefilter;
+            return this;
+        }
+
+        /**
+         * @param memo the memo reusing the results of method-local rules for
+         *        copies of the same method, or {@code null} to analyze every method
+         */
+        public Builder memo(MethodMemo memo) {
+            this.memo = memo;
+            return this;
+        }
+
+        /**
+         * @param budget the size and time limits of each file
+         */
+        public Builder budget(FileBudget budget) {
+            if (budget == null) {
+                throw new IllegalArgumentException("The file budget must not be null");
+            }
+            this.budget = budget;
+            return this;
+        }
+
+        public AnalysisOptions build() {
+            return new AnalysisOptions(this);
+        }
+    }
+}
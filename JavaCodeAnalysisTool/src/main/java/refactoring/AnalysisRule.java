@@ -0,0 +1,145 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.Node;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A check that is driven by the {@link RuleEngine}. A rule declares the node
+ * types it is interested in and is called for every matching node during the
+ * engine's single post-order traversal, i.e. after all children of the node
+ * have been visited, just like a {@code VoidVisitorAdapter} that calls
+ * {@code super.visit} first.
+ */
+public interface AnalysisRule {
+
+    /**
+     * The node types this rule wants to see. Subclasses of a listed type are
+     * dispatched to the rule as well. The list must never change, as the
+     * engine's dispatch tables are shared by all rules with the same types.
+     */
+    List<Class<? extends Node>> getNodeTypes();
+
+    void visit(Node node);
+
+    /**
+     * The name this rule is reported under in {@link PerformanceMetrics}.
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Keywords of which at least one must occur in a file for this rule to find
+     * anything there, e.g. {@code synchronized} for a check of synchronized
+     * blocks. Files containing none of them are not shown to the rule; see
+     * {@link KeywordPrefilter}. An empty list means the rule always runs.
+     */
+    default List<String> getTriggerKeywords() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Whether everything this rule reports inside a method depends on nothing
+     * but the method's own tokens: not on the rest of the file, resolved types
+     * or earlier methods. The results of such rules may be reused for every
+     * copy of a method; see {@link MethodMemo}.
+     */
+    default boolean isMethodLocal() {
+        return false;
+    }
+
+    /**
+     * The given rule, declared {@link #isMethodLocal() method-local}.
+     */
+    static AnalysisRule methodLocal(AnalysisRule rule) {
+        return new AnalysisRule() {
+            @Override
+            public String getName() {
+                return rule.getName();
+            }
+
+            @Override
+            public List<String> getTriggerKeywords() {
+                return rule.getTriggerKeywords();
+            }
+
+            @Override
+            public List<Class<? extends Node>> getNodeTypes() {
+                return rule.getNodeTypes();
+            }
+
+            @Override
+            public boolean isMethodLocal() {
+                return true;
+            }
+
+            @Override
+            public void visit(Node node) {
+                rule.visit(node);
+            }
+        };
+    }
+
+    /**
+     * Creates a rule that passes every node of the given type to {@code check}.
+     */
+    static <N extends Node> AnalysisRule forNodeType(Class<N> nodeType, Consumer<? super N> check) {
+        return forNodeType(nodeType.getSimpleName(), nodeType, check);
+    }
+
+    /**
+     * Creates a named rule that passes every node of the given type to {@code check}.
+     *
+     * @param triggerKeywords the keywords without which a file cannot contain a matching node
+     */
+    static <N extends Node> AnalysisRule forNodeType(String name, Class<N> nodeType, Consumer<? super N> check,
+            String... triggerKeywords) {
+        List<Class<? extends Node>> nodeTypes = Collections.singletonList(nodeType);
+        List<String> triggers = Arrays.asList(triggerKeywords);
+        return new AnalysisRule() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public List<String> getTriggerKeywords() {
+                return triggers;
+            }
+
+            @Override
+            public List<Class<? extends Node>> getNodeTypes() {
+                return nodeTypes;
+            }
+
+            @Override
+            public void visit(Node node) {
+                check.accept(nodeType.cast(node));
+            }
+        };
+    }
+}
@@ -0,0 +1,202 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The fingerprints of known findings, so that a run on a legacy code base can
+ * report only the new ones. The {@linkplain FindingFingerprints fingerprints}
+ * do not depend on positions, so the baseline survives unrelated edits.
+ * Identical findings in one member share a fingerprint, so the baseline holds
+ * each fingerprint as often as it was found; a {@link Matcher} suppresses that
+ * many findings per fingerprint and lets any further copy through as new.
+ * <p>
+ * The fingerprints are kept as a sorted array of longs, 8 bytes per finding.
+ * Fingerprints are evenly distributed, so their top bits index the array in
+ * buckets of about four, at half a byte per finding; a lookup reads the index
+ * and one short run of the array, where a plain binary search would miss the
+ * processor caches on most of its steps. The file holds a header and the same
+ * sorted array. A baseline is immutable and thread-safe.
+ */
+public final class Baseline {
+
+    private static final int MAGIC = 0x4A434142; // "JCAB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    public static final Baseline EMPTY = new Baseline(new long[0]);
+
+    private final long[] fingerprints;
+    private final int shift;
+    private final int[] bucketStarts;
+
+    private Baseline(long[] sortedFingerprints) {
+        this.fingerprints = sortedFingerprints;
+        int bits = Math.max(1, 31 - Integer.numberOfLeadingZeros(Math.max(1, fingerprints.length / 4)));
+        this.shift = 64 - bits;
+        this.bucketStarts = new int[(1 << bits) + 1];
+        int bucket = 0;
+        for (int i = 0; i < fingerprints.length; i++) {
+            int b = bucketOf(fingerprints[i]);
+            while (bucket <= b) {
+                bucketStarts[bucket++] = i;
+            }
+        }
+        while (bucket < bucketStarts.length) {
+            bucketStarts[bucket++] = fingerprints.length;
+        }
+    }
+
+    /**
+     * The bucket of a fingerprint by its top bits. The array is sorted as signed
+     * numbers, so the sign bit is flipped to make the buckets ascend with it.
+     */
+    private int bucketOf(long fingerprint) {
+        return (int) ((fingerprint ^ Long.MIN_VALUE) >>> shift);
+    }
+
+    /**
+     * A baseline of the given fingerprints, one per finding, in any order.
+     *
+     * @param count the number of fingerprints to take from the start of the array
+     */
+    public static Baseline of(long[] fingerprints, int count) {
+        long[] sorted = Arrays.copyOf(fingerprints, count);
+        Arrays.sort(sorted);
+        return new Baseline(sorted);
+    }
+
+    /**
+     * Reads a baseline file written by {@link #write}.
+     */
+    public static Baseline read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a baseline file of this version: " + file);
+        }
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != (long) count * Long.BYTES) {
+            throw new IOException("Truncated baseline file: " + file);
+        }
+        long[] fingerprints = new long[count];
+        buffer.asLongBuffer().get(fingerprints);
+        for (int i = 1; i < count; i++) {
+            if (fingerprints[i] < fingerprints[i - 1]) {
+                // Not written by this class; sort it rather than give wrong answers.
+                return of(fingerprints, count);
+            }
+        }
+        return new Baseline(fingerprints);
+    }
+
+    /**
+     * Replaces the file with this baseline.
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + fingerprints.length * Long.BYTES);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(fingerprints.length);
+        buffer.asLongBuffer().put(fingerprints);
+        SourceFiles.writeAtomically(file, buffer.array());
+    }
+
+    public boolean contains(long fingerprint) {
+        return indexOf(fingerprint) >= 0;
+    }
+
+    public boolean contains(Finding finding) {
+        return contains(finding.getFingerprint());
+    }
+
+    /**
+     * The index of the first copy of the fingerprint in the array, or -1.
+     */
+    private int indexOf(long fingerprint) {
+        int bucket = bucketOf(fingerprint);
+        for (int i = bucketStarts[bucket], end = bucketStarts[bucket + 1]; i < end; i++) {
+            if (fingerprints[i] >= fingerprint) {
+                return fingerprints[i] == fingerprint ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The number of findings in the baseline, counting every copy of a fingerprint.
+     */
+    public int size() {
+        return fingerprints.length;
+    }
+
+    /**
+     * Starts matching the findings of one run against this baseline.
+     */
+    public Matcher matcher() {
+        return new Matcher();
+    }
+
+    /**
+     * Matches the findings of one run, using up one copy of a fingerprint per
+     * finding. Not thread-safe.
+     */
+    public final class Matcher {
+
+        private final BitSet used = new BitSet(fingerprints.length);
+
+        private Matcher() {
+        }
+
+        /**
+         * Whether the finding is known, i.e. the baseline still has an unused
+         * copy of its fingerprint, which this call uses up.
+         */
+        public boolean match(Finding finding) {
+            return match(finding.getFingerprint());
+        }
+
+        public boolean match(long fingerprint) {
+            int first = indexOf(fingerprint);
+            if (first < 0) {
+                return false;
+            }
+            // The copies are adjacent and used up from the first on.
+            int next = used.nextClearBit(first);
+            if (next >= fingerprints.length || fingerprints[next] != fingerprint) {
+                return false;
+            }
+            used.set(next);
+            return true;
+        }
+    }
+
+    /**
+     * Formats a fingerprint as 16 hexadecimal digits, as shown in the JSON outputs.
+     */
+    public static String toHex(long fingerprint) {
+        String hex = Long.toHexString(fingerprint);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+}
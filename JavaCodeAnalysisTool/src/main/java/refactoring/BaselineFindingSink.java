@@ -0,0 +1,96 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Passes on only the findings that are not in a {@link Baseline}; a baseline
+ * holding a fingerprint twice suppresses two such findings. Given a file
+ * to update, it also collects the fingerprints of all findings, suppressed or
+ * not, and writes them as the new baseline when closed.
+ */
+public class BaselineFindingSink implements FindingSink {
+
+    private final FindingSink delegate;
+    private final Baseline.Matcher baseline;
+    private final Path updateFile;
+    private long[] fingerprints;
+    private int count;
+    private long suppressed;
+    private long passed;
+
+    /**
+     * @param updateFile where to write the baseline of all findings on closing, or {@code null} to only filter
+     */
+    public BaselineFindingSink(FindingSink delegate, Baseline baseline, Path updateFile) {
+        this.delegate = delegate;
+        this.baseline = baseline.matcher();
+        this.updateFile = updateFile;
+        this.fingerprints = updateFile == null ? null : new long[1024];
+    }
+
+    @Override
+    public void accept(Finding finding) {
+        if (fingerprints != null) {
+            if (count == fingerprints.length) {
+                fingerprints = Arrays.copyOf(fingerprints, count * 2);
+            }
+            fingerprints[count++] = finding.getFingerprint();
+        }
+        if (baseline.match(finding)) {
+            suppressed++;
+        } else {
+            passed++;
+            delegate.accept(finding);
+        }
+    }
+
+    /**
+     * The number of findings that were in the baseline.
+     */
+    public long getSuppressed() {
+        return suppressed;
+    }
+
+    /**
+     * The number of new findings.
+     */
+    public long getPassed() {
+        return passed;
+    }
+
+    /**
+     * Closes the delegate and, if updating, writes the new baseline.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            delegate.close();
+        } finally {
+            if (updateFile != null) {
+                Baseline.of(fingerprints, count).write(updateFile);
+            }
+        }
+    }
+}
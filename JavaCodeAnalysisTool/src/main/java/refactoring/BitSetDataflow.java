@@ -0,0 +1,267 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A worklist solver for dataflow problems whose facts are sets of bits, on a
+ * {@link ControlFlowGraph}. A problem is given by its direction, the meet at
+ * join points (union for "on some path", intersection for "on every path"), a
+ * transfer function per node and an optional refinement per edge, e.g. to learn
+ * from the outcome of a condition.
+ * <p>
+ * Nodes are processed in reverse postorder (postorder for backward problems) in
+ * repeated sweeps that only revisit nodes whose input changed, so a problem on a
+ * graph without loops is solved in a single sweep and each enclosing loop adds
+ * about one more. Only nodes reachable from {@link ControlFlowGraph#ENTRY} take
+ * part; unreachable code keeps the initial state and is reported as such by
+ * {@link Result#isReachable}.
+ * <p>
+ * On an {@link ControlFlowGraph#EDGE_EXCEPTION exception edge}, a forward
+ * problem passes on the state before the throwing node rather than after it,
+ * since the node may have thrown before taking effect.
+ */
+public final class BitSetDataflow {
+
+    public enum Direction {
+        FORWARD,
+        BACKWARD
+    }
+
+    public enum Meet {
+        UNION,
+        INTERSECTION
+    }
+
+    /**
+     * Computes the state after a node from the state before it, in the direction
+     * of the analysis, by modifying the given set.
+     */
+    public interface Transfer {
+
+        void apply(int node, BitSet state);
+    }
+
+    /**
+     * Modifies the state passed along the edge from {@code from} to {@code to};
+     * the nodes are given in program order in both directions.
+     */
+    public interface EdgeTransfer {
+
+        void apply(int from, int to, int kind, BitSet state);
+    }
+
+    private BitSetDataflow() {
+    }
+
+    /**
+     * Solves the problem.
+     *
+     * @param width the number of bits; with {@link Meet#INTERSECTION}, all of them
+     *              form the initial state of every node
+     * @param boundary the state entering {@link ControlFlowGraph#ENTRY} of a forward
+     *                 problem or leaving {@link ControlFlowGraph#EXIT} of a backward one
+     * @param edgeTransfer the edge refinement, or {@code null}
+     */
+    public static Result solve(ControlFlowGraph graph, Direction direction, Meet meet, int width, BitSet boundary,
+            Transfer transfer, EdgeTransfer edgeTransfer) {
+        int size = graph.size();
+        boolean forward = direction == Direction.FORWARD;
+        int[] order = reversePostorder(graph);
+        if (!forward) {
+            reverse(order);
+        }
+        int[] position = new int[size];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < order.length; i++) {
+            position[order[i]] = i;
+        }
+
+        BitSet initial = new BitSet(width);
+        if (meet == Meet.INTERSECTION) {
+            initial.set(0, width);
+        }
+        // input and output in the direction of the analysis
+        BitSet[] input = new BitSet[size];
+        BitSet[] output = new BitSet[size];
+        for (int node = 0; node < size; node++) {
+            input[node] = (BitSet) initial.clone();
+            output[node] = (BitSet) initial.clone();
+        }
+
+        int start = forward ? ControlFlowGraph.ENTRY : ControlFlowGraph.EXIT;
+        BitSet work = new BitSet(order.length);
+        work.set(0, order.length);
+        BitSet edgeState = new BitSet(width);
+        BitSet state = new BitSet(width);
+        long evaluations = 0;
+        int cursor = 0;
+        while (!work.isEmpty()) {
+            int next = work.nextSetBit(cursor);
+            if (next < 0) {
+                next = work.nextSetBit(0);
+            }
+            work.clear(next);
+            cursor = next + 1;
+            int node = order[next];
+            evaluations++;
+
+            state.clear();
+            boolean first = true;
+            if (node == start) {
+                state.or(boundary);
+                first = false;
+            }
+            int begin = forward ? graph.predecessorStart(node) : graph.successorStart(node);
+            int end = forward ? graph.predecessorEnd(node) : graph.successorEnd(node);
+            for (int i = begin; i < end; i++) {
+                int neighbour = forward ? graph.getPredecessor(i) : graph.getSuccessor(i);
+                if (position[neighbour] < 0) {
+                    continue;
+                }
+                int kind = forward ? graph.getPredecessorKind(i) : graph.getSuccessorKind(i);
+                edgeState.clear();
+                edgeState.or(forward && kind == ControlFlowGraph.EDGE_EXCEPTION ? input[neighbour] : output[neighbour]);
+                if (edgeTransfer != null) {
+                    if (forward) {
+                        edgeTransfer.apply(neighbour, node, kind, edgeState);
+                    } else {
+                        edgeTransfer.apply(node, neighbour, kind, edgeState);
+                    }
+                }
+                if (first) {
+                    state.or(edgeState);
+                    first = false;
+                } else if (meet == Meet.UNION) {
+                    state.or(edgeState);
+                } else {
+                    state.and(edgeState);
+                }
+            }
+            if (first) {
+                state.or(initial);
+            }
+            input[node].clear();
+            input[node].or(state);
+            transfer.apply(node, state);
+            if (state.equals(output[node])) {
+                continue;
+            }
+            output[node].clear();
+            output[node].or(state);
+            begin = forward ? graph.successorStart(node) : graph.predecessorStart(node);
+            end = forward ? graph.successorEnd(node) : graph.predecessorEnd(node);
+            for (int i = begin; i < end; i++) {
+                int neighbour = forward ? graph.getSuccessor(i) : graph.getPredecessor(i);
+                if (position[neighbour] >= 0) {
+                    work.set(position[neighbour]);
+                }
+            }
+        }
+        return forward ? new Result(input, output, position, evaluations) : new Result(output, input, position, evaluations);
+    }
+
+    /**
+     * The nodes reachable from the entry in reverse postorder, by an iterative
+     * depth-first search.
+     */
+    private static int[] reversePostorder(ControlFlowGraph graph) {
+        int size = graph.size();
+        int[] postorder = new int[size];
+        int count = 0;
+        boolean[] visited = new boolean[size];
+        int[] stack = new int[size];
+        int[] nextEdge = new int[size];
+        int depth = 0;
+        stack[depth++] = ControlFlowGraph.ENTRY;
+        visited[ControlFlowGraph.ENTRY] = true;
+        nextEdge[ControlFlowGraph.ENTRY] = graph.successorStart(ControlFlowGraph.ENTRY);
+        while (depth > 0) {
+            int node = stack[depth - 1];
+            if (nextEdge[node] < graph.successorEnd(node)) {
+                int successor = graph.getSuccessor(nextEdge[node]++);
+                if (!visited[successor]) {
+                    visited[successor] = true;
+                    nextEdge[successor] = graph.successorStart(successor);
+                    stack[depth++] = successor;
+                }
+            } else {
+                depth--;
+                postorder[count++] = node;
+            }
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = postorder[count - 1 - i];
+        }
+        return order;
+    }
+
+    private static void reverse(int[] values) {
+        for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * The states before and after every node, in program order.
+     */
+    public static final class Result {
+
+        private final BitSet[] before;
+        private final BitSet[] after;
+        private final int[] position;
+        private final long evaluations;
+
+        Result(BitSet[] before, BitSet[] after, int[] position, long evaluations) {
+            this.before = before;
+            this.after = after;
+            this.position = position;
+            this.evaluations = evaluations;
+        }
+
+        /** The state before the node; do not modify it. */
+        public BitSet before(int node) {
+            return before[node];
+        }
+
+        /** The state after the node; do not modify it. */
+        public BitSet after(int node) {
+            return after[node];
+        }
+
+        public boolean isReachable(int node) {
+            return position[node] >= 0;
+        }
+
+        /**
+         * How many times a transfer function was applied, a measure of the work
+         * the solver did.
+         */
+        public long getEvaluations() {
+            return evaluations;
+        }
+    }
+}
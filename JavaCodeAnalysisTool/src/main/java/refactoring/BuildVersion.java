@@ -0,0 +1,117 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Identifies the build of the tool: a hash of its class files and the location
+ * of the parser it runs on, which names the parser's version. Any change to a
+ * rule yields a different version, while unchanged sources compile to the same
+ * class files and keep theirs across rebuilds. Computed on first use.
+ */
+final class BuildVersion {
+
+    private static final String VERSION = compute();
+
+    private BuildVersion() {
+    }
+
+    static String get() {
+        return VERSION;
+    }
+
+    private static String compute() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            Path tool = location(BuildVersion.class);
+            Path parser = location(JavaParser.class);
+            if (tool != null && parser != null) {
+                hashClasses(tool, digest);
+                digest.update(parser.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                StringBuilder version = new StringBuilder();
+                byte[] hash = digest.digest();
+                for (int i = 0; i < 8; i++) {
+                    version.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+                }
+                return version.toString();
+            }
+        } catch (IOException | URISyntaxException | NoSuchAlgorithmException | IllegalArgumentException e) {
+            // Fall back below.
+        }
+        String implementationVersion = BuildVersion.class.getPackage().getImplementationVersion();
+        // Without either there is no telling builds apart, so no other run's results are reused.
+        return implementationVersion != null ? implementationVersion : "unknown-" + UUID.randomUUID();
+    }
+
+    private static Path location(Class<?> type) throws URISyntaxException {
+        CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        return codeSource == null || codeSource.getLocation() == null ? null : Paths.get(codeSource.getLocation().toURI());
+    }
+
+    /**
+     * Hashes the name and content of every class file in a directory or jar, in
+     * name order, leaving out timestamps and everything else a rebuild changes.
+     */
+    private static void hashClasses(Path location, MessageDigest digest) throws IOException {
+        if (Files.isDirectory(location)) {
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(location)) {
+                classFiles = files.filter(file -> file.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path classFile : classFiles) {
+                digest.update(location.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(classFile));
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                List<JarEntry> classEntries = jar.stream()
+                        .filter(entry -> entry.getName().endsWith(".class"))
+                        .sorted(Comparator.comparing(JarEntry::getName))
+                        .collect(Collectors.toList());
+                for (JarEntry entry : classEntries) {
+                    digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        digest.update(in.readAllBytes());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The lines changed per file, as read from a unified diff. Line numbers refer to
+ * the new version of each file. A pure deletion marks the line following the
+ * removed lines, so the enclosing method is still considered changed.
+ */
+public class ChangedLines {
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -\\d+(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+
+    private final Map<String, BitSet> linesByFile = new LinkedHashMap<>();
+
+    private ChangedLines() {
+    }
+
+    public static ChangedLines parse(String diff) throws IOException {
+        return parse(new StringReader(diff));
+    }
+
+    public static ChangedLines parse(Reader diff) throws IOException {
+        ChangedLines changedLines = new ChangedLines();
+        BufferedReader reader = new BufferedReader(diff);
+        BitSet current = null;
+        int newLine = 0;
+        // Left in the current hunk; a removed "-- x" or added "++ x" line would
+        // otherwise read as a file header.
+        int oldRemaining = 0;
+        int newRemaining = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (oldRemaining > 0 || newRemaining > 0) {
+                if (line.startsWith("+")) {
+                    if (current != null) {
+                        current.set(newLine);
+                    }
+                    newLine++;
+                    newRemaining--;
+                } else if (line.startsWith("-")) {
+                    if (current != null) {
+                        current.set(Math.max(newLine, 1));
+                    }
+                    oldRemaining--;
+                } else if (line.startsWith(" ") || line.isEmpty()) {
+                    newLine++;
+                    oldRemaining--;
+                    newRemaining--;
+                }
+                // Anything else, such as "\ No newline at end of file", counts for neither side.
+            } else if (line.startsWith("+++ ")) {
+                String file = line.substring(4).trim();
+                if (file.equals("/dev/null")) {
+                    current = null; // The file was deleted.
+                } else {
+                    current = changedLines.linesByFile.computeIfAbsent(stripPrefix(file), k -> new BitSet());
+                }
+            } else if (line.startsWith("@@")) {
+                Matcher matcher = HUNK_HEADER.matcher(line);
+                if (matcher.matches()) {
+                    oldRemaining = count(matcher.group(1));
+                    newLine = Integer.parseInt(matcher.group(2));
+                    newRemaining = count(matcher.group(3));
+                }
+            }
+        }
+        return changedLines;
+    }
+
+    /**
+     * Runs {@code git diff} in {@code repository} between two revisions, or between
+     * {@code from} and the working tree if {@code to} is {@code null}.
+     */
+    public static ChangedLines fromGit(Path repository, String from, String to) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.add("diff");
+        command.add("--unified=0");
+        command.add("--no-color");
+        command.add("--no-ext-diff");
+        // Pinned, as diff.noprefix and diff.mnemonicPrefix would otherwise defeat stripPrefix.
+        command.add("--src-prefix=a/");
+        command.add("--dst-prefix=b/");
+        command.add(from);
+        if (to != null) {
+            command.add(to);
+        }
+        command.add("--");
+        command.add("*.java");
+        Process process = new ProcessBuilder(command)
+                .directory(repository.toFile())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        ChangedLines changedLines;
+        try (Reader output = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+            changedLines = parse(output);
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("git diff exited with code " + exitCode);
+        }
+        return changedLines;
+    }
+
+    private static int count(String group) {
+        // An omitted count in a hunk header means a single line.
+        return group == null ? 1 : Integer.parseInt(group);
+    }
+
+    public Map<String, BitSet> getLinesByFile() {
+        return linesByFile;
+    }
+
+    private static String stripPrefix(String file) {
+        // git prefixes the new file with "b/"; plain diff -u output has no prefix.
+        int tab = file.indexOf('\t');
+        if (tab >= 0) {
+            file = file.substring(0, tab);
+        }
+        return file.startsWith("b/") ? file.substring(2) : file;
+    }
+}
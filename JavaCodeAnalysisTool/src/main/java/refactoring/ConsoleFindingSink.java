@@ -0,0 +1,70 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prints findings in a human readable {@code file:line:column: Severity: message [rule]} form.
+ */
+public class ConsoleFindingSink implements FindingSink {
+
+    private final PrintStream out;
+    private final boolean standardOutput;
+
+    public ConsoleFindingSink(PrintStream out) {
+        this(out, out == System.out || out == System.err);
+    }
+
+    private ConsoleFindingSink(PrintStream out, boolean standardOutput) {
+        this.out = out;
+        this.standardOutput = standardOutput;
+    }
+
+    /**
+     * A sink printing to standard output through its own 64 KB buffer.
+     * {@code System.out} flushes on every line, which costs a system call per
+     * finding; this sink writes only when the buffer is full and on closing,
+     * which leaves standard output open.
+     */
+    public static ConsoleFindingSink toStandardOutput() {
+        return new ConsoleFindingSink(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                1 << 16), false, StandardCharsets.UTF_8), true);
+    }
+
+    @Override
+    public void accept(Finding finding) {
+        out.println(finding);
+    }
+
+    @Override
+    public void close() {
+        if (standardOutput) {
+            out.flush();
+        } else {
+            out.close();
+        }
+    }
+}
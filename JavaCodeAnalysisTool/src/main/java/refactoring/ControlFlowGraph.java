@@ -0,0 +1,772 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.stmt.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The control flow graph of one method body. Nodes are ints: {@link #ENTRY} and
+ * {@link #EXIT}, one node per simple statement (expression statements, local
+ * variable declarations, returns, throws, breaks, ...) and per evaluated part of
+ * a compound statement (conditions, switch selectors, for initializers and
+ * updates, try resources), plus join nodes without a syntax node where paths
+ * meet, e.g. at switch labels and finally blocks.
+ * <p>
+ * Edges are typed: a condition has a {@link #EDGE_TRUE} and a {@link #EDGE_FALSE}
+ * successor, and every node inside a try block has an {@link #EDGE_EXCEPTION}
+ * successor for each handler that may catch what it throws. A finally block is
+ * built once; everything that leaves the try through it continues from its end
+ * to all of its possible destinations. Exceptions that no handler in the method
+ * catches are only modelled for throw statements, which lead to {@link #EXIT}.
+ * <p>
+ * Lambda bodies, switch expressions and the bodies of anonymous and local
+ * classes are not expanded; they are part of the node whose expression contains
+ * them. Successors and predecessors are stored in compressed sparse row arrays,
+ * and building is linear in the size of the body, so methods with many
+ * thousands of statements are cheap.
+ */
+public final class ControlFlowGraph {
+
+    public static final int ENTRY = 0;
+    public static final int EXIT = 1;
+
+    public static final int EDGE_NORMAL = 0;
+    public static final int EDGE_TRUE = 1;
+    public static final int EDGE_FALSE = 2;
+    public static final int EDGE_EXCEPTION = 3;
+
+    private final Node[] nodes;
+    private final int[] successorOffsets;
+    private final int[] successors;
+    private final int[] successorKinds;
+    private final int[] predecessorOffsets;
+    private final int[] predecessors;
+    private final int[] predecessorKinds;
+    private final List<Loop> loops;
+    private final Map<Statement, Loop> loopsByStatement = new IdentityHashMap<>();
+
+    private ControlFlowGraph(Node[] nodes, int[] from, int[] to, int[] kinds, List<Loop> loops) {
+        this.nodes = nodes;
+        int n = nodes.length;
+        this.successorOffsets = new int[n + 1];
+        this.predecessorOffsets = new int[n + 1];
+        for (int i = 0; i < from.length; i++) {
+            successorOffsets[from[i] + 1]++;
+            predecessorOffsets[to[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            successorOffsets[i + 1] += successorOffsets[i];
+            predecessorOffsets[i + 1] += predecessorOffsets[i];
+        }
+        this.successors = new int[from.length];
+        this.successorKinds = new int[from.length];
+        this.predecessors = new int[from.length];
+        this.predecessorKinds = new int[from.length];
+        int[] nextSuccessor = Arrays.copyOf(successorOffsets, n);
+        int[] nextPredecessor = Arrays.copyOf(predecessorOffsets, n);
+        for (int i = 0; i < from.length; i++) {
+            int s = nextSuccessor[from[i]]++;
+            successors[s] = to[i];
+            successorKinds[s] = kinds[i];
+            int p = nextPredecessor[to[i]]++;
+            predecessors[p] = from[i];
+            predecessorKinds[p] = kinds[i];
+        }
+        this.loops = Collections.unmodifiableList(loops);
+        for (Loop loop : loops) {
+            loopsByStatement.put(loop.statement, loop);
+        }
+    }
+
+    /**
+     * Builds the graph of a method, constructor, initializer or lambda body.
+     */
+    public static ControlFlowGraph build(Statement body) {
+        Builder builder = new Builder();
+        builder.statement(body);
+        return builder.finish();
+    }
+
+    /**
+     * The number of nodes, including {@link #ENTRY} and {@link #EXIT}.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    public int getEdgeCount() {
+        return successors.length;
+    }
+
+    /**
+     * The syntax node evaluated at the given graph node: a {@link Statement}, an
+     * {@link Expression}, the {@link ForEachStmt} for taking the next element
+     * into the loop variable, or the {@link CatchClause} for receiving the caught
+     * exception. {@code null} for the entry, the exit and join nodes.
+     */
+    public Node getNode(int node) {
+        return nodes[node];
+    }
+
+    /** The index of the node's first successor in {@link #getSuccessor}. */
+    public int successorStart(int node) {
+        return successorOffsets[node];
+    }
+
+    /** The index after the node's last successor in {@link #getSuccessor}. */
+    public int successorEnd(int node) {
+        return successorOffsets[node + 1];
+    }
+
+    public int getSuccessor(int index) {
+        return successors[index];
+    }
+
+    public int getSuccessorKind(int index) {
+        return successorKinds[index];
+    }
+
+    /** The index of the node's first predecessor in {@link #getPredecessor}. */
+    public int predecessorStart(int node) {
+        return predecessorOffsets[node];
+    }
+
+    /** The index after the node's last predecessor in {@link #getPredecessor}. */
+    public int predecessorEnd(int node) {
+        return predecessorOffsets[node + 1];
+    }
+
+    public int getPredecessor(int index) {
+        return predecessors[index];
+    }
+
+    public int getPredecessorKind(int index) {
+        return predecessorKinds[index];
+    }
+
+    /**
+     * The loops of the body, each after the loops nested in it.
+     */
+    public List<Loop> getLoops() {
+        return loops;
+    }
+
+    /**
+     * The loop of a while, do, for or for-each statement of this body, or
+     * {@code null}.
+     */
+    public Loop getLoop(Statement statement) {
+        return loopsByStatement.get(statement);
+    }
+
+    /**
+     * A loop statement and the nodes built for it. The nodes of a loop, including
+     * those of nested statements, are numbered consecutively.
+     */
+    public static final class Loop {
+
+        private final int index;
+        private final Statement statement;
+        private final int head;
+        private final int first;
+        private final int end;
+
+        Loop(int index, Statement statement, int head, int first, int end) {
+            this.index = index;
+            this.statement = statement;
+            this.head = head;
+            this.first = first;
+            this.end = end;
+        }
+
+        /** The position of this loop in {@link ControlFlowGraph#getLoops()}. */
+        public int getIndex() {
+            return index;
+        }
+
+        public Statement getStatement() {
+            return statement;
+        }
+
+        /**
+         * The node deciding whether to run the body again: the condition, the
+         * for-each step, or a join node for a for loop without a condition.
+         */
+        public int getHead() {
+            return head;
+        }
+
+        /** The node where every iteration starts. */
+        public int getFirstNode() {
+            return first;
+        }
+
+        public boolean contains(int node) {
+            return node >= first && node < end;
+        }
+
+        /** The node after the last node of the loop. */
+        public int getEnd() {
+            return end;
+        }
+    }
+
+    /**
+     * Where break and continue statements may go: a loop, a switch or a labeled
+     * statement. Jumps are collected as pending edges and connected once the
+     * statement is built.
+     */
+    private static final class Target {
+
+        final Statement statement;
+        final String label;
+        final boolean loop;
+        final int tryDepth;
+        final IntList breaks = new IntList();
+        final IntList continues = new IntList();
+
+        Target(Statement statement, String label, boolean loop, int tryDepth) {
+            this.statement = statement;
+            this.label = label;
+            this.loop = loop;
+            this.tryDepth = tryDepth;
+        }
+    }
+
+    private static final int SECTION_TRY = 0;
+    private static final int SECTION_CATCH = 1;
+    private static final int SECTION_FINALLY = 2;
+
+    /**
+     * A try statement being built.
+     */
+    private static final class TryContext {
+
+        final int[] handlers;
+        final int finallyEntry;
+        int section = SECTION_TRY;
+        boolean rethrows;
+        final List<Target> escapes = new ArrayList<>();
+        final List<Boolean> escapesToContinue = new ArrayList<>();
+
+        TryContext(int[] handlers, int finallyEntry) {
+            this.handlers = handlers;
+            this.finallyEntry = finallyEntry;
+        }
+
+        void escape(Target target, boolean toContinue) {
+            for (int i = 0; i < escapes.size(); i++) {
+                if (escapes.get(i) == target && escapesToContinue.get(i) == toContinue) {
+                    return;
+                }
+            }
+            escapes.add(target);
+            escapesToContinue.add(toContinue);
+        }
+    }
+
+    private static final class Builder {
+
+        private final List<Node> nodes = new ArrayList<>();
+        private final IntList edgeFrom = new IntList();
+        private final IntList edgeTo = new IntList();
+        private final IntList edgeKinds = new IntList();
+        private final List<Loop> loops = new ArrayList<>();
+        private final Deque<Target> targets = new ArrayDeque<>();
+        private final List<TryContext> tries = new ArrayList<>();
+        private final Target returnTarget = new Target(null, null, false, 0);
+
+        /** The edges still to be connected to the next node, as pairs of node and edge kind. */
+        private IntList pending = new IntList();
+
+        private int[] exceptionTargets;
+        private TryContext rethrowingContext;
+        private String nextLabel;
+
+        Builder() {
+            allocate(null);
+            allocate(null);
+            pending.add(ENTRY, EDGE_NORMAL);
+        }
+
+        ControlFlowGraph finish() {
+            connect(pending, EXIT);
+            connect(returnTarget.breaks, EXIT);
+            return new ControlFlowGraph(nodes.toArray(new Node[0]), edgeFrom.toArray(), edgeTo.toArray(),
+                    edgeKinds.toArray(), loops);
+        }
+
+        private int allocate(Node node) {
+            nodes.add(node);
+            return nodes.size() - 1;
+        }
+
+        private void edge(int from, int to, int kind) {
+            edgeFrom.add(from);
+            edgeTo.add(to);
+            edgeKinds.add(kind);
+        }
+
+        private void connect(IntList edges, int to) {
+            for (int i = 0; i < edges.size(); i += 2) {
+                edge(edges.get(i), to, edges.get(i + 1));
+            }
+        }
+
+        /**
+         * Adds a node evaluating the given syntax node after the pending edges.
+         * Afterwards the new node's normal edge is the only pending one.
+         */
+        private int add(Node node) {
+            int id = allocate(node);
+            connect(pending, id);
+            exceptionEdges(id);
+            pending = new IntList();
+            pending.add(id, EDGE_NORMAL);
+            return id;
+        }
+
+        /** Adds a join node after the pending edges. */
+        private int join() {
+            int id = allocate(null);
+            connect(pending, id);
+            pending = new IntList();
+            pending.add(id, EDGE_NORMAL);
+            return id;
+        }
+
+        private void exceptionEdges(int node) {
+            if (exceptionTargets == null) {
+                computeExceptionTargets();
+            }
+            for (int target : exceptionTargets) {
+                edge(node, target, EDGE_EXCEPTION);
+            }
+            if (rethrowingContext != null) {
+                rethrowingContext.rethrows = true;
+            }
+        }
+
+        /**
+         * The handlers an exception thrown at the current position may reach:
+         * the catch clauses of the enclosing try blocks, from the innermost
+         * outwards, up to the first finally block, which then passes it on.
+         */
+        private void computeExceptionTargets() {
+            IntList handlers = new IntList();
+            rethrowingContext = null;
+            for (int i = tries.size() - 1; i >= 0; i--) {
+                TryContext context = tries.get(i);
+                if (context.section == SECTION_TRY) {
+                    for (int handler : context.handlers) {
+                        handlers.add(handler);
+                    }
+                }
+                if (context.section != SECTION_FINALLY && context.finallyEntry >= 0) {
+                    handlers.add(context.finallyEntry);
+                    rethrowingContext = context;
+                    break;
+                }
+            }
+            exceptionTargets = handlers.toArray();
+        }
+
+        private void enterTry(TryContext context) {
+            tries.add(context);
+            exceptionTargets = null;
+        }
+
+        private void enterSection(TryContext context, int section) {
+            context.section = section;
+            exceptionTargets = null;
+        }
+
+        private void exitTry() {
+            tries.remove(tries.size() - 1);
+            exceptionTargets = null;
+        }
+
+        /**
+         * Connects the node to the target of a break, continue or return, through
+         * the finally blocks on the way.
+         */
+        private void jump(int from, Target target, boolean toContinue) {
+            for (int i = tries.size() - 1; i >= target.tryDepth; i--) {
+                TryContext context = tries.get(i);
+                if (context.finallyEntry >= 0 && context.section != SECTION_FINALLY) {
+                    edge(from, context.finallyEntry, EDGE_NORMAL);
+                    context.escape(target, toContinue);
+                    return;
+                }
+            }
+            (toContinue ? target.continues : target.breaks).add(from, EDGE_NORMAL);
+        }
+
+        private Target pushTarget(Statement statement, boolean loop) {
+            Target target = new Target(statement, nextLabel, loop, tries.size());
+            nextLabel = null;
+            targets.push(target);
+            return target;
+        }
+
+        void statement(Statement statement) {
+            if (statement.isBlockStmt()) {
+                for (Statement child : statement.asBlockStmt().getStatements()) {
+                    statement(child);
+                }
+            } else if (statement.isIfStmt()) {
+                ifStatement(statement.asIfStmt());
+            } else if (statement.isWhileStmt()) {
+                whileStatement(statement.asWhileStmt());
+            } else if (statement.isDoStmt()) {
+                doStatement(statement.asDoStmt());
+            } else if (statement.isForStmt()) {
+                forStatement(statement.asForStmt());
+            } else if (statement.isForEachStmt()) {
+                forEachStatement(statement.asForEachStmt());
+            } else if (statement.isSwitchStmt()) {
+                switchStatement(statement.asSwitchStmt());
+            } else if (statement.isTryStmt()) {
+                tryStatement(statement.asTryStmt());
+            } else if (statement.isLabeledStmt()) {
+                labeledStatement(statement.asLabeledStmt());
+            } else if (statement.isSynchronizedStmt()) {
+                add(statement.asSynchronizedStmt().getExpression());
+                statement(statement.asSynchronizedStmt().getBody());
+            } else if (statement.isBreakStmt()) {
+                int node = add(statement);
+                pending = new IntList();
+                Target target = breakTarget(statement.asBreakStmt());
+                if (target != null) {
+                    jump(node, target, false);
+                }
+            } else if (statement.isContinueStmt()) {
+                int node = add(statement);
+                pending = new IntList();
+                Target target = continueTarget(statement.asContinueStmt());
+                if (target != null) {
+                    jump(node, target, true);
+                }
+            } else if (statement.isReturnStmt()) {
+                int node = add(statement);
+                pending = new IntList();
+                jump(node, returnTarget, false);
+            } else if (statement.isThrowStmt()) {
+                int node = add(statement);
+                pending = new IntList();
+                if (exceptionTargets.length == 0) {
+                    edge(node, EXIT, EDGE_EXCEPTION);
+                }
+            } else if (statement.isYieldStmt()) {
+                // Only possible in switch expressions, which are not expanded.
+                add(statement);
+                pending = new IntList();
+            } else if (!statement.isEmptyStmt() && !statement.isLocalClassDeclarationStmt()) {
+                add(statement);
+            }
+        }
+
+        /** An if statement and its else-if chain, iteratively. */
+        private void ifStatement(IfStmt first) {
+            IntList ends = new IntList();
+            IfStmt current = first;
+            while (true) {
+                int condition = add(current.getCondition());
+                pending = new IntList();
+                pending.add(condition, EDGE_TRUE);
+                statement(current.getThenStmt());
+                ends.addAll(pending);
+                pending = new IntList();
+                pending.add(condition, EDGE_FALSE);
+                if (!current.getElseStmt().isPresent()) {
+                    break;
+                }
+                Statement elseStatement = current.getElseStmt().get();
+                if (!elseStatement.isIfStmt()) {
+                    statement(elseStatement);
+                    break;
+                }
+                current = elseStatement.asIfStmt();
+            }
+            pending.addAll(ends);
+        }
+
+        private void whileStatement(WhileStmt statement) {
+            Target target = pushTarget(statement, true);
+            int head = add(statement.getCondition());
+            loopBody(statement, statement.getBody(), target, head, head, !isTrue(statement.getCondition()));
+        }
+
+        private void doStatement(DoStmt statement) {
+            Target target = pushTarget(statement, true);
+            int first = join();
+            statement(statement.getBody());
+            pending.addAll(target.continues);
+            int head = add(statement.getCondition());
+            edge(head, first, EDGE_TRUE);
+            pending = new IntList();
+            if (!isTrue(statement.getCondition())) {
+                pending.add(head, EDGE_FALSE);
+            }
+            pending.addAll(target.breaks);
+            targets.pop();
+            addLoop(statement, head, first);
+        }
+
+        private void forStatement(ForStmt statement) {
+            for (Expression initialization : statement.getInitialization()) {
+                add(initialization);
+            }
+            Target target = pushTarget(statement, true);
+            boolean conditional = statement.getCompare().isPresent() && !isTrue(statement.getCompare().get());
+            int head = statement.getCompare().isPresent() ? add(statement.getCompare().get()) : join();
+            pending = new IntList();
+            pending.add(head, statement.getCompare().isPresent() ? EDGE_TRUE : EDGE_NORMAL);
+            statement(statement.getBody());
+            pending.addAll(target.continues);
+            for (Expression update : statement.getUpdate()) {
+                add(update);
+            }
+            connect(pending, head);
+            pending = new IntList();
+            if (conditional) {
+                pending.add(head, EDGE_FALSE);
+            }
+            pending.addAll(target.breaks);
+            targets.pop();
+            addLoop(statement, head, head);
+        }
+
+        private void forEachStatement(ForEachStmt statement) {
+            add(statement.getIterable());
+            Target target = pushTarget(statement, true);
+            int head = add(statement);
+            loopBody(statement, statement.getBody(), target, head, head, true);
+        }
+
+        /**
+         * The body of a loop whose head is tested before every iteration,
+         * including the first.
+         */
+        private void loopBody(Statement statement, Statement body, Target target, int head, int first,
+                boolean conditional) {
+            pending = new IntList();
+            pending.add(head, EDGE_TRUE);
+            statement(body);
+            connect(pending, head);
+            connect(target.continues, head);
+            pending = new IntList();
+            if (conditional) {
+                pending.add(head, EDGE_FALSE);
+            }
+            pending.addAll(target.breaks);
+            targets.pop();
+            addLoop(statement, head, first);
+        }
+
+        private void addLoop(Statement statement, int head, int first) {
+            loops.add(new Loop(loops.size(), statement, head, first, nodes.size()));
+        }
+
+        private void switchStatement(SwitchStmt statement) {
+            int selector = add(statement.getSelector());
+            Target target = pushTarget(statement, false);
+            IntList fallThrough = new IntList();
+            boolean hasDefault = false;
+            for (SwitchEntry entry : statement.getEntries()) {
+                pending = new IntList();
+                pending.add(selector, EDGE_NORMAL);
+                pending.addAll(fallThrough);
+                join();
+                for (Statement child : entry.getStatements()) {
+                    statement(child);
+                }
+                if (entry.getType() == SwitchEntry.Type.STATEMENT_GROUP) {
+                    fallThrough = pending;
+                } else {
+                    target.breaks.addAll(pending);
+                    fallThrough = new IntList();
+                }
+                hasDefault |= entry.getLabels().isEmpty();
+            }
+            pending = fallThrough;
+            pending.addAll(target.breaks);
+            if (!hasDefault) {
+                pending.add(selector, EDGE_NORMAL);
+            }
+            targets.pop();
+        }
+
+        private void tryStatement(TryStmt statement) {
+            int[] handlers = new int[statement.getCatchClauses().size()];
+            for (int i = 0; i < handlers.length; i++) {
+                handlers[i] = allocate(statement.getCatchClauses().get(i));
+            }
+            int finallyEntry = statement.getFinallyBlock().isPresent() ? allocate(null) : -1;
+            TryContext context = new TryContext(handlers, finallyEntry);
+            enterTry(context);
+            for (Expression resource : statement.getResources()) {
+                add(resource);
+            }
+            statement(statement.getTryBlock());
+            IntList normalEnds = pending;
+
+            enterSection(context, SECTION_CATCH);
+            for (int i = 0; i < handlers.length; i++) {
+                pending = new IntList();
+                pending.add(handlers[i], EDGE_NORMAL);
+                statement(statement.getCatchClauses().get(i).getBody());
+                normalEnds.addAll(pending);
+            }
+            if (finallyEntry < 0) {
+                exitTry();
+                pending = normalEnds;
+                return;
+            }
+
+            enterSection(context, SECTION_FINALLY);
+            connect(normalEnds, finallyEntry);
+            pending = new IntList();
+            pending.add(finallyEntry, EDGE_NORMAL);
+            statement(statement.getFinallyBlock().get());
+            IntList finallyEnds = pending;
+            exitTry();
+
+            // The shared finally block continues to wherever the paths through it were going.
+            for (int i = 0; i < context.escapes.size(); i++) {
+                pending = finallyEnds;
+                int node = join();
+                jump(node, context.escapes.get(i), context.escapesToContinue.get(i));
+            }
+            if (context.rethrows) {
+                pending = finallyEnds;
+                int node = join();
+                exceptionEdges(node);
+                if (exceptionTargets.length == 0) {
+                    edge(node, EXIT, EDGE_EXCEPTION);
+                }
+            }
+            pending = normalEnds.isEmpty() ? new IntList() : finallyEnds;
+        }
+
+        private void labeledStatement(LabeledStmt statement) {
+            Statement labeled = statement.getStatement();
+            String label = statement.getLabel().asString();
+            Target labelTarget = new Target(statement, label, false, tries.size());
+            targets.push(labelTarget);
+            if (isLoop(labeled)) {
+                nextLabel = label;
+            }
+            statement(labeled);
+            nextLabel = null;
+            pending.addAll(labelTarget.breaks);
+            targets.pop();
+        }
+
+        private Target breakTarget(BreakStmt statement) {
+            String label = statement.getLabel().map(name -> name.asString()).orElse(null);
+            for (Target target : targets) {
+                if (label == null ? target.loop || target.statement.isSwitchStmt() : label.equals(target.label)) {
+                    return target;
+                }
+            }
+            return null;
+        }
+
+        private Target continueTarget(ContinueStmt statement) {
+            String label = statement.getLabel().map(name -> name.asString()).orElse(null);
+            for (Target target : targets) {
+                if (target.loop && (label == null || label.equals(target.label))) {
+                    return target;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isLoop(Statement statement) {
+            return statement.isWhileStmt() || statement.isDoStmt() || statement.isForStmt() || statement.isForEachStmt();
+        }
+
+        private static boolean isTrue(Expression condition) {
+            Expression value = condition;
+            while (value.isEnclosedExpr()) {
+                value = value.asEnclosedExpr().getInner();
+            }
+            return value.isBooleanLiteralExpr() && value.asBooleanLiteralExpr().getValue();
+        }
+    }
+
+    /**
+     * A growable int array.
+     */
+    private static final class IntList {
+
+        private static final int[] NO_INTS = new int[0];
+
+        private int[] values = NO_INTS;
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(8, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        void add(int first, int second) {
+            add(first);
+            add(second);
+        }
+
+        void addAll(IntList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int[] toArray() {
+            return size == 0 ? NO_INTS : Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The files of a batch run that could not be processed, or only in part, and
+ * why. Filled by the writer stage of a {@link StagedPipeline}, so it is not
+ * thread-safe.
+ */
+public class FailureReport {
+
+    public enum Status {
+        /** Nothing of the file was processed. */
+        FAILED,
+        /** The file was processed in part, e.g. body by body or up to its time budget. */
+        DEGRADED
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public void add(Path file, Status status, String reason) {
+        entries.add(new Entry(file, status, reason));
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public int count(Status status) {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.status == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes one JSON object per file, with the file, its status and the reason.
+     */
+    public void writeJsonLines(Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (Entry entry : entries) {
+            line.setLength(0);
+            line.append("{\"file\":");
+            Json.appendString(line, entry.file.toString());
+            line.append(",\"status\":");
+            Json.appendString(line, entry.status.name().toLowerCase(Locale.ROOT));
+            line.append(",\"reason\":");
+            Json.appendString(line, entry.reason);
+            line.append("}\n");
+            writer.write(line.toString());
+        }
+        writer.flush();
+    }
+
+    public static final class Entry {
+
+        private final Path file;
+        private final Status status;
+        private final String reason;
+
+        Entry(Path file, Status status, String reason) {
+            this.file = file;
+            this.status = status;
+            this.reason = reason;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
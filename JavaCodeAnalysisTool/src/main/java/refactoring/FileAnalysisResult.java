@@ -0,0 +1,110 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of analyzing one source file: the findings reported by the
+ * {@link AdvancedControlFlowAnalyzer} and the null-check logic captured by the
+ * {@link NullCheckMethodVisitor}. Results restored from the {@link AnalysisCache}
+ * carry no compilation unit, because the file was never parsed; neither do the
+ * empty results of files skipped by the {@link KeywordPrefilter}, nor do the
+ * degraded results of files that were only analyzed in part.
+ */
+public class FileAnalysisResult {
+
+    private final List<Finding> findings;
+    private final Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> capturedLogic;
+    private final CompilationUnit compilationUnit;
+    private final boolean skipped;
+    private final String degradation;
+
+    public FileAnalysisResult(List<Finding> findings, Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> capturedLogic,
+            CompilationUnit compilationUnit) {
+        this(findings, capturedLogic, compilationUnit, false, null);
+    }
+
+    private FileAnalysisResult(List<Finding> findings, Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> capturedLogic,
+            CompilationUnit compilationUnit, boolean skipped, String degradation) {
+        this.findings = findings;
+        this.capturedLogic = capturedLogic;
+        this.compilationUnit = compilationUnit;
+        this.skipped = skipped;
+        this.degradation = degradation;
+    }
+
+    /**
+     * The result of a file that contains none of the rules' trigger keywords.
+     */
+    public static FileAnalysisResult skipped() {
+        return new FileAnalysisResult(Collections.emptyList(), Collections.emptyMap(), null, true, null);
+    }
+
+    /**
+     * The result of a file that was only analyzed in part, e.g. body by body or
+     * up to its time budget.
+     *
+     * @param degradation why and how far the file was analyzed
+     */
+    public static FileAnalysisResult degraded(List<Finding> findings,
+            Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> capturedLogic, String degradation) {
+        return new FileAnalysisResult(findings, capturedLogic, null, false, degradation);
+    }
+
+    public List<Finding> getFindings() {
+        return findings;
+    }
+
+    public Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> getCapturedLogic() {
+        return capturedLogic;
+    }
+
+    /**
+     * The analyzed compilation unit, or {@code null} if this result was served from the cache.
+     */
+    public CompilationUnit getCompilationUnit() {
+        return compilationUnit;
+    }
+
+    public boolean isFromCache() {
+        return compilationUnit == null && !skipped && degradation == null;
+    }
+
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    public boolean isDegraded() {
+        return degradation != null;
+    }
+
+    /**
+     * Why and how far a degraded file was analyzed, or {@code null} if it was analyzed completely.
+     */
+    public String getDegradation() {
+        return degradation;
+    }
+}
@@ -0,0 +1,167 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Limits what a single file may cost a batch run: files larger than
+ * {@code maxBytes} are not parsed as a whole, and parsing and analyzing a file
+ * may take at most {@code timeoutMillis}. The time budget is enforced
+ * cooperatively and only at two kinds of checkpoints: reads from the parser's
+ * input and the rule traversal between nodes throw an {@link ExceededException}
+ * once the file's {@link Deadline} passed. Work between checkpoints is not
+ * interrupted; in particular, the parser buffers its input, so a file that was
+ * read completely is parsed to the end however long that takes, and the
+ * overrun is only noticed when the rules start.
+ */
+public final class FileBudget {
+
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60_000;
+
+    public static final FileBudget DEFAULT = new FileBudget(DEFAULT_MAX_BYTES, DEFAULT_TIMEOUT_MILLIS);
+    public static final FileBudget UNLIMITED = new FileBudget(Long.MAX_VALUE, 0);
+
+    private final long maxBytes;
+    private final long timeoutMillis;
+
+    /**
+     * @param maxBytes the size above which a file is only parsed member by member
+     * @param timeoutMillis the time allowed per file, or 0 for no limit
+     */
+    public FileBudget(long maxBytes, long timeoutMillis) {
+        if (maxBytes < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid file budget: " + maxBytes + " bytes, " + timeoutMillis + " ms");
+        }
+        this.maxBytes = maxBytes;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public boolean isOversized(long bytes) {
+        return bytes > maxBytes;
+    }
+
+    /**
+     * Starts the clock for one file.
+     */
+    public Deadline start() {
+        return timeoutMillis == 0 ? Deadline.NONE : new Deadline(System.nanoTime() + timeoutMillis * 1_000_000);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * The point in time by which the work on one file must be done. Deadlines
+     * are checked by the thread working on the file only.
+     */
+    public static final class Deadline {
+
+        public static final Deadline NONE = new Deadline(0);
+
+        private final long expiresAtNanos;
+
+        private Deadline(long expiresAtNanos) {
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        public boolean isExpired() {
+            return this != NONE && System.nanoTime() - expiresAtNanos > 0;
+        }
+
+        /**
+         * @throws ExceededException if the deadline has passed
+         */
+        public void check() {
+            if (isExpired()) {
+                throw new ExceededException();
+            }
+        }
+
+        /**
+         * Wraps the parser's input so that reading it stops at the deadline. The
+         * parser reports the exception as a problem and fails; input it already
+         * buffered is still parsed.
+         */
+        public InputStream limit(InputStream in) {
+            if (this == NONE) {
+                return in;
+            }
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    check();
+                    return super.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    check();
+                    return super.read(bytes, offset, length);
+                }
+            };
+        }
+
+        /**
+         * Like {@link #limit(InputStream)}, for parsing from text.
+         */
+        public Reader limit(Reader in) {
+            if (this == NONE) {
+                return in;
+            }
+            return new FilterReader(in) {
+                @Override
+                public int read() throws IOException {
+                    check();
+                    return super.read();
+                }
+
+                @Override
+                public int read(char[] chars, int offset, int length) throws IOException {
+                    check();
+                    return super.read(chars, offset, length);
+                }
+            };
+        }
+    }
+
+    /**
+     * Thrown when the work on a file runs past its deadline.
+     */
+    public static final class ExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ExceededException() {
+            super("The file exceeded its time budget", null, false, false);
+        }
+    }
+}
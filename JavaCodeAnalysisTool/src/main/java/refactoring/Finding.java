@@ -0,0 +1,163 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
+
+/**
+ * A single diagnostic reported by a rule: which rule, how severe, where and why.
+ * Positions are 1-based like JavaParser's; 0 means the position is unknown.
+ * The {@linkplain FindingFingerprints fingerprint} identifies the finding
+ * independently of its position.
+ */
+public class Finding {
+
+    public enum Severity {
+        INFO("Recommendation", "note"),
+        WARNING("Warning", "warning"),
+        ERROR("Error", "error");
+
+        private final String label;
+        private final String sarifLevel;
+
+        Severity(String label, String sarifLevel) {
+            this.label = label;
+            this.sarifLevel = sarifLevel;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getSarifLevel() {
+            return sarifLevel;
+        }
+    }
+
+    private final String ruleId;
+    private final Severity severity;
+    private final String file;
+    private final int beginLine;
+    private final int beginColumn;
+    private final int endLine;
+    private final int endColumn;
+    private final String message;
+    private final String member;
+    private final long fingerprint;
+
+    /**
+     * A finding without a known member, fingerprinted by its rule, file and
+     * message, for findings not reported at a node.
+     */
+    public Finding(String ruleId, Severity severity, String file, int beginLine, int beginColumn, int endLine, int endColumn,
+            String message) {
+        this(ruleId, severity, file, beginLine, beginColumn, endLine, endColumn, message, null,
+                FindingFingerprints.of(ruleId, file, message));
+    }
+
+    /**
+     * @param member the qualified name of the enclosing member, or {@code null} if unknown
+     */
+    public Finding(String ruleId, Severity severity, String file, int beginLine, int beginColumn, int endLine, int endColumn,
+            String message, String member, long fingerprint) {
+        this.ruleId = ruleId;
+        this.severity = severity;
+        this.file = file;
+        this.beginLine = beginLine;
+        this.beginColumn = beginColumn;
+        this.endLine = endLine;
+        this.endColumn = endColumn;
+        this.message = message;
+        this.member = member;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * A finding located at the range of {@code node}.
+     */
+    public static Finding at(String ruleId, Severity severity, String file, Node node, String message) {
+        Range range = node.getRange().orElse(null);
+        String member = FindingFingerprints.member(node);
+        long fingerprint = FindingFingerprints.of(ruleId, member, node);
+        if (range == null) {
+            return new Finding(ruleId, severity, file, 0, 0, 0, 0, message, member, fingerprint);
+        }
+        return new Finding(ruleId, severity, file, range.begin.line, range.begin.column, range.end.line, range.end.column, message,
+                member, fingerprint);
+    }
+
+    /**
+     * The same finding reported for another file.
+     */
+    public Finding withFile(String otherFile) {
+        return new Finding(ruleId, severity, otherFile, beginLine, beginColumn, endLine, endColumn, message, member, fingerprint);
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getBeginLine() {
+        return beginLine;
+    }
+
+    public int getBeginColumn() {
+        return beginColumn;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public int getEndColumn() {
+        return endColumn;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * The qualified name of the enclosing member, e.g. {@code com.example.Orders#cancel(long)},
+     * or {@code null} if unknown.
+     */
+    public String getMember() {
+        return member;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return file + ":" + beginLine + ":" + beginColumn + ": " + severity.getLabel() + ": " + message + " [" + ruleId + "]";
+    }
+}
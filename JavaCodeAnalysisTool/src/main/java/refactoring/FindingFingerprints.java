@@ -0,0 +1,180 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.CompactConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Computes the 64-bit fingerprints that identify a {@link Finding} across runs
+ * without its position, so that a {@link Baseline} survives edits elsewhere in
+ * the file. A fingerprint combines two hashes by exclusive or:
+ * <ul>
+ * <li>the member hash, of the enclosing member, e.g.
+ * {@code com.example.Outer.Inner#run(int)}, which is the outermost method,
+ * constructor, initializer or field, so that code in lambdas and anonymous
+ * classes belongs to the member around it;</li>
+ * <li>the local hash, of the rule id and the node's tokens up to its first
+ * {@code {}, without whitespace and comments, e.g. {@code catch(Exception e)}
+ * rather than the whole catch clause.</li>
+ * </ul>
+ * Because the parts are combined by exclusive or, the member hash can be
+ * exchanged, e.g. by the {@link MethodMemo} for a copy of a method in another class.
+ * Identical findings in the same member share a fingerprint; a {@link Baseline}
+ * tells them apart by how often the fingerprint occurs.
+ */
+public final class FindingFingerprints {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private FindingFingerprints() {
+    }
+
+    /**
+     * The fingerprint of a finding reported by {@code ruleId} at {@code node}.
+     *
+     * @param member the {@linkplain #member member} enclosing the node
+     */
+    public static long of(String ruleId, String member, Node node) {
+        return memberHash(member) ^ localHash(ruleId, node);
+    }
+
+    /**
+     * The fingerprint of a finding without a node, e.g. one reported by a
+     * project-wide analysis: its rule, file and message stand in for the member
+     * and snippet.
+     */
+    public static long of(String ruleId, String file, String message) {
+        return finish(hash(hash(hash(FNV_OFFSET, ruleId), file), message));
+    }
+
+    /**
+     * The qualified name of the member enclosing the node, or of the node itself
+     * if it is one, e.g. {@code com.example.Outer.Inner#run(int)}; just the type
+     * for a node outside of members.
+     */
+    public static String member(Node node) {
+        Node member = null;
+        for (Node n = node; n != null; n = n.getParentNode().orElse(null)) {
+            if (n instanceof BodyDeclaration && !(n instanceof TypeDeclaration)) {
+                member = n;
+            }
+        }
+        List<String> types = new ArrayList<>();
+        for (Node n = member != null ? member : node; n != null; n = n.getParentNode().orElse(null)) {
+            if (n instanceof TypeDeclaration) {
+                types.add(((TypeDeclaration<?>) n).getNameAsString());
+            }
+        }
+        StringBuilder context = new StringBuilder();
+        node.findCompilationUnit().flatMap(CompilationUnit::getPackageDeclaration)
+                .ifPresent(declaration -> context.append(declaration.getNameAsString()).append('.'));
+        for (int i = types.size() - 1; i >= 0; i--) {
+            context.append(types.get(i)).append(i > 0 ? "." : "");
+        }
+        if (member != null) {
+            context.append('#').append(describe(member));
+        }
+        return context.toString();
+    }
+
+    public static long memberHash(String member) {
+        return finish(hash(FNV_OFFSET, member));
+    }
+
+    private static String describe(Node member) {
+        if (member instanceof CallableDeclaration) {
+            return ((CallableDeclaration<?>) member).getSignature().asString();
+        } else if (member instanceof InitializerDeclaration) {
+            return ((InitializerDeclaration) member).isStatic() ? "static{}" : "{}";
+        } else if (member instanceof FieldDeclaration) {
+            StringBuilder names = new StringBuilder();
+            for (VariableDeclarator variable : ((FieldDeclaration) member).getVariables()) {
+                names.append(names.length() == 0 ? "" : ",").append(variable.getNameAsString());
+            }
+            return names.toString();
+        } else if (member instanceof EnumConstantDeclaration) {
+            return ((EnumConstantDeclaration) member).getNameAsString();
+        } else if (member instanceof AnnotationMemberDeclaration) {
+            return ((AnnotationMemberDeclaration) member).getNameAsString() + "()";
+        } else if (member instanceof CompactConstructorDeclaration) {
+            return ((CompactConstructorDeclaration) member).getNameAsString();
+        }
+        return member.getClass().getSimpleName();
+    }
+
+    private static long localHash(String ruleId, Node node) {
+        long hash = hash(FNV_OFFSET, ruleId);
+        Optional<TokenRange> tokens = node.getTokenRange();
+        if (!tokens.isPresent()) {
+            String text = node.toString();
+            int brace = text.indexOf('{');
+            return finish(hash(hash, (brace < 0 ? text : text.substring(0, brace)).replaceAll("\\s+", "")));
+        }
+        for (JavaToken token : tokens.get()) {
+            if (token.getCategory().isWhitespaceOrComment()) {
+                continue;
+            }
+            if (token.getText().equals("{")) {
+                break;
+            }
+            hash = hash(hash, token.getText());
+        }
+        return finish(hash);
+    }
+
+    /**
+     * Hashes the text followed by a separator, which keeps e.g. the tokens
+     * {@code a b} and {@code ab} apart.
+     */
+    private static long hash(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ 0xFF) * FNV_PRIME;
+    }
+
+    /**
+     * Spreads the bits of an FNV hash, whose low bits mix poorly, so that the
+     * exclusive or of two hashes is as good as either.
+     */
+    private static long finish(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
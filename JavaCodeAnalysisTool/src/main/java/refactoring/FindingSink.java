@@ -0,0 +1,40 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the findings of an analysis run. Unless stated otherwise an
+ * implementation is not thread-safe; the {@link ProjectAnalyzer} and the other
+ * parallel analyzers call their sink from a single thread. Closing a sink
+ * flushes everything it buffered.
+ */
+@FunctionalInterface
+public interface FindingSink extends Closeable {
+
+    void accept(Finding finding);
+
+    @Override
+    default void close() throws IOException {
+    }
+}
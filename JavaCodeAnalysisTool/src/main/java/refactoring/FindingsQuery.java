@@ -0,0 +1,92 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+/**
+ * Selects findings of a {@link FindingsRun}. Every filter is optional, and
+ * the findings must match all that are set. Immutable; each {@code with}
+ * method returns a copy with one more filter.
+ */
+public final class FindingsQuery {
+
+    public static final FindingsQuery ALL = new FindingsQuery(null, null, null, null);
+
+    private final String rule;
+    private final String packagePrefix;
+    private final String filePrefix;
+    private final String method;
+
+    private FindingsQuery(String rule, String packagePrefix, String filePrefix, String method) {
+        this.rule = rule;
+        this.packagePrefix = packagePrefix;
+        this.filePrefix = filePrefix;
+        this.method = method;
+    }
+
+    /**
+     * Only findings of the rule, e.g. {@code broad-catch}.
+     */
+    public FindingsQuery withRule(String rule) {
+        return new FindingsQuery(rule, packagePrefix, filePrefix, method);
+    }
+
+    /**
+     * Only findings in members of types in the package or its subpackages, e.g.
+     * {@code com.example}. A qualified type name, e.g. {@code com.example.Orders},
+     * selects the type and its nested types.
+     */
+    public FindingsQuery withPackage(String packagePrefix) {
+        return new FindingsQuery(rule, packagePrefix, filePrefix, method);
+    }
+
+    /**
+     * Only findings in files whose path starts with the prefix, e.g. a
+     * directory or a single file.
+     */
+    public FindingsQuery withFile(String filePrefix) {
+        return new FindingsQuery(rule, packagePrefix, filePrefix, method);
+    }
+
+    /**
+     * Only findings in methods of the name, e.g. {@code cancel}, or in the
+     * members whose qualified name starts with the given one if it contains
+     * {@code #}, e.g. {@code com.example.Orders#cancel(long)}.
+     */
+    public FindingsQuery withMethod(String method) {
+        return new FindingsQuery(rule, packagePrefix, filePrefix, method);
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public String getPackagePrefix() {
+        return packagePrefix;
+    }
+
+    public String getFilePrefix() {
+        return filePrefix;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+}
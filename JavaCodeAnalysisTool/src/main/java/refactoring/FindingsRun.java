@@ -0,0 +1,381 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The findings of one run in a {@link FindingsStore}, read from a
+ * memory-mapped file. Nothing is loaded up front but the section table; a
+ * query reads the indexes it needs, then the columns of the matching rows,
+ * and strings are decoded only for the findings it returns.
+ * <p>
+ * The file starts with a header and a table of section offsets. Rule ids,
+ * files, members and messages are stored once each, in dictionaries sorted by
+ * their UTF-8 bytes, so that a prefix of a file path or a package name selects
+ * a contiguous range of ids. The rows are sorted by file and position and
+ * stored column by column: rule, severity, file, begin and end line and
+ * column, member and message as ints, and the {@linkplain FindingFingerprints
+ * fingerprint} as a long. Three indexes lead from ids to rows: the first row
+ * of each file, and the rows of each rule and of each member as
+ * offsets into one array of row numbers.
+ * <p>
+ * A run is immutable. Reading it is thread-safe, except that the strings
+ * decoded so far are remembered without synchronization, which is harmless.
+ */
+public class FindingsRun {
+
+    static final int MAGIC = 0x4A434146; // "JCAF"
+    static final int FORMAT_VERSION = 1;
+
+    static final int RULES = 0;
+    static final int FILES = 1;
+    static final int MEMBERS = 2;
+    static final int MESSAGES = 3;
+    static final int RULE_COLUMN = 4;
+    static final int SEVERITY_COLUMN = 5;
+    static final int FILE_COLUMN = 6;
+    static final int BEGIN_LINE_COLUMN = 7;
+    static final int BEGIN_COLUMN_COLUMN = 8;
+    static final int END_LINE_COLUMN = 9;
+    static final int END_COLUMN_COLUMN = 10;
+    static final int MEMBER_COLUMN = 11;
+    static final int MESSAGE_COLUMN = 12;
+    static final int FINGERPRINT_COLUMN = 13;
+    static final int FILE_INDEX = 14;
+    static final int RULE_INDEX = 15;
+    static final int MEMBER_INDEX = 16;
+    static final int SECTIONS = 17;
+
+    /**
+     * The bytes of the header before the section table: magic, version,
+     * creation time, row count and section count.
+     */
+    static final int HEADER_BYTES = 24;
+
+    private static final Finding.Severity[] SEVERITIES = Finding.Severity.values();
+
+    private final int id;
+    private final ByteBuffer buffer;
+    private final long createdMillis;
+    private final int rows;
+    private final int[] sections = new int[SECTIONS + 1];
+    private final String[][] strings = new String[MESSAGES + 1][];
+
+    private FindingsRun(int id, ByteBuffer buffer) throws IOException {
+        this.id = id;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION
+                || buffer.getInt(20) != SECTIONS || buffer.capacity() < HEADER_BYTES + 4 * (SECTIONS + 1)) {
+            throw new IOException("Not a findings run of this version: run " + id);
+        }
+        this.createdMillis = buffer.getLong(8);
+        this.rows = buffer.getInt(16);
+        for (int i = 0; i <= SECTIONS; i++) {
+            sections[i] = buffer.getInt(HEADER_BYTES + 4 * i);
+            if (sections[i] < 0 || sections[i] > buffer.capacity() || (i > 0 && sections[i] < sections[i - 1])) {
+                throw new IOException("Corrupt findings run " + id);
+            }
+        }
+        for (int dictionary = RULES; dictionary <= MESSAGES; dictionary++) {
+            strings[dictionary] = new String[buffer.getInt(sections[dictionary])];
+        }
+    }
+
+    /**
+     * Maps the file of a run. The mapping stays valid after the channel is
+     * closed and is released by the garbage collector.
+     */
+    static FindingsRun open(int id, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new FindingsRun(id, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * The rows matching the query, in the order of file and position.
+     */
+    public int[] rows(FindingsQuery query) {
+        // Each filter either selects rows through an index or tests a row's column.
+        int[] driver = null;
+        int ruleId = -1;
+        int firstFile = 0;
+        int endFile = Integer.MAX_VALUE;
+        BitSet members = null;
+        if (query.getRule() != null) {
+            ruleId = find(RULES, query.getRule());
+            if (ruleId < 0) {
+                return new int[0];
+            }
+            driver = indexedRows(RULE_INDEX, strings[RULES].length, ruleId, ruleId + 1);
+        }
+        if (query.getFilePrefix() != null) {
+            int[] files = prefixRange(FILES, query.getFilePrefix());
+            firstFile = files[0];
+            endFile = files[1];
+            int first = intAt(FILE_INDEX, firstFile);
+            int end = intAt(FILE_INDEX, endFile);
+            if (driver == null || end - first < driver.length) {
+                driver = new int[end - first];
+                for (int i = 0; i < driver.length; i++) {
+                    driver[i] = first + i;
+                }
+            }
+        }
+        if (query.getPackagePrefix() != null || query.getMethod() != null) {
+            members = matchingMembers(query);
+            int memberCount = strings[MEMBERS].length;
+            int count = 0;
+            for (int m = members.nextSetBit(0); m >= 0; m = members.nextSetBit(m + 1)) {
+                count += intAt(MEMBER_INDEX, m + 1) - intAt(MEMBER_INDEX, m);
+            }
+            if (driver == null || count < driver.length) {
+                driver = new int[count];
+                int length = 0;
+                for (int m = members.nextSetBit(0); m >= 0; m = members.nextSetBit(m + 1)) {
+                    int[] memberRows = indexedRows(MEMBER_INDEX, memberCount, m, m + 1);
+                    System.arraycopy(memberRows, 0, driver, length, memberRows.length);
+                    length += memberRows.length;
+                }
+                Arrays.sort(driver);
+            }
+        }
+        if (driver == null) {
+            driver = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                driver[i] = i;
+            }
+            return driver;
+        }
+
+        int matches = 0;
+        for (int row : driver) {
+            int file = intAt(FILE_COLUMN, row);
+            int member = intAt(MEMBER_COLUMN, row);
+            if ((ruleId < 0 || intAt(RULE_COLUMN, row) == ruleId) && file >= firstFile && file < endFile
+                    && (members == null || (member >= 0 && members.get(member)))) {
+                driver[matches++] = row;
+            }
+        }
+        return matches == driver.length ? driver : Arrays.copyOf(driver, matches);
+    }
+
+    /**
+     * Sends the findings matching the query to the sink, in the order of file and position.
+     */
+    public void forEach(FindingsQuery query, FindingSink sink) {
+        for (int row : rows(query)) {
+            sink.accept(finding(row));
+        }
+    }
+
+    public Finding finding(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + rows);
+        }
+        int member = intAt(MEMBER_COLUMN, row);
+        return new Finding(string(RULES, intAt(RULE_COLUMN, row)), SEVERITIES[buffer.get(sections[SEVERITY_COLUMN] + row)],
+                string(FILES, intAt(FILE_COLUMN, row)), intAt(BEGIN_LINE_COLUMN, row), intAt(BEGIN_COLUMN_COLUMN, row),
+                intAt(END_LINE_COLUMN, row), intAt(END_COLUMN_COLUMN, row), string(MESSAGES, intAt(MESSAGE_COLUMN, row)),
+                member < 0 ? null : string(MEMBERS, member), getFingerprint(row));
+    }
+
+    public String getRuleId(int row) {
+        return string(RULES, intAt(RULE_COLUMN, row));
+    }
+
+    public long getFingerprint(int row) {
+        return buffer.getLong(sections[FINGERPRINT_COLUMN] + 8 * row);
+    }
+
+    /**
+     * The number of findings of the rule, from the rule index alone.
+     */
+    public int countRule(String ruleId) {
+        int rule = find(RULES, ruleId);
+        return rule < 0 ? 0 : intAt(RULE_INDEX, rule + 1) - intAt(RULE_INDEX, rule);
+    }
+
+    /**
+     * The rule ids occurring in this run, sorted.
+     */
+    public String[] getRuleIds() {
+        String[] ruleIds = new String[strings[RULES].length];
+        for (int i = 0; i < ruleIds.length; i++) {
+            ruleIds[i] = string(RULES, i);
+        }
+        return ruleIds;
+    }
+
+    /**
+     * The fingerprints of all rows, e.g. to compare two runs.
+     */
+    public long[] getFingerprints() {
+        long[] fingerprints = new long[rows];
+        ByteBuffer column = buffer.duplicate();
+        column.position(sections[FINGERPRINT_COLUMN]);
+        column.asLongBuffer().get(fingerprints);
+        return fingerprints;
+    }
+
+    private int intAt(int section, int index) {
+        return buffer.getInt(sections[section] + 4 * index);
+    }
+
+    /**
+     * The row numbers listed for the ids {@code first} to {@code end} of an index
+     * that starts with {@code ids + 1} offsets.
+     */
+    private int[] indexedRows(int section, int ids, int first, int end) {
+        int begin = intAt(section, first);
+        int[] result = new int[intAt(section, end) - begin];
+        int rowsStart = ids + 1 + begin;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intAt(section, rowsStart + i);
+        }
+        return result;
+    }
+
+    private BitSet matchingMembers(FindingsQuery query) {
+        int memberCount = strings[MEMBERS].length;
+        BitSet members = new BitSet(memberCount);
+        if (query.getPackagePrefix() != null) {
+            // Members of types in the package or its subpackages, or of the type itself if it names one.
+            int[] nested = prefixRange(MEMBERS, query.getPackagePrefix() + ".");
+            int[] own = prefixRange(MEMBERS, query.getPackagePrefix() + "#");
+            members.set(nested[0], nested[1]);
+            members.set(own[0], own[1]);
+        } else {
+            members.set(0, memberCount);
+        }
+        String method = query.getMethod();
+        if (method == null) {
+            return members;
+        }
+        if (method.indexOf('#') >= 0) {
+            // A qualified method is a prefix of the members' names.
+            int[] range = prefixRange(MEMBERS, method);
+            BitSet qualified = new BitSet(memberCount);
+            qualified.set(range[0], range[1]);
+            members.and(qualified);
+            return members;
+        }
+        String suffix = "#" + method;
+        for (int m = members.nextSetBit(0); m >= 0; m = members.nextSetBit(m + 1)) {
+            String member = string(MEMBERS, m);
+            int at = member.indexOf(suffix);
+            int after = at + suffix.length();
+            if (at < 0 || (after < member.length() && member.charAt(after) != '(')) {
+                members.clear(m);
+            }
+        }
+        return members;
+    }
+
+    String string(int dictionary, int id) {
+        String value = strings[dictionary][id];
+        if (value == null) {
+            int start = sections[dictionary];
+            int data = start + 4 * (strings[dictionary].length + 2);
+            int from = buffer.getInt(start + 4 + 4 * id);
+            int to = buffer.getInt(start + 8 + 4 * id);
+            byte[] bytes = new byte[to - from];
+            buffer.get(data + from, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[dictionary][id] = value;
+        }
+        return value;
+    }
+
+    /**
+     * The id of the value in a dictionary, or -1.
+     */
+    private int find(int dictionary, String value) {
+        byte[] key = value.getBytes(StandardCharsets.UTF_8);
+        int id = lowerBound(dictionary, key, false);
+        return id < strings[dictionary].length && compare(dictionary, id, key, false) == 0 ? id : -1;
+    }
+
+    /**
+     * The ids of the values starting with the prefix, from the first to the end, exclusive.
+     */
+    private int[] prefixRange(int dictionary, String prefix) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        return new int[] {lowerBound(dictionary, key, false), lowerBound(dictionary, key, true)};
+    }
+
+    /**
+     * The first id whose value is not less than the key or, with {@code after},
+     * whose value's first key-length bytes are greater than the key.
+     */
+    private int lowerBound(int dictionary, byte[] key, boolean after) {
+        int low = 0;
+        int high = strings[dictionary].length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(dictionary, middle, key, after);
+            if (comparison < 0 || (after && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares a value's UTF-8 bytes with the key as unsigned bytes, only the
+     * value's first key-length bytes if {@code prefix}.
+     */
+    private int compare(int dictionary, int id, byte[] key, boolean prefix) {
+        int start = sections[dictionary];
+        int data = start + 4 * (strings[dictionary].length + 2);
+        int from = data + buffer.getInt(start + 4 + 4 * id);
+        int length = buffer.getInt(start + 8 + 4 * id) - (from - data);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(from + i) & 0xFF) - (key[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return prefix && length >= key.length ? 0 : length - key.length;
+    }
+}
@@ -0,0 +1,347 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the findings of a run column by column, like the
+ * {@link NullCheckStore}, and encodes them in the file format read by
+ * {@link FindingsRun}: the dictionaries are sorted, ids renumbered to match,
+ * the rows sorted by file and position, and the indexes built. Not thread-safe.
+ */
+public class FindingsRunBuilder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Dictionary rules = new Dictionary();
+    private final Dictionary files = new Dictionary();
+    private final Dictionary members = new Dictionary();
+    private final Dictionary messages = new Dictionary();
+
+    private int size;
+    private int[] ruleIds = new int[INITIAL_CAPACITY];
+    private byte[] severities = new byte[INITIAL_CAPACITY];
+    private int[] fileIds = new int[INITIAL_CAPACITY];
+    // Four ints per finding: begin line, begin column, end line, end column.
+    private int[] positions = new int[INITIAL_CAPACITY * 4];
+    private int[] memberIds = new int[INITIAL_CAPACITY];
+    private int[] messageIds = new int[INITIAL_CAPACITY];
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+
+    public void add(Finding finding) {
+        ensureCapacity(size + 1);
+        ruleIds[size] = rules.idOf(finding.getRuleId());
+        severities[size] = (byte) finding.getSeverity().ordinal();
+        fileIds[size] = files.idOf(finding.getFile());
+        int position = size * 4;
+        positions[position] = finding.getBeginLine();
+        positions[position + 1] = finding.getBeginColumn();
+        positions[position + 2] = finding.getEndLine();
+        positions[position + 3] = finding.getEndColumn();
+        memberIds[size] = finding.getMember() == null ? -1 : members.idOf(finding.getMember());
+        messageIds[size] = messages.idOf(finding.getMessage());
+        fingerprints[size] = finding.getFingerprint();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Encodes the findings added so far as a run file.
+     *
+     * @throws IOException if the run does not fit the format's 2 GB limit
+     */
+    public byte[] toBytes(long createdMillis) throws IOException {
+        int[] ruleOrder = rules.sortedIds();
+        int[] fileOrder = files.sortedIds();
+        int[] memberOrder = members.sortedIds();
+        int[] messageOrder = messages.sortedIds();
+
+        // The rows are counted into buckets by renumbered file id, which sorts
+        // them by file path, and each file's rows are then sorted by position.
+        // The start of each bucket is the file index.
+        int[] fileStarts = new int[files.size() + 1];
+        for (int i = 0; i < size; i++) {
+            fileStarts[fileOrder[fileIds[i]] + 1]++;
+        }
+        for (int file = 0; file < files.size(); file++) {
+            fileStarts[file + 1] += fileStarts[file];
+        }
+        int[] sorted = new int[size];
+        int[] next = Arrays.copyOf(fileStarts, files.size());
+        for (int i = 0; i < size; i++) {
+            sorted[next[fileOrder[fileIds[i]]]++] = i;
+        }
+        int[] buffer = new int[size];
+        for (int file = 0; file < files.size(); file++) {
+            sortByPosition(sorted, buffer, fileStarts[file], fileStarts[file + 1]);
+        }
+
+        int[] sortedRules = new int[size];
+        int[] sortedMembers = new int[size];
+        int withMember = 0;
+        for (int i = 0; i < size; i++) {
+            sortedRules[i] = ruleOrder[ruleIds[sorted[i]]];
+            sortedMembers[i] = memberIds[sorted[i]] < 0 ? -1 : memberOrder[memberIds[sorted[i]]];
+            withMember += sortedMembers[i] < 0 ? 0 : 1;
+        }
+
+        // Every size is known up front: the columns are 41 bytes per row, the
+        // indexes one int per id and row.
+        long length = FindingsRun.HEADER_BYTES + 4L * (FindingsRun.SECTIONS + 1)
+                + rules.bytes() + files.bytes() + members.bytes() + messages.bytes() + 41L * size
+                + 4L * (files.size() + 1) + 4L * (rules.size() + 1 + size) + 4L * (members.size() + 1 + withMember);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("The run is too large to store: " + size + " findings");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) length);
+        int[] sections = new int[FindingsRun.SECTIONS + 1];
+        out.putInt(FindingsRun.MAGIC);
+        out.putInt(FindingsRun.FORMAT_VERSION);
+        out.putLong(createdMillis);
+        out.putInt(size);
+        out.putInt(FindingsRun.SECTIONS);
+        // The section table is filled in at the end.
+        out.position(out.position() + 4 * (FindingsRun.SECTIONS + 1));
+
+        sections[FindingsRun.RULES] = out.position();
+        rules.write(out);
+        sections[FindingsRun.FILES] = out.position();
+        files.write(out);
+        sections[FindingsRun.MEMBERS] = out.position();
+        members.write(out);
+        sections[FindingsRun.MESSAGES] = out.position();
+        messages.write(out);
+
+        sections[FindingsRun.RULE_COLUMN] = out.position();
+        for (int row : sorted) {
+            out.putInt(ruleOrder[ruleIds[row]]);
+        }
+        sections[FindingsRun.SEVERITY_COLUMN] = out.position();
+        for (int row : sorted) {
+            out.put(severities[row]);
+        }
+        sections[FindingsRun.FILE_COLUMN] = out.position();
+        for (int row : sorted) {
+            out.putInt(fileOrder[fileIds[row]]);
+        }
+        for (int i = 0; i < 4; i++) {
+            sections[FindingsRun.BEGIN_LINE_COLUMN + i] = out.position();
+            for (int row : sorted) {
+                out.putInt(positions[row * 4 + i]);
+            }
+        }
+        sections[FindingsRun.MEMBER_COLUMN] = out.position();
+        for (int row : sorted) {
+            out.putInt(memberIds[row] < 0 ? -1 : memberOrder[memberIds[row]]);
+        }
+        sections[FindingsRun.MESSAGE_COLUMN] = out.position();
+        for (int row : sorted) {
+            out.putInt(messageOrder[messageIds[row]]);
+        }
+        sections[FindingsRun.FINGERPRINT_COLUMN] = out.position();
+        for (int row : sorted) {
+            out.putLong(fingerprints[row]);
+        }
+
+        sections[FindingsRun.FILE_INDEX] = out.position();
+        for (int start : fileStarts) {
+            out.putInt(start);
+        }
+        sections[FindingsRun.RULE_INDEX] = out.position();
+        writeIndex(out, sortedRules, rules.size());
+        sections[FindingsRun.MEMBER_INDEX] = out.position();
+        writeIndex(out, sortedMembers, members.size());
+        sections[FindingsRun.SECTIONS] = out.position();
+        for (int i = 0; i <= FindingsRun.SECTIONS; i++) {
+            out.putInt(FindingsRun.HEADER_BYTES + 4 * i, sections[i]);
+        }
+        return out.array();
+    }
+
+    /**
+     * Sorts the rows from {@code from} to {@code to} by their begin and end
+     * positions: by insertion if there are few, by merging otherwise. Findings
+     * mostly arrive in order, in which case either takes linear time.
+     */
+    private void sortByPosition(int[] rows, int[] buffer, int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparePositions(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortByPosition(rows, buffer, from, middle);
+        sortByPosition(rows, buffer, middle, to);
+        if (comparePositions(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            rows[i] = right >= to || (left < middle && comparePositions(buffer[left], buffer[right]) <= 0)
+                    ? buffer[left++] : buffer[right++];
+        }
+    }
+
+    private int comparePositions(int a, int b) {
+        for (int i = 0; i < 4; i++) {
+            int comparison = Integer.compare(positions[a * 4 + i], positions[b * 4 + i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes, for ids 0 to {@code ids - 1}, the offsets of their rows in the
+     * row array that follows, grouped by id and ascending within each id. Rows
+     * with id -1 are left out.
+     */
+    private static void writeIndex(ByteBuffer out, int[] idsByRow, int ids) {
+        int[] starts = new int[ids + 1];
+        for (int id : idsByRow) {
+            if (id >= 0) {
+                starts[id + 1]++;
+            }
+        }
+        for (int id = 0; id < ids; id++) {
+            starts[id + 1] += starts[id];
+        }
+        int[] rows = new int[starts[ids]];
+        int[] next = Arrays.copyOf(starts, ids);
+        for (int row = 0; row < idsByRow.length; row++) {
+            if (idsByRow[row] >= 0) {
+                rows[next[idsByRow[row]]++] = row;
+            }
+        }
+        for (int start : starts) {
+            out.putInt(start);
+        }
+        for (int row : rows) {
+            out.putInt(row);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ruleIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ruleIds.length + (ruleIds.length >> 1));
+        ruleIds = Arrays.copyOf(ruleIds, newCapacity);
+        severities = Arrays.copyOf(severities, newCapacity);
+        fileIds = Arrays.copyOf(fileIds, newCapacity);
+        positions = Arrays.copyOf(positions, newCapacity * 4);
+        memberIds = Arrays.copyOf(memberIds, newCapacity);
+        messageIds = Arrays.copyOf(messageIds, newCapacity);
+        fingerprints = Arrays.copyOf(fingerprints, newCapacity);
+    }
+
+    /**
+     * Maps each distinct string to a dense id in the order of first use, and
+     * is written sorted by UTF-8 bytes.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private byte[][] sortedValues;
+
+        int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        /**
+         * Sorts the values and returns the new id of each old id.
+         */
+        int[] sortedIds() {
+            byte[][] encoded = new byte[values.size()][];
+            Integer[] order = new Integer[values.size()];
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]));
+            int[] newIds = new int[order.length];
+            sortedValues = new byte[order.length][];
+            for (int i = 0; i < order.length; i++) {
+                newIds[order[i]] = i;
+                sortedValues[i] = encoded[order[i]];
+            }
+            return newIds;
+        }
+
+        /**
+         * Writes the count, the offsets of the values in the bytes that follow,
+         * and the bytes. Must follow {@link #sortedIds()}.
+         */
+        void write(ByteBuffer out) {
+            out.putInt(sortedValues.length);
+            int offset = 0;
+            out.putInt(offset);
+            for (byte[] value : sortedValues) {
+                offset += value.length;
+                out.putInt(offset);
+            }
+            for (byte[] value : sortedValues) {
+                out.put(value);
+            }
+        }
+
+        /**
+         * The size of the written dictionary. Must follow {@link #sortedIds()}.
+         */
+        long bytes() {
+            long bytes = 4L * (sortedValues.length + 2);
+            for (byte[] value : sortedValues) {
+                bytes += value.length;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A directory holding the findings of many runs, e.g. one per nightly build,
+ * to query and compare them. Each run is one immutable {@link FindingsRun}
+ * file named by its number, so appending a run never touches the earlier
+ * ones. A run is written to a temporary file and then moved into place, so
+ * readers never see a partial run; only one run should be appended at a time.
+ */
+public class FindingsStore {
+
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".findings";
+
+    private final Path directory;
+
+    public FindingsStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * The numbers of the stored runs, in ascending order.
+     */
+    public List<Integer> getRuns() throws IOException {
+        List<Integer> runs = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return runs;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, RUN_PREFIX + "*" + RUN_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    runs.add(Integer.parseInt(name.substring(RUN_PREFIX.length(), name.length() - RUN_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a run of this store.
+                }
+            }
+        }
+        Collections.sort(runs);
+        return runs;
+    }
+
+    /**
+     * The number of the latest run, or -1 if there is none.
+     */
+    public int getLatestRun() throws IOException {
+        List<Integer> runs = getRuns();
+        return runs.isEmpty() ? -1 : runs.get(runs.size() - 1);
+    }
+
+    /**
+     * Stores the findings as a new run.
+     *
+     * @return the number of the run
+     */
+    public int append(FindingsRunBuilder findings, long createdMillis) throws IOException {
+        Files.createDirectories(directory);
+        int run = getLatestRun() + 1;
+        SourceFiles.writeAtomically(fileOf(run), findings.toBytes(createdMillis));
+        return run;
+    }
+
+    public FindingsRun open(int run) throws IOException {
+        return FindingsRun.open(run, fileOf(run));
+    }
+
+    /**
+     * Compares two runs by the {@linkplain FindingFingerprints fingerprints} of
+     * their findings, which do not depend on positions. Findings of a run are
+     * sent in the order of file and position.
+     *
+     * @param added receives the findings of {@code to} that {@code from} does not have
+     * @param removed receives the findings of {@code from} that {@code to} does not have
+     */
+    public static void diff(FindingsRun from, FindingsRun to, FindingSink added, FindingSink removed) {
+        long[] fromFingerprints = from.getFingerprints();
+        long[] toFingerprints = to.getFingerprints();
+        // Matched copy by copy, so that a second identical finding in a member counts as added.
+        Baseline.Matcher before = Baseline.of(fromFingerprints, fromFingerprints.length).matcher();
+        for (int row = 0; row < toFingerprints.length; row++) {
+            if (!before.match(toFingerprints[row])) {
+                added.accept(to.finding(row));
+            }
+        }
+        Baseline.Matcher after = Baseline.of(toFingerprints, toFingerprints.length).matcher();
+        for (int row = 0; row < fromFingerprints.length; row++) {
+            if (!after.match(fromFingerprints[row])) {
+                removed.accept(from.finding(row));
+            }
+        }
+    }
+
+    private Path fileOf(int run) {
+        return directory.resolve(String.format("%s%06d%s", RUN_PREFIX, run, RUN_SUFFIX));
+    }
+}
@@ -0,0 +1,70 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+
+/**
+ * Passes findings on to a delegate and collects them in a
+ * {@link FindingsRunBuilder}, storing them as a new run of a
+ * {@link FindingsStore} when closed.
+ */
+public class FindingsStoreSink implements FindingSink {
+
+    private final FindingSink delegate;
+    private final FindingsStore store;
+    private final FindingsRunBuilder findings = new FindingsRunBuilder();
+    private int run = -1;
+
+    public FindingsStoreSink(FindingSink delegate, FindingsStore store) {
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    @Override
+    public void accept(Finding finding) {
+        findings.add(finding);
+        delegate.accept(finding);
+    }
+
+    /**
+     * The number of the stored run, or -1 before closing.
+     */
+    public int getRun() {
+        return run;
+    }
+
+    public int getFindingCount() {
+        return findings.size();
+    }
+
+    /**
+     * Closes the delegate and stores the run.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            delegate.close();
+        } finally {
+            run = store.append(findings, System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The command line interface of a {@link FindingsStore}, as written by
+ * {@code RefactoringTool --store}.
+ * <pre>
+ * java refactoring.FindingsStoreTool &lt;store&gt; runs
+ * java refactoring.FindingsStoreTool &lt;store&gt; query [--run &lt;n&gt;] [--rule &lt;id&gt;] [--package &lt;prefix&gt;]
+ *     [--file &lt;pathPrefix&gt;] [--method &lt;name|Type#member&gt;] [--count] [--format text|jsonl]
+ * java refactoring.FindingsStoreTool &lt;store&gt; diff &lt;fromRun&gt; &lt;toRun&gt;
+ * </pre>
+ * Queries read the latest run unless {@code --run} is given. Findings go to
+ * standard output and counts, summaries and errors to standard error. An
+ * unknown option or run exits with status 1.
+ */
+public class FindingsStoreTool {
+
+    public static void main(String[] args) throws IOException {
+        boolean succeeded;
+        if (args.length < 2) {
+            printUsage();
+            succeeded = false;
+        } else {
+            FindingsStore store = new FindingsStore(Paths.get(args[0]));
+            switch (args[1]) {
+                case "runs":
+                    listRuns(store);
+                    succeeded = true;
+                    break;
+                case "query":
+                    succeeded = query(store, args);
+                    break;
+                case "diff":
+                    if (args.length != 4) {
+                        printUsage();
+                        succeeded = false;
+                        break;
+                    }
+                    int fromId = Integer.parseInt(args[2]);
+                    int toId = Integer.parseInt(args[3]);
+                    succeeded = isRun(store, fromId) && isRun(store, toId);
+                    if (succeeded) {
+                        diff(store, fromId, toId);
+                    }
+                    break;
+                default:
+                    printUsage();
+                    succeeded = false;
+            }
+        }
+        if (!succeeded) {
+            // Lets scripts tell a typo or a missing run from an empty result.
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: FindingsStoreTool <store> runs");
+        System.err.println("       FindingsStoreTool <store> query [--run <n>] [--rule <id>] [--package <prefix>]"
+                + " [--file <pathPrefix>] [--method <name|Type#member>] [--count] [--format text|jsonl]");
+        System.err.println("       FindingsStoreTool <store> diff <fromRun> <toRun>");
+    }
+
+    /**
+     * Prints every run with its number of findings in total and per rule, to follow trends.
+     */
+    private static void listRuns(FindingsStore store) throws IOException {
+        for (int id : store.getRuns()) {
+            FindingsRun run = store.open(id);
+            StringBuilder line = new StringBuilder();
+            line.append(id).append('\t').append(Instant.ofEpochMilli(run.getCreatedMillis())).append('\t').append(run.size());
+            for (String ruleId : run.getRuleIds()) {
+                line.append('\t').append(ruleId).append('=').append(run.countRule(ruleId));
+            }
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Prints the findings of one run matching the options, or their number.
+     *
+     * @return {@code false} if an option or the run is unknown
+     */
+    private static boolean query(FindingsStore store, String[] args) throws IOException {
+        int runId = -1;
+        FindingsQuery query = FindingsQuery.ALL;
+        boolean count = false;
+        String format = "text";
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--run") && i + 1 < args.length) {
+                runId = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--rule") && i + 1 < args.length) {
+                query = query.withRule(args[++i]);
+            } else if (args[i].equals("--package") && i + 1 < args.length) {
+                query = query.withPackage(args[++i]);
+            } else if (args[i].equals("--file") && i + 1 < args.length) {
+                query = query.withFile(args[++i]);
+            } else if (args[i].equals("--method") && i + 1 < args.length) {
+                query = query.withMethod(args[++i]);
+            } else if (args[i].equals("--count")) {
+                count = true;
+            } else if (args[i].equals("--format") && i + 1 < args.length) {
+                format = args[++i];
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                return false;
+            }
+        }
+        if (runId < 0) {
+            runId = store.getLatestRun();
+            if (runId < 0) {
+                System.err.println("No runs in " + store.getDirectory());
+                return false;
+            }
+        } else if (!isRun(store, runId)) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        FindingsRun run = store.open(runId);
+        int[] rows = run.rows(query);
+        if (count) {
+            System.out.println(rows.length);
+        } else {
+            try (FindingSink sink = format.equals("jsonl")
+                    ? new JsonLinesFindingSink(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : ConsoleFindingSink.toStandardOutput()) {
+                for (int row : rows) {
+                    sink.accept(run.finding(row));
+                }
+            }
+        }
+        System.err.println(rows.length + " of " + run.size() + " findings of run " + runId + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        return true;
+    }
+
+    /**
+     * Checks that the store holds the given run, and names the runs it does hold if not.
+     */
+    private static boolean isRun(FindingsStore store, int runId) throws IOException {
+        List<Integer> runs = store.getRuns();
+        if (runs.contains(runId)) {
+            return true;
+        }
+        if (runs.isEmpty()) {
+            System.err.println("No runs in " + store.getDirectory());
+        } else {
+            System.err.println("Unknown run " + runId + "; " + store.getDirectory() + " holds runs "
+                    + runs.stream().map(String::valueOf).collect(Collectors.joining(", ")) + ".");
+        }
+        return false;
+    }
+
+    /**
+     * Prints the findings new in the later run with a leading {@code +}, and
+     * those gone from it with a leading {@code -}.
+     */
+    private static void diff(FindingsStore store, int fromId, int toId) throws IOException {
+        PrintStream out = System.out;
+        int[] counts = new int[2];
+        FindingsStore.diff(store.open(fromId), store.open(toId), finding -> {
+            counts[0]++;
+            out.println("+ " + finding);
+        }, finding -> {
+            counts[1]++;
+            out.println("- " + finding);
+        });
+        out.flush();
+        System.err.println("Run " + toId + " against run " + fromId + ": " + counts[0] + " added, " + counts[1] + " removed.");
+    }
+}
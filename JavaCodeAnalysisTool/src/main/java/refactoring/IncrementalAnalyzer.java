@@ -0,0 +1,139 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyzes only the members touched by a diff. Changed lines are mapped onto the
+ * innermost member declaration (method, constructor, field or initializer) of
+ * the file's type declarations, and the rules run on those subtrees alone.
+ * Checks that need the whole file, such as the contention check, still answer
+ * from the {@link LockUsageIndex} of the complete compilation unit.
+ */
+public class IncrementalAnalyzer {
+
+    private final JavaParser parser;
+    private final FindingSink sink;
+    private final TypeResolution typeResolution;
+    private int analyzedMembers;
+
+    /**
+     * @param typeResolution resolves types for the type-aware checks, or {@code null} to skip them
+     */
+    public IncrementalAnalyzer(FindingSink sink, TypeResolution typeResolution) {
+        ParserConfiguration configuration = new ParserConfiguration();
+        if (typeResolution != null) {
+            typeResolution.configure(configuration);
+        }
+        this.parser = new JavaParser(configuration);
+        this.sink = sink;
+        this.typeResolution = typeResolution;
+    }
+
+    /**
+     * @param root the directory the paths in the diff are relative to
+     */
+    public void analyze(Path root, ChangedLines changedLines) throws IOException {
+        for (Map.Entry<String, BitSet> file : changedLines.getLinesByFile().entrySet()) {
+            Path sourceFile = root.resolve(file.getKey());
+            if (!file.getKey().endsWith(".java") || !Files.isRegularFile(sourceFile)) {
+                continue;
+            }
+            analyzeFile(sourceFile, file.getValue());
+        }
+    }
+
+    public int getAnalyzedMembers() {
+        return analyzedMembers;
+    }
+
+    private void analyzeFile(Path sourceFile, BitSet lines) throws IOException {
+        ParseResult<CompilationUnit> parseResult = parser.parse(sourceFile);
+        if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+            System.err.println("Failed to parse the source file: " + sourceFile);
+            return;
+        }
+        List<Node> changedMembers = findChangedMembers(parseResult.getResult().get(), lines);
+        if (changedMembers.isEmpty()) {
+            return;
+        }
+
+        AdvancedControlFlowAnalyzer analyzer = new AdvancedControlFlowAnalyzer(sourceFile.toString(), sink, typeResolution);
+        NullCheckMethodVisitor nullCheckVisitor = new NullCheckMethodVisitor();
+        List<AnalysisRule> rules = new ArrayList<>(analyzer.getRules());
+        rules.addAll(nullCheckVisitor.getRules());
+        RuleEngine engine = new RuleEngine(rules);
+        for (Node member : changedMembers) {
+            engine.run(member);
+        }
+        analyzedMembers += changedMembers.size();
+    }
+
+    /**
+     * The innermost member declarations containing at least one changed line. A
+     * member nested in another selected member is covered by the outer one.
+     */
+    static List<Node> findChangedMembers(CompilationUnit compilationUnit, BitSet lines) {
+        List<Node> changedMembers = new ArrayList<>();
+        for (TypeDeclaration<?> type : compilationUnit.getTypes()) {
+            collectChangedMembers(type, lines, changedMembers);
+        }
+        return changedMembers;
+    }
+
+    private static void collectChangedMembers(TypeDeclaration<?> type, BitSet lines, List<Node> changedMembers) {
+        if (!containsChangedLine(type, lines)) {
+            return;
+        }
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (member instanceof TypeDeclaration) {
+                collectChangedMembers((TypeDeclaration<?>) member, lines, changedMembers);
+            } else if (containsChangedLine(member, lines)) {
+                changedMembers.add(member);
+            }
+        }
+    }
+
+    private static boolean containsChangedLine(Node node, BitSet lines) {
+        if (!node.getRange().isPresent()) {
+            return false;
+        }
+        Range range = node.getRange().get();
+        int next = lines.nextSetBit(range.begin.line);
+        return next >= 0 && next <= range.end.line;
+    }
+}
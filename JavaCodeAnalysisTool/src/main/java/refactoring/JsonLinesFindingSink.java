@@ -0,0 +1,76 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Streams findings as JSON Lines, one object per finding:
+ * <pre>
+ * {"ruleId":"broad-catch","severity":"WARNING","file":"A.java","beginLine":3,"beginColumn":9,"endLine":5,"endColumn":9,"message":"...","member":"p.A#run()","fingerprint":"5f1c..."}
+ * </pre>
+ * Every line is rendered into one reused buffer and written through a buffered
+ * writer, so emitting a finding allocates next to nothing.
+ */
+public class JsonLinesFindingSink implements FindingSink {
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public JsonLinesFindingSink(Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+    }
+
+    @Override
+    public void accept(Finding finding) {
+        line.setLength(0);
+        line.append("{\"ruleId\":");
+        Json.appendString(line, finding.getRuleId());
+        line.append(",\"severity\":\"").append(finding.getSeverity().name()).append('"');
+        line.append(",\"file\":");
+        Json.appendString(line, finding.getFile());
+        line.append(",\"beginLine\":").append(finding.getBeginLine());
+        line.append(",\"beginColumn\":").append(finding.getBeginColumn());
+        line.append(",\"endLine\":").append(finding.getEndLine());
+        line.append(",\"endColumn\":").append(finding.getEndColumn());
+        line.append(",\"message\":");
+        Json.appendString(line, finding.getMessage());
+        if (finding.getMember() != null) {
+            line.append(",\"member\":");
+            Json.appendString(line, finding.getMember());
+        }
+        line.append(",\"fingerprint\":\"").append(Baseline.toHex(finding.getFingerprint())).append('"');
+        line.append("}\n");
+        try {
+            out.append(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
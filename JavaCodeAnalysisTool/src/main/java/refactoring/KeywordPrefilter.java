@@ -0,0 +1,174 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Decides from the raw bytes of a source file which of a few keywords occur in
+ * it as tokens, before the file is parsed. Comments, string and character
+ * literals and text blocks are skipped, and a keyword only counts as a whole
+ * identifier-like token, so {@code format} does not contain {@code for}. A rule
+ * whose trigger keywords are all absent cannot match any node of the file, and
+ * a file that triggers no rule need not be parsed at all.
+ * <p>
+ * The scan assumes an ASCII-compatible encoding such as UTF-8 and does not
+ * decode Unicode escapes, which no real code uses to spell keywords.
+ */
+public class KeywordPrefilter {
+
+    /** At most this many keywords, one bit each in the scan result. */
+    public static final int MAX_KEYWORDS = 64;
+
+    private final byte[][] keywords;
+    private final long allKeywords;
+    private final int minLength;
+    private final int maxLength;
+
+    public KeywordPrefilter(List<String> keywords) {
+        if (keywords.isEmpty() || keywords.size() > MAX_KEYWORDS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_KEYWORDS + " keywords are supported, got " + keywords.size());
+        }
+        this.keywords = new byte[keywords.size()][];
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int i = 0; i < keywords.size(); i++) {
+            this.keywords[i] = keywords.get(i).getBytes(StandardCharsets.US_ASCII);
+            min = Math.min(min, this.keywords[i].length);
+            max = Math.max(max, this.keywords[i].length);
+        }
+        this.allKeywords = keywords.size() == MAX_KEYWORDS ? -1L : (1L << keywords.size()) - 1;
+        this.minLength = min;
+        this.maxLength = max;
+    }
+
+    /**
+     * Returns the keywords found in the content, bit {@code i} standing for the
+     * {@code i}-th keyword. The scan stops as soon as all keywords were seen.
+     * The buffer's position is not changed.
+     */
+    public long scan(ByteBuffer content) {
+        long found = 0;
+        int end = content.limit();
+        int i = content.position();
+        while (i < end) {
+            int b = content.get(i) & 0xFF;
+            if (b == '/' && i + 1 < end && content.get(i + 1) == '/') {
+                i = skipPast(content, i + 2, end, '\n');
+            } else if (b == '/' && i + 1 < end && content.get(i + 1) == '*') {
+                i = skipBlockComment(content, i + 2, end);
+            } else if (b == '"') {
+                if (i + 2 < end && content.get(i + 1) == '"' && content.get(i + 2) == '"') {
+                    i = skipTextBlock(content, i + 3, end);
+                } else {
+                    i = skipLiteral(content, i + 1, end, '"');
+                }
+            } else if (b == '\'') {
+                i = skipLiteral(content, i + 1, end, '\'');
+            } else if (isIdentifierPart(b)) {
+                int start = i;
+                do {
+                    i++;
+                } while (i < end && isIdentifierPart(content.get(i) & 0xFF));
+                int length = i - start;
+                if (length >= minLength && length <= maxLength && !(b >= '0' && b <= '9')) {
+                    found |= match(content, start, length);
+                    if (found == allKeywords) {
+                        return found;
+                    }
+                }
+            } else {
+                i++;
+            }
+        }
+        return found;
+    }
+
+    private long match(ByteBuffer content, int start, int length) {
+        for (int k = 0; k < keywords.length; k++) {
+            byte[] keyword = keywords[k];
+            if (keyword.length != length) {
+                continue;
+            }
+            int j = 0;
+            while (j < length && content.get(start + j) == keyword[j]) {
+                j++;
+            }
+            if (j == length) {
+                return 1L << k;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isIdentifierPart(int b) {
+        // Bytes of multi-byte UTF-8 sequences belong to identifiers, too.
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '$' || b >= 0x80;
+    }
+
+    private static int skipPast(ByteBuffer content, int i, int end, char terminator) {
+        while (i < end && content.get(i) != terminator) {
+            i++;
+        }
+        return i + 1;
+    }
+
+    private static int skipBlockComment(ByteBuffer content, int i, int end) {
+        while (i + 1 < end && !(content.get(i) == '*' && content.get(i + 1) == '/')) {
+            i++;
+        }
+        return i + 2;
+    }
+
+    /**
+     * Skips a string or character literal. Literals cannot span lines, so an
+     * unterminated one ends at the line break rather than swallowing the file.
+     */
+    private static int skipLiteral(ByteBuffer content, int i, int end, char quote) {
+        while (i < end) {
+            byte b = content.get(i);
+            if (b == '\\') {
+                i += 2;
+            } else if (b == quote || b == '\n') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static int skipTextBlock(ByteBuffer content, int i, int end) {
+        while (i + 2 < end) {
+            byte b = content.get(i);
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"' && content.get(i + 1) == '"' && content.get(i + 2) == '"') {
+                return i + 3;
+            } else {
+                i++;
+            }
+        }
+        return end;
+    }
+}
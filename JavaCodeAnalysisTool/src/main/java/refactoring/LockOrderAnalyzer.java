@@ -0,0 +1,499 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds monitors that a project may acquire in opposite orders, the classic
+ * deadlock of one thread holding A and waiting for B while another holds B and
+ * waits for A, even when the two acquisitions are in different classes and
+ * reached through chains of calls.
+ * <p>
+ * Locks are identified across files by name: {@code C.this} for
+ * {@code synchronized (this)} and synchronized instance methods of class C,
+ * {@code C.class} for class literals and synchronized static methods, and
+ * {@code C.f} for a field f declared in C. All instances of a class count as
+ * one lock. Locks on locals, parameters and call results are ignored.
+ * <p>
+ * Methods and locks are the nodes of one graph, held in flat arrays: a method
+ * has an edge to every method it calls and every lock it acquires, and a lock
+ * has an edge to every lock acquired and every method called while it is held.
+ * Lock B is taken while A is held exactly when a path leads from A to B, so a
+ * strongly connected component, found with Tarjan's algorithm, that contains
+ * two or more locks is a potential deadlock. Each is reported once, with an
+ * example path in each direction. Calls are resolved like those of the
+ * {@link NullnessAnalyzer}.
+ */
+public class LockOrderAnalyzer {
+
+    public static final String RULE_LOCK_ORDER_CYCLE = "lock-order-cycle";
+
+    private static final int SITE_CALL = 0;
+    private static final int SITE_LOCK = 1;
+
+    private final int parallelism;
+    private final FindingSink sink;
+
+    private NullnessFacts.Method[] methods;
+    private String[] methodFiles;
+    private List<String> lockNames;
+    private int[] offsets;
+    private int[] targets;
+    private int[] edgeSites;
+    private int[] siteMethods;
+    private int[] siteLines;
+    private int[] siteColumns;
+
+    private int analyzedFiles;
+    private int failedFiles;
+    private int acquisitions;
+    private int resolvedCalls;
+    private int unresolvedCalls;
+    private int cycles;
+    private long solveMillis;
+    private List<StageStats> stageStats;
+
+    /**
+     * @param sink receives the cycles, from the thread calling {@link #analyze}
+     */
+    public LockOrderAnalyzer(int parallelism, FindingSink sink) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.sink = sink;
+    }
+
+    public void analyze(List<Path> sourceFiles) throws IOException, InterruptedException {
+        analyzeFacts(extract(sourceFiles));
+    }
+
+    /**
+     * Builds the graph from facts extracted with locks recorded and reports its
+     * cycles.
+     */
+    public void analyzeFacts(List<NullnessFacts> files) {
+        List<NullnessFacts> sorted = new ArrayList<>(files);
+        // Sorted, so that node numbers and findings do not depend on thread timing.
+        sorted.sort(Comparator.comparing(NullnessFacts::getFile));
+        long start = System.nanoTime();
+        buildGraph(sorted);
+        int[] component = new int[offsets.length - 1];
+        int componentCount = NullnessAnalyzer.findComponents(offsets, targets, component);
+        report(component, componentCount);
+        solveMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private List<NullnessFacts> extract(List<Path> sourceFiles) throws IOException, InterruptedException {
+        List<NullnessFacts> files = new ArrayList<>();
+        StagedPipeline<Object> pipeline = new StagedPipeline<>(parallelism);
+        try {
+            pipeline.run(sourceFiles, () -> {
+                JavaParser parser = new JavaParser();
+                return source -> extract(parser, source);
+            }, extracted -> {
+                if (extracted instanceof NullnessFacts) {
+                    files.add((NullnessFacts) extracted);
+                    analyzedFiles++;
+                } else {
+                    failedFiles++;
+                    System.err.println(extracted);
+                }
+            });
+        } finally {
+            stageStats = pipeline.getStats();
+        }
+        return files;
+    }
+
+    /**
+     * @return the facts, or the reason they could not be extracted
+     */
+    private static Object extract(JavaParser parser, StagedPipeline.Source source) {
+        Path file = source.getFile();
+        try {
+            String content = StandardCharsets.UTF_8.decode(source.getContent().duplicate()).toString();
+            ParseResult<CompilationUnit> result = parser.parse(content);
+            if (!result.isSuccessful() || !result.getResult().isPresent()) {
+                return "Failed to parse the source file: " + file;
+            }
+            return NullnessFacts.extract(result.getResult().get(), file.toString(), true);
+        } catch (IOException e) {
+            return "Failed to read the source file: " + file + " (" + e.getMessage() + ")";
+        } catch (RuntimeException e) {
+            return "Failed to analyze the source file: " + file + " (" + e.getMessage() + ")";
+        } catch (StackOverflowError e) {
+            return "Failed to analyze the source file: " + file + " (nested too deeply to parse)";
+        }
+    }
+
+    /**
+     * Numbers the methods, then the locks after them, and collects the edges
+     * with the source position that explains each.
+     */
+    private void buildGraph(List<NullnessFacts> files) {
+        List<NullnessFacts.Method> all = new ArrayList<>();
+        List<String> allFiles = new ArrayList<>();
+        for (NullnessFacts file : files) {
+            for (NullnessFacts.Method method : file.getMethods()) {
+                all.add(method);
+                allFiles.add(file.getFile());
+            }
+        }
+        methods = all.toArray(new NullnessFacts.Method[0]);
+        methodFiles = allFiles.toArray(new String[0]);
+        NullnessAnalyzer.TypeIndex types = new NullnessAnalyzer.TypeIndex(files, methods);
+
+        Map<String, Integer> lockIds = new HashMap<>();
+        lockNames = new ArrayList<>();
+        IntList from = new IntList();
+        IntList to = new IntList();
+        IntList sites = new IntList();
+        IntList methodOfSite = new IntList();
+        IntList lineOfSite = new IntList();
+        IntList columnOfSite = new IntList();
+        int methodCount = methods.length;
+        for (int m = 0; m < methodCount; m++) {
+            NullnessFacts.Method method = methods[m];
+            int[] locks = new int[method.locks.length];
+            for (int i = 0; i < locks.length; i++) {
+                NullnessFacts.Lock lock = method.locks[i];
+                String name = lockName(lock, types);
+                Integer id = lockIds.get(name);
+                if (id == null) {
+                    id = lockNames.size();
+                    lockIds.put(name, id);
+                    lockNames.add(name);
+                }
+                locks[i] = methodCount + id;
+                acquisitions++;
+                int site = methodOfSite.size();
+                methodOfSite.add(m);
+                lineOfSite.add(lock.line);
+                columnOfSite.add(lock.column * 2 + SITE_LOCK);
+                from.add(m);
+                to.add(locks[i]);
+                sites.add(site);
+                if (lock.held >= 0 && locks[lock.held] != locks[i]) {
+                    from.add(locks[lock.held]);
+                    to.add(locks[i]);
+                    sites.add(site);
+                }
+            }
+            for (int c = 0; c < method.calls.length; c++) {
+                int held = c < method.callLocks.length ? method.callLocks[c] : NullnessFacts.DEFERRED_CALL;
+                if (held == NullnessFacts.DEFERRED_CALL) {
+                    continue;
+                }
+                int[] callees = types.resolve(method, method.calls[c]);
+                if (callees.length == 0) {
+                    unresolvedCalls++;
+                    continue;
+                }
+                resolvedCalls++;
+                int site = methodOfSite.size();
+                methodOfSite.add(m);
+                lineOfSite.add(method.callLines[c]);
+                columnOfSite.add(SITE_CALL);
+                for (int callee : callees) {
+                    from.add(m);
+                    to.add(callee);
+                    sites.add(site);
+                    if (held >= 0) {
+                        from.add(locks[held]);
+                        to.add(callee);
+                        sites.add(site);
+                    }
+                }
+            }
+        }
+        siteMethods = methodOfSite.toArray();
+        siteLines = lineOfSite.toArray();
+        siteColumns = columnOfSite.toArray();
+        toCompressedRows(methodCount + lockNames.size(), from.toArray(), to.toArray(), sites.toArray());
+    }
+
+    /**
+     * Sorts the edges by source into CSR arrays, keeping the first site of
+     * every distinct edge.
+     */
+    private void toCompressedRows(int nodeCount, int[] from, int[] to, int[] sites) {
+        int[] counts = new int[nodeCount + 1];
+        for (int source : from) {
+            counts[source + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            counts[n + 1] += counts[n];
+        }
+        int[] sortedTargets = new int[from.length];
+        int[] sortedSites = new int[from.length];
+        int[] next = Arrays.copyOf(counts, nodeCount);
+        for (int e = 0; e < from.length; e++) {
+            int slot = next[from[e]]++;
+            sortedTargets[slot] = to[e];
+            sortedSites[slot] = sites[e];
+        }
+        offsets = new int[nodeCount + 1];
+        targets = new int[from.length];
+        edgeSites = new int[from.length];
+        int[] lastSource = new int[nodeCount];
+        Arrays.fill(lastSource, -1);
+        int size = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            for (int e = counts[n]; e < counts[n + 1]; e++) {
+                int target = sortedTargets[e];
+                if (lastSource[target] != n) {
+                    lastSource[target] = n;
+                    targets[size] = target;
+                    edgeSites[size++] = sortedSites[e];
+                }
+            }
+            offsets[n + 1] = size;
+        }
+        targets = Arrays.copyOf(targets, size);
+        edgeSites = Arrays.copyOf(edgeSites, size);
+    }
+
+    private static String lockName(NullnessFacts.Lock lock, NullnessAnalyzer.TypeIndex types) {
+        String type = lock.type;
+        List<Integer> declared = types.lookup(type);
+        if (declared.size() == 1) {
+            type = types.types.get(declared.get(0)).name;
+        }
+        switch (lock.kind) {
+            case NullnessFacts.LOCK_THIS:
+                return type + ".this";
+            case NullnessFacts.LOCK_CLASS:
+                return type + ".class";
+            default:
+                return type + "." + lock.field;
+        }
+    }
+
+    /**
+     * Reports every component with two or more locks, with a path from its
+     * first lock to another one and back.
+     */
+    private void report(int[] component, int componentCount) {
+        int methodCount = methods.length;
+        int nodeCount = offsets.length - 1;
+        int[] firstLock = new int[componentCount];
+        int[] lockCount = new int[componentCount];
+        Arrays.fill(firstLock, -1);
+        for (int n = methodCount; n < nodeCount; n++) {
+            int c = component[n];
+            if (firstLock[c] < 0) {
+                firstLock[c] = n;
+            }
+            lockCount[c]++;
+        }
+        int[] parentEdge = new int[nodeCount];
+        int[] visited = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+        int search = 0;
+        for (int n = methodCount; n < nodeCount; n++) {
+            int c = component[n];
+            if (firstLock[c] != n || lockCount[c] < 2) {
+                continue;
+            }
+            int[] there = shortestPath(n, -1, component, parentEdge, visited, queue, ++search);
+            int other = there[there.length - 1];
+            int[] back = shortestPath(other, n, component, parentEdge, visited, queue, ++search);
+            if (back.length == 0) {
+                continue;
+            }
+            cycles++;
+            int site = edgeSites[there[there.length - 2]];
+            String message = "Locks may be acquired in opposite orders and deadlock: "
+                    + describe(n, there) + "; but " + describe(other, back)
+                    + (lockCount[c] > 2 ? " (" + lockCount[c] + " locks take part in this cycle)." : ".");
+            sink.accept(new Finding(RULE_LOCK_ORDER_CYCLE, Finding.Severity.WARNING, methodFiles[siteMethods[site]],
+                    siteLines[site], siteColumns[site] / 2, siteLines[site], siteColumns[site] / 2, message));
+        }
+    }
+
+    /**
+     * A breadth-first search inside the start's component for the given lock,
+     * or for any other lock if {@code goal} is -1.
+     *
+     * @return the edge indexes of the path, followed by the node reached; empty if there is none
+     */
+    private int[] shortestPath(int start, int goal, int[] component, int[] parentEdge, int[] visited, int[] queue,
+            int search) {
+        int methodCount = methods.length;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = search;
+        parentEdge[start] = -1;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int target = targets[e];
+                if (visited[target] == search || component[target] != component[start]) {
+                    continue;
+                }
+                visited[target] = search;
+                parentEdge[target] = e;
+                if (goal >= 0 ? target == goal : target >= methodCount) {
+                    IntList path = new IntList();
+                    for (int n = target; parentEdge[n] >= 0; n = sourceOf(parentEdge[n])) {
+                        path.add(parentEdge[n]);
+                    }
+                    int[] edges = path.toArray();
+                    int[] result = new int[edges.length + 1];
+                    for (int i = 0; i < edges.length; i++) {
+                        result[i] = edges[edges.length - 1 - i];
+                    }
+                    result[edges.length] = target;
+                    return result;
+                }
+                queue[tail++] = target;
+            }
+        }
+        return new int[0];
+    }
+
+    private int sourceOf(int edge) {
+        int low = 0;
+        int high = offsets.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= edge) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Describes a path from a lock, e.g. "holding A, X#run() calls Y#get() at
+     * X.java:12, which locks B at Y.java:30".
+     */
+    private String describe(int start, int[] path) {
+        int methodCount = methods.length;
+        StringBuilder text = new StringBuilder("holding ").append(lockNames.get(start - methodCount));
+        for (int i = 0; i < path.length - 1; i++) {
+            int edge = path[i];
+            int site = edgeSites[edge];
+            int target = targets[edge];
+            text.append(i == 0 ? ", " : ", which ");
+            if (i == 0) {
+                text.append(methods[siteMethods[site]].key).append(' ');
+            }
+            text.append(target >= methodCount ? "locks " + lockNames.get(target - methodCount)
+                    : "calls " + methods[target].key);
+            text.append(" at ").append(Paths.get(methodFiles[siteMethods[site]]).getFileName())
+                    .append(':').append(siteLines[site]);
+        }
+        return text.toString();
+    }
+
+    public int getAnalyzedFiles() {
+        return analyzedFiles;
+    }
+
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    public int getMethodCount() {
+        return methods == null ? 0 : methods.length;
+    }
+
+    public int getLockCount() {
+        return lockNames == null ? 0 : lockNames.size();
+    }
+
+    /**
+     * The number of synchronized blocks and methods with a named lock.
+     */
+    public int getAcquisitions() {
+        return acquisitions;
+    }
+
+    public int getEdgeCount() {
+        return targets == null ? 0 : targets.length;
+    }
+
+    public int getResolvedCalls() {
+        return resolvedCalls;
+    }
+
+    public int getUnresolvedCalls() {
+        return unresolvedCalls;
+    }
+
+    public int getCycles() {
+        return cycles;
+    }
+
+    /**
+     * The time spent after parsing, building the graph and searching it.
+     */
+    public long getSolveMillis() {
+        return solveMillis;
+    }
+
+    public List<StageStats> getStageStats() {
+        return stageStats;
+    }
+
+    /**
+     * A growable int array.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
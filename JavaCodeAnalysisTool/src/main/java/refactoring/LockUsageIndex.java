@@ -0,0 +1,131 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.SynchronizedStmt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the lock usage in one compilation unit, built in a single traversal.
+ * It maps every lock expression to its synchronized sites and every name to its
+ * references, and remembers which references occur outside of a synchronized
+ * block on a lock of the same name. All lock checks of the
+ * {@link AdvancedControlFlowAnalyzer} answer from this index instead of
+ * searching the whole compilation unit per synchronized block.
+ */
+public class LockUsageIndex {
+
+    private final Map<Expression, List<SynchronizedStmt>> synchronizedSites = new HashMap<>();
+    private final Map<String, List<NameExpr>> references = new HashMap<>();
+    private final Map<String, List<NameExpr>> unguardedReferences = new HashMap<>();
+    private int visitedNodes;
+
+    private LockUsageIndex() {
+    }
+
+    public static LockUsageIndex build(Node root) {
+        LockUsageIndex index = new LockUsageIndex();
+        Map<String, int[]> enclosingLocks = new HashMap<>();
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Object top = stack.pop();
+            if (top instanceof LeaveLock) {
+                enclosingLocks.get(((LeaveLock) top).name)[0]--;
+                continue;
+            }
+            Node node = (Node) top;
+            index.visitedNodes++;
+            if (node instanceof SynchronizedStmt) {
+                SynchronizedStmt synchronizedStmt = (SynchronizedStmt) node;
+                Expression lock = synchronizedStmt.getExpression();
+                index.synchronizedSites.computeIfAbsent(lock, k -> new ArrayList<>()).add(synchronizedStmt);
+                if (lock.isNameExpr()) {
+                    // The lock expression and the block body are both guarded by the lock.
+                    String name = lock.asNameExpr().getNameAsString();
+                    enclosingLocks.computeIfAbsent(name, k -> new int[1])[0]++;
+                    stack.push(new LeaveLock(name));
+                }
+            } else if (node instanceof NameExpr) {
+                NameExpr nameExpr = (NameExpr) node;
+                String name = nameExpr.getNameAsString();
+                index.references.computeIfAbsent(name, k -> new ArrayList<>()).add(nameExpr);
+                int[] guards = enclosingLocks.get(name);
+                if (guards == null || guards[0] == 0) {
+                    index.unguardedReferences.computeIfAbsent(name, k -> new ArrayList<>()).add(nameExpr);
+                }
+            }
+            List<Node> children = node.getChildNodes();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * All synchronized statements locking on an expression structurally equal to {@code lock}.
+     */
+    public List<SynchronizedStmt> getSynchronizedSites(Expression lock) {
+        return synchronizedSites.getOrDefault(lock, Collections.emptyList());
+    }
+
+    /**
+     * All references to the given simple name.
+     */
+    public List<NameExpr> getReferences(String name) {
+        return references.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * The references to the given name that are not inside a synchronized block
+     * locking on that name.
+     */
+    public List<NameExpr> getUnguardedReferences(String name) {
+        return unguardedReferences.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * The number of nodes the build traversed.
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private static final class LeaveLock {
+
+        final String name;
+
+        LeaveLock(String name) {
+            this.name = name;
+        }
+    }
+}
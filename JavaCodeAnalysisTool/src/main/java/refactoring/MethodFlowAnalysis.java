@@ -0,0 +1,722 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.SwitchExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.SynchronizedStmt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Dataflow facts about the local variables and parameters of one method,
+ * computed with {@link BitSetDataflow} on the method's {@link ControlFlowGraph}:
+ * <ul>
+ * <li>definite assignment: the variables assigned on every path to a node;</li>
+ * <li>nullness: the variables that are null, or not null, on every path to a
+ * node, learned from assignments, dereferences and null checks;</li>
+ * <li>loop exits: the loops that can be left other than by their condition
+ * becoming false, i.e. by a break, return or throw.</li>
+ * </ul>
+ * Variables are identified by name. Java forbids a local to shadow another one,
+ * and every declaration starts a variable afresh, so locals of the same name in
+ * sibling blocks do not disturb each other. Fields are not tracked, since calls
+ * and other threads may change them. Each analysis runs on first use.
+ */
+public final class MethodFlowAnalysis {
+
+    /** The effects of a node on a variable, stored as {@code variable << 3 | effect}. */
+    private static final int DECLARE = 0;
+    private static final int ASSIGN_UNKNOWN = 1;
+    private static final int ASSIGN_NULL = 2;
+    private static final int ASSIGN_NON_NULL = 3;
+    /** Followed by the index of the variable whose value is copied. */
+    private static final int ASSIGN_COPY = 4;
+    /** An assignment that is not evaluated on every path through the node. */
+    private static final int MAY_ASSIGN = 5;
+    private static final int DEREFERENCE = 6;
+
+    /** A refinement marking an edge that is never taken, like the true edge of {@code while (false)}. */
+    private static final int INFEASIBLE = -1;
+
+    private static final int[] NO_INTS = new int[0];
+
+    private final ControlFlowGraph graph;
+    private final List<String> parameters;
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final int[][] effects;
+    /** Per condition node, the nullness learned when it is true and when it is false, as {@code variable << 1 | isNull}. */
+    private final int[][] whenTrue;
+    private final int[][] whenFalse;
+
+    private BitSetDataflow.Result definiteAssignment;
+    private BitSetDataflow.Result nullness;
+    private BitSetDataflow.Result loopExits;
+
+    private MethodFlowAnalysis(Statement body, List<String> parameters) {
+        this.graph = ControlFlowGraph.build(body);
+        this.parameters = parameters;
+        for (String parameter : parameters) {
+            variable(parameter);
+        }
+        walk(body, node -> {
+            if (node instanceof VariableDeclarator) {
+                variable(((VariableDeclarator) node).getNameAsString());
+            } else if (node instanceof Parameter) {
+                variable(((Parameter) node).getNameAsString());
+            }
+        });
+        int size = graph.size();
+        this.effects = new int[size][];
+        this.whenTrue = new int[size][];
+        this.whenFalse = new int[size][];
+        for (int node = 0; node < size; node++) {
+            effects[node] = computeEffects(graph.getNode(node));
+        }
+    }
+
+    /**
+     * Analyzes the body of a method, constructor, initializer or lambda.
+     *
+     * @return the analysis, or {@code null} for a declaration without a body or a lambda with an expression body
+     */
+    public static MethodFlowAnalysis of(Node owner) {
+        List<String> parameters = new ArrayList<>();
+        Statement body = null;
+        if (owner instanceof CallableDeclaration) {
+            CallableDeclaration<?> callable = (CallableDeclaration<?>) owner;
+            callable.getParameters().forEach(parameter -> parameters.add(parameter.getNameAsString()));
+            body = callable.isMethodDeclaration()
+                    ? callable.asMethodDeclaration().getBody().orElse(null)
+                    : callable.isConstructorDeclaration() ? callable.asConstructorDeclaration().getBody() : null;
+        } else if (owner instanceof LambdaExpr) {
+            LambdaExpr lambda = (LambdaExpr) owner;
+            lambda.getParameters().forEach(parameter -> parameters.add(parameter.getNameAsString()));
+            body = lambda.getBody().isBlockStmt() ? lambda.getBody() : null;
+        } else if (owner instanceof InitializerDeclaration) {
+            body = ((InitializerDeclaration) owner).getBody();
+        }
+        return body == null ? null : new MethodFlowAnalysis(body, parameters);
+    }
+
+    /**
+     * The nearest method, constructor, initializer or lambda with a block body
+     * enclosing the node, whose body the node's analysis covers.
+     */
+    public static Node findOwner(Node node) {
+        Node current = node.getParentNode().orElse(null);
+        while (current != null) {
+            if (current instanceof CallableDeclaration || current instanceof InitializerDeclaration) {
+                return current;
+            }
+            if (current instanceof LambdaExpr && ((LambdaExpr) current).getBody().isBlockStmt()) {
+                return current;
+            }
+            if (current instanceof BodyDeclaration) {
+                return null;
+            }
+            current = current.getParentNode().orElse(null);
+        }
+        return null;
+    }
+
+    public ControlFlowGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Whether the name is a parameter or local variable of this body.
+     */
+    public boolean isLocalVariable(String name) {
+        return variables.containsKey(name);
+    }
+
+    public int getVariableCount() {
+        return variables.size();
+    }
+
+    public boolean isReachable(int node) {
+        return definiteAssignment().isReachable(node);
+    }
+
+    /**
+     * Whether the variable is assigned on every path reaching the node.
+     */
+    public boolean isDefinitelyAssigned(int node, String name) {
+        Integer variable = variables.get(name);
+        return variable != null && definiteAssignment().before(node).get(variable);
+    }
+
+    /**
+     * Whether the variable is null on every path reaching the node.
+     */
+    public boolean isDefinitelyNull(int node, String name) {
+        Integer variable = variables.get(name);
+        return variable != null && isNull(nullness().before(node), variable);
+    }
+
+    /**
+     * Whether the variable is not null on every path reaching the node.
+     */
+    public boolean isDefinitelyNonNull(int node, String name) {
+        Integer variable = variables.get(name);
+        return variable != null && isNonNull(nullness().before(node), variable);
+    }
+
+    /**
+     * Whether some node of the loop, including its condition and update, may
+     * assign the variable.
+     */
+    public boolean isAssignedIn(ControlFlowGraph.Loop loop, String name) {
+        Integer variable = variables.get(name);
+        if (variable == null) {
+            return false;
+        }
+        for (int node = loop.getFirstNode(); node < loop.getEnd(); node++) {
+            int[] nodeEffects = effects[node];
+            for (int i = 0; i < nodeEffects.length; i++) {
+                int effect = nodeEffects[i] & 7;
+                if (nodeEffects[i] >>> 3 == variable && effect != DEREFERENCE) {
+                    return true;
+                }
+                if (effect == ASSIGN_COPY) {
+                    i++;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether an iteration of the loop can leave it other than by its condition
+     * being false: by a break or continue to an outer statement, a return, or a
+     * throw caught outside of the loop.
+     */
+    public boolean canExitEarly(ControlFlowGraph.Loop loop) {
+        return loopExits().before(loop.getFirstNode()).get(loop.getIndex());
+    }
+
+    /**
+     * The variables that are null on every path reaching a dereference of them,
+     * for each node where that happens. A dereference is only counted when it is
+     * evaluated whenever the node is, i.e. not behind {@code &&}, {@code ||},
+     * {@code ?:}, in a switch expression or in a lambda.
+     *
+     */
+    public List<NullDereference> findNullDereferences() {
+        List<NullDereference> dereferences = new ArrayList<>();
+        String[] names = new String[variables.size()];
+        variables.forEach((name, index) -> names[index] = name);
+        BitSetDataflow.Result result = nullness();
+        BitSet state = new BitSet();
+        for (int node = 0; node < graph.size(); node++) {
+            int[] nodeEffects = effects[node];
+            if (nodeEffects.length == 0 || !result.isReachable(node)) {
+                continue;
+            }
+            state.clear();
+            state.or(result.before(node));
+            BitSet reported = null;
+            for (int i = 0; i < nodeEffects.length; i++) {
+                int variable = nodeEffects[i] >>> 3;
+                if ((nodeEffects[i] & 7) == DEREFERENCE && isNull(state, variable)) {
+                    if (reported == null) {
+                        reported = new BitSet();
+                    }
+                    if (!reported.get(variable)) {
+                        reported.set(variable);
+                        dereferences.add(new NullDereference(graph.getNode(node), names[variable]));
+                    }
+                }
+                i += applyNullness(nodeEffects, i, state);
+            }
+        }
+        return dereferences;
+    }
+
+    private int variable(String name) {
+        Integer index = variables.get(name);
+        if (index == null) {
+            index = variables.size();
+            variables.put(name, index);
+        }
+        return index;
+    }
+
+    private BitSetDataflow.Result definiteAssignment() {
+        if (definiteAssignment == null) {
+            BitSet boundary = new BitSet();
+            for (String parameter : parameters) {
+                boundary.set(variables.get(parameter));
+            }
+            definiteAssignment = BitSetDataflow.solve(graph, BitSetDataflow.Direction.FORWARD,
+                    BitSetDataflow.Meet.INTERSECTION, variables.size(), boundary, (node, state) -> {
+                        int[] nodeEffects = effects[node];
+                        for (int i = 0; i < nodeEffects.length; i++) {
+                            int variable = nodeEffects[i] >>> 3;
+                            switch (nodeEffects[i] & 7) {
+                                case DECLARE:
+                                    state.clear(variable);
+                                    break;
+                                case ASSIGN_COPY:
+                                    i++;
+                                    state.set(variable);
+                                    break;
+                                case MAY_ASSIGN:
+                                case DEREFERENCE:
+                                    break;
+                                default:
+                                    state.set(variable);
+                            }
+                        }
+                    }, null);
+        }
+        return definiteAssignment;
+    }
+
+    /**
+     * Two bits per variable: {@code 2v} when it is null, {@code 2v + 1} when it is
+     * not. Both set marks a path that cannot be taken, e.g. the null branch of a
+     * check of a variable known not to be null.
+     */
+    private BitSetDataflow.Result nullness() {
+        if (nullness == null) {
+            int width = 2 * variables.size();
+            nullness = BitSetDataflow.solve(graph, BitSetDataflow.Direction.FORWARD,
+                    BitSetDataflow.Meet.INTERSECTION, width, new BitSet(), (node, state) -> {
+                        int[] nodeEffects = effects[node];
+                        for (int i = 0; i < nodeEffects.length; i++) {
+                            i += applyNullness(nodeEffects, i, state);
+                        }
+                    }, (from, to, kind, state) -> {
+                        if (kind != ControlFlowGraph.EDGE_TRUE && kind != ControlFlowGraph.EDGE_FALSE) {
+                            return;
+                        }
+                        for (int fact : refinements(from, kind == ControlFlowGraph.EDGE_TRUE)) {
+                            if (fact == INFEASIBLE) {
+                                state.set(0, width);
+                                return;
+                            }
+                            int variable = fact >>> 1;
+                            boolean toNull = (fact & 1) != 0;
+                            if (toNull ? isNonNull(state, variable) : isNull(state, variable)) {
+                                state.set(0, width);
+                                return;
+                            }
+                            state.set(2 * variable, toNull);
+                            state.set(2 * variable + 1, !toNull);
+                        }
+                    });
+        }
+        return nullness;
+    }
+
+    /**
+     * Applies the effect at {@code index} to a nullness state.
+     *
+     * @return the number of extra ints the effect occupies
+     */
+    private static int applyNullness(int[] nodeEffects, int index, BitSet state) {
+        int variable = nodeEffects[index] >>> 3;
+        switch (nodeEffects[index] & 7) {
+            case ASSIGN_NULL:
+                state.set(2 * variable);
+                state.clear(2 * variable + 1);
+                return 0;
+            case ASSIGN_NON_NULL:
+            case DEREFERENCE:
+                state.clear(2 * variable);
+                state.set(2 * variable + 1);
+                return 0;
+            case ASSIGN_COPY:
+                int source = nodeEffects[index + 1];
+                boolean isNull = state.get(2 * source);
+                boolean isNonNull = state.get(2 * source + 1);
+                state.set(2 * variable, isNull);
+                state.set(2 * variable + 1, isNonNull);
+                return 1;
+            default:
+                state.clear(2 * variable);
+                state.clear(2 * variable + 1);
+                return 0;
+        }
+    }
+
+    private static boolean isNull(BitSet state, int variable) {
+        return state.get(2 * variable) && !state.get(2 * variable + 1);
+    }
+
+    private static boolean isNonNull(BitSet state, int variable) {
+        return state.get(2 * variable + 1) && !state.get(2 * variable);
+    }
+
+    /**
+     * A backward analysis with one bit per loop, set at the nodes of the loop
+     * from which control can leave it without passing through the false edge of
+     * its head.
+     */
+    private BitSetDataflow.Result loopExits() {
+        if (loopExits == null) {
+            List<ControlFlowGraph.Loop> loops = graph.getLoops();
+            // The innermost loop of every node, and the next enclosing loop of every loop.
+            int[] innermost = new int[graph.size()];
+            Arrays.fill(innermost, -1);
+            int[] enclosing = new int[loops.size()];
+            for (ControlFlowGraph.Loop loop : loops) {
+                enclosing[loop.getIndex()] = -1;
+                for (int node = loop.getFirstNode(); node < loop.getEnd(); node++) {
+                    if (innermost[node] < 0) {
+                        innermost[node] = loop.getIndex();
+                    } else if (enclosing[innermost[node]] < 0 && innermost[node] != loop.getIndex()) {
+                        enclosing[innermost[node]] = loop.getIndex();
+                    }
+                }
+            }
+            loopExits = BitSetDataflow.solve(graph, BitSetDataflow.Direction.BACKWARD, BitSetDataflow.Meet.UNION,
+                    loops.size(), new BitSet(), (node, state) -> {
+                    }, (from, to, kind, state) -> {
+                        for (int loop = innermost[from]; loop >= 0; loop = enclosing[loop]) {
+                            ControlFlowGraph.Loop exited = loops.get(loop);
+                            if (exited.contains(to)) {
+                                break;
+                            }
+                            if (from == exited.getHead() && kind == ControlFlowGraph.EDGE_FALSE) {
+                                state.clear(loop);
+                            } else {
+                                state.set(loop);
+                            }
+                        }
+                    });
+        }
+        return loopExits;
+    }
+
+    private int[] refinements(int node, boolean outcome) {
+        int[][] cache = outcome ? whenTrue : whenFalse;
+        if (cache[node] == null) {
+            Node condition = graph.getNode(node);
+            IntList facts = new IntList();
+            if (condition instanceof Expression) {
+                refine((Expression) condition, outcome, facts);
+            }
+            cache[node] = facts.toArray();
+        }
+        return cache[node];
+    }
+
+    /**
+     * Collects what is known about variables when the condition has the given
+     * outcome.
+     */
+    private void refine(Expression condition, boolean outcome, IntList facts) {
+        Expression value = unwrap(condition);
+        if (value.isBooleanLiteralExpr() && value.asBooleanLiteralExpr().getValue() != outcome) {
+            facts.add(INFEASIBLE);
+        } else if (value.isUnaryExpr() && value.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+            refine(value.asUnaryExpr().getExpression(), !outcome, facts);
+        } else if (value.isBinaryExpr()) {
+            BinaryExpr binary = value.asBinaryExpr();
+            BinaryExpr.Operator operator = binary.getOperator();
+            if (operator == BinaryExpr.Operator.AND && outcome || operator == BinaryExpr.Operator.OR && !outcome) {
+                refine(binary.getLeft(), outcome, facts);
+                refine(binary.getRight(), outcome, facts);
+            } else if (operator == BinaryExpr.Operator.EQUALS || operator == BinaryExpr.Operator.NOT_EQUALS) {
+                Expression left = unwrap(binary.getLeft());
+                Expression right = unwrap(binary.getRight());
+                Expression checked = right.isNullLiteralExpr() ? left : left.isNullLiteralExpr() ? right : null;
+                int variable = localVariable(checked);
+                if (variable >= 0) {
+                    boolean isNull = (operator == BinaryExpr.Operator.EQUALS) == outcome;
+                    facts.add(variable << 1 | (isNull ? 1 : 0));
+                }
+            }
+        } else if (value.isInstanceOfExpr() && outcome) {
+            int variable = localVariable(unwrap(value.asInstanceOfExpr().getExpression()));
+            if (variable >= 0) {
+                facts.add(variable << 1);
+            }
+        }
+    }
+
+    /**
+     * The effects of evaluating the syntax node of a graph node, in evaluation
+     * order.
+     */
+    private int[] computeEffects(Node node) {
+        if (node == null) {
+            return NO_INTS;
+        }
+        IntList result = new IntList();
+        if (node instanceof ForEachStmt) {
+            for (VariableDeclarator declarator : ((ForEachStmt) node).getVariable().getVariables()) {
+                result.add(variables.get(declarator.getNameAsString()) << 3 | ASSIGN_UNKNOWN);
+            }
+            return result.toArray();
+        }
+        if (node instanceof CatchClause) {
+            result.add(variables.get(((CatchClause) node).getParameter().getNameAsString()) << 3 | ASSIGN_NON_NULL);
+            return result.toArray();
+        }
+        // Post-order, so that the operands of an expression take effect before it.
+        Deque<Object[]> stack = new ArrayDeque<>();
+        stack.push(new Object[]{node, false, false});
+        while (!stack.isEmpty()) {
+            Object[] frame = stack.peek();
+            Node current = (Node) frame[0];
+            boolean conditional = (Boolean) frame[1];
+            if (!(Boolean) frame[2]) {
+                frame[2] = true;
+                List<Node> children = current.getChildNodes();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    Node child = children.get(i);
+                    if (child instanceof BodyDeclaration || child instanceof LambdaExpr) {
+                        continue;
+                    }
+                    stack.push(new Object[]{child, conditional || isConditionalChild(current, child), false});
+                }
+                continue;
+            }
+            stack.pop();
+            effect(current, conditional, result);
+        }
+        // The expression a for-each loop, switch or synchronized statement evaluates is dereferenced.
+        Node parent = node.getParentNode().orElse(null);
+        if (node instanceof Expression && (parent instanceof ForEachStmt || parent instanceof SwitchStmt
+                || parent instanceof SynchronizedStmt)) {
+            int variable = localVariable(unwrap((Expression) node));
+            if (variable >= 0) {
+                result.add(variable << 3 | DEREFERENCE);
+            }
+        }
+        return result.toArray();
+    }
+
+    private void effect(Node node, boolean conditional, IntList result) {
+        if (node instanceof VariableDeclarator) {
+            VariableDeclarator declarator = (VariableDeclarator) node;
+            int variable = variables.get(declarator.getNameAsString());
+            if (!declarator.getInitializer().isPresent()) {
+                result.add(variable << 3 | DECLARE);
+            } else {
+                assignment(variable, declarator.getInitializer().get(), conditional, result);
+            }
+        } else if (node instanceof AssignExpr) {
+            AssignExpr assign = (AssignExpr) node;
+            int variable = localVariable(unwrap(assign.getTarget()));
+            if (variable >= 0) {
+                if (assign.getOperator() == AssignExpr.Operator.ASSIGN) {
+                    assignment(variable, assign.getValue(), conditional, result);
+                } else {
+                    result.add(variable << 3 | (conditional ? MAY_ASSIGN : ASSIGN_NON_NULL));
+                }
+            }
+        } else if (node instanceof UnaryExpr) {
+            UnaryExpr unary = (UnaryExpr) node;
+            int variable = isIncrementOrDecrement(unary.getOperator()) ? localVariable(unwrap(unary.getExpression())) : -1;
+            if (variable >= 0) {
+                result.add(variable << 3 | (conditional ? MAY_ASSIGN : ASSIGN_NON_NULL));
+            }
+        } else if (!conditional) {
+            Expression dereferenced = null;
+            if (node instanceof Expression) {
+                Expression expression = (Expression) node;
+                if (expression.isMethodCallExpr()) {
+                    dereferenced = expression.asMethodCallExpr().getScope().orElse(null);
+                } else if (expression.isFieldAccessExpr()) {
+                    dereferenced = expression.asFieldAccessExpr().getScope();
+                } else if (expression.isArrayAccessExpr()) {
+                    dereferenced = expression.asArrayAccessExpr().getName();
+                }
+            }
+            int variable = dereferenced == null ? -1 : localVariable(unwrap(dereferenced));
+            if (variable >= 0) {
+                result.add(variable << 3 | DEREFERENCE);
+            }
+        }
+    }
+
+    private void assignment(int variable, Expression value, boolean conditional, IntList result) {
+        if (conditional) {
+            result.add(variable << 3 | MAY_ASSIGN);
+            return;
+        }
+        Expression assigned = unwrap(value);
+        while (assigned.isAssignExpr() && assigned.asAssignExpr().getOperator() == AssignExpr.Operator.ASSIGN) {
+            assigned = unwrap(assigned.asAssignExpr().getValue());
+        }
+        int source = localVariable(assigned);
+        if (source >= 0) {
+            result.add(variable << 3 | ASSIGN_COPY);
+            result.add(source);
+        } else {
+            result.add(variable << 3 | nullness(assigned));
+        }
+    }
+
+    /**
+     * Whether an assigned value is null, not null or unknown, as an assignment effect.
+     */
+    private static int nullness(Expression value) {
+        if (value.isNullLiteralExpr()) {
+            return ASSIGN_NULL;
+        }
+        if (value.isLiteralExpr() || value.isObjectCreationExpr() || value.isArrayCreationExpr()
+                || value.isArrayInitializerExpr() || value.isThisExpr() || value.isLambdaExpr()
+                || value.isMethodReferenceExpr() || value.isBinaryExpr() || value.isInstanceOfExpr()) {
+            return ASSIGN_NON_NULL;
+        }
+        if (value.isUnaryExpr()) {
+            return ASSIGN_NON_NULL;
+        }
+        if (value.isConditionalExpr()) {
+            ConditionalExpr conditional = value.asConditionalExpr();
+            int thenValue = nullness(unwrap(conditional.getThenExpr()));
+            int elseValue = nullness(unwrap(conditional.getElseExpr()));
+            return thenValue == elseValue ? thenValue : ASSIGN_UNKNOWN;
+        }
+        return ASSIGN_UNKNOWN;
+    }
+
+    /**
+     * Whether the child of the node is only evaluated on some of the paths
+     * through the node.
+     */
+    private static boolean isConditionalChild(Node parent, Node child) {
+        if (parent instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) parent;
+            return (binary.getOperator() == BinaryExpr.Operator.AND || binary.getOperator() == BinaryExpr.Operator.OR)
+                    && child == binary.getRight();
+        }
+        if (parent instanceof ConditionalExpr) {
+            return child != ((ConditionalExpr) parent).getCondition();
+        }
+        return parent instanceof SwitchExpr && child != ((SwitchExpr) parent).getSelector();
+    }
+
+    private static boolean isIncrementOrDecrement(UnaryExpr.Operator operator) {
+        return operator == UnaryExpr.Operator.PREFIX_INCREMENT || operator == UnaryExpr.Operator.PREFIX_DECREMENT
+                || operator == UnaryExpr.Operator.POSTFIX_INCREMENT || operator == UnaryExpr.Operator.POSTFIX_DECREMENT;
+    }
+
+    private int localVariable(Expression expression) {
+        if (expression == null || !expression.isNameExpr()) {
+            return -1;
+        }
+        Integer variable = variables.get(((NameExpr) expression).getNameAsString());
+        return variable == null ? -1 : variable;
+    }
+
+    private static Expression unwrap(Expression expression) {
+        Expression value = expression;
+        while (value.isEnclosedExpr() || value.isCastExpr()) {
+            value = value.isEnclosedExpr() ? value.asEnclosedExpr().getInner() : value.asCastExpr().getExpression();
+        }
+        return value;
+    }
+
+    /**
+     * Visits the node and its descendants, leaving out lambdas and the bodies of
+     * anonymous and local classes.
+     */
+    private static void walk(Node root, Consumer<Node> action) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            action.accept(node);
+            List<Node> children = node.getChildNodes();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                Node child = children.get(i);
+                if (!(child instanceof BodyDeclaration) && !(child instanceof LambdaExpr)) {
+                    stack.push(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * A variable that is null wherever it is dereferenced by a statement or
+     * condition.
+     */
+    public static final class NullDereference {
+
+        private final Node node;
+        private final String variable;
+
+        NullDereference(Node node, String variable) {
+            this.node = node;
+            this.variable = variable;
+        }
+
+        /** The statement or expression of the graph node that dereferences the variable. */
+        public Node getNode() {
+            return node;
+        }
+
+        public String getVariable() {
+            return variable;
+        }
+    }
+
+    /**
+     * A growable int array.
+     */
+    private static final class IntList {
+
+        private int[] values = NO_INTS;
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(8, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return size == 0 ? NO_INTS : Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,591 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reuses the results of the method-local rules for every copy of a method.
+ * Generated classes and copy-pasted code repeat the same methods many times,
+ * and each copy would otherwise be analyzed again.
+ * <p>
+ * A method's fingerprint is taken from its source text without whitespace and
+ * comments: the runs of text between them, called segments here, hashed by
+ * two independent 64-bit hashes, plus their number and the set of rules that
+ * ran. Equal segments lex to equal tokens and parse to equal trees, so the
+ * rules find the same things. Findings and captured null checks are stored by
+ * segment and offset within it, and mapped onto the segments of each copy,
+ * which may be indented, wrapped or commented differently. Scanning the text
+ * is much cheaper than walking the method's tokens or nodes, which costs about
+ * as much as the rules themselves.
+ * <p>
+ * The memo is shared by all worker threads and holds at most the given number
+ * of methods; once full, new methods are analyzed without being stored.
+ */
+public class MethodMemo {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private static final Entry UNCACHEABLE = new Entry(0, 0);
+
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder uncacheable = new LongAdder();
+
+    public MethodMemo() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public MethodMemo(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The memo must hold at least one method, was " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Runs the method-local rules on one method.
+     */
+    public interface Analysis {
+
+        /**
+         * Analyzes the method, adding its findings and null checks to the given
+         * collections.
+         */
+        void run(MethodDeclaration method, List<Finding> findings,
+                Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> nullChecks);
+    }
+
+    /**
+     * Prepares the methods of one source file.
+     *
+     * @param source the text the methods were parsed from
+     * @param rules identifies the rules the analysis runs, e.g. as a bit set
+     * @param keywords the keywords to look for, bit {@code i} standing for the {@code i}-th
+     */
+    public Source forSource(String file, String source, long rules, List<String> keywords) {
+        return new Source(file, source, rules, keywords);
+    }
+
+    /**
+     * The methods of one source file. Confined to one thread.
+     */
+    public final class Source {
+
+        private final String file;
+        private final String text;
+        private final long rules;
+        private final String[] keywords;
+        private int[] lineStarts;
+
+        private Source(String file, String text, long rules, List<String> keywords) {
+            this.file = file;
+            this.text = text;
+            this.rules = rules;
+            this.keywords = keywords.toArray(new String[0]);
+        }
+
+        /**
+         * Sends the findings of the method to the sink and adds its null checks
+         * to {@code nullChecks}, reusing the results of an earlier copy if there
+         * is one. The scan of the method's text also looks for the keywords, so
+         * that the caller can skip rules the method cannot trigger.
+         *
+         * @return the bits of the keywords occurring in the method's code, or -1 if unknown
+         */
+        public long analyze(MethodDeclaration method, Analysis analysis, FindingSink sink,
+                Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> nullChecks) {
+            Segments segments = scan(method);
+            if (segments == null) {
+                uncacheable.increment();
+                runDirectly(method, analysis, sink, nullChecks);
+                return -1L;
+            }
+            Key key = new Key(segments, rules);
+            Entry entry = entries.get(key);
+            if (entry != null && entry != UNCACHEABLE && entry.fits(this, segments)) {
+                hits.increment();
+                entry.replay(this, segments, method, sink, nullChecks);
+            } else if (entry != null) {
+                // Either never mappable, or a copy wrapped so that a null check's line is split.
+                uncacheable.increment();
+                runDirectly(method, analysis, sink, nullChecks);
+            } else {
+                misses.increment();
+                List<Finding> findings = new ArrayList<>();
+                Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> checks = new HashMap<>();
+                analysis.run(method, findings, checks);
+                if (entries.size() < maxEntries) {
+                    Entry recorded = Entry.record(this, segments, method, findings, checks);
+                    entries.putIfAbsent(key, recorded != null ? recorded : UNCACHEABLE);
+                }
+                findings.forEach(sink::accept);
+                merge(checks, nullChecks);
+            }
+            return segments.keywords;
+        }
+
+        private Segments scan(MethodDeclaration method) {
+            Range range = method.getRange().orElse(null);
+            if (range == null) {
+                return null;
+            }
+            if (lineStarts == null) {
+                lineStarts = SourceRanges.lineStarts(text);
+            }
+            if (range.begin.line > lineStarts.length || range.end.line > lineStarts.length) {
+                return null;
+            }
+            int begin = offsetOf(range.begin);
+            int end = offsetOf(range.end);
+            // The range must match the text, e.g. not be shifted by a byte order mark.
+            if (begin < 0 || end >= text.length() || end < begin || Character.isWhitespace(text.charAt(begin))
+                    || (text.charAt(end) != '}' && text.charAt(end) != ';')) {
+                return null;
+            }
+            return Segments.scan(text, begin, end, keywords);
+        }
+
+        int offsetOf(Position position) {
+            return SourceRanges.offsetOf(lineStarts, position);
+        }
+
+        /**
+         * The 1-based line of the character offset.
+         */
+        int lineOf(int offset) {
+            int line = Arrays.binarySearch(lineStarts, offset);
+            return line >= 0 ? line + 1 : -line - 1;
+        }
+
+        int columnOf(int offset, int line) {
+            return offset - lineStarts[line - 1] + 1;
+        }
+    }
+
+    private static void runDirectly(MethodDeclaration method, Analysis analysis, FindingSink sink,
+            Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> nullChecks) {
+        List<Finding> findings = new ArrayList<>();
+        Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> checks = new HashMap<>();
+        analysis.run(method, findings, checks);
+        findings.forEach(sink::accept);
+        merge(checks, nullChecks);
+    }
+
+    private static void merge(Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> checks,
+            Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> nullChecks) {
+        for (Map.Entry<String, List<NullCheckMethodVisitor.NullCheckInfo>> method : checks.entrySet()) {
+            nullChecks.computeIfAbsent(method.getKey(), k -> new ArrayList<>()).addAll(method.getValue());
+        }
+    }
+
+    /**
+     * Methods whose results were reused.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Methods analyzed because no copy had been seen before.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Methods analyzed because their results could not be mapped onto a copy.
+     */
+    public long getUncacheable() {
+        return uncacheable.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The share of methods whose results were reused, from 0 to 1.
+     */
+    public double getHitRate() {
+        long total = getHits() + getMisses() + getUncacheable();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    /**
+     * The segments of a method's text: where they start and end, and their
+     * fingerprint.
+     */
+    private static final class Segments {
+
+        final long hash;
+        final long secondHash;
+        final long keywords;
+        final int count;
+        final int[] starts;
+        final int[] ends;
+
+        private Segments(long hash, long secondHash, long keywords, int count, int[] starts, int[] ends) {
+            this.hash = hash;
+            this.secondHash = secondHash;
+            this.keywords = keywords;
+            this.count = count;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        /**
+         * Scans {@code text} from {@code begin} to {@code end}, both inclusive.
+         * Literals and text blocks are kept whole, so that a {@code //} in a
+         * string is not taken for a comment.
+         */
+        static Segments scan(String text, int begin, int end, String[] keywords) {
+            int[] starts = new int[64];
+            int[] ends = new int[64];
+            int count = 0;
+            long found = 0;
+            // FNV-1a, and a second hash with another offset and multiplier, so
+            // that two different methods practically never share both.
+            long hash = 0xcbf29ce484222325L;
+            long secondHash = 0x84222325cbf29ce4L;
+            boolean inSegment = false;
+            int i = begin;
+            int limit = end + 1;
+            while (i < limit) {
+                char c = text.charAt(i);
+                if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                    if (inSegment) {
+                        ends[count - 1] = i;
+                        inSegment = false;
+                    }
+                    i++;
+                    continue;
+                }
+                if (c == '/' && i + 1 < limit && (text.charAt(i + 1) == '/' || text.charAt(i + 1) == '*')) {
+                    if (inSegment) {
+                        ends[count - 1] = i;
+                        inSegment = false;
+                    }
+                    if (text.charAt(i + 1) == '/') {
+                        while (i < limit && text.charAt(i) != '\n') {
+                            i++;
+                        }
+                    } else {
+                        i += 2;
+                        while (i + 1 < limit && !(text.charAt(i) == '*' && text.charAt(i + 1) == '/')) {
+                            i++;
+                        }
+                        i += 2;
+                    }
+                    continue;
+                }
+                if (!inSegment) {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        ends = Arrays.copyOf(ends, count * 2);
+                    }
+                    starts[count++] = i;
+                    inSegment = true;
+                    // Separates the segments, so "a b" and "ab" differ.
+                    hash = (hash ^ ' ') * 0x100000001b3L;
+                    secondHash = Long.rotateLeft(secondHash, 17) ^ count;
+                }
+                int next;
+                if (c == '"' && i + 2 < limit && text.charAt(i + 1) == '"' && text.charAt(i + 2) == '"') {
+                    next = skipTextBlock(text, i + 3, limit);
+                } else if (c == '"' || c == '\'') {
+                    next = skipLiteral(text, i + 1, limit, c);
+                } else if (Character.isJavaIdentifierPart(c)) {
+                    next = i + 1;
+                    while (next < limit && Character.isJavaIdentifierPart(text.charAt(next))) {
+                        next++;
+                    }
+                    found |= match(text, i, next - i, keywords);
+                } else {
+                    next = i + 1;
+                }
+                for (; i < next; i++) {
+                    char d = text.charAt(i);
+                    hash = (hash ^ d) * 0x100000001b3L;
+                    secondHash = (secondHash ^ d) * 0x9e3779b97f4a7c15L + 0x632be59bd9b4e019L;
+                }
+            }
+            if (inSegment) {
+                ends[count - 1] = Math.min(i, limit);
+            }
+            return new Segments(hash, secondHash, found, count, starts, ends);
+        }
+
+        private static long match(String text, int start, int length, String[] keywords) {
+            long found = 0;
+            for (int k = 0; k < keywords.length; k++) {
+                if (keywords[k].length() == length && text.regionMatches(start, keywords[k], 0, length)) {
+                    found |= 1L << k;
+                }
+            }
+            return found;
+        }
+
+        private static int skipLiteral(String text, int i, int limit, char quote) {
+            while (i < limit) {
+                char c = text.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == quote || c == '\n') {
+                    return i + 1;
+                } else {
+                    i++;
+                }
+            }
+            return limit;
+        }
+
+        private static int skipTextBlock(String text, int i, int limit) {
+            while (i + 2 < limit) {
+                char c = text.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == '"' && text.charAt(i + 1) == '"' && text.charAt(i + 2) == '"') {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+            return limit;
+        }
+
+        /**
+         * The segment containing the character offset, or -1 if it is in
+         * whitespace or a comment.
+         */
+        int segmentAt(int offset) {
+            int segment = Arrays.binarySearch(starts, 0, count, offset);
+            if (segment < 0) {
+                segment = -segment - 2;
+            }
+            return segment >= 0 && offset < ends[segment] ? segment : -1;
+        }
+
+        /**
+         * The first segment starting at or after the offset, or {@code count} if none.
+         */
+        int segmentFrom(int offset) {
+            int segment = Arrays.binarySearch(starts, 0, count, offset);
+            return segment >= 0 ? segment : -segment - 1;
+        }
+    }
+
+    private static final class Key {
+
+        final long hash;
+        final long secondHash;
+        final int segments;
+        final long rules;
+
+        Key(Segments segments, long rules) {
+            this.hash = segments.hash;
+            this.secondHash = segments.secondHash;
+            this.segments = segments.count;
+            this.rules = rules;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && secondHash == key.secondHash && segments == key.segments && rules == key.rules;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    /**
+     * The results of one method. A position is stored as a segment and an
+     * offset into it, packed into one long; a finding without a position has
+     * the position -1.
+     */
+    private static final class Entry {
+
+        final String[] ruleIds;
+        final Finding.Severity[] severities;
+        final String[] messages;
+        final long[] localFingerprints;
+        final long[] findingBegins;
+        final long[] findingEnds;
+
+        final String[] signatures;
+        final NullCheckMethodVisitor.Context[] contexts;
+        final BinaryExpr.Operator[] operators;
+        final String[] variables;
+        final int[] lineFirstSegments;
+        final int[] lineLastSegments;
+        final long[] statementBegins;
+        final long[] statementEnds;
+
+        Entry(int findings, int checks) {
+            ruleIds = new String[findings];
+            severities = new Finding.Severity[findings];
+            messages = new String[findings];
+            localFingerprints = new long[findings];
+            findingBegins = new long[findings];
+            findingEnds = new long[findings];
+            signatures = new String[checks];
+            contexts = new NullCheckMethodVisitor.Context[checks];
+            operators = new BinaryExpr.Operator[checks];
+            variables = new String[checks];
+            lineFirstSegments = new int[checks];
+            lineLastSegments = new int[checks];
+            statementBegins = new long[checks];
+            statementEnds = new long[checks];
+        }
+
+        /**
+         * @return the entry, or {@code null} if a position is not inside a segment
+         */
+        static Entry record(Source source, Segments segments, MethodDeclaration declaration, List<Finding> findings,
+                Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> nullChecks) {
+            int checkCount = 0;
+            for (List<NullCheckMethodVisitor.NullCheckInfo> checks : nullChecks.values()) {
+                checkCount += checks.size();
+            }
+            Entry entry = new Entry(findings.size(), checkCount);
+            // The fingerprints are kept without the method's member hash, which differs between copies in different types.
+            long memberHash = findings.isEmpty() ? 0 : FindingFingerprints.memberHash(FindingFingerprints.member(declaration));
+            for (int i = 0; i < findings.size(); i++) {
+                Finding finding = findings.get(i);
+                entry.ruleIds[i] = finding.getRuleId();
+                entry.severities[i] = finding.getSeverity();
+                entry.messages[i] = finding.getMessage();
+                entry.localFingerprints[i] = finding.getFingerprint() ^ memberHash;
+                if (finding.getBeginLine() == 0) {
+                    entry.findingBegins[i] = -1;
+                    entry.findingEnds[i] = -1;
+                    continue;
+                }
+                entry.findingBegins[i] = locate(source, segments, finding.getBeginLine(), finding.getBeginColumn());
+                entry.findingEnds[i] = locate(source, segments, finding.getEndLine(), finding.getEndColumn());
+                if (entry.findingBegins[i] < 0 || entry.findingEnds[i] < 0) {
+                    return null;
+                }
+            }
+            int i = 0;
+            for (Map.Entry<String, List<NullCheckMethodVisitor.NullCheckInfo>> method : nullChecks.entrySet()) {
+                for (NullCheckMethodVisitor.NullCheckInfo check : method.getValue()) {
+                    entry.signatures[i] = method.getKey();
+                    entry.contexts[i] = check.context;
+                    entry.operators[i] = check.operator;
+                    entry.variables[i] = check.variable;
+                    entry.statementBegins[i] = locate(source, segments, check.statementBeginLine, check.statementBeginColumn);
+                    entry.statementEnds[i] = locate(source, segments, check.statementEndLine, check.statementEndColumn);
+                    // Only the line of the check is known, so it is kept as the segments starting on it.
+                    if (check.line < 1 || check.line > source.lineStarts.length) {
+                        return null;
+                    }
+                    int first = segments.segmentFrom(source.lineStarts[check.line - 1]);
+                    int last = segments.segmentFrom(check.line < source.lineStarts.length
+                            ? source.lineStarts[check.line] : source.text.length()) - 1;
+                    if (entry.statementBegins[i] < 0 || entry.statementEnds[i] < 0 || first > last) {
+                        return null;
+                    }
+                    entry.lineFirstSegments[i] = first;
+                    entry.lineLastSegments[i] = last;
+                    i++;
+                }
+            }
+            return entry;
+        }
+
+        private static long locate(Source source, Segments segments, int line, int column) {
+            if (line < 1 || line > source.lineStarts.length) {
+                return -1;
+            }
+            int offset = source.offsetOf(new Position(line, column));
+            int segment = segments.segmentAt(offset);
+            return segment < 0 ? -1 : (long) segment << 32 | (offset - segments.starts[segment]);
+        }
+
+        /**
+         * Whether the segments starting on each null check's line start on one
+         * line in the copy as well, so the check's line is known there.
+         */
+        boolean fits(Source source, Segments segments) {
+            for (int i = 0; i < lineFirstSegments.length; i++) {
+                if (source.lineOf(segments.starts[lineFirstSegments[i]])
+                        != source.lineOf(segments.starts[lineLastSegments[i]])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void replay(Source source, Segments segments, MethodDeclaration method, FindingSink sink,
+                Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> nullChecks) {
+            String member = ruleIds.length == 0 ? null : FindingFingerprints.member(method);
+            long memberHash = member == null ? 0 : FindingFingerprints.memberHash(member);
+            for (int i = 0; i < ruleIds.length; i++) {
+                if (findingBegins[i] < 0) {
+                    sink.accept(new Finding(ruleIds[i], severities[i], source.file, 0, 0, 0, 0, messages[i],
+                            member, localFingerprints[i] ^ memberHash));
+                    continue;
+                }
+                int begin = offset(segments, findingBegins[i]);
+                int end = offset(segments, findingEnds[i]);
+                int beginLine = source.lineOf(begin);
+                int endLine = source.lineOf(end);
+                sink.accept(new Finding(ruleIds[i], severities[i], source.file, beginLine,
+                        source.columnOf(begin, beginLine), endLine, source.columnOf(end, endLine), messages[i],
+                        member, localFingerprints[i] ^ memberHash));
+            }
+            for (int i = 0; i < signatures.length; i++) {
+                int begin = offset(segments, statementBegins[i]);
+                int end = offset(segments, statementEnds[i]);
+                int beginLine = source.lineOf(begin);
+                int endLine = source.lineOf(end);
+                nullChecks.computeIfAbsent(signatures[i], k -> new ArrayList<>()).add(new NullCheckMethodVisitor.NullCheckInfo(
+                        contexts[i], beginLine, source.columnOf(begin, beginLine), endLine,
+                        source.columnOf(end, endLine), operators[i], variables[i],
+                        source.lineOf(segments.starts[lineFirstSegments[i]])));
+            }
+        }
+
+        private static int offset(Segments segments, long position) {
+            return segments.starts[(int) (position >>> 32)] + (int) position;
+        }
+    }
+}
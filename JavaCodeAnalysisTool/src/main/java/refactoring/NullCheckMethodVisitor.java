@@ -20,9 +20,14 @@ package refactoring;
  *
  * @author Freya Ebba Christ 
  */
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.expr.*;
 import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
 import java.util.*;
@@ -31,38 +36,95 @@ public class NullCheckMethodVisitor extends VoidVisitorAdapter<Void> {
 
     private final Map<String, List<NullCheckInfo>> capturedLogic = new HashMap<>();
 
+    /**
+     * The null-check extraction as a rule for the {@link RuleEngine}. Only methods
+     * annotated with {@code @NullCheckPerformed} are analyzed, so the annotation's
+     * name, much rarer than the null literal, is the rule's trigger keyword.
+     */
+    public List<AnalysisRule> getRules() {
+        return Collections.singletonList(AnalysisRule.methodLocal(AnalysisRule.forNodeType("null-check",
+                MethodDeclaration.class, this::analyzeMethod, "NullCheckPerformed")));
+    }
+
     @Override
     public void visit(MethodDeclaration n, Void arg) {
         super.visit(n, arg);
+        analyzeMethod(n);
+    }
+
+    private void analyzeMethod(MethodDeclaration n) {
         n.getAnnotationByName("NullCheckPerformed").ifPresent(annotation -> {
             n.getBody().ifPresent(body -> {
-                body.findAll(IfStmt.class).forEach(stmt -> processStatement(stmt, n.getSignature().asString(), "IfStatement"));
-                body.findAll(SwitchStmt.class).forEach(stmt -> processStatement(stmt, n.getSignature().asString(), "SwitchStatement"));
-                // Consider extending to other statement types as necessary
+                String methodSignature = signatureOf(n);
+                // Each binary expression of the body is visited exactly once; the
+                // range set guards against recording the same check twice.
+                Set<Range> recordedChecks = new HashSet<>();
+                body.walk(BinaryExpr.class, binaryExpr -> {
+                    Statement statement = findEnclosingConditional(binaryExpr, body);
+                    if (statement != null) {
+                        analyzeExpression(binaryExpr, statement, methodSignature, recordedChecks);
+                    }
+                });
             });
         });
     }
 
-    private void processStatement(Statement statement, String methodSignature, String statementType) {
-        statement.findAll(Expression.class).forEach(expr -> analyzeExpression(expr, statement, methodSignature, statementType));
+    /**
+     * The same text as {@code method.getSignature().asString()}, which clones
+     * every parameter type to strip it and dominated the cost of this rule:
+     * the name and the parameter types, without their type arguments unless
+     * they are varargs.
+     */
+    static String signatureOf(MethodDeclaration method) {
+        StringBuilder signature = new StringBuilder(method.getNameAsString()).append('(');
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            Parameter parameter = method.getParameter(i);
+            Type type = parameter.getType();
+            if (i > 0) {
+                signature.append(", ");
+            }
+            if (parameter.isVarArgs()) {
+                signature.append(type.asString()).append("[]");
+            } else if (type.isClassOrInterfaceType()) {
+                ClassOrInterfaceType classType = type.asClassOrInterfaceType();
+                classType.getScope().ifPresent(scope -> signature.append(scope.asString()).append('.'));
+                signature.append(classType.getNameAsString());
+            } else {
+                signature.append(type.asString());
+            }
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * The innermost if or switch statement of the method body containing the
+     * expression, or {@code null} if there is none.
+     */
+    private Statement findEnclosingConditional(BinaryExpr expression, BlockStmt body) {
+        Node current = expression.getParentNode().orElse(null);
+        while (current != null && current != body) {
+            // Consider extending to other statement types as necessary
+            if (current instanceof IfStmt || current instanceof SwitchStmt) {
+                return (Statement) current;
+            }
+            current = current.getParentNode().orElse(null);
+        }
+        return null;
     }
 
-    private void analyzeExpression(Expression expression, Statement statement, String methodSignature, String statementType) {
-        expression.getBegin().ifPresent(position -> {
+    private void analyzeExpression(BinaryExpr expression, Statement statement, String methodSignature, Set<Range> recordedChecks) {
+        expression.getRange().ifPresent(range -> {
             toNullCheckExpr(expression).ifPresent(nullCheck -> {
+                if (!recordedChecks.add(range)) {
+                    return;
+                }
+                Context context = statement instanceof IfStmt ? Context.IF_STATEMENT : Context.SWITCH_STATEMENT;
                 String variable = nullCheck.getChecked().toString();
-                int line = position.line; // Correctly access the line number
+                // Keep only the statement's range; its text is sliced from the source on demand.
                 capturedLogic.computeIfAbsent(methodSignature, k -> new ArrayList<>())
-                        .add(new NullCheckInfo(statementType, statement.toString(), nullCheck.getOperator().toString(), variable, "null", line));
+                        .add(new NullCheckInfo(context, statement.getRange().orElse(range), nullCheck.getOperator(), variable, range.begin.line));
             });
         });
-
-        // Recursively analyze child nodes for expressions that could contain further expressions
-        expression.getChildNodes().forEach(child -> {
-            if (child instanceof Expression) {
-                analyzeExpression((Expression) child, statement, methodSignature, statementType);
-            }
-        });
     }
 
     private Optional<NullCheckExpr> toNullCheckExpr(Expression expr) {
@@ -100,22 +162,68 @@ public class NullCheckMethodVisitor extends VoidVisitorAdapter<Void> {
         }
     }
 
+    /**
+     * The kind of statement a null check was found in.
+     */
+    public enum Context {
+        IF_STATEMENT("IfStatement"),
+        SWITCH_STATEMENT("SwitchStatement");
+
+        private final String displayName;
+
+        Context(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * One captured null check. Context and operator are enum constants and the
+     * statement range is kept as plain ints, so a check costs one object besides
+     * the variable name. The other operand is always the null literal.
+     */
     static class NullCheckInfo {
 
-        final String context;
-        final String statement;
-        final String checkType;
+        final Context context;
+        final BinaryExpr.Operator operator;
         final String variable;
-        final String comparedAgainst;
         final int line;
+        final int statementBeginLine;
+        final int statementBeginColumn;
+        final int statementEndLine;
+        final int statementEndColumn;
+
+        NullCheckInfo(Context context, Range statementRange, BinaryExpr.Operator operator, String variable, int line) {
+            this(context, statementRange.begin.line, statementRange.begin.column, statementRange.end.line,
+                    statementRange.end.column, operator, variable, line);
+        }
 
-        NullCheckInfo(String context, String statement, String checkType, String variable, String comparedAgainst, int line) {
+        NullCheckInfo(Context context, int statementBeginLine, int statementBeginColumn, int statementEndLine,
+                int statementEndColumn, BinaryExpr.Operator operator, String variable, int line) {
             this.context = context;
-            this.statement = statement;
-            this.checkType = checkType;
+            this.operator = operator;
             this.variable = variable;
-            this.comparedAgainst = comparedAgainst;
             this.line = line;
+            this.statementBeginLine = statementBeginLine;
+            this.statementBeginColumn = statementBeginColumn;
+            this.statementEndLine = statementEndLine;
+            this.statementEndColumn = statementEndColumn;
+        }
+
+        Range getStatementRange() {
+            return Range.range(statementBeginLine, statementBeginColumn, statementEndLine, statementEndColumn);
+        }
+
+        /**
+         * The source text of the statement containing the check.
+         *
+         * @param source the content of the file the check was captured from
+         */
+        String getStatement(String source) {
+            return SourceRanges.slice(source, getStatementRange());
         }
     }
 }
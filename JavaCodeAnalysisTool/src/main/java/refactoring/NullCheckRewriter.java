@@ -0,0 +1,720 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.EnclosedExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.LiteralExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Rewrites the null checks captured by the {@link NullCheckMethodVisitor} in
+ * methods annotated with {@code @NullCheckPerformed} into shorter or flatter
+ * equivalent forms, as enabled by the given {@link Policy policies}:
+ * <ul>
+ * <li>{@code if (x == null) throw new NullPointerException(m);} becomes
+ * {@code Objects.requireNonNull(x, m);}</li>
+ * <li>{@code if (x == null) x = d;} becomes
+ * {@code x = Optional.ofNullable(x).orElse(d);}</li>
+ * <li>{@code if (x != null) { ... }} with several statements, ending a void
+ * method, becomes a guard clause, {@code if (x == null) { return; }},
+ * followed by the statements.</li>
+ * </ul>
+ * Only checks of locals, parameters and fields of {@code this} are rewritten,
+ * and only where moving an evaluation is harmless: messages and defaults must
+ * be literals, names or constants, or concatenations of them. Statements
+ * with comments that the rewrite would drop are kept.
+ * <p>
+ * Each file's rewrites are collected as non-overlapping {@link TextEdit}s on
+ * its original text and applied in one pass, so the rest of the file stays
+ * byte for byte the same and files are rewritten in parallel on a
+ * {@link StagedPipeline}. Of nested checks only the outermost is rewritten;
+ * running the rewriter again picks up the rest. Like the
+ * {@link nullcheckparser.NullCheckAnnotator}, it either rewrites files in
+ * place or writes one unified diff.
+ */
+public class NullCheckRewriter {
+
+    /**
+     * A kind of rewrite that may be enabled.
+     */
+    public enum Policy {
+        REQUIRE_NON_NULL,
+        OPTIONAL,
+        EARLY_RETURN;
+
+        public String getOptionName() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        /**
+         * Parses a comma-separated list of option names, or {@code all}.
+         */
+        public static Set<Policy> parse(String policies) {
+            Set<Policy> result = EnumSet.noneOf(Policy.class);
+            for (String name : policies.split(",")) {
+                String trimmed = name.trim();
+                if (trimmed.equals("all")) {
+                    result.addAll(EnumSet.allOf(Policy.class));
+                    continue;
+                }
+                Policy match = null;
+                for (Policy policy : values()) {
+                    if (policy.getOptionName().equals(trimmed)) {
+                        match = policy;
+                    }
+                }
+                if (match == null) {
+                    throw new IllegalArgumentException("Unknown rewrite policy: " + trimmed);
+                }
+                result.add(match);
+            }
+            return result;
+        }
+    }
+
+    private static final KeywordPrefilter ANNOTATION = new KeywordPrefilter(
+            Collections.singletonList("NullCheckPerformed"));
+
+    private final Set<Policy> policies;
+    private final LanguageLevel languageLevel;
+    private final int parallelism;
+    private int changedFiles;
+    private int unchangedFiles;
+    private int failedFiles;
+    private final int[] rewrites = new int[Policy.values().length];
+    private int keptChecks;
+    private List<StageStats> stageStats;
+
+    public NullCheckRewriter(Set<Policy> policies, LanguageLevel languageLevel, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
+        this.policies = EnumSet.copyOf(policies);
+        this.languageLevel = languageLevel;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Rewrites every file with a rewritable null check; other files are not touched.
+     */
+    public void rewriteInPlace(List<Path> sourceFiles) throws IOException, InterruptedException {
+        run(sourceFiles, null, outcome -> SourceFiles.writeIfChanged(outcome.file, outcome.text));
+    }
+
+    /**
+     * Writes the changes of all files as one unified diff without modifying any file.
+     *
+     * @param baseDirectory the directory the paths in the diff are relative to
+     */
+    public void writePatch(List<Path> sourceFiles, Path baseDirectory, Writer patch)
+            throws IOException, InterruptedException {
+        Map<String, String> diffs = new TreeMap<>();
+        Path base = baseDirectory.toAbsolutePath().normalize();
+        run(sourceFiles, base, outcome -> diffs.put(outcome.path, outcome.text));
+        for (String diff : diffs.values()) {
+            patch.write(diff);
+        }
+        patch.flush();
+    }
+
+    private void run(List<Path> sourceFiles, Path diffBase, StagedPipeline.ResultWriter<FileOutcome> changeWriter)
+            throws IOException, InterruptedException {
+        changedFiles = 0;
+        unchangedFiles = 0;
+        failedFiles = 0;
+        keptChecks = 0;
+        Arrays.fill(rewrites, 0);
+        StagedPipeline<FileOutcome> pipeline = new StagedPipeline<>(parallelism);
+        try {
+            pipeline.run(sourceFiles, () -> {
+                JavaParser parser = new JavaParser(new ParserConfiguration().setLanguageLevel(languageLevel));
+                return source -> rewrite(parser, source, diffBase);
+            }, outcome -> {
+                if (outcome.failure != null) {
+                    failedFiles++;
+                    System.err.println(outcome.failure);
+                    return;
+                }
+                keptChecks += outcome.kept;
+                for (int i = 0; i < rewrites.length; i++) {
+                    rewrites[i] += outcome.rewrites[i];
+                }
+                if (outcome.text == null) {
+                    unchangedFiles++;
+                } else {
+                    changedFiles++;
+                    changeWriter.write(outcome);
+                }
+            });
+        } finally {
+            stageStats = pipeline.getStats();
+        }
+    }
+
+    private FileOutcome rewrite(JavaParser parser, StagedPipeline.Source source, Path diffBase) {
+        Path sourceFile = source.getFile();
+        try {
+            // Only annotated methods are rewritten; most files can be skipped unparsed.
+            if (ANNOTATION.scan(source.getContent()) == 0) {
+                return new FileOutcome(sourceFile, null, null, null, new int[rewrites.length], 0);
+            }
+            String original = StandardCharsets.UTF_8.decode(source.getContent().duplicate()).toString();
+            ParseResult<CompilationUnit> parseResult = parser.parse(original);
+            if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+                return FileOutcome.failed(sourceFile, "Failed to parse the source file: " + sourceFile);
+            }
+            Plan plan = plan(parseResult.getResult().get(), original, policies);
+            if (plan.edits.isEmpty()) {
+                return new FileOutcome(sourceFile, null, null, null, plan.rewrites, plan.kept);
+            }
+            String rewritten = TextEdit.apply(original, plan.edits);
+            if (diffBase == null) {
+                return new FileOutcome(sourceFile, null, rewritten, null, plan.rewrites, plan.kept);
+            }
+            String path = diffPath(diffBase, sourceFile);
+            return new FileOutcome(sourceFile, path, UnifiedDiff.diff(path, original, rewritten), null, plan.rewrites,
+                    plan.kept);
+        } catch (IOException e) {
+            return FileOutcome.failed(sourceFile, "Failed to read the source file: " + sourceFile + " (" + e.getMessage() + ")");
+        } catch (RuntimeException e) {
+            return FileOutcome.failed(sourceFile, "Failed to rewrite the source file: " + sourceFile + " (" + e.getMessage() + ")");
+        } catch (StackOverflowError e) {
+            return FileOutcome.failed(sourceFile, "Failed to rewrite the source file: " + sourceFile
+                    + " (nested too deeply to parse)");
+        }
+    }
+
+    /**
+     * Computes the edits of one file.
+     *
+     * @param source the text the unit was parsed from
+     */
+    public static Plan plan(CompilationUnit compilationUnit, String source, Set<Policy> policies) {
+        NullCheckMethodVisitor visitor = new NullCheckMethodVisitor();
+        new RuleEngine(visitor.getRules()).run(compilationUnit);
+        Set<Range> checked = new HashSet<>();
+        int captured = 0;
+        for (List<NullCheckMethodVisitor.NullCheckInfo> checks : visitor.getCapturedLogic().values()) {
+            for (NullCheckMethodVisitor.NullCheckInfo check : checks) {
+                if (check.context == NullCheckMethodVisitor.Context.IF_STATEMENT) {
+                    checked.add(check.getStatementRange());
+                }
+                captured++;
+            }
+        }
+        Plan plan = new Plan();
+        if (checked.isEmpty()) {
+            plan.kept = captured;
+            return plan;
+        }
+
+        // One walk over the unit collects the candidates and the declared type names.
+        List<IfStmt> candidates = new ArrayList<>();
+        Set<String> declaredTypes = new HashSet<>();
+        compilationUnit.walk(node -> {
+            if (node instanceof IfStmt && node.getRange().isPresent() && checked.contains(node.getRange().get())) {
+                candidates.add((IfStmt) node);
+            } else if (node instanceof TypeDeclaration) {
+                declaredTypes.add(((TypeDeclaration<?>) node).getNameAsString());
+            }
+        });
+        Rewriter rewriter = new Rewriter(compilationUnit, source, policies, declaredTypes);
+        // Statements come in source order, outer ones first, so a rewrite only
+        // ever overlaps the one accepted last.
+        int acceptedEnd = -1;
+        for (IfStmt statement : candidates) {
+            Policy policy = rewriter.rewrite(statement);
+            if (policy == null) {
+                continue;
+            }
+            TextEdit edit = rewriter.edit;
+            if (edit.getOffset() < acceptedEnd) {
+                continue;
+            }
+            rewriter.accept();
+            plan.edits.add(edit);
+            plan.rewrites[policy.ordinal()]++;
+            acceptedEnd = edit.getEnd();
+        }
+        rewriter.addImports(plan.edits);
+        plan.kept = captured - plan.getRewriteCount();
+        return plan;
+    }
+
+    private static String diffPath(Path base, Path sourceFile) {
+        Path absolute = sourceFile.toAbsolutePath().normalize();
+        Path relative = absolute.startsWith(base) ? base.relativize(absolute) : absolute.getRoot().relativize(absolute);
+        return relative.toString().replace('\\', '/');
+    }
+
+    public int getChangedFiles() {
+        return changedFiles;
+    }
+
+    public int getUnchangedFiles() {
+        return unchangedFiles;
+    }
+
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    public int getRewrites(Policy policy) {
+        return rewrites[policy.ordinal()];
+    }
+
+    /**
+     * The captured null checks that were left as they are.
+     */
+    public int getKeptChecks() {
+        return keptChecks;
+    }
+
+    public List<StageStats> getStageStats() {
+        return stageStats;
+    }
+
+    /**
+     * The edits of one file and what they do.
+     */
+    public static final class Plan {
+
+        private final List<TextEdit> edits = new ArrayList<>();
+        private final int[] rewrites = new int[Policy.values().length];
+        private int kept;
+
+        public List<TextEdit> getEdits() {
+            return edits;
+        }
+
+        public int getRewrites(Policy policy) {
+            return rewrites[policy.ordinal()];
+        }
+
+        public int getRewriteCount() {
+            int count = 0;
+            for (int rewrite : rewrites) {
+                count += rewrite;
+            }
+            return count;
+        }
+
+        public int getKept() {
+            return kept;
+        }
+    }
+
+    /**
+     * Matches the statements of one file against the rewritable shapes and
+     * builds their replacements.
+     */
+    private static final class Rewriter {
+
+        private final CompilationUnit compilationUnit;
+        private final String source;
+        private final Set<Policy> policies;
+        private final Set<String> declaredTypes;
+        private final int[] lineStarts;
+        private final String lineSeparator;
+        private final Set<String> usedTypes = new HashSet<>();
+        private final Set<String> pendingTypes = new HashSet<>();
+        private final Map<String, String> typeNames = new HashMap<>();
+        private final Set<String> missingImports = new HashSet<>();
+        private TextEdit edit;
+
+        Rewriter(CompilationUnit compilationUnit, String source, Set<Policy> policies, Set<String> declaredTypes) {
+            this.compilationUnit = compilationUnit;
+            this.source = source;
+            this.policies = policies;
+            this.declaredTypes = declaredTypes;
+            this.lineStarts = SourceRanges.lineStarts(source);
+            this.lineSeparator = source.contains("\r\n") ? "\r\n" : "\n";
+        }
+
+        /**
+         * @return the policy of the rewrite, its edit left in {@link #edit}, or
+         *         {@code null} if the statement is kept
+         */
+        Policy rewrite(IfStmt statement) {
+            pendingTypes.clear();
+            if (statement.hasElseBranch()) {
+                return null;
+            }
+            Expression condition = statement.getCondition();
+            while (condition instanceof EnclosedExpr) {
+                condition = ((EnclosedExpr) condition).getInner();
+            }
+            if (!(condition instanceof BinaryExpr)) {
+                return null;
+            }
+            BinaryExpr comparison = (BinaryExpr) condition;
+            Expression checked;
+            if (comparison.getRight().isNullLiteralExpr()) {
+                checked = comparison.getLeft();
+            } else if (comparison.getLeft().isNullLiteralExpr()) {
+                checked = comparison.getRight();
+            } else {
+                return null;
+            }
+            if (!isStable(checked)) {
+                return null;
+            }
+            if (comparison.getOperator() == BinaryExpr.Operator.EQUALS) {
+                Statement then = singleStatement(statement.getThenStmt());
+                if (then == null || hasComments(offset(statement), end(statement))) {
+                    return null;
+                }
+                if (then instanceof ThrowStmt && policies.contains(Policy.REQUIRE_NON_NULL)) {
+                    return requireNonNull(statement, checked, (ThrowStmt) then);
+                }
+                if (then instanceof ExpressionStmt && policies.contains(Policy.OPTIONAL)) {
+                    return orElse(statement, checked, ((ExpressionStmt) then).getExpression());
+                }
+                return null;
+            }
+            if (comparison.getOperator() == BinaryExpr.Operator.NOT_EQUALS && policies.contains(Policy.EARLY_RETURN)) {
+                return earlyReturn(statement, checked);
+            }
+            return null;
+        }
+
+        private Policy requireNonNull(IfStmt statement, Expression checked, ThrowStmt thrown) {
+            if (!(thrown.getExpression() instanceof ObjectCreationExpr)) {
+                return null;
+            }
+            ObjectCreationExpr exception = (ObjectCreationExpr) thrown.getExpression();
+            String type = exception.getType().asString();
+            if (!(type.equals("NullPointerException") || type.equals("java.lang.NullPointerException"))
+                    || exception.getAnonymousClassBody().isPresent() || exception.getArguments().size() > 1) {
+                return null;
+            }
+            StringBuilder replacement = new StringBuilder(typeName("Objects")).append(".requireNonNull(")
+                    .append(text(checked));
+            if (exception.getArguments().isNonEmpty()) {
+                // The message is built even if the check passes, so it must be cheap and free of effects.
+                Expression message = exception.getArgument(0);
+                if (!isConstantText(message)) {
+                    return null;
+                }
+                replacement.append(", ").append(text(message));
+            }
+            edit = replace(statement, replacement.append(");").toString());
+            return Policy.REQUIRE_NON_NULL;
+        }
+
+        private Policy orElse(IfStmt statement, Expression checked, Expression expression) {
+            if (!(expression instanceof AssignExpr)) {
+                return null;
+            }
+            AssignExpr assignment = (AssignExpr) expression;
+            // The default is evaluated even if it is not needed, so it must be cheap and free of effects.
+            if (assignment.getOperator() != AssignExpr.Operator.ASSIGN || !assignment.getTarget().equals(checked)
+                    || !isConstant(assignment.getValue())) {
+                return null;
+            }
+            edit = replace(statement, text(checked) + " = " + typeName("Optional") + ".ofNullable(" + text(checked)
+                    + ").orElse(" + text(assignment.getValue()) + ");");
+            return Policy.OPTIONAL;
+        }
+
+        /**
+         * Turns a block that ends a void method into a guard clause, moving its
+         * statements out one level.
+         */
+        private Policy earlyReturn(IfStmt statement, Expression checked) {
+            if (!(statement.getThenStmt() instanceof BlockStmt) || !(statement.getParentNode().orElse(null) instanceof BlockStmt)) {
+                return null;
+            }
+            BlockStmt block = (BlockStmt) statement.getThenStmt();
+            BlockStmt body = (BlockStmt) statement.getParentNode().get();
+            Node method = body.getParentNode().orElse(null);
+            // A single statement is no deeper nested than a guard clause would be.
+            if (block.getStatements().size() < 2 || !(method instanceof MethodDeclaration) || !((MethodDeclaration) method).getType().isVoidType()
+                    || body.getStatements().getLast().orElse(null) != statement) {
+                return null;
+            }
+            int begin = offset(statement);
+            int open = SourceRanges.offsetOf(lineStarts, block.getBegin().get());
+            int close = SourceRanges.offsetOf(lineStarts, block.getEnd().get());
+            // Moving the lines of a text block out would change its content.
+            if (source.substring(open, close).contains("\"\"\"")) {
+                return null;
+            }
+            int lineStart = lineStarts[statement.getBegin().get().line - 1];
+            String indent = source.substring(lineStart, begin);
+            // Comments in front of the block would be lost; those inside move with the statements.
+            if (hasComments(begin, open)) {
+                return null;
+            }
+            int firstLine = source.indexOf('\n', open);
+            int lastLine = source.lastIndexOf('\n', close);
+            if (!indent.trim().isEmpty() || firstLine < 0 || firstLine >= close || lastLine <= firstLine
+                    || !source.substring(open + 1, firstLine).trim().isEmpty()
+                    || !source.substring(lastLine + 1, close).trim().isEmpty()) {
+                return null;
+            }
+            Statement first = block.getStatement(0);
+            int firstStart = lineStarts[first.getBegin().get().line - 1];
+            String firstIndent = source.substring(firstStart, offset(first));
+            if (!firstIndent.startsWith(indent) || firstIndent.length() == indent.length() || !firstIndent.trim().isEmpty()) {
+                return null;
+            }
+            String unit = firstIndent.substring(indent.length());
+
+            StringBuilder replacement = new StringBuilder("if (").append(text(checked)).append(" == null) {")
+                    .append(lineSeparator).append(indent).append(unit).append("return;").append(lineSeparator)
+                    .append(indent).append('}').append(lineSeparator);
+            String[] lines = source.substring(firstLine + 1, lastLine).split("\n", -1);
+            for (int i = 0; i < lines.length; i++) {
+                String line = lines[i];
+                if (line.startsWith(firstIndent)) {
+                    line = indent + line.substring(firstIndent.length());
+                }
+                replacement.append(line);
+                if (i < lines.length - 1) {
+                    replacement.append('\n');
+                }
+            }
+            String text = replacement.toString();
+            if (text.endsWith("\r")) {
+                text = text.substring(0, text.length() - 1);
+            }
+            edit = new TextEdit(begin, end(statement) - begin, text);
+            return Policy.EARLY_RETURN;
+        }
+
+        /**
+         * Keeps the last rewrite, and the imports it needs.
+         */
+        void accept() {
+            usedTypes.addAll(pendingTypes);
+        }
+
+        /**
+         * Adds the imports of the types the rewrites refer to by simple name.
+         */
+        void addImports(List<TextEdit> edits) {
+            if (edits.isEmpty() || usedTypes.isEmpty()) {
+                return;
+            }
+            StringBuilder imports = new StringBuilder();
+            for (String type : new TreeSet<>(usedTypes)) {
+                imports.append(lineSeparator).append("import java.util.").append(type).append(';');
+            }
+            int offset;
+            if (compilationUnit.getImports().isNonEmpty()) {
+                offset = SourceRanges.offsetOf(lineStarts, compilationUnit.getImports().getLast().get().getEnd().get()) + 1;
+            } else if (compilationUnit.getPackageDeclaration().isPresent()) {
+                offset = SourceRanges.offsetOf(lineStarts, compilationUnit.getPackageDeclaration().get().getEnd().get()) + 1;
+                imports.insert(0, lineSeparator);
+            } else {
+                edits.add(TextEdit.insert(0, imports.substring(lineSeparator.length()) + lineSeparator + lineSeparator));
+                return;
+            }
+            edits.add(TextEdit.insert(offset, imports.toString()));
+        }
+
+        /**
+         * The name to refer to a {@code java.util} type by, importing it unless
+         * that would clash with another type of the same simple name.
+         */
+        private String typeName(String simpleName) {
+            String name = typeNames.computeIfAbsent(simpleName, this::findTypeName);
+            if (missingImports.contains(simpleName)) {
+                pendingTypes.add(simpleName);
+            }
+            return name;
+        }
+
+        private String findTypeName(String simpleName) {
+            String qualified = "java.util." + simpleName;
+            for (ImportDeclaration declaration : compilationUnit.getImports()) {
+                if (declaration.isStatic()) {
+                    continue;
+                }
+                String name = declaration.getNameAsString();
+                if (declaration.isAsterisk() ? name.equals("java.util") : name.equals(qualified)) {
+                    return simpleName;
+                }
+                if (!declaration.isAsterisk() && name.endsWith("." + simpleName)) {
+                    return qualified;
+                }
+            }
+            if (declaredTypes.contains(simpleName)) {
+                return qualified;
+            }
+            missingImports.add(simpleName);
+            return simpleName;
+        }
+
+        private TextEdit replace(Node node, String replacement) {
+            int begin = offset(node);
+            return new TextEdit(begin, end(node) - begin, replacement);
+        }
+
+        private int offset(Node node) {
+            return SourceRanges.offsetOf(lineStarts, node.getBegin().get());
+        }
+
+        /**
+         * The offset after the last character of the node.
+         */
+        private int end(Node node) {
+            return SourceRanges.offsetOf(lineStarts, node.getEnd().get()) + 1;
+        }
+
+        private String text(Node node) {
+            return source.substring(offset(node), end(node));
+        }
+
+        private static Statement singleStatement(Statement statement) {
+            if (!(statement instanceof BlockStmt)) {
+                return statement;
+            }
+            BlockStmt block = (BlockStmt) statement;
+            return block.getStatements().size() == 1 ? block.getStatement(0) : null;
+        }
+
+        /**
+         * Whether the text from {@code begin} to before {@code end} may contain
+         * a comment. Scanning the text is much cheaper than walking the nodes
+         * for their comments; a comment marker in a string literal only keeps
+         * a statement that could have been rewritten.
+         */
+        private boolean hasComments(int begin, int end) {
+            for (int i = begin; i < end - 1; i++) {
+                if (source.charAt(i) == '/' && (source.charAt(i + 1) == '/' || source.charAt(i + 1) == '*')) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * A local, a parameter or a field of {@code this}, which reads the same
+         * every time.
+         */
+        private static boolean isStable(Expression expression) {
+            if (expression instanceof NameExpr) {
+                return true;
+            }
+            return expression instanceof FieldAccessExpr && ((FieldAccessExpr) expression).getScope().isThisExpr();
+        }
+
+        /**
+         * A literal, a name, or a field of {@code this} or of a type, such as a
+         * constant. A field of anything else could throw if read too early.
+         */
+        private static boolean isConstant(Expression expression) {
+            if (expression instanceof LiteralExpr || expression instanceof NameExpr) {
+                return true;
+            }
+            if (!(expression instanceof FieldAccessExpr)) {
+                return false;
+            }
+            Expression scope = ((FieldAccessExpr) expression).getScope();
+            while (scope instanceof FieldAccessExpr) {
+                scope = ((FieldAccessExpr) scope).getScope();
+            }
+            // By convention only type names start with an upper case letter.
+            return scope.isThisExpr() || scope instanceof NameExpr
+                    && Character.isUpperCase(((NameExpr) scope).getNameAsString().charAt(0));
+        }
+
+        /**
+         * A constant or a string concatenation of constants.
+         */
+        private static boolean isConstantText(Expression expression) {
+            if (expression instanceof BinaryExpr && ((BinaryExpr) expression).getOperator() == BinaryExpr.Operator.PLUS) {
+                return isConstantText(((BinaryExpr) expression).getLeft())
+                        && isConstantText(((BinaryExpr) expression).getRight());
+            }
+            if (expression instanceof EnclosedExpr) {
+                return isConstantText(((EnclosedExpr) expression).getInner());
+            }
+            return isConstant(expression);
+        }
+    }
+
+    /**
+     * The rewritten content or diff of one file, nothing if the file does not
+     * change, or why it could not be rewritten.
+     */
+    private static final class FileOutcome {
+
+        final Path file;
+        final String path;
+        final String text;
+        final String failure;
+        final int[] rewrites;
+        final int kept;
+
+        FileOutcome(Path file, String path, String text, String failure, int[] rewrites, int kept) {
+            this.file = file;
+            this.path = path;
+            this.text = text;
+            this.failure = failure;
+            this.rewrites = rewrites;
+            this.kept = kept;
+        }
+
+        static FileOutcome failed(Path file, String failure) {
+            return new FileOutcome(file, null, null, failure, null, 0);
+        }
+    }
+}
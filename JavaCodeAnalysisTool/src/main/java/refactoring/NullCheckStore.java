@@ -0,0 +1,227 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.expr.BinaryExpr;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, append-only storage for the null checks captured across a whole
+ * project. Checks are stored column by column in primitive arrays: file, method
+ * signature and variable as ids into string dictionaries, context and operator
+ * as enum ordinals, and lines and columns as plain ints. A check costs 34
+ * bytes plus the first occurrence of each distinct string, instead of a handful
+ * of objects.
+ * <p>
+ * Appending is thread-safe; reading is meant for after all writers are done.
+ */
+public class NullCheckStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final NullCheckMethodVisitor.Context[] CONTEXTS = NullCheckMethodVisitor.Context.values();
+    private static final BinaryExpr.Operator[] OPERATORS = BinaryExpr.Operator.values();
+
+    private final Dictionary files = new Dictionary();
+    private final Dictionary methods = new Dictionary();
+    private final Dictionary variables = new Dictionary();
+
+    private int size;
+    private int[] fileIds = new int[INITIAL_CAPACITY];
+    private int[] methodIds = new int[INITIAL_CAPACITY];
+    private int[] variableIds = new int[INITIAL_CAPACITY];
+    private byte[] contexts = new byte[INITIAL_CAPACITY];
+    private byte[] operators = new byte[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    // Statement ranges, four ints per check: begin line, begin column, end line, end column.
+    private int[] statementRanges = new int[INITIAL_CAPACITY * 4];
+
+    /**
+     * Appends the checks captured in one file, keyed by method signature.
+     */
+    public synchronized void add(String file, Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> capturedLogic) {
+        if (capturedLogic.isEmpty()) {
+            return;
+        }
+        int fileId = files.idOf(file);
+        for (Map.Entry<String, List<NullCheckMethodVisitor.NullCheckInfo>> method : capturedLogic.entrySet()) {
+            int methodId = methods.idOf(method.getKey());
+            for (NullCheckMethodVisitor.NullCheckInfo check : method.getValue()) {
+                ensureCapacity(size + 1);
+                fileIds[size] = fileId;
+                methodIds[size] = methodId;
+                variableIds[size] = variables.idOf(check.variable);
+                contexts[size] = (byte) check.context.ordinal();
+                operators[size] = (byte) check.operator.ordinal();
+                lines[size] = check.line;
+                int range = size * 4;
+                statementRanges[range] = check.statementBeginLine;
+                statementRanges[range + 1] = check.statementBeginColumn;
+                statementRanges[range + 2] = check.statementEndLine;
+                statementRanges[range + 3] = check.statementEndColumn;
+                size++;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public String getFile(int index) {
+        return files.get(fileIds[checkIndex(index)]);
+    }
+
+    public String getMethod(int index) {
+        return methods.get(methodIds[checkIndex(index)]);
+    }
+
+    public String getVariable(int index) {
+        return variables.get(variableIds[checkIndex(index)]);
+    }
+
+    public NullCheckMethodVisitor.Context getContext(int index) {
+        return CONTEXTS[contexts[checkIndex(index)]];
+    }
+
+    public BinaryExpr.Operator getOperator(int index) {
+        return OPERATORS[operators[checkIndex(index)]];
+    }
+
+    public int getLine(int index) {
+        return lines[checkIndex(index)];
+    }
+
+    public Range getStatementRange(int index) {
+        int range = checkIndex(index) * 4;
+        return Range.range(statementRanges[range], statementRanges[range + 1],
+                statementRanges[range + 2], statementRanges[range + 3]);
+    }
+
+    /**
+     * The number of distinct method signatures with at least one check.
+     */
+    public synchronized int getMethodCount() {
+        return methods.size();
+    }
+
+    /**
+     * An estimate of the heap held by the columns and dictionaries, in bytes.
+     */
+    public synchronized long estimateBytes() {
+        long columns = 4L * (fileIds.length + methodIds.length + variableIds.length + lines.length + statementRanges.length)
+                + contexts.length + operators.length;
+        return columns + files.estimateBytes() + methods.estimateBytes() + variables.estimateBytes();
+    }
+
+    /**
+     * Writes all checks as JSON Lines, one object per check.
+     */
+    public synchronized void writeJsonLines(Writer writer) throws IOException {
+        BufferedWriter out = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer, 1 << 16);
+        StringBuilder line = new StringBuilder(256);
+        for (int i = 0; i < size; i++) {
+            line.setLength(0);
+            line.append("{\"file\":");
+            Json.appendString(line, getFile(i));
+            line.append(",\"method\":");
+            Json.appendString(line, getMethod(i));
+            line.append(",\"context\":\"").append(getContext(i).getDisplayName()).append('"');
+            line.append(",\"operator\":\"").append(getOperator(i).asString()).append('"');
+            line.append(",\"variable\":");
+            Json.appendString(line, getVariable(i));
+            line.append(",\"line\":").append(lines[i]);
+            int range = i * 4;
+            line.append(",\"statementBeginLine\":").append(statementRanges[range]);
+            line.append(",\"statementBeginColumn\":").append(statementRanges[range + 1]);
+            line.append(",\"statementEndLine\":").append(statementRanges[range + 2]);
+            line.append(",\"statementEndColumn\":").append(statementRanges[range + 3]);
+            line.append("}\n");
+            out.append(line);
+        }
+        out.flush();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= fileIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, fileIds.length + (fileIds.length >> 1));
+        fileIds = Arrays.copyOf(fileIds, newCapacity);
+        methodIds = Arrays.copyOf(methodIds, newCapacity);
+        variableIds = Arrays.copyOf(variableIds, newCapacity);
+        contexts = Arrays.copyOf(contexts, newCapacity);
+        operators = Arrays.copyOf(operators, newCapacity);
+        lines = Arrays.copyOf(lines, newCapacity);
+        statementRanges = Arrays.copyOf(statementRanges, newCapacity * 4);
+    }
+
+    /**
+     * Maps each distinct string to a dense id, so that repeated values such as a
+     * variable checked in many methods are stored once.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private long characters;
+
+        int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+                characters += value.length();
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        long estimateBytes() {
+            // String and array headers, the characters, and the map entry per value.
+            return values.size() * 96L + characters;
+        }
+    }
+}
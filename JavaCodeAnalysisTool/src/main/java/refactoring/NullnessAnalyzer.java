@@ -0,0 +1,934 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes a nullness summary for every method and constructor of a project and
+ * reports null checks that the summaries prove redundant. A summary says which
+ * parameters the method rejects when null (it throws before it could return)
+ * and whether it may return null; both are propagated across calls.
+ * <p>
+ * Files are parsed on a {@link StagedPipeline} into {@link NullnessFacts}, and
+ * the trees are dropped right away. Calls are resolved by name and arity against
+ * the project's types, following supertypes upwards and, for overridable
+ * methods, adding the overrides in all subtypes; a call that may reach code
+ * outside the project is unresolved and proves nothing. The resulting call graph
+ * is kept in flat arrays and split into strongly connected components with
+ * Tarjan's algorithm. Each component is solved by a worklist fixpoint once all
+ * components it calls are solved, so independent components run in parallel on
+ * {@code parallelism} threads.
+ * <p>
+ * With a {@link NullnessSummaryCache}, a component whose methods and callees are
+ * all unchanged since the previous run takes its summaries from the cache, and
+ * only components that changed or call a changed summary are recomputed.
+ */
+public class NullnessAnalyzer {
+
+    public static final String RULE_REDUNDANT_NULL_CHECK = "redundant-null-check";
+
+    /** The nullness of a return value, ordered so that joining two is taking the maximum. */
+    static final byte BOTTOM = 0;
+    static final byte NON_NULL = 1;
+    static final byte UNKNOWN = 2;
+    static final byte NULLABLE = 3;
+
+    /** Calls with more possible targets than this are left unresolved. */
+    private static final int MAX_CANDIDATES = 64;
+    private static final int[] UNRESOLVED = new int[0];
+
+    private final int parallelism;
+    private final FindingSink sink;
+    private final NullnessSummaryCache cache;
+
+    private NullnessFacts.Method[] methods;
+    private String[] keys;
+    private String[] methodFiles;
+    private int[][][] candidates;
+    private long[] inputHashes;
+    private byte[] returns;
+    private long[] rejects;
+    private boolean[] changed;
+
+    private int analyzedFiles;
+    private int failedFiles;
+    private int componentCount;
+    private int largestComponent;
+    private int resolvedCalls;
+    private int unresolvedCalls;
+    private int redundantChecks;
+    private long solveMillis;
+    private final AtomicInteger recomputedComponents = new AtomicInteger();
+    private final AtomicInteger reusedComponents = new AtomicInteger();
+    private List<StageStats> stageStats;
+
+    /**
+     * @param sink receives the redundant null checks, from the thread calling {@link #analyze}
+     * @param cache the summaries of the previous run, updated by this one, or {@code null} to compute all
+     */
+    public NullnessAnalyzer(int parallelism, FindingSink sink, NullnessSummaryCache cache) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.sink = sink;
+        this.cache = cache;
+    }
+
+    public void analyze(List<Path> sourceFiles) throws IOException, InterruptedException {
+        List<NullnessFacts> files = extract(sourceFiles);
+        // Sorted, so that method indexes, duplicate keys and findings do not depend on thread timing.
+        files.sort(Comparator.comparing(NullnessFacts::getFile));
+        long start = System.nanoTime();
+        index(files);
+        int[][] graph = buildCallGraph();
+        int[] component = new int[methods.length];
+        componentCount = findComponents(graph[0], graph[1], component);
+        solve(graph[0], graph[1], component);
+        if (cache != null) {
+            for (int m = 0; m < methods.length; m++) {
+                cache.put(keys[m], inputHashes[m], returns[m], rejects[m]);
+            }
+        }
+        report();
+        solveMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private List<NullnessFacts> extract(List<Path> sourceFiles) throws IOException, InterruptedException {
+        List<NullnessFacts> files = new ArrayList<>();
+        StagedPipeline<ExtractedFile> pipeline = new StagedPipeline<>(parallelism);
+        try {
+            pipeline.run(sourceFiles, () -> {
+                JavaParser parser = new JavaParser();
+                return source -> extract(parser, source);
+            }, extracted -> {
+                if (extracted.facts == null) {
+                    failedFiles++;
+                    System.err.println(extracted.failure);
+                } else {
+                    files.add(extracted.facts);
+                    analyzedFiles++;
+                }
+            });
+        } finally {
+            stageStats = pipeline.getStats();
+        }
+        return files;
+    }
+
+    private static ExtractedFile extract(JavaParser parser, StagedPipeline.Source source) {
+        Path file = source.getFile();
+        try {
+            String content = StandardCharsets.UTF_8.decode(source.getContent().duplicate()).toString();
+            ParseResult<CompilationUnit> result = parser.parse(content);
+            if (!result.isSuccessful() || !result.getResult().isPresent()) {
+                return new ExtractedFile(null, "Failed to parse the source file: " + file);
+            }
+            return new ExtractedFile(NullnessFacts.extract(result.getResult().get(), file.toString()), null);
+        } catch (IOException e) {
+            return new ExtractedFile(null, "Failed to read the source file: " + file + " (" + e.getMessage() + ")");
+        } catch (RuntimeException e) {
+            return new ExtractedFile(null, "Failed to analyze the source file: " + file + " (" + e.getMessage() + ")");
+        } catch (StackOverflowError e) {
+            return new ExtractedFile(null, "Failed to analyze the source file: " + file + " (nested too deeply to parse)");
+        }
+    }
+
+    /**
+     * Numbers all methods and gives them unique keys; the same class declared in
+     * two files gets its second methods' keys suffixed.
+     */
+    private void index(List<NullnessFacts> files) {
+        List<NullnessFacts.Method> all = new ArrayList<>();
+        List<String> allFiles = new ArrayList<>();
+        for (NullnessFacts file : files) {
+            all.addAll(file.getMethods());
+            allFiles.addAll(Collections.nCopies(file.getMethods().size(), file.getFile()));
+        }
+        methods = all.toArray(new NullnessFacts.Method[0]);
+        methodFiles = allFiles.toArray(new String[0]);
+        keys = new String[methods.length];
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int m = 0; m < methods.length; m++) {
+            int occurrence = occurrences.merge(methods[m].key, 1, Integer::sum);
+            keys[m] = occurrence == 1 ? methods[m].key : methods[m].key + "@" + occurrence;
+        }
+
+        TypeIndex types = new TypeIndex(files, methods);
+        candidates = new int[methods.length][][];
+        inputHashes = new long[methods.length];
+        for (int m = 0; m < methods.length; m++) {
+            NullnessFacts.Method method = methods[m];
+            candidates[m] = new int[method.calls.length][];
+            long hash = method.bodyHash;
+            for (int c = 0; c < method.calls.length; c++) {
+                int[] targets = types.resolve(method, method.calls[c]);
+                candidates[m][c] = targets;
+                if (targets.length == 0) {
+                    unresolvedCalls++;
+                } else {
+                    resolvedCalls++;
+                }
+                // A summary also depends on what its calls resolve to.
+                hash = NullnessFacts.hash(hash * 31 + c, "");
+                for (int target : targets) {
+                    hash = NullnessFacts.hash(hash, keys[target]);
+                }
+            }
+            inputHashes[m] = hash;
+        }
+    }
+
+    /**
+     * The edges from every method to the methods its summary depends on: the
+     * targets of calls whose result it returns and of calls that may reject one
+     * of its parameters. Returns the offsets and the targets in CSR form.
+     */
+    private int[][] buildCallGraph() {
+        int[] offsets = new int[methods.length + 1];
+        int[] targets = new int[16];
+        int size = 0;
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (int m = 0; m < methods.length; m++) {
+            NullnessFacts.Method method = methods[m];
+            seen.clear();
+            for (int source : method.returnSources) {
+                if ((source & 3) == NullnessFacts.SOURCE_CALL) {
+                    for (int target : candidates[m][source >>> 2]) {
+                        seen.add(target);
+                    }
+                }
+            }
+            int[] events = method.events;
+            for (int e = 0; e < events.length; e += NullnessFacts.EVENT_SIZE) {
+                if (events[e + NullnessFacts.EVENT_KIND] == NullnessFacts.EVENT_CALL) {
+                    for (int target : candidates[m][events[e + NullnessFacts.EVENT_CALL_INDEX]]) {
+                        seen.add(target);
+                    }
+                }
+            }
+            if (size + seen.size() > targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(targets.length * 2, size + seen.size()));
+            }
+            for (int target : seen) {
+                targets[size++] = target;
+            }
+            offsets[m + 1] = size;
+        }
+        return new int[][]{offsets, Arrays.copyOf(targets, size)};
+    }
+
+    /**
+     * Tarjan's algorithm without recursion. Components are numbered in the order
+     * they are completed, so every component calls only lower-numbered ones.
+     *
+     * @return the number of components
+     */
+    static int findComponents(int[] offsets, int[] targets, int[] component) {
+        int n = offsets.length - 1;
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] nextEdge = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] path = new int[n];
+        Arrays.fill(index, -1);
+        int stackSize = 0;
+        int counter = 0;
+        int components = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            path[depth++] = root;
+            index[root] = low[root] = counter++;
+            nextEdge[root] = offsets[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth > 0) {
+                int v = path[depth - 1];
+                if (nextEdge[v] < offsets[v + 1]) {
+                    int w = targets[nextEdge[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        nextEdge[w] = offsets[w];
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        path[depth++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component[w] = components;
+                    } while (w != v);
+                    components++;
+                }
+                if (depth > 0) {
+                    int parent = path[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Solves every component once all components it depends on are solved.
+     */
+    private void solve(int[] offsets, int[] targets, int[] component) throws InterruptedException {
+        int n = methods.length;
+        returns = new byte[n];
+        rejects = new long[n];
+        changed = new boolean[n];
+
+        // The members of each component, and the callers of each method, in CSR form.
+        int[] memberOffsets = new int[componentCount + 1];
+        for (int m = 0; m < n; m++) {
+            memberOffsets[component[m] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+            largestComponent = Math.max(largestComponent, memberOffsets[c + 1] - memberOffsets[c]);
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+        for (int m = 0; m < n; m++) {
+            members[fill[component[m]]++] = m;
+        }
+        int[] callerOffsets = new int[n + 1];
+        for (int target : targets) {
+            callerOffsets[target + 1]++;
+        }
+        for (int m = 0; m < n; m++) {
+            callerOffsets[m + 1] += callerOffsets[m];
+        }
+        int[] callers = new int[targets.length];
+        fill = Arrays.copyOf(callerOffsets, n);
+        for (int m = 0; m < n; m++) {
+            for (int e = offsets[m]; e < offsets[m + 1]; e++) {
+                callers[fill[targets[e]]++] = m;
+            }
+        }
+
+        // The condensation: how many components each one waits for, and who waits for it.
+        AtomicIntegerArray pending = new AtomicIntegerArray(componentCount);
+        int[] dependentOffsets = new int[componentCount + 1];
+        List<int[]> dependencies = new ArrayList<>();
+        int[] lastSeen = new int[componentCount];
+        Arrays.fill(lastSeen, -1);
+        for (int c = 0; c < componentCount; c++) {
+            for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+                int m = members[i];
+                for (int e = offsets[m]; e < offsets[m + 1]; e++) {
+                    int callee = component[targets[e]];
+                    if (callee != c && lastSeen[callee] != c) {
+                        lastSeen[callee] = c;
+                        pending.incrementAndGet(c);
+                        dependentOffsets[callee + 1]++;
+                        dependencies.add(new int[]{callee, c});
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < componentCount; c++) {
+            dependentOffsets[c + 1] += dependentOffsets[c];
+        }
+        int[] dependents = new int[dependencies.size()];
+        fill = Arrays.copyOf(dependentOffsets, componentCount);
+        for (int[] dependency : dependencies) {
+            dependents[fill[dependency[0]]++] = dependency[1];
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, StagedPipeline.namedThreads("nullness-"));
+        CountDownLatch done = new CountDownLatch(componentCount);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        boolean[] queued = new boolean[n];
+        try {
+            Scheduler scheduler = new Scheduler() {
+                @Override
+                public void submit(int c) {
+                    executor.execute(() -> {
+                        try {
+                            if (failure.get() == null) {
+                                solveComponent(c, members, memberOffsets[c], memberOffsets[c + 1], component, offsets,
+                                        targets, callerOffsets, callers, queued);
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            for (int i = dependentOffsets[c]; i < dependentOffsets[c + 1]; i++) {
+                                if (pending.decrementAndGet(dependents[i]) == 0) {
+                                    submit(dependents[i]);
+                                }
+                            }
+                            done.countDown();
+                        }
+                    });
+                }
+            };
+            // Collected before the first submission; once workers run, counts drop to 0 concurrently.
+            List<Integer> ready = new ArrayList<>();
+            for (int c = 0; c < componentCount; c++) {
+                if (pending.get(c) == 0) {
+                    ready.add(c);
+                }
+            }
+            for (int c : ready) {
+                scheduler.submit(c);
+            }
+            done.await();
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Failed to compute nullness summaries", failure.get());
+        }
+    }
+
+    private interface Scheduler {
+
+        void submit(int component);
+    }
+
+    private void solveComponent(int c, int[] members, int from, int to, int[] component, int[] offsets, int[] targets,
+            int[] callerOffsets, int[] callers, boolean[] queued) {
+        if (cache != null && isUnchanged(c, members, from, to, component, offsets, targets)) {
+            for (int i = from; i < to; i++) {
+                NullnessSummaryCache.Entry entry = cache.get(keys[members[i]]);
+                returns[members[i]] = entry.returns;
+                rejects[members[i]] = entry.rejects;
+            }
+            reusedComponents.incrementAndGet();
+            return;
+        }
+        recomputedComponents.incrementAndGet();
+        // Rejected parameters first; whether a parameter is returned non-null depends on them.
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = from; i < to; i++) {
+                worklist.add(members[i]);
+                queued[members[i]] = true;
+            }
+            while (!worklist.isEmpty()) {
+                int m = worklist.poll();
+                queued[m] = false;
+                boolean updated;
+                if (pass == 0) {
+                    long value = evaluateRejects(m);
+                    updated = value != rejects[m];
+                    rejects[m] = value;
+                } else {
+                    byte value = evaluateReturns(m);
+                    updated = value != returns[m];
+                    returns[m] = value;
+                }
+                if (updated) {
+                    for (int e = callerOffsets[m]; e < callerOffsets[m + 1]; e++) {
+                        int caller = callers[e];
+                        if (component[caller] == c && !queued[caller]) {
+                            worklist.add(caller);
+                            queued[caller] = true;
+                        }
+                    }
+                }
+            }
+        }
+        if (cache != null) {
+            for (int i = from; i < to; i++) {
+                int m = members[i];
+                NullnessSummaryCache.Entry entry = cache.get(keys[m]);
+                changed[m] = entry == null || entry.returns != returns[m] || entry.rejects != rejects[m];
+            }
+        }
+    }
+
+    /**
+     * Whether the previous run computed the component from the same methods and
+     * callee summaries.
+     */
+    private boolean isUnchanged(int c, int[] members, int from, int to, int[] component, int[] offsets, int[] targets) {
+        for (int i = from; i < to; i++) {
+            NullnessSummaryCache.Entry entry = cache.get(keys[members[i]]);
+            if (entry == null || entry.inputHash != inputHashes[members[i]]) {
+                return false;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            int m = members[i];
+            for (int e = offsets[m]; e < offsets[m + 1]; e++) {
+                if (component[targets[e]] != c && changed[targets[e]]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private long evaluateRejects(int m) {
+        NullnessFacts.Method method = methods[m];
+        long result = 0;
+        int[] events = method.events;
+        for (int e = 0; e < events.length; e += NullnessFacts.EVENT_SIZE) {
+            // Only what happens before the first statement that may return is certain to happen.
+            if (events[e + NullnessFacts.EVENT_STATEMENT] <= method.firstReturn && isEffective(m, events, e)) {
+                result |= 1L << events[e + NullnessFacts.EVENT_PARAMETER];
+            }
+        }
+        return result;
+    }
+
+    private byte evaluateReturns(int m) {
+        NullnessFacts.Method method = methods[m];
+        if (!method.returnsReference || !method.hasBody) {
+            return UNKNOWN;
+        }
+        byte result = BOTTOM;
+        for (int source : method.returnSources) {
+            int value = source >>> 2;
+            byte nullness;
+            switch (source & 3) {
+                case NullnessFacts.SOURCE_CONSTANT:
+                    nullness = (byte) value;
+                    break;
+                case NullnessFacts.SOURCE_CALL:
+                    nullness = callResult(candidates[m][value]);
+                    break;
+                default:
+                    nullness = (rejects[m] & 1L << value) != 0 ? NON_NULL : UNKNOWN;
+                    break;
+            }
+            result = (byte) Math.max(result, nullness);
+        }
+        return result;
+    }
+
+    private byte callResult(int[] targets) {
+        if (targets.length == 0) {
+            return UNKNOWN;
+        }
+        byte result = BOTTOM;
+        for (int target : targets) {
+            result = (byte) Math.max(result, returns[target]);
+        }
+        return result;
+    }
+
+    /**
+     * Whether the event certainly rejects null: always, unless it is a call of
+     * which not every possible target rejects null at that argument.
+     */
+    private boolean isEffective(int m, int[] events, int e) {
+        if (events[e + NullnessFacts.EVENT_KIND] != NullnessFacts.EVENT_CALL) {
+            return true;
+        }
+        int[] targets = candidates[m][events[e + NullnessFacts.EVENT_CALL_INDEX]];
+        int argument = events[e + NullnessFacts.EVENT_ARGUMENT];
+        if (targets.length == 0) {
+            return false;
+        }
+        for (int target : targets) {
+            NullnessFacts.Method callee = methods[target];
+            if (argument >= NullnessFacts.MAX_PARAMETERS || (callee.varargs && argument >= callee.parameterCount - 1)
+                    || (rejects[target] & 1L << argument) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void report() {
+        for (int m = 0; m < methods.length; m++) {
+            NullnessFacts.Method method = methods[m];
+            for (NullnessFacts.Check check : method.checks) {
+                String message = check.parameter >= 0 ? explainParameterCheck(m, check) : explainResultCheck(m, check);
+                if (message != null) {
+                    redundantChecks++;
+                    sink.accept(new Finding(RULE_REDUNDANT_NULL_CHECK, Finding.Severity.INFO, methodFiles[m],
+                            check.beginLine, check.beginColumn, check.endLine, check.endColumn, message));
+                }
+            }
+        }
+    }
+
+    private String explainParameterCheck(int m, NullnessFacts.Check check) {
+        int[] events = methods[m].events;
+        for (int e = 0; e < events.length; e += NullnessFacts.EVENT_SIZE) {
+            if (events[e + NullnessFacts.EVENT_PARAMETER] != check.parameter
+                    || events[e + NullnessFacts.EVENT_STATEMENT] >= check.statement || !isEffective(m, events, e)) {
+                continue;
+            }
+            String prefix = "Redundant null check: parameter '" + check.checked + "' ";
+            int line = events[e + NullnessFacts.EVENT_LINE];
+            switch (events[e + NullnessFacts.EVENT_KIND]) {
+                case NullnessFacts.EVENT_THROWING_CHECK:
+                    return prefix + "was already checked on line " + line + ", where null throws.";
+                case NullnessFacts.EVENT_DEREFERENCE:
+                    return prefix + "was already dereferenced on line " + line + ".";
+                case NullnessFacts.EVENT_REQUIRE_NON_NULL:
+                    return prefix + "was already passed to Objects.requireNonNull on line " + line + ".";
+                default:
+                    return prefix + "was already passed to "
+                            + describe(candidates[m][events[e + NullnessFacts.EVENT_CALL_INDEX]]) + " on line " + line
+                            + ", which rejects null.";
+            }
+        }
+        return null;
+    }
+
+    private String explainResultCheck(int m, NullnessFacts.Check check) {
+        int[] targets = candidates[m][check.call];
+        if (targets.length == 0) {
+            return null;
+        }
+        for (int target : targets) {
+            if (returns[target] != NON_NULL) {
+                return null;
+            }
+        }
+        String callee = describe(targets);
+        return check.checked.endsWith("()")
+                ? "Redundant null check: " + callee + " never returns null."
+                : "Redundant null check: '" + check.checked + "' holds the result of " + callee + ", which never returns null.";
+    }
+
+    private String describe(int[] targets) {
+        NullnessFacts.Method target = methods[targets[0]];
+        String type = target.type.substring(Math.max(target.type.lastIndexOf('.'), target.type.lastIndexOf('$')) + 1);
+        String name = target.name.equals(NullnessFacts.CONSTRUCTOR) ? "new " + type + "()" : type + "." + target.name + "()";
+        return targets.length == 1 ? name : name + " and " + (targets.length - 1) + " overriding methods";
+    }
+
+    public int getAnalyzedFiles() {
+        return analyzedFiles;
+    }
+
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    public int getMethodCount() {
+        return methods == null ? 0 : methods.length;
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public int getLargestComponent() {
+        return largestComponent;
+    }
+
+    public int getRecomputedComponents() {
+        return recomputedComponents.get();
+    }
+
+    public int getReusedComponents() {
+        return reusedComponents.get();
+    }
+
+    public int getResolvedCalls() {
+        return resolvedCalls;
+    }
+
+    public int getUnresolvedCalls() {
+        return unresolvedCalls;
+    }
+
+    /**
+     * The time spent on everything after parsing: resolving calls, finding the
+     * components, solving them and reporting.
+     */
+    public long getSolveMillis() {
+        return solveMillis;
+    }
+
+    public int getRedundantChecks() {
+        return redundantChecks;
+    }
+
+    /**
+     * The statistics of the parsing pipeline of the last run, or {@code null} before the first run.
+     */
+    public List<StageStats> getStageStats() {
+        return stageStats;
+    }
+
+    private static final class ExtractedFile {
+
+        final NullnessFacts facts;
+        final String failure;
+
+        ExtractedFile(NullnessFacts facts, String failure) {
+            this.facts = facts;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * The project's types with their resolved supertypes and subtypes, and the
+     * methods each declares by name.
+     */
+    static final class TypeIndex {
+
+        static final int FOUND = 0;
+        static final int NOT_FOUND = 1;
+        static final int EXTERNAL = 2;
+
+        /** The methods every class inherits from java.lang.Object, by name and arity. */
+        static final Set<String> OBJECT_METHODS = new HashSet<>(Arrays.asList("toString/0", "hashCode/0", "equals/1",
+                "getClass/0", "clone/0", "finalize/0", "notify/0", "notifyAll/0", "wait/0", "wait/1", "wait/2"));
+
+        final List<NullnessFacts.DeclaredType> types = new ArrayList<>();
+        final Map<String, List<Integer>> byName = new HashMap<>();
+        final Map<String, List<Integer>> bySimpleName = new HashMap<>();
+        final List<Map<String, List<Integer>>> declaredMethods = new ArrayList<>();
+        final List<List<Integer>> supertypes = new ArrayList<>();
+        final List<List<Integer>> subtypes = new ArrayList<>();
+        final boolean[] external;
+        final NullnessFacts.Method[] methods;
+
+        TypeIndex(List<NullnessFacts> files, NullnessFacts.Method[] methods) {
+            this.methods = methods;
+            for (NullnessFacts file : files) {
+                for (NullnessFacts.DeclaredType type : file.getTypes()) {
+                    int t = types.size();
+                    types.add(type);
+                    byName.computeIfAbsent(type.name, k -> new ArrayList<>()).add(t);
+                    if (!type.simpleName.isEmpty()) {
+                        bySimpleName.computeIfAbsent(type.simpleName, k -> new ArrayList<>()).add(t);
+                    }
+                    declaredMethods.add(new HashMap<>());
+                    supertypes.add(new ArrayList<>());
+                    subtypes.add(new ArrayList<>());
+                }
+            }
+            for (int m = 0; m < methods.length; m++) {
+                for (int t : byName.getOrDefault(methods[m].type, Collections.emptyList())) {
+                    declaredMethods.get(t).computeIfAbsent(methods[m].name, k -> new ArrayList<>()).add(m);
+                }
+            }
+            external = new boolean[types.size()];
+            for (int t = 0; t < types.size(); t++) {
+                for (String supertype : types.get(t).supertypes) {
+                    List<Integer> resolved = supertype == null ? Collections.emptyList() : lookup(supertype);
+                    external[t] |= resolved.isEmpty();
+                    for (int s : resolved) {
+                        supertypes.get(t).add(s);
+                        subtypes.get(s).add(t);
+                    }
+                }
+            }
+        }
+
+        /**
+         * The project types a name written in the source may refer to: an exact
+         * match of an imported or qualified name, otherwise every type with that
+         * simple name.
+         */
+        List<Integer> lookup(String name) {
+            List<Integer> exact = byName.get(name);
+            if (exact != null) {
+                return exact;
+            }
+            int separator = name.lastIndexOf('.');
+            if (separator >= 0 && !Character.isUpperCase(name.charAt(0))) {
+                // Qualified, but not a project type.
+                return Collections.emptyList();
+            }
+            return bySimpleName.getOrDefault(name.substring(separator + 1), Collections.emptyList());
+        }
+
+        int[] resolve(NullnessFacts.Method caller, NullnessFacts.Call call) {
+            Set<Integer> result = new LinkedHashSet<>();
+            switch (call.scope) {
+                case NullnessFacts.SCOPE_THIS: {
+                    // Unqualified calls may also reach methods of enclosing types.
+                    String type = caller.type;
+                    while (type != null && byName.containsKey(type)) {
+                        int state = findVirtual(byName.get(type), call, result);
+                        if (state == FOUND) {
+                            break;
+                        }
+                        if (state == EXTERNAL || OBJECT_METHODS.contains(call.name + "/" + call.arity)) {
+                            return UNRESOLVED;
+                        }
+                        type = enclosingType(type);
+                    }
+                    break;
+                }
+                case NullnessFacts.SCOPE_SUPER:
+                    for (int t : byName.getOrDefault(caller.type, Collections.emptyList())) {
+                        if (findInSupertypes(t, call, result, new HashSet<>()) != FOUND) {
+                            return UNRESOLVED;
+                        }
+                    }
+                    break;
+                case NullnessFacts.SCOPE_TYPE:
+                    if (findVirtual(lookup(call.scopeType), call, result) != FOUND) {
+                        return UNRESOLVED;
+                    }
+                    break;
+                case NullnessFacts.SCOPE_NEW:
+                    addConstructors(lookup(call.scopeType), call, result);
+                    break;
+                case NullnessFacts.SCOPE_THIS_CONSTRUCTOR:
+                    addConstructors(byName.getOrDefault(caller.type, Collections.emptyList()), call, result);
+                    break;
+                case NullnessFacts.SCOPE_SUPER_CONSTRUCTOR:
+                    for (int t : byName.getOrDefault(caller.type, Collections.emptyList())) {
+                        addConstructors(supertypes.get(t), call, result);
+                    }
+                    break;
+                default:
+                    return UNRESOLVED;
+            }
+            if (result.isEmpty() || result.size() > MAX_CANDIDATES) {
+                return UNRESOLVED;
+            }
+            int[] targets = new int[result.size()];
+            int i = 0;
+            for (int target : result) {
+                targets[i++] = target;
+            }
+            return targets;
+        }
+
+        /**
+         * Adds the declarations a virtual call on any of the receiver types may
+         * reach, including overrides in subtypes. Unless the method is found for
+         * every receiver, nothing is certain about the call.
+         */
+        private int findVirtual(List<Integer> receivers, NullnessFacts.Call call, Set<Integer> result) {
+            if (receivers.isEmpty()) {
+                return EXTERNAL;
+            }
+            for (int receiver : receivers) {
+                Set<Integer> found = new LinkedHashSet<>();
+                int state = findDeclarations(receiver, call, found, new HashSet<>());
+                if (state != FOUND) {
+                    return state;
+                }
+                result.addAll(found);
+                boolean overridable = false;
+                for (int m : found) {
+                    overridable |= methods[m].overridable;
+                }
+                if (overridable) {
+                    addOverrides(receiver, call, result, new HashSet<>());
+                }
+            }
+            return FOUND;
+        }
+
+        /**
+         * Adds the declarations of the type, or else those of the nearest
+         * supertypes declaring the method.
+         */
+        private int findDeclarations(int type, NullnessFacts.Call call, Set<Integer> result, Set<Integer> visited) {
+            if (!visited.add(type)) {
+                return NOT_FOUND;
+            }
+            return addDeclared(type, call, result) ? FOUND : findInSupertypes(type, call, result, visited);
+        }
+
+        private int findInSupertypes(int type, NullnessFacts.Call call, Set<Integer> result, Set<Integer> visited) {
+            if (external[type]) {
+                // The method may be inherited from a type outside the project.
+                return EXTERNAL;
+            }
+            int state = NOT_FOUND;
+            for (int supertype : supertypes.get(type)) {
+                int found = findDeclarations(supertype, call, result, visited);
+                if (found == EXTERNAL) {
+                    return EXTERNAL;
+                }
+                if (found == FOUND) {
+                    state = FOUND;
+                }
+            }
+            return state;
+        }
+
+        private void addOverrides(int type, NullnessFacts.Call call, Set<Integer> result, Set<Integer> visited) {
+            for (int subtype : subtypes.get(type)) {
+                if (visited.add(subtype) && result.size() <= MAX_CANDIDATES) {
+                    addDeclared(subtype, call, result);
+                    addOverrides(subtype, call, result, visited);
+                }
+            }
+        }
+
+        private void addConstructors(List<Integer> receivers, NullnessFacts.Call call, Set<Integer> result) {
+            for (int t : receivers) {
+                addDeclared(t, call, result);
+            }
+        }
+
+        private boolean addDeclared(int type, NullnessFacts.Call call, Set<Integer> result) {
+            boolean found = false;
+            for (int m : declaredMethods.get(type).getOrDefault(call.name, Collections.emptyList())) {
+                if (methods[m].accepts(call.arity)) {
+                    result.add(m);
+                    found = true;
+                }
+            }
+            return found;
+        }
+
+        static String enclosingType(String type) {
+            int separator = Math.max(type.lastIndexOf('.'), type.lastIndexOf('$'));
+            return separator < 0 ? null : type.substring(0, separator);
+        }
+    }
+}
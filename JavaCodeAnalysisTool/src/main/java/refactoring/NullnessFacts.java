@@ -0,0 +1,1144 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * What the {@link NullnessAnalyzer} needs to know about one compilation unit,
+ * extracted in a single pass so that no syntax tree outlives its file: the
+ * declared types with their supertypes, and for every method and constructor
+ * its call sites, the points where it rejects a null parameter, the sources of
+ * its return values and its null checks. Everything is recorded syntactically;
+ * calls are resolved later against the types of the whole project.
+ * <p>
+ * A parameter counts as rejected at a top-level statement of the body when that
+ * statement, on every path through it, dereferences the parameter, passes it to
+ * {@code Objects.requireNonNull}, throws when it is null, or passes it to a call
+ * whose own summary rejects null at that argument. Parameters that are assigned
+ * anywhere in the body, or shadowed by a local of the same name, are ignored.
+ * <p>
+ * On request, the monitors every method acquires are recorded as well, for the
+ * {@link LockOrderAnalyzer}: the synchronized blocks on {@code this}, on class
+ * literals and on fields, how they nest, and the lock held at every call.
+ */
+public class NullnessFacts {
+
+    /** The name of constructors in method keys and call sites. */
+    static final String CONSTRUCTOR = "<init>";
+
+    /** How the receiver of a call was determined. */
+    static final int SCOPE_UNRESOLVED = 0;
+    static final int SCOPE_THIS = 1;
+    static final int SCOPE_SUPER = 2;
+    static final int SCOPE_TYPE = 3;
+    static final int SCOPE_NEW = 4;
+    static final int SCOPE_THIS_CONSTRUCTOR = 5;
+    static final int SCOPE_SUPER_CONSTRUCTOR = 6;
+
+    /** Why a parameter is rejected at a statement. */
+    static final int EVENT_CALL = 0;
+    static final int EVENT_THROWING_CHECK = 1;
+    static final int EVENT_DEREFERENCE = 2;
+    static final int EVENT_REQUIRE_NON_NULL = 3;
+
+    /** Events are stored flat, {@value #EVENT_SIZE} ints each. */
+    static final int EVENT_SIZE = 6;
+    static final int EVENT_PARAMETER = 0;
+    static final int EVENT_STATEMENT = 1;
+    static final int EVENT_KIND = 2;
+    static final int EVENT_CALL_INDEX = 3;
+    static final int EVENT_ARGUMENT = 4;
+    static final int EVENT_LINE = 5;
+
+    /** Return sources are ints holding a kind in the low two bits and a value above them. */
+    static final int SOURCE_CONSTANT = 0;
+    static final int SOURCE_CALL = 1;
+    static final int SOURCE_PARAMETER = 2;
+
+    /** What a synchronized block or method locks. */
+    static final int LOCK_THIS = 0;
+    static final int LOCK_CLASS = 1;
+    static final int LOCK_FIELD = 2;
+
+    /** In {@link Method#callLocks}: a call outside of any lock, and one not run by the method itself, in a lambda. */
+    static final int NO_LOCK = -1;
+    static final int DEFERRED_CALL = -2;
+
+    /** Parameters beyond this index are not tracked, so a summary fits into a long. */
+    static final int MAX_PARAMETERS = 64;
+
+    private static final int MAX_INITIALIZER_DEPTH = 4;
+    private static final int[] NO_INTS = new int[0];
+    private static final Call[] NO_CALLS = new Call[0];
+    private static final Check[] NO_CHECKS = new Check[0];
+    private static final Lock[] NO_LOCKS = new Lock[0];
+
+    private final String file;
+    private final List<DeclaredType> types;
+    private final List<Method> methods;
+
+    private NullnessFacts(String file, List<DeclaredType> types, List<Method> methods) {
+        this.file = file;
+        this.types = types;
+        this.methods = methods;
+    }
+
+    public static NullnessFacts extract(CompilationUnit compilationUnit, String file) {
+        return extract(compilationUnit, file, false);
+    }
+
+    /**
+     * @param locks whether to record the monitors acquired by every method
+     */
+    public static NullnessFacts extract(CompilationUnit compilationUnit, String file, boolean locks) {
+        Extractor extractor = new Extractor(compilationUnit, locks);
+        String prefix = compilationUnit.getPackageDeclaration().map(p -> p.getNameAsString() + ".").orElse("");
+        for (TypeDeclaration<?> type : compilationUnit.getTypes()) {
+            extractor.visitType(type, prefix + type.getNameAsString(), Collections.emptyMap());
+        }
+        return new NullnessFacts(file, extractor.types, extractor.methods);
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public List<DeclaredType> getTypes() {
+        return types;
+    }
+
+    public List<Method> getMethods() {
+        return methods;
+    }
+
+    static int source(int kind, int value) {
+        return value << 2 | kind;
+    }
+
+    /**
+     * A class, interface, enum, record, local or anonymous class. Supertypes are
+     * qualified names where an import made them known, simple names otherwise.
+     */
+    static final class DeclaredType {
+
+        final String name;
+        final String simpleName;
+        final String[] supertypes;
+        final boolean isFinal;
+
+        DeclaredType(String name, String simpleName, String[] supertypes, boolean isFinal) {
+            this.name = name;
+            this.simpleName = simpleName;
+            this.supertypes = supertypes;
+            this.isFinal = isFinal;
+        }
+    }
+
+    /**
+     * One method or constructor. The key identifies it across runs: the declaring
+     * type, the name and the parameter types as written.
+     */
+    static final class Method {
+
+        final String key;
+        final String type;
+        final String name;
+        final int parameterCount;
+        final boolean varargs;
+        final boolean overridable;
+        final boolean returnsReference;
+        final boolean hasBody;
+        final long bodyHash;
+        /** The index of the first top-level statement that may return, or the statement count. */
+        int firstReturn;
+        Call[] calls = NO_CALLS;
+        int[] events = NO_INTS;
+        int[] returnSources = NO_INTS;
+        Check[] checks = NO_CHECKS;
+        /** The monitors acquired, each after the one held around it; only recorded on request. */
+        Lock[] locks = NO_LOCKS;
+        /** Per call, the index of the innermost lock held, {@link #NO_LOCK} or {@link #DEFERRED_CALL}. */
+        int[] callLocks = NO_INTS;
+        int[] callLines = NO_INTS;
+
+        Method(String key, String type, String name, int parameterCount, boolean varargs, boolean overridable,
+                boolean returnsReference, boolean hasBody, long bodyHash) {
+            this.key = key;
+            this.type = type;
+            this.name = name;
+            this.parameterCount = parameterCount;
+            this.varargs = varargs;
+            this.overridable = overridable;
+            this.returnsReference = returnsReference;
+            this.hasBody = hasBody;
+            this.bodyHash = bodyHash;
+        }
+
+        /**
+         * Whether a call with the given number of arguments may invoke this method.
+         */
+        boolean accepts(int arity) {
+            return arity == parameterCount || (varargs && arity >= parameterCount - 1);
+        }
+    }
+
+    /**
+     * A call site; {@code scopeType} names the static receiver type for
+     * {@link #SCOPE_TYPE} and {@link #SCOPE_NEW} calls.
+     */
+    static final class Call {
+
+        final String name;
+        final int arity;
+        final int scope;
+        final String scopeType;
+
+        Call(String name, int arity, int scope, String scopeType) {
+            this.name = name;
+            this.arity = arity;
+            this.scope = scope;
+            this.scopeType = scopeType;
+        }
+    }
+
+    /**
+     * A comparison with the null literal, either of a parameter (then
+     * {@code statement} is the index of the top-level statement containing it)
+     * or of the result of a call, directly or through a local variable
+     * initialized with it and never reassigned.
+     */
+    static final class Check {
+
+        final int parameter;
+        final int call;
+        final int statement;
+        final String checked;
+        final int beginLine;
+        final int beginColumn;
+        final int endLine;
+        final int endColumn;
+
+        Check(int parameter, int call, int statement, String checked, Node node) {
+            this.parameter = parameter;
+            this.call = call;
+            this.statement = statement;
+            this.checked = checked;
+            this.beginLine = node.getBegin().map(p -> p.line).orElse(0);
+            this.beginColumn = node.getBegin().map(p -> p.column).orElse(0);
+            this.endLine = node.getEnd().map(p -> p.line).orElse(0);
+            this.endColumn = node.getEnd().map(p -> p.column).orElse(0);
+        }
+    }
+
+    /**
+     * A monitor acquired by a synchronized block or method. {@code type} is the
+     * class for {@link #LOCK_THIS} and {@link #LOCK_CLASS}, and the declaring
+     * class of the field for {@link #LOCK_FIELD}: qualified where the declaration
+     * was found in the file or an import named it, otherwise as written.
+     */
+    static final class Lock {
+
+        final int kind;
+        final String type;
+        final String field;
+        /** The index of the lock held around this one in the same method, or {@link #NO_LOCK}. */
+        final int held;
+        final int line;
+        final int column;
+
+        Lock(int kind, String type, String field, int held, Node node) {
+            this.kind = kind;
+            this.type = type;
+            this.field = field;
+            this.held = held;
+            this.line = node.getBegin().map(p -> p.line).orElse(0);
+            this.column = node.getBegin().map(p -> p.column).orElse(0);
+        }
+    }
+
+    private static final class Extractor {
+
+        final boolean recordLocks;
+        final Map<String, Set<String>> declaredFields = new HashMap<>();
+        final Map<String, String> imports = new HashMap<>();
+        final List<DeclaredType> types = new ArrayList<>();
+        final List<Method> methods = new ArrayList<>();
+        int anonymousTypes;
+
+        Extractor(CompilationUnit compilationUnit, boolean recordLocks) {
+            this.recordLocks = recordLocks;
+            for (ImportDeclaration declaration : compilationUnit.getImports()) {
+                if (!declaration.isStatic() && !declaration.isAsterisk()) {
+                    imports.put(declaration.getName().getIdentifier(), declaration.getNameAsString());
+                }
+            }
+        }
+
+        String typeName(Type type) {
+            return type.isClassOrInterfaceType() ? typeName(type.asClassOrInterfaceType().getNameAsString()) : null;
+        }
+
+        String typeName(String simpleName) {
+            return imports.getOrDefault(simpleName, simpleName);
+        }
+
+        void visitType(TypeDeclaration<?> type, String name, Map<String, String> outerFields) {
+            List<String> supertypes = new ArrayList<>();
+            boolean isFinal = type.hasModifier(Modifier.Keyword.FINAL);
+            if (type instanceof ClassOrInterfaceDeclaration) {
+                ClassOrInterfaceDeclaration declaration = (ClassOrInterfaceDeclaration) type;
+                declaration.getExtendedTypes().forEach(t -> supertypes.add(typeName(t)));
+                declaration.getImplementedTypes().forEach(t -> supertypes.add(typeName(t)));
+            } else if (type instanceof EnumDeclaration) {
+                // Implicit supertypes contribute methods such as values() and ordinal().
+                supertypes.add("java.lang.Enum");
+                ((EnumDeclaration) type).getImplementedTypes().forEach(t -> supertypes.add(typeName(t)));
+            } else if (type instanceof RecordDeclaration) {
+                supertypes.add("java.lang.Record");
+                ((RecordDeclaration) type).getImplementedTypes().forEach(t -> supertypes.add(typeName(t)));
+                isFinal = true;
+            }
+            types.add(new DeclaredType(name, type.getNameAsString(), supertypes.toArray(new String[0]), isFinal));
+            declareFields(name, type.getMembers());
+            Map<String, String> fields = withFields(outerFields, type.getMembers());
+            visitMembers(type.getMembers(), name, isFinal, fields);
+            if (type instanceof EnumDeclaration) {
+                for (EnumConstantDeclaration constant : ((EnumDeclaration) type).getEntries()) {
+                    if (!constant.getClassBody().isEmpty()) {
+                        visitAnonymousType(constant.getClassBody(), name, name, fields);
+                    }
+                    constant.getArguments().forEach(argument -> visitLocalTypes(argument, name, fields));
+                }
+            }
+        }
+
+        void visitAnonymousType(NodeList<BodyDeclaration<?>> members, String supertype, String enclosing,
+                Map<String, String> outerFields) {
+            String name = enclosing + "$" + ++anonymousTypes;
+            types.add(new DeclaredType(name, "", new String[]{supertype}, true));
+            declareFields(name, members);
+            visitMembers(members, name, true, withFields(outerFields, members));
+        }
+
+        void declareFields(String typeName, NodeList<BodyDeclaration<?>> members) {
+            Set<String> names = new HashSet<>();
+            for (BodyDeclaration<?> member : members) {
+                if (member instanceof FieldDeclaration) {
+                    ((FieldDeclaration) member).getVariables().forEach(variable -> names.add(variable.getNameAsString()));
+                }
+            }
+            declaredFields.put(typeName, names);
+        }
+
+        /**
+         * The innermost of the type and its enclosing types that declares the
+         * field, or {@code null}.
+         */
+        String fieldOwner(String typeName, String field) {
+            for (String type = typeName; type != null; type = NullnessAnalyzer.TypeIndex.enclosingType(type)) {
+                Set<String> names = declaredFields.get(type);
+                if (names != null && names.contains(field)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        Map<String, String> withFields(Map<String, String> outerFields, NodeList<BodyDeclaration<?>> members) {
+            Map<String, String> fields = new HashMap<>(outerFields);
+            for (BodyDeclaration<?> member : members) {
+                if (member instanceof FieldDeclaration) {
+                    for (VariableDeclarator variable : ((FieldDeclaration) member).getVariables()) {
+                        String type = typeName(variable.getType());
+                        if (type != null) {
+                            fields.put(variable.getNameAsString(), type);
+                        } else {
+                            fields.remove(variable.getNameAsString());
+                        }
+                    }
+                }
+            }
+            return fields;
+        }
+
+        void visitMembers(NodeList<BodyDeclaration<?>> members, String typeName, boolean typeIsFinal,
+                Map<String, String> fields) {
+            for (BodyDeclaration<?> member : members) {
+                if (member instanceof CallableDeclaration) {
+                    visitCallable((CallableDeclaration<?>) member, typeName, typeIsFinal, fields);
+                } else if (member instanceof TypeDeclaration) {
+                    TypeDeclaration<?> nested = (TypeDeclaration<?>) member;
+                    visitType(nested, typeName + "." + nested.getNameAsString(), fields);
+                } else {
+                    // Field initializers and initializer blocks may declare anonymous classes.
+                    visitLocalTypes(member, typeName, fields);
+                }
+            }
+        }
+
+        /**
+         * Visits the anonymous and local classes declared anywhere below the node.
+         */
+        void visitLocalTypes(Node root, String enclosing, Map<String, String> fields) {
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (node instanceof LocalClassDeclarationStmt) {
+                    ClassOrInterfaceDeclaration local = ((LocalClassDeclarationStmt) node).getClassDeclaration();
+                    visitType(local, enclosing + "$" + local.getNameAsString(), fields);
+                    continue;
+                }
+                if (node instanceof ObjectCreationExpr) {
+                    ObjectCreationExpr creation = (ObjectCreationExpr) node;
+                    creation.getAnonymousClassBody().ifPresent(body -> visitAnonymousType(body,
+                            typeName(creation.getType()), enclosing, fields));
+                }
+                for (Node child : node.getChildNodes()) {
+                    if (!(child instanceof BodyDeclaration)) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+
+        void visitCallable(CallableDeclaration<?> callable, String typeName, boolean typeIsFinal, Map<String, String> fields) {
+            boolean constructor = callable instanceof ConstructorDeclaration;
+            String name = constructor ? CONSTRUCTOR : callable.getNameAsString();
+            NodeList<Parameter> parameters = callable.getParameters();
+            StringBuilder key = new StringBuilder(typeName).append('#').append(name).append('(');
+            for (int i = 0; i < parameters.size(); i++) {
+                key.append(i == 0 ? "" : ",").append(parameters.get(i).getType().asString())
+                        .append(parameters.get(i).isVarArgs() ? "..." : "");
+            }
+            key.append(')');
+            BlockStmt body;
+            boolean returnsReference;
+            if (constructor) {
+                body = ((ConstructorDeclaration) callable).getBody();
+                returnsReference = false;
+            } else {
+                MethodDeclaration method = (MethodDeclaration) callable;
+                body = method.getBody().orElse(null);
+                returnsReference = !method.getType().isVoidType() && !method.getType().isPrimitiveType();
+            }
+            boolean overridable = !constructor && !typeIsFinal && !callable.isStatic() && !callable.isPrivate()
+                    && !callable.isFinal();
+            boolean varargs = !parameters.isEmpty() && parameters.get(parameters.size() - 1).isVarArgs();
+            Method method = new Method(key.toString(), typeName, name, parameters.size(), varargs, overridable,
+                    returnsReference, body != null, hash(callable));
+            methods.add(method);
+            if (body != null) {
+                BodyScanner scanner = new BodyScanner(this, method, parameters, fields);
+                scanner.scan(body);
+                if (recordLocks) {
+                    scanner.scanLocks(body, callable);
+                }
+                visitLocalTypes(body, typeName, fields);
+            }
+        }
+    }
+
+    /**
+     * Extracts the facts of one method body.
+     */
+    private static final class BodyScanner {
+
+        final Extractor extractor;
+        final Method method;
+        final Map<String, String> fields;
+        final Map<String, Integer> parameters = new HashMap<>();
+        final Map<String, String> parameterTypes = new HashMap<>();
+        final Map<String, Integer> declarations = new HashMap<>();
+        final Map<String, Expression> initializers = new HashMap<>();
+        final Map<String, String> localTypes = new HashMap<>();
+        final Set<String> assigned = new HashSet<>();
+        final List<Call> calls = new ArrayList<>();
+        final Map<Node, Integer> callIndexes = new IdentityHashMap<>();
+        final IntList events = new IntList();
+        final IntList returnSources = new IntList();
+        final List<Check> checks = new ArrayList<>();
+
+        BodyScanner(Extractor extractor, Method method, NodeList<Parameter> parameters, Map<String, String> fields) {
+            this.extractor = extractor;
+            this.method = method;
+            this.fields = fields;
+            for (int i = 0; i < parameters.size() && i < MAX_PARAMETERS; i++) {
+                Parameter parameter = parameters.get(i);
+                this.parameters.put(parameter.getNameAsString(), i);
+                if (!parameter.isVarArgs()) {
+                    String type = extractor.typeName(parameter.getType());
+                    if (type != null) {
+                        parameterTypes.put(parameter.getNameAsString(), type);
+                    }
+                }
+            }
+        }
+
+        void scan(BlockStmt body) {
+            walk(body, true, node -> {
+                if (node instanceof VariableDeclarator) {
+                    VariableDeclarator variable = (VariableDeclarator) node;
+                    String name = variable.getNameAsString();
+                    declarations.merge(name, 1, Integer::sum);
+                    variable.getInitializer().ifPresent(initializer -> initializers.put(name, initializer));
+                    String type = variable.getType().isVarType()
+                            ? variable.getInitializer().filter(Expression::isObjectCreationExpr)
+                                    .map(e -> extractor.typeName(e.asObjectCreationExpr().getType())).orElse(null)
+                            : extractor.typeName(variable.getType());
+                    if (type != null) {
+                        localTypes.put(name, type);
+                    }
+                } else if (node instanceof Parameter) {
+                    // Lambda and catch parameters.
+                    declarations.merge(((Parameter) node).getNameAsString(), 1, Integer::sum);
+                } else if (node instanceof AssignExpr && ((AssignExpr) node).getTarget().isNameExpr()) {
+                    assigned.add(((AssignExpr) node).getTarget().asNameExpr().getNameAsString());
+                } else if (node instanceof UnaryExpr && ((UnaryExpr) node).getExpression().isNameExpr()
+                        && isIncrementOrDecrement(((UnaryExpr) node).getOperator())) {
+                    assigned.add(((UnaryExpr) node).getExpression().asNameExpr().getNameAsString());
+                }
+            });
+
+            NodeList<Statement> statements = body.getStatements();
+            Map<Node, Integer> topLevel = new IdentityHashMap<>();
+            method.firstReturn = statements.size();
+            for (int k = 0; k < statements.size(); k++) {
+                topLevel.put(statements.get(k), k);
+                if (method.firstReturn == statements.size() && containsReturn(statements.get(k))) {
+                    method.firstReturn = k;
+                }
+            }
+            for (int k = 0; k < statements.size(); k++) {
+                scanStatement(statements.get(k), k);
+            }
+            if (method.returnsReference) {
+                walk(body, false, node -> {
+                    if (node instanceof ReturnStmt) {
+                        ((ReturnStmt) node).getExpression().ifPresent(e -> addReturnSources(e, 0));
+                    }
+                });
+            }
+            walk(body, true, node -> {
+                if (node instanceof BinaryExpr && isNullComparison((BinaryExpr) node)) {
+                    addCheck((BinaryExpr) node, statementIndex(node, body, topLevel));
+                }
+            });
+
+            method.calls = calls.toArray(NO_CALLS);
+            method.events = events.toArray();
+            method.returnSources = returnSources.toArray();
+            method.checks = checks.toArray(NO_CHECKS);
+        }
+
+        private void scanStatement(Statement statement, int k) {
+            if (statement instanceof ExpressionStmt) {
+                unconditional(((ExpressionStmt) statement).getExpression(), k);
+            } else if (statement instanceof ExplicitConstructorInvocationStmt) {
+                ExplicitConstructorInvocationStmt invocation = (ExplicitConstructorInvocationStmt) statement;
+                invocation.getArguments().forEach(argument -> unconditional(argument, k));
+                addArgumentEvents(invocation.getArguments(), call(invocation), k, line(invocation));
+            } else if (statement instanceof IfStmt) {
+                IfStmt ifStmt = (IfStmt) statement;
+                unconditional(ifStmt.getCondition(), k);
+                if (alwaysThrows(ifStmt.getThenStmt())) {
+                    // In "if (a == null || b) throw ..." a null a always throws.
+                    Expression condition = unwrap(ifStmt.getCondition());
+                    List<Expression> disjuncts = new ArrayList<>();
+                    while (condition.isBinaryExpr() && condition.asBinaryExpr().getOperator() == BinaryExpr.Operator.OR) {
+                        disjuncts.add(unwrap(condition.asBinaryExpr().getRight()));
+                        condition = unwrap(condition.asBinaryExpr().getLeft());
+                    }
+                    disjuncts.add(condition);
+                    for (Expression disjunct : disjuncts) {
+                        if (disjunct.isBinaryExpr() && disjunct.asBinaryExpr().getOperator() == BinaryExpr.Operator.EQUALS
+                                && isNullComparison(disjunct.asBinaryExpr())) {
+                            int parameter = parameterIndex(checkedOperand(disjunct.asBinaryExpr()));
+                            if (parameter >= 0) {
+                                addEvent(parameter, k, EVENT_THROWING_CHECK, -1, -1, line(disjunct));
+                            }
+                        }
+                    }
+                }
+            } else if (statement instanceof ReturnStmt) {
+                ((ReturnStmt) statement).getExpression().ifPresent(e -> unconditional(e, k));
+            } else if (statement instanceof ThrowStmt) {
+                unconditional(((ThrowStmt) statement).getExpression(), k);
+            } else if (statement instanceof ForEachStmt) {
+                dereference(((ForEachStmt) statement).getIterable(), k);
+            } else if (statement instanceof SynchronizedStmt) {
+                dereference(((SynchronizedStmt) statement).getExpression(), k);
+            }
+        }
+
+        /**
+         * Records the rejections by an expression that is evaluated whenever its
+         * statement is: everything but the right operand of a conditional
+         * operator, the branches of a conditional expression and lambda bodies.
+         */
+        private void unconditional(Expression expression, int k) {
+            if (expression instanceof MethodCallExpr) {
+                MethodCallExpr call = (MethodCallExpr) expression;
+                call.getScope().ifPresent(scope -> dereference(scope, k));
+                call.getArguments().forEach(argument -> unconditional(argument, k));
+                if (isRequireNonNull(call)) {
+                    int parameter = parameterIndex(call.getArgument(0));
+                    if (parameter >= 0) {
+                        addEvent(parameter, k, EVENT_REQUIRE_NON_NULL, -1, -1, line(call));
+                    }
+                } else {
+                    addArgumentEvents(call.getArguments(), call(call), k, line(call));
+                }
+            } else if (expression instanceof ObjectCreationExpr) {
+                ObjectCreationExpr creation = (ObjectCreationExpr) expression;
+                creation.getArguments().forEach(argument -> unconditional(argument, k));
+                addArgumentEvents(creation.getArguments(), call(creation), k, line(creation));
+            } else if (expression instanceof FieldAccessExpr) {
+                dereference(((FieldAccessExpr) expression).getScope(), k);
+            } else if (expression instanceof ArrayAccessExpr) {
+                dereference(((ArrayAccessExpr) expression).getName(), k);
+                unconditional(((ArrayAccessExpr) expression).getIndex(), k);
+            } else if (expression instanceof AssignExpr) {
+                AssignExpr assignment = (AssignExpr) expression;
+                if (!assignment.getTarget().isNameExpr()) {
+                    unconditional(assignment.getTarget(), k);
+                }
+                unconditional(assignment.getValue(), k);
+            } else if (expression instanceof VariableDeclarationExpr) {
+                for (VariableDeclarator variable : ((VariableDeclarationExpr) expression).getVariables()) {
+                    variable.getInitializer().ifPresent(initializer -> unconditional(initializer, k));
+                }
+            } else if (expression instanceof EnclosedExpr) {
+                unconditional(((EnclosedExpr) expression).getInner(), k);
+            } else if (expression instanceof CastExpr) {
+                unconditional(((CastExpr) expression).getExpression(), k);
+            } else if (expression instanceof UnaryExpr) {
+                unconditional(((UnaryExpr) expression).getExpression(), k);
+            } else if (expression instanceof BinaryExpr) {
+                BinaryExpr binary = (BinaryExpr) expression;
+                unconditional(binary.getLeft(), k);
+                if (binary.getOperator() != BinaryExpr.Operator.AND && binary.getOperator() != BinaryExpr.Operator.OR) {
+                    unconditional(binary.getRight(), k);
+                }
+            } else if (expression instanceof ConditionalExpr) {
+                unconditional(((ConditionalExpr) expression).getCondition(), k);
+            } else if (expression instanceof InstanceOfExpr) {
+                unconditional(((InstanceOfExpr) expression).getExpression(), k);
+            }
+        }
+
+        /**
+         * An expression whose value is dereferenced: a parameter is rejected
+         * there, anything else is evaluated first.
+         */
+        private void dereference(Expression expression, int k) {
+            int parameter = parameterIndex(expression);
+            if (parameter >= 0) {
+                addEvent(parameter, k, EVENT_DEREFERENCE, -1, -1, line(expression));
+            } else {
+                unconditional(expression, k);
+            }
+        }
+
+        private void addArgumentEvents(NodeList<Expression> arguments, int call, int k, int line) {
+            for (int i = 0; i < arguments.size(); i++) {
+                int parameter = parameterIndex(arguments.get(i));
+                if (parameter >= 0) {
+                    addEvent(parameter, k, EVENT_CALL, call, i, line);
+                }
+            }
+        }
+
+        private void addEvent(int parameter, int statement, int kind, int call, int argument, int line) {
+            events.add(parameter);
+            events.add(statement);
+            events.add(kind);
+            events.add(call);
+            events.add(argument);
+            events.add(line);
+        }
+
+        private void addReturnSources(Expression expression, int depth) {
+            Expression value = unwrap(expression);
+            if (value.isNullLiteralExpr()) {
+                returnSources.add(source(SOURCE_CONSTANT, NullnessAnalyzer.NULLABLE));
+            } else if (value.isLiteralExpr() || value.isObjectCreationExpr() || value.isArrayCreationExpr()
+                    || value.isArrayInitializerExpr() || value.isThisExpr() || value.isClassExpr() || value.isLambdaExpr()
+                    || value.isMethodReferenceExpr() || value.isBinaryExpr() || value.isUnaryExpr()
+                    || value.isInstanceOfExpr()) {
+                returnSources.add(source(SOURCE_CONSTANT, NullnessAnalyzer.NON_NULL));
+            } else if (value.isConditionalExpr()) {
+                addReturnSources(value.asConditionalExpr().getThenExpr(), depth);
+                addReturnSources(value.asConditionalExpr().getElseExpr(), depth);
+            } else if (value.isMethodCallExpr()) {
+                returnSources.add(isRequireNonNull(value.asMethodCallExpr())
+                        ? source(SOURCE_CONSTANT, NullnessAnalyzer.NON_NULL)
+                        : source(SOURCE_CALL, call(value)));
+            } else if (value.isAssignExpr()) {
+                if (value.asAssignExpr().getOperator() == AssignExpr.Operator.ASSIGN) {
+                    addReturnSources(value.asAssignExpr().getValue(), depth);
+                } else {
+                    returnSources.add(source(SOURCE_CONSTANT, NullnessAnalyzer.NON_NULL));
+                }
+            } else if (parameterIndex(value) >= 0) {
+                returnSources.add(source(SOURCE_PARAMETER, parameterIndex(value)));
+            } else if (depth < MAX_INITIALIZER_DEPTH && singleAssignment(value) != null) {
+                addReturnSources(singleAssignment(value), depth + 1);
+            } else {
+                returnSources.add(source(SOURCE_CONSTANT, NullnessAnalyzer.UNKNOWN));
+            }
+        }
+
+        private void addCheck(BinaryExpr comparison, int statement) {
+            Expression checked = checkedOperand(comparison);
+            int parameter = parameterIndex(checked);
+            if (parameter >= 0) {
+                checks.add(new Check(parameter, -1, statement, checked.asNameExpr().getNameAsString(), comparison));
+                return;
+            }
+            if (checked.isMethodCallExpr() && !isRequireNonNull(checked.asMethodCallExpr())) {
+                checks.add(new Check(-1, call(checked), statement, checked.asMethodCallExpr().getNameAsString() + "()",
+                        comparison));
+                return;
+            }
+            Expression initializer = singleAssignment(checked);
+            if (initializer != null) {
+                initializer = unwrap(initializer);
+                if (initializer.isMethodCallExpr() && !isRequireNonNull(initializer.asMethodCallExpr())) {
+                    checks.add(new Check(-1, call(initializer), statement, checked.asNameExpr().getNameAsString(),
+                            comparison));
+                }
+            }
+        }
+
+        /**
+         * Records the monitors the body acquires and the lock held at every call,
+         * including calls not recorded by {@link #scan}. A synchronized method
+         * holds its monitor around the whole body. Locks that cannot be named
+         * across files, such as locals and results of calls, are left out; blocks
+         * inside them count as held by the lock outside.
+         */
+        void scanLocks(BlockStmt body, CallableDeclaration<?> callable) {
+            List<Lock> locks = new ArrayList<>();
+            IntList held = new IntList();
+            IntList lines = new IntList();
+            int outermost = NO_LOCK;
+            if (callable.hasModifier(Modifier.Keyword.SYNCHRONIZED)) {
+                locks.add(new Lock(callable.isStatic() ? LOCK_CLASS : LOCK_THIS, method.type, null, NO_LOCK, callable.getName()));
+                outermost = 0;
+            }
+            Deque<Node> stack = new ArrayDeque<>();
+            IntList stackLocks = new IntList();
+            stack.push(body);
+            stackLocks.add(outermost);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                int lock = stackLocks.removeLast();
+                if (node instanceof LocalClassDeclarationStmt) {
+                    continue;
+                }
+                if (node instanceof LambdaExpr) {
+                    lock = DEFERRED_CALL;
+                }
+                if (node instanceof MethodCallExpr || node instanceof ObjectCreationExpr
+                        || node instanceof ExplicitConstructorInvocationStmt) {
+                    int index = call(node);
+                    while (held.size() <= index) {
+                        held.add(DEFERRED_CALL);
+                        lines.add(0);
+                    }
+                    held.set(index, lock);
+                    lines.set(index, line(node));
+                }
+                int inner = lock;
+                if (node instanceof SynchronizedStmt && lock != DEFERRED_CALL) {
+                    Lock acquired = lock(((SynchronizedStmt) node).getExpression(), lock, node);
+                    if (acquired != null) {
+                        locks.add(acquired);
+                        inner = locks.size() - 1;
+                    }
+                }
+                List<Node> children = node.getChildNodes();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    if (!(children.get(i) instanceof BodyDeclaration)) {
+                        stack.push(children.get(i));
+                        // The lock expression itself is evaluated before the lock is taken.
+                        stackLocks.add(node instanceof SynchronizedStmt
+                                && children.get(i) == ((SynchronizedStmt) node).getExpression() ? lock : inner);
+                    }
+                }
+            }
+            while (held.size() < calls.size()) {
+                held.add(DEFERRED_CALL);
+                lines.add(0);
+            }
+            method.calls = calls.toArray(NO_CALLS);
+            method.locks = locks.toArray(NO_LOCKS);
+            method.callLocks = held.toArray();
+            method.callLines = lines.toArray();
+        }
+
+        /**
+         * The monitor a synchronized block locks, or {@code null} if it has no
+         * name outside of the method.
+         */
+        private Lock lock(Expression expression, int held, Node site) {
+            Expression value = unwrap(expression);
+            if (value.isThisExpr()) {
+                String type = value.asThisExpr().getTypeName()
+                        .map(name -> enclosingNamed(name.getIdentifier())).orElse(method.type);
+                return new Lock(LOCK_THIS, type, null, held, site);
+            }
+            if (value.isClassExpr()) {
+                String type = extractor.typeName(value.asClassExpr().getType());
+                return type == null ? null : new Lock(LOCK_CLASS, type, null, held, site);
+            }
+            String owner = null;
+            String field = null;
+            if (value.isNameExpr()) {
+                field = value.asNameExpr().getNameAsString();
+                if (!declarations.containsKey(field) && !parameters.containsKey(field)) {
+                    owner = extractor.fieldOwner(method.type, field);
+                }
+            } else if (value.isFieldAccessExpr()) {
+                FieldAccessExpr access = value.asFieldAccessExpr();
+                field = access.getNameAsString();
+                if (access.getScope().isThisExpr()) {
+                    owner = extractor.fieldOwner(access.getScope().asThisExpr().getTypeName()
+                            .map(name -> enclosingNamed(name.getIdentifier())).orElse(method.type), field);
+                } else if (isQualifiedName(access) && Character.isUpperCase(lastSegment(access.getScope()).charAt(0))) {
+                    String scope = access.getScope().toString();
+                    owner = scope.indexOf('.') >= 0 || extractor.imports.containsKey(scope)
+                            ? extractor.typeName(scope) : enclosingNamed(scope);
+                }
+            }
+            return owner == null ? null : new Lock(LOCK_FIELD, owner, field, held, site);
+        }
+
+        /**
+         * The enclosing type of the method with the given simple name, or the
+         * name itself if there is none.
+         */
+        private String enclosingNamed(String simpleName) {
+            for (String type = method.type; type != null; type = NullnessAnalyzer.TypeIndex.enclosingType(type)) {
+                int separator = Math.max(type.lastIndexOf('.'), type.lastIndexOf('$'));
+                if (type.substring(separator + 1).equals(simpleName) && extractor.declaredFields.containsKey(type)) {
+                    return type;
+                }
+            }
+            return simpleName;
+        }
+
+        private String lastSegment(Expression scope) {
+            return scope.isNameExpr() ? scope.asNameExpr().getNameAsString() : scope.asFieldAccessExpr().getNameAsString();
+        }
+
+        /**
+         * The index of the call site, created on first use.
+         */
+        private int call(Node node) {
+            Integer index = callIndexes.get(node);
+            if (index != null) {
+                return index;
+            }
+            Call call;
+            if (node instanceof MethodCallExpr) {
+                MethodCallExpr methodCall = (MethodCallExpr) node;
+                int arity = methodCall.getArguments().size();
+                Expression scope = methodCall.getScope().map(NullnessFacts::unwrap).orElse(null);
+                if (scope == null || (scope.isThisExpr() && !scope.asThisExpr().getTypeName().isPresent())) {
+                    call = new Call(methodCall.getNameAsString(), arity, SCOPE_THIS, null);
+                } else if (scope.isSuperExpr()) {
+                    call = new Call(methodCall.getNameAsString(), arity, SCOPE_SUPER, null);
+                } else {
+                    String type = staticType(scope);
+                    call = new Call(methodCall.getNameAsString(), arity, type == null ? SCOPE_UNRESOLVED : SCOPE_TYPE, type);
+                }
+            } else if (node instanceof ObjectCreationExpr) {
+                ObjectCreationExpr creation = (ObjectCreationExpr) node;
+                call = new Call(CONSTRUCTOR, creation.getArguments().size(), SCOPE_NEW, extractor.typeName(creation.getType()));
+            } else {
+                ExplicitConstructorInvocationStmt invocation = (ExplicitConstructorInvocationStmt) node;
+                call = new Call(CONSTRUCTOR, invocation.getArguments().size(),
+                        invocation.isThis() ? SCOPE_THIS_CONSTRUCTOR : SCOPE_SUPER_CONSTRUCTOR, null);
+            }
+            calls.add(call);
+            callIndexes.put(node, calls.size() - 1);
+            return calls.size() - 1;
+        }
+
+        /**
+         * The declared type of a call's receiver as far as it is visible in the
+         * file, or {@code null}.
+         */
+        private String staticType(Expression scope) {
+            if (scope.isNameExpr()) {
+                String name = scope.asNameExpr().getNameAsString();
+                Integer declared = declarations.get(name);
+                if (declared != null) {
+                    return declared == 1 ? localTypes.get(name) : null;
+                }
+                if (parameters.containsKey(name)) {
+                    return parameterTypes.get(name);
+                }
+                if (fields.containsKey(name)) {
+                    return fields.get(name);
+                }
+                // A static call on a type name.
+                return Character.isUpperCase(name.charAt(0)) ? extractor.typeName(name) : null;
+            }
+            if (scope.isFieldAccessExpr()) {
+                FieldAccessExpr access = scope.asFieldAccessExpr();
+                if (access.getScope().isThisExpr()) {
+                    return fields.get(access.getNameAsString());
+                }
+                return Character.isUpperCase(access.getNameAsString().charAt(0)) && isQualifiedName(access)
+                        ? access.toString() : null;
+            }
+            if (scope.isObjectCreationExpr() && !scope.asObjectCreationExpr().getAnonymousClassBody().isPresent()) {
+                return extractor.typeName(scope.asObjectCreationExpr().getType());
+            }
+            if (scope.isCastExpr()) {
+                return extractor.typeName(scope.asCastExpr().getType());
+            }
+            if (scope.isThisExpr()) {
+                // A qualified this, Outer.this.
+                return scope.asThisExpr().getTypeName().map(name -> extractor.typeName(name.getIdentifier())).orElse(method.type);
+            }
+            return null;
+        }
+
+        /**
+         * The index of the parameter the expression names, or -1 if it is not a
+         * tracked parameter.
+         */
+        private int parameterIndex(Expression expression) {
+            Expression value = unwrap(expression);
+            if (!value.isNameExpr()) {
+                return -1;
+            }
+            String name = value.asNameExpr().getNameAsString();
+            Integer index = parameters.get(name);
+            return index != null && !assigned.contains(name) && !declarations.containsKey(name) ? index : -1;
+        }
+
+        /**
+         * The initializer of a local variable declared once and never reassigned, or {@code null}.
+         */
+        private Expression singleAssignment(Expression expression) {
+            Expression value = unwrap(expression);
+            if (!value.isNameExpr()) {
+                return null;
+            }
+            String name = value.asNameExpr().getNameAsString();
+            Integer declared = declarations.get(name);
+            return declared != null && declared == 1 && !assigned.contains(name) ? initializers.get(name) : null;
+        }
+    }
+
+    static long hash(Node node) {
+        long hash = 0xcbf29ce484222325L;
+        Optional<TokenRange> tokens = node.getTokenRange();
+        if (!tokens.isPresent()) {
+            return hash(hash, node.toString());
+        }
+        // Comments and formatting do not change a method's summary.
+        for (JavaToken token : tokens.get()) {
+            if (!token.getCategory().isWhitespaceOrComment()) {
+                hash = hash(hash, token.getText()) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    static long hash(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static boolean isNullComparison(BinaryExpr comparison) {
+        return (comparison.getOperator() == BinaryExpr.Operator.EQUALS || comparison.getOperator() == BinaryExpr.Operator.NOT_EQUALS)
+                && (comparison.getLeft().isNullLiteralExpr() || comparison.getRight().isNullLiteralExpr());
+    }
+
+    private static Expression checkedOperand(BinaryExpr comparison) {
+        return unwrap(comparison.getRight().isNullLiteralExpr() ? comparison.getLeft() : comparison.getRight());
+    }
+
+    private static boolean isRequireNonNull(MethodCallExpr call) {
+        if (!call.getNameAsString().equals("requireNonNull") || call.getArguments().isEmpty()) {
+            return false;
+        }
+        return !call.getScope().isPresent() || call.getScope().get().toString().equals("Objects")
+                || call.getScope().get().toString().equals("java.util.Objects");
+    }
+
+    private static boolean isIncrementOrDecrement(UnaryExpr.Operator operator) {
+        return operator == UnaryExpr.Operator.PREFIX_INCREMENT || operator == UnaryExpr.Operator.PREFIX_DECREMENT
+                || operator == UnaryExpr.Operator.POSTFIX_INCREMENT || operator == UnaryExpr.Operator.POSTFIX_DECREMENT;
+    }
+
+    private static boolean isQualifiedName(FieldAccessExpr access) {
+        Expression scope = access.getScope();
+        return scope.isNameExpr() || (scope.isFieldAccessExpr() && isQualifiedName(scope.asFieldAccessExpr()));
+    }
+
+    private static Expression unwrap(Expression expression) {
+        Expression value = expression;
+        while (value.isEnclosedExpr() || value.isCastExpr()) {
+            value = value.isEnclosedExpr() ? value.asEnclosedExpr().getInner() : value.asCastExpr().getExpression();
+        }
+        return value;
+    }
+
+    /**
+     * Whether the statement always completes by throwing: a throw, or a block
+     * ending in one that cannot leave early.
+     */
+    private static boolean alwaysThrows(Statement statement) {
+        if (statement.isThrowStmt()) {
+            return true;
+        }
+        if (!statement.isBlockStmt() || statement.asBlockStmt().isEmpty()) {
+            return false;
+        }
+        NodeList<Statement> statements = statement.asBlockStmt().getStatements();
+        if (!statements.get(statements.size() - 1).isThrowStmt()) {
+            return false;
+        }
+        boolean[] leaves = new boolean[1];
+        walk(statement, false, node -> leaves[0] |= node instanceof ReturnStmt || node instanceof BreakStmt
+                || node instanceof ContinueStmt || node instanceof YieldStmt);
+        return !leaves[0];
+    }
+
+    private static boolean containsReturn(Statement statement) {
+        boolean[] returns = new boolean[1];
+        walk(statement, false, node -> returns[0] |= node instanceof ReturnStmt);
+        return returns[0];
+    }
+
+    private static int statementIndex(Node node, BlockStmt body, Map<Node, Integer> topLevel) {
+        Node current = node;
+        while (current.getParentNode().isPresent() && current.getParentNode().get() != body) {
+            current = current.getParentNode().get();
+        }
+        Integer index = topLevel.get(current);
+        return index == null ? -1 : index;
+    }
+
+    private static int line(Node node) {
+        return node.getBegin().map(p -> p.line).orElse(0);
+    }
+
+    /**
+     * Visits the node and its descendants in order, leaving out the bodies of
+     * anonymous and local classes, whose members are methods of their own, and
+     * lambda bodies unless asked to enter them.
+     */
+    private static void walk(Node root, boolean intoLambdas, Consumer<Node> action) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node instanceof LocalClassDeclarationStmt || (!intoLambdas && node instanceof LambdaExpr)) {
+                continue;
+            }
+            action.accept(node);
+            List<Node> children = node.getChildNodes();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                if (!(children.get(i) instanceof BodyDeclaration)) {
+                    stack.push(children.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * A growable int array.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        int[] toArray() {
+            return size == 0 ? NO_INTS : Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The nullness summaries of the previous run, stored in one binary file. Every
+ * entry is keyed by method and holds the hash of everything the summary was
+ * computed from, the method's tokens and the methods its calls resolved to, so
+ * the {@link NullnessAnalyzer} reuses a summary only while neither changed. An
+ * unreadable file is treated as empty; the file is replaced atomically by
+ * {@link #save()}.
+ */
+public class NullnessSummaryCache {
+
+    private static final int MAGIC = 0x4A434E53; // "JCNS"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    private final Map<String, Entry> previous = new HashMap<>();
+    private final Map<String, Entry> current = new HashMap<>();
+
+    public NullnessSummaryCache(Path file) throws IOException {
+        this.file = file;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            read(in);
+        } catch (NoSuchFileException e) {
+            // The first run.
+        } catch (IOException | RuntimeException e) {
+            // A corrupt or outdated file only costs a full computation.
+            previous.clear();
+        }
+    }
+
+    /**
+     * The summary of the previous run, or {@code null}.
+     */
+    Entry get(String key) {
+        return previous.get(key);
+    }
+
+    /**
+     * Records a summary of this run. Only the summaries put in this run are saved.
+     */
+    void put(String key, long inputHash, byte returns, long rejects) {
+        current.put(key, new Entry(inputHash, returns, rejects));
+    }
+
+    public int getPreviousSize() {
+        return previous.size();
+    }
+
+    public void save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(current.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(current.size());
+            for (Map.Entry<String, Entry> entry : current.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().inputHash);
+                out.writeByte(entry.getValue().returns);
+                out.writeLong(entry.getValue().rejects);
+            }
+        }
+        SourceFiles.writeAtomically(file, bytes.toByteArray());
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a summary file of this version");
+        }
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            long inputHash = in.readLong();
+            byte returns = in.readByte();
+            long rejects = in.readLong();
+            previous.put(key, new Entry(inputHash, returns, rejects));
+        }
+    }
+
+    static final class Entry {
+
+        final long inputHash;
+        final byte returns;
+        final long rejects;
+
+        Entry(long inputHash, byte returns, long rejects) {
+            this.inputHash = inputHash;
+            this.returns = returns;
+            this.rejects = rejects;
+        }
+    }
+}
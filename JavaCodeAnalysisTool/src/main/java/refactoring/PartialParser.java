@@ -0,0 +1,405 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.Position;
+import com.github.javaparser.Providers;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.CompactConstructorDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parses files that are too large, too slow or too broken to parse as a whole,
+ * one body at a time. The file is first parsed as a skeleton in which the
+ * contents of every method, constructor and initializer body are blanked out,
+ * keeping the line breaks, so every declaration keeps its position. Each body
+ * is then parsed on its own, moved to its place in the file, and attached to its
+ * declaration only while it is visited. A body that does not parse costs only
+ * itself, and no more than one body's AST is alive at a time.
+ * <p>
+ * Like the parser it uses, an instance is confined to one thread.
+ */
+public final class PartialParser {
+
+    private static final int TYPE = 0;
+    private static final int ENUM_CONSTANTS = 1;
+    private static final int BODY = 2;
+    private static final int EXPRESSION = 3;
+
+    private static final String CONSTRUCTOR_PREFIX = "C()";
+
+    private final JavaParser parser;
+
+    public PartialParser(JavaParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parses the declarations of the file without the contents of their bodies.
+     *
+     * @return the skeleton, or {@code null} if even the declarations do not parse
+     */
+    public CompilationUnit parseSkeleton(String source, FileBudget.Deadline deadline) {
+        ParseResult<CompilationUnit> parseResult = parser.parse(ParseStart.COMPILATION_UNIT,
+                Providers.provider(deadline.limit(new StringReader(blankBodies(source)))));
+        return parseResult.isSuccessful() && parseResult.getResult().isPresent() ? parseResult.getResult().get() : null;
+    }
+
+    /**
+     * Parses the body of every outermost method, constructor and initializer of
+     * the skeleton and passes the declaration to the visitor with its body
+     * attached, in source order. Declarations without a body, and those whose
+     * body does not parse, are passed with their skeleton body. Stops when the
+     * deadline passes, also while the visitor runs.
+     *
+     * @param source the text the skeleton was made from
+     */
+    public Result forEachBody(String source, CompilationUnit skeleton, FileBudget.Deadline deadline,
+            Consumer<Node> visitor) {
+        List<Node> owners = skeleton.findAll(Node.class, node -> isBodyOwner(node) && !hasBodyOwnerAncestor(node));
+        int[] lineStarts = SourceRanges.lineStarts(source);
+        int bodies = 0;
+        int failedBodies = 0;
+        try {
+            for (Node owner : owners) {
+                deadline.check();
+                BlockStmt blank = bodyOf(owner);
+                if (blank == null || !blank.getRange().isPresent()) {
+                    visitor.accept(owner);
+                    continue;
+                }
+                bodies++;
+                BlockStmt body = parseBody(source, lineStarts, blank.getRange().get(), owner instanceof ConstructorDeclaration,
+                        deadline);
+                if (body == null) {
+                    failedBodies++;
+                    deadline.check();
+                    visitor.accept(owner);
+                    continue;
+                }
+                blank.replace(body);
+                try {
+                    visitor.accept(owner);
+                } finally {
+                    body.replace(blank);
+                }
+            }
+        } catch (FileBudget.ExceededException e) {
+            return new Result(owners.size(), bodies, failedBodies, true);
+        }
+        return new Result(owners.size(), bodies, failedBodies, false);
+    }
+
+    /**
+     * Whether the node is one of the declarations whose bodies the skeleton leaves out.
+     */
+    public static boolean isBodyOwner(Node node) {
+        return node instanceof CallableDeclaration || node instanceof InitializerDeclaration
+                || node instanceof CompactConstructorDeclaration;
+    }
+
+    private static boolean hasBodyOwnerAncestor(Node node) {
+        for (Node parent = node.getParentNode().orElse(null); parent != null; parent = parent.getParentNode().orElse(null)) {
+            if (isBodyOwner(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BlockStmt bodyOf(Node owner) {
+        if (owner instanceof MethodDeclaration) {
+            return ((MethodDeclaration) owner).getBody().orElse(null);
+        } else if (owner instanceof ConstructorDeclaration) {
+            return ((ConstructorDeclaration) owner).getBody();
+        } else if (owner instanceof InitializerDeclaration) {
+            return ((InitializerDeclaration) owner).getBody();
+        } else if (owner instanceof CompactConstructorDeclaration) {
+            return ((CompactConstructorDeclaration) owner).getBody();
+        }
+        return null;
+    }
+
+    /**
+     * Parses one body and moves it to its place in the file. A constructor body
+     * may start with {@code this(...)} or {@code super(...)}, which a plain
+     * block may not contain, so it is parsed as the body of a constructor
+     * declared in front of it on the same line.
+     */
+    private BlockStmt parseBody(String source, int[] lineStarts, Range range, boolean constructor,
+            FileBudget.Deadline deadline) {
+        int begin = lineStarts[range.begin.line - 1] + range.begin.column - 1;
+        int end = lineStarts[range.end.line - 1] + range.end.column;
+        if (begin < 0 || end > source.length() || begin >= end) {
+            return null;
+        }
+        BlockStmt body;
+        String prefix = constructor ? CONSTRUCTOR_PREFIX : "";
+        if (constructor) {
+            ParseResult<BodyDeclaration<?>> parseResult = parser.parse(ParseStart.CLASS_BODY,
+                    Providers.provider(deadline.limit(new StringReader(prefix + source.substring(begin, end)))));
+            if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()
+                    || !parseResult.getResult().get().isConstructorDeclaration()) {
+                return null;
+            }
+            body = parseResult.getResult().get().asConstructorDeclaration().getBody();
+        } else {
+            ParseResult<BlockStmt> parseResult = parser.parse(ParseStart.BLOCK,
+                    Providers.provider(deadline.limit(new StringReader(source.substring(begin, end)))));
+            if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+                return null;
+            }
+            body = parseResult.getResult().get();
+        }
+        Position origin = new Position(range.begin.line, range.begin.column - prefix.length());
+        body.walk(node -> moveTo(node, origin));
+        body.getAllContainedComments().forEach(comment -> moveTo(comment, origin));
+        return body;
+    }
+
+    /**
+     * Moves a node parsed from a snippet starting at line 1, column 1 to where
+     * the snippet starts in the file.
+     */
+    private static void moveTo(Node node, Position origin) {
+        node.getRange().ifPresent(range -> node.setRange(new Range(moveTo(range.begin, origin), moveTo(range.end, origin))));
+    }
+
+    private static Position moveTo(Position position, Position origin) {
+        return position.line == 1
+                ? new Position(origin.line, origin.column + position.column - 1)
+                : new Position(origin.line + position.line - 1, position.column);
+    }
+
+    /**
+     * Replaces everything between the braces of method, constructor and
+     * initializer bodies with spaces, keeping line breaks. Comments and
+     * literals are skipped, so braces in them do not count. Bodies of nested
+     * and local types inside a blanked body go with it; those of anonymous
+     * classes in field initializers are kept.
+     */
+    static String blankBodies(String source) {
+        char[] text = source.toCharArray();
+        int length = text.length;
+        int[] kinds = new int[16];
+        int[] opens = new int[16];
+        int depth = 0;
+        // The member header read so far at the current type level.
+        boolean typeKeyword = false;
+        boolean enumKeyword = false;
+        boolean assigned = false;
+        int parens = 0;
+        char previous = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text[i];
+            if (c == '/' && i + 1 < length && text[i + 1] == '/') {
+                while (i < length && text[i] != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '/' && i + 1 < length && text[i + 1] == '*') {
+                int end = source.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                i = skipLiteral(source, text, i);
+                previous = c;
+                continue;
+            }
+            boolean inType = depth == 0 || kinds[depth - 1] == TYPE || kinds[depth - 1] == ENUM_CONSTANTS;
+            if (inType && Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(text[end])) {
+                    end++;
+                }
+                if (parens == 0 && previous != '.' && isTypeKeyword(source, text, i, end)) {
+                    typeKeyword = true;
+                    enumKeyword = source.startsWith("enum", i) && end - i == 4;
+                }
+                previous = 'a';
+                i = end;
+                continue;
+            }
+            if (c == '{') {
+                int kind;
+                if (!inType) {
+                    kind = EXPRESSION;
+                } else if (parens > 0) {
+                    kind = EXPRESSION;
+                } else if (typeKeyword) {
+                    kind = enumKeyword ? ENUM_CONSTANTS : TYPE;
+                } else if (depth > 0 && kinds[depth - 1] == ENUM_CONSTANTS) {
+                    // The class body of an enum constant.
+                    kind = TYPE;
+                } else {
+                    kind = assigned ? EXPRESSION : BODY;
+                }
+                if (depth == kinds.length) {
+                    kinds = Arrays.copyOf(kinds, depth * 2);
+                    opens = Arrays.copyOf(opens, depth * 2);
+                }
+                kinds[depth] = kind;
+                opens[depth] = i;
+                depth++;
+                if (inType && parens == 0) {
+                    typeKeyword = enumKeyword = assigned = false;
+                }
+            } else if (c == '}' && depth > 0) {
+                depth--;
+                if (kinds[depth] == BODY && (depth == 0 || kinds[depth - 1] != BODY)) {
+                    for (int j = opens[depth] + 1; j < i; j++) {
+                        if (text[j] != '\n' && text[j] != '\r') {
+                            text[j] = ' ';
+                        }
+                    }
+                }
+                if (depth == 0 || kinds[depth - 1] == TYPE || kinds[depth - 1] == ENUM_CONSTANTS) {
+                    typeKeyword = enumKeyword = assigned = false;
+                    parens = 0;
+                }
+            } else if (inType) {
+                if (c == '(') {
+                    parens++;
+                } else if (c == ')') {
+                    parens = Math.max(0, parens - 1);
+                } else if (c == '=' && parens == 0) {
+                    assigned = true;
+                } else if (c == ';' && parens == 0) {
+                    typeKeyword = enumKeyword = assigned = false;
+                    if (depth > 0 && kinds[depth - 1] == ENUM_CONSTANTS) {
+                        kinds[depth - 1] = TYPE;
+                    }
+                }
+            }
+            if (!Character.isWhitespace(c)) {
+                previous = c;
+            }
+            i++;
+        }
+        return new String(text);
+    }
+
+    /**
+     * Whether the word at {@code begin} starts a type declaration: {@code class},
+     * {@code interface}, {@code enum}, or {@code record} followed by a name.
+     */
+    private static boolean isTypeKeyword(String source, char[] text, int begin, int end) {
+        int length = end - begin;
+        if (length == 5 && source.startsWith("class", begin) || length == 9 && source.startsWith("interface", begin)
+                || length == 4 && source.startsWith("enum", begin)) {
+            return true;
+        }
+        if (length != 6 || !source.startsWith("record", begin)) {
+            return false;
+        }
+        int next = end;
+        while (next < text.length && Character.isWhitespace(text[next])) {
+            next++;
+        }
+        return next < text.length && Character.isJavaIdentifierStart(text[next]);
+    }
+
+    /**
+     * Returns the offset after the string, character or text block literal at {@code begin}.
+     */
+    private static int skipLiteral(String source, char[] text, int begin) {
+        char quote = text[begin];
+        if (quote == '"' && source.startsWith("\"\"\"", begin)) {
+            int i = begin + 3;
+            while (i < text.length && !source.startsWith("\"\"\"", i)) {
+                i += text[i] == '\\' ? 2 : 1;
+            }
+            return Math.min(i + 3, text.length);
+        }
+        int i = begin + 1;
+        while (i < text.length && text[i] != quote && text[i] != '\n') {
+            i += text[i] == '\\' ? 2 : 1;
+        }
+        return Math.min(i + 1, text.length);
+    }
+
+    /**
+     * What {@link #forEachBody} got through.
+     */
+    public static final class Result {
+
+        private final int declarations;
+        private final int bodies;
+        private final int failedBodies;
+        private final boolean expired;
+
+        Result(int declarations, int bodies, int failedBodies, boolean expired) {
+            this.declarations = declarations;
+            this.bodies = bodies;
+            this.failedBodies = failedBodies;
+            this.expired = expired;
+        }
+
+        /**
+         * The number of outermost methods, constructors and initializers in the skeleton.
+         */
+        public int getDeclarations() {
+            return declarations;
+        }
+
+        /**
+         * The number of bodies that were parsed or failed to parse before the deadline.
+         */
+        public int getBodies() {
+            return bodies;
+        }
+
+        public int getFailedBodies() {
+            return failedBodies;
+        }
+
+        /**
+         * Whether the deadline passed before every declaration was visited.
+         */
+        public boolean isExpired() {
+            return expired;
+        }
+
+        @Override
+        public String toString() {
+            return (bodies - failedBodies) + " of " + bodies + " bodies parsed separately"
+                    + (expired ? ", stopped at the time budget" : "");
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.Node;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counters and timers for the phases of the analysis (cache lookup, parsing,
+ * the rule traversal, ...) and for every rule of the {@link RuleEngine}: how
+ * often they ran, how many nodes they saw and findings they emitted, and the
+ * wall time, thread CPU time and bytes allocated by the thread while running.
+ * <p>
+ * Every worker thread records into its own {@link Recorder}, which is merged
+ * into the run's totals once per file, so there is no contention on the hot
+ * path. The totals are written at the end of a run as JSON or in the Prometheus
+ * text exposition format; optionally every file's own numbers are written as a
+ * JSON line, which is how pathological inputs are found. When no metrics are
+ * requested, no recorder exists and rules are not wrapped, so nothing is measured.
+ */
+public class PerformanceMetrics implements Closeable {
+
+    private static final int SLOWEST_FILES = 10;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported()
+            && THREADS.isThreadCpuTimeEnabled();
+
+    private final Writer perFile;
+    private final StringBuilder line = new StringBuilder(1024);
+    private final Map<String, Counters> phases = new LinkedHashMap<>();
+    private final Map<String, Counters> rules = new LinkedHashMap<>();
+    private final PriorityQueue<FileTime> slowestFiles = new PriorityQueue<>(Comparator.comparingLong(f -> f.wallNanos));
+    private long files;
+
+    /**
+     * @param perFile receives one JSON line with the metrics of every file, or {@code null} for totals only
+     */
+    public PerformanceMetrics(Writer perFile) {
+        this.perFile = perFile;
+    }
+
+    /**
+     * Creates the recorder of one worker thread.
+     */
+    public Recorder newRecorder() {
+        return new Recorder(this);
+    }
+
+    private synchronized void merge(String file, Map<String, Counters> filePhases, Map<String, Counters> fileRules) {
+        long wallNanos = 0;
+        for (Map.Entry<String, Counters> entry : filePhases.entrySet()) {
+            phases.computeIfAbsent(entry.getKey(), name -> new Counters()).add(entry.getValue());
+            wallNanos += entry.getValue().wallNanos;
+        }
+        for (Map.Entry<String, Counters> entry : fileRules.entrySet()) {
+            rules.computeIfAbsent(entry.getKey(), name -> new Counters()).add(entry.getValue());
+        }
+        files++;
+        slowestFiles.add(new FileTime(file, wallNanos));
+        if (slowestFiles.size() > SLOWEST_FILES) {
+            slowestFiles.poll();
+        }
+        if (perFile != null) {
+            line.setLength(0);
+            line.append("{\"file\":");
+            Json.appendString(line, file);
+            line.append(",\"phases\":");
+            appendCounters(line, filePhases);
+            line.append(",\"rules\":");
+            appendCounters(line, fileRules);
+            line.append("}\n");
+            try {
+                perFile.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public synchronized Map<String, Counters> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public synchronized Map<String, Counters> getRules() {
+        return new LinkedHashMap<>(rules);
+    }
+
+    public synchronized long getFiles() {
+        return files;
+    }
+
+    public synchronized void writeJson(Writer out) throws IOException {
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"files\":").append(files);
+        json.append(",\"cpuTimeSupported\":").append(CPU_TIME_SUPPORTED);
+        json.append(",\"allocatedBytesSupported\":").append(ALLOCATIONS != null);
+        json.append(",\"phases\":");
+        appendCounters(json, phases);
+        json.append(",\"rules\":");
+        appendCounters(json, rules);
+        json.append(",\"slowestFiles\":[");
+        List<FileTime> slowest = new ArrayList<>(slowestFiles);
+        slowest.sort(Comparator.comparingLong((FileTime f) -> f.wallNanos).reversed());
+        for (int i = 0; i < slowest.size(); i++) {
+            json.append(i == 0 ? "" : ",").append("{\"file\":");
+            Json.appendString(json, slowest.get(i).file);
+            json.append(",\"wallNanos\":").append(slowest.get(i).wallNanos).append('}');
+        }
+        json.append("]}\n");
+        out.append(json);
+        out.flush();
+    }
+
+    public synchronized void writePrometheus(Writer out) throws IOException {
+        StringBuilder text = new StringBuilder(4096);
+        text.append("# HELP analysis_files_total Source files analyzed.\n");
+        text.append("# TYPE analysis_files_total counter\n");
+        text.append("analysis_files_total ").append(files).append('\n');
+        appendPrometheus(text, "phase", phases);
+        appendPrometheus(text, "rule", rules);
+        out.append(text);
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (perFile != null) {
+            perFile.close();
+        }
+    }
+
+    private static void appendCounters(StringBuilder out, Map<String, Counters> counters) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            Counters c = entry.getValue();
+            if (c.count == 0) {
+                continue;
+            }
+            out.append(first ? "" : ",");
+            first = false;
+            Json.appendString(out, entry.getKey());
+            out.append(":{\"count\":").append(c.count)
+                    .append(",\"nodes\":").append(c.nodes)
+                    .append(",\"findings\":").append(c.findings)
+                    .append(",\"wallNanos\":").append(c.wallNanos)
+                    .append(",\"cpuNanos\":").append(c.cpuNanos)
+                    .append(",\"allocatedBytes\":").append(c.allocatedBytes)
+                    .append('}');
+        }
+        out.append('}');
+    }
+
+    private static void appendPrometheus(StringBuilder out, String label, Map<String, Counters> counters) {
+        String prefix = "analysis_" + label + "_";
+        appendFamily(out, prefix + "runs_total", "Times a " + label + " ran.", label, counters, c -> c.count, false);
+        appendFamily(out, prefix + "nodes_total", "AST nodes seen by a " + label + ".", label, counters, c -> c.nodes, false);
+        appendFamily(out, prefix + "findings_total", "Findings emitted by a " + label + ".", label, counters, c -> c.findings, false);
+        appendFamily(out, prefix + "wall_seconds_total", "Wall time spent in a " + label + ".", label, counters, c -> c.wallNanos, true);
+        appendFamily(out, prefix + "cpu_seconds_total", "Thread CPU time spent in a " + label + ".", label, counters, c -> c.cpuNanos, true);
+        appendFamily(out, prefix + "allocated_bytes_total", "Bytes allocated while in a " + label + ".", label, counters,
+                c -> c.allocatedBytes, false);
+    }
+
+    private static void appendFamily(StringBuilder out, String name, String help, String label,
+            Map<String, Counters> counters, ToLongFunction<Counters> value, boolean nanosToSeconds) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            long v = value.applyAsLong(entry.getValue());
+            out.append(name).append('{').append(label).append("=\"").append(entry.getKey()).append("\"} ")
+                    .append(nanosToSeconds ? String.format(Locale.ROOT, "%.9f", v / 1e9) : Long.toString(v)).append('\n');
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREADS;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The numbers of one phase or rule. Plain fields, because a recorder's
+     * counters are only touched by its own thread and the totals only under lock.
+     */
+    public static final class Counters {
+
+        long count;
+        long nodes;
+        long findings;
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+
+        void add(Counters other) {
+            count += other.count;
+            nodes += other.nodes;
+            findings += other.findings;
+            wallNanos += other.wallNanos;
+            cpuNanos += other.cpuNanos;
+            allocatedBytes += other.allocatedBytes;
+        }
+
+        void reset() {
+            count = 0;
+            nodes = 0;
+            findings = 0;
+            wallNanos = 0;
+            cpuNanos = 0;
+            allocatedBytes = 0;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getFindings() {
+            return findings;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /**
+     * Records the metrics of the files analyzed by one thread. Counters are
+     * reused from file to file; {@link #finishFile} adds them to the totals and
+     * starts over.
+     */
+    public static final class Recorder {
+
+        private final PerformanceMetrics metrics;
+        private final Map<String, Counters> phases = new LinkedHashMap<>();
+        private final Map<String, Counters> rules = new LinkedHashMap<>();
+        private Counters activeRule;
+        private long phaseWallStart;
+        private long phaseCpuStart;
+        private long phaseAllocatedStart;
+
+        private Recorder(PerformanceMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        public Counters phase(String name) {
+            return phases.computeIfAbsent(name, key -> new Counters());
+        }
+
+        public Counters rule(String name) {
+            return rules.computeIfAbsent(name, key -> new Counters());
+        }
+
+        public long cpuNanos() {
+            return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+        }
+
+        public long allocatedBytes() {
+            return ALLOCATIONS != null ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : 0;
+        }
+
+        /**
+         * Starts timing a phase. Phases do not nest; rules, which run within the
+         * rule traversal phase, are timed separately.
+         */
+        public void start() {
+            phaseWallStart = System.nanoTime();
+            phaseCpuStart = cpuNanos();
+            phaseAllocatedStart = allocatedBytes();
+        }
+
+        /**
+         * Counts one run of the phase started last.
+         */
+        public void stop(Counters phase) {
+            stop(phase, phaseWallStart, phaseCpuStart, phaseAllocatedStart);
+        }
+
+        /**
+         * Counts one run of a phase or rule that started at the given readings.
+         */
+        public void stop(Counters counters, long wallStart, long cpuStart, long allocatedStart) {
+            counters.count++;
+            counters.wallNanos += System.nanoTime() - wallStart;
+            counters.cpuNanos += cpuNanos() - cpuStart;
+            counters.allocatedBytes += allocatedBytes() - allocatedStart;
+        }
+
+        /**
+         * Attributes a finding to the rule that is currently running, if any.
+         */
+        public void finding() {
+            if (activeRule != null) {
+                activeRule.findings++;
+            }
+        }
+
+        /**
+         * Wraps a rule so that its runs are measured by this recorder.
+         */
+        public AnalysisRule instrument(AnalysisRule rule) {
+            Counters counters = rule(rule.getName());
+            return new AnalysisRule() {
+                @Override
+                public List<Class<? extends Node>> getNodeTypes() {
+                    return rule.getNodeTypes();
+                }
+
+                @Override
+                public String getName() {
+                    return rule.getName();
+                }
+
+                @Override
+                public List<String> getTriggerKeywords() {
+                    return rule.getTriggerKeywords();
+                }
+
+                @Override
+                public boolean isMethodLocal() {
+                    return rule.isMethodLocal();
+                }
+
+                @Override
+                public void visit(Node node) {
+                    long wallStart = System.nanoTime();
+                    long cpuStart = cpuNanos();
+                    long allocatedStart = allocatedBytes();
+                    Counters previous = activeRule;
+                    activeRule = counters;
+                    try {
+                        rule.visit(node);
+                    } finally {
+                        activeRule = previous;
+                        counters.nodes++;
+                        stop(counters, wallStart, cpuStart, allocatedStart);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Adds the numbers of the file just analyzed to the totals.
+         */
+        public void finishFile(String file) {
+            metrics.merge(file, phases, rules);
+            phases.values().forEach(Counters::reset);
+            rules.values().forEach(Counters::reset);
+        }
+    }
+
+    private static final class FileTime {
+
+        final String file;
+        final long wallNanos;
+
+        FileTime(String file, long wallNanos) {
+            this.file = file;
+            this.wallNanos = wallNanos;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Analyzes a whole source tree on a {@link StagedPipeline}: files are read
+ * concurrently, parsed and analyzed on {@code parallelism} worker threads, and
+ * their findings are emitted by the calling thread. Every worker thread has its
+ * own {@link SourceFileAnalyzer}, so no parser or visitor state is ever shared
+ * between threads, and the sink is only ever called from one thread.
+ * <p>
+ * Analysis is streaming: each compilation unit is dropped as soon as its
+ * findings have been sent to the sink and its null checks appended to the
+ * optional {@link NullCheckStore}, so heap use does not grow with the number of
+ * files beyond the compact store.
+ * <p>
+ * One bad file never stops the others: files that fail to read, parse or
+ * analyze, and files only analyzed in part under their {@link FileBudget}, are
+ * listed in a {@link FailureReport} and the run goes on.
+ */
+public class ProjectAnalyzer {
+
+    private final int parallelism;
+    private final FindingSink sink;
+    private final AnalysisOptions options;
+    private final NullCheckStore nullCheckStore;
+    private final FailureReport failureReport = new FailureReport();
+    private int analyzedFiles;
+    private int skippedFiles;
+    private int failedFiles;
+    private List<StageStats> stageStats;
+
+    /**
+     * @param sink receives the findings of all files, from the thread calling {@link #analyze}
+     * @param options the cache, type resolution, null check store, metrics,
+     *        prefilter, memo and budget shared by all workers
+     */
+    public ProjectAnalyzer(int parallelism, FindingSink sink, AnalysisOptions options) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.sink = sink;
+        this.options = options;
+        this.nullCheckStore = options.getNullCheckStore();
+    }
+
+    public void analyze(List<Path> sourceFiles) throws IOException, InterruptedException {
+        StagedPipeline<FileOutcome> pipeline = new StagedPipeline<>(parallelism);
+        try {
+            pipeline.run(sourceFiles, () -> {
+                // Findings are taken from the result and emitted by the writer stage.
+                SourceFileAnalyzer analyzer = new SourceFileAnalyzer(finding -> {
+                }, options);
+                return source -> analyzeFile(analyzer, source);
+            }, this::writeOutcome);
+        } finally {
+            stageStats = pipeline.getStats();
+        }
+    }
+
+    private FileOutcome analyzeFile(SourceFileAnalyzer analyzer, StagedPipeline.Source source) {
+        Path sourceFile = source.getFile();
+        try {
+            FileAnalysisResult result = analyzer.analyze(sourceFile, source.getContent());
+            return result != null ? new FileOutcome(sourceFile, result, null)
+                    : new FileOutcome(sourceFile, null, "Failed to parse the source file: " + sourceFile);
+        } catch (IOException e) {
+            return new FileOutcome(sourceFile, null, "Failed to read the source file: " + sourceFile + " (" + e.getMessage() + ")");
+        } catch (RuntimeException e) {
+            // One misbehaving file must not abort the analysis of the remaining files.
+            return new FileOutcome(sourceFile, null, "Failed to analyze the source file: " + sourceFile + " (" + e.getMessage() + ")");
+        } catch (StackOverflowError e) {
+            // Deeply nested code overflows the recursive descent parser; the stack unwinds and the thread stays usable.
+            return new FileOutcome(sourceFile, null, "Failed to analyze the source file: " + sourceFile
+                    + " (nested too deeply to parse)");
+        }
+    }
+
+    private void writeOutcome(FileOutcome outcome) {
+        if (outcome.result == null) {
+            failedFiles++;
+            failureReport.add(outcome.file, FailureReport.Status.FAILED, outcome.failure);
+            System.err.println(outcome.failure);
+            return;
+        }
+        if (outcome.result.isDegraded()) {
+            failureReport.add(outcome.file, FailureReport.Status.DEGRADED, outcome.result.getDegradation());
+            System.err.println("Analyzed the source file in part: " + outcome.file + " (" + outcome.result.getDegradation() + ")");
+        }
+        outcome.result.getFindings().forEach(sink::accept);
+        if (nullCheckStore != null) {
+            nullCheckStore.add(outcome.file.toString(), outcome.result.getCapturedLogic());
+        }
+        if (outcome.result.isSkipped()) {
+            skippedFiles++;
+        }
+        analyzedFiles++;
+    }
+
+    public int getAnalyzedFiles() {
+        return analyzedFiles;
+    }
+
+    /**
+     * The files among the analyzed ones that the keyword prefilter skipped without parsing.
+     */
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    /**
+     * The files among the analyzed ones that were only analyzed in part.
+     */
+    public int getDegradedFiles() {
+        return failureReport.count(FailureReport.Status.DEGRADED);
+    }
+
+    /**
+     * The failed and degraded files of all runs so far.
+     */
+    public FailureReport getFailureReport() {
+        return failureReport;
+    }
+
+    /**
+     * The statistics of the read, process and write stages of the last run, or
+     * {@code null} before the first run.
+     */
+    public List<StageStats> getStageStats() {
+        return stageStats;
+    }
+
+    /**
+     * The result of one file, or why there is none. The compilation unit it holds
+     * is released once the writer stage is done with it.
+     */
+    private static final class FileOutcome {
+
+        final Path file;
+        final FileAnalysisResult result;
+        final String failure;
+
+        FileOutcome(Path file, FileAnalysisResult result, String failure) {
+            this.file = file;
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+}
@@ -20,53 +20,471 @@ package refactoring;
  *
  * @author Freya Ebba Christ 
  */
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParserConfiguration;
-import com.github.javaparser.ParseResult;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
 
-import java.io.FileInputStream;
-import java.io.FileWriter;
+import nullcheckparser.LanguageLevels;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 public class RefactoringTool {
     public static void main(String[] args) throws Exception {
         if (args.length < 1) {
-            System.out.println("Usage: RefactoringTool <sourceFilePath>");
+            System.out.println("Usage: RefactoringTool <sourceFilePath|sourceDirectory|glob> [--parallelism <n>]"
+                    + " [--cache <directory>] [--cache-size <megabytes>] [--null-checks <file>] [--no-prefilter]"
+                    + " [--method-memo] [--archives] [--max-file-size <kilobytes>] [--file-timeout <seconds>]"
+                    + " [--failure-report <jsonlFile>]");
+            System.out.println("       RefactoringTool <repositoryRoot> (--diff <patchFile> | --git <from>[..<to>])");
+            System.out.println("       RefactoringTool <sourceDirectory> --daemon <socket>");
+            System.out.println("       RefactoringTool <sourceDirectory|glob> --nullness [--nullness-cache <file>] [--parallelism <n>]"
+                    + " [--archives]");
+            System.out.println("       RefactoringTool <sourceDirectory|glob> --lock-order [--parallelism <n>] [--archives]");
+            System.out.println("Jar and zip archives given directly or matched by a glob are always read;"
+                    + " --archives includes those in directories.");
+            System.out.println("       RefactoringTool <sourceFilePath|sourceDirectory|glob> --rewrite <policy>[,<policy>...]"
+                    + " [--dry-run] [--patch <file>] [--language-level <version>|auto] [--parallelism <n>]");
+            System.out.println("Rewrite policies: require-non-null, optional, early-return, all");
+            System.out.println("Files above --max-file-size (default " + FileBudget.DEFAULT_MAX_BYTES / 1024 + " KB), and files"
+                    + " that do not parse or not within --file-timeout (default " + FileBudget.DEFAULT_TIMEOUT_MILLIS / 1000
+                    + " s, 0 for none), are analyzed body by body.");
+            System.out.println("Common options: [--format text|jsonl|sarif] [--output <file>]"
+                    + " [--source-roots <dir>[" + File.pathSeparator + "<dir>...]]"
+                    + " [--jars <jar>[" + File.pathSeparator + "<jar>...]]");
+            System.out.println("Baseline: [--baseline <file> [--update-baseline]] reports only findings not in the baseline"
+                    + " and exits with status 1 if there are any; --update-baseline rewrites it with all findings of the run.");
+            System.out.println("Store: [--store <directory>] appends all findings of the run to a findings store;"
+                    + " see FindingsStoreTool to query it.");
+            System.out.println("Metrics: [--metrics <jsonFile>] [--metrics-prometheus <file>] [--metrics-per-file <jsonlFile>]");
             return;
         }
 
-        JavaParser parser = new JavaParser(new ParserConfiguration());
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        Path cacheDirectory = null;
+        long cacheMegabytes = 512;
+        String diffFile = null;
+        String gitRevisions = null;
+        String format = "text";
+        String output = null;
+        String nullChecksOutput = null;
+        List<Path> sourceRoots = new ArrayList<>();
+        List<Path> jars = new ArrayList<>();
+        String daemonSocket = null;
+        String metricsOutput = null;
+        String prometheusOutput = null;
+        String perFileMetricsOutput = null;
+        boolean prefilter = true;
+        boolean methodMemo = false;
+        boolean archives = false;
+        boolean nullness = false;
+        Path nullnessCache = null;
+        boolean lockOrder = false;
+        Set<NullCheckRewriter.Policy> rewritePolicies = null;
+        boolean dryRun = false;
+        String patchFile = null;
+        String languageLevel = "auto";
+        long maxFileBytes = FileBudget.DEFAULT_MAX_BYTES;
+        long fileTimeoutMillis = FileBudget.DEFAULT_TIMEOUT_MILLIS;
+        String failureReportOutput = null;
+        Path baselineFile = null;
+        boolean updateBaseline = false;
+        Path storeDirectory = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--parallelism") && i + 1 < args.length) {
+                parallelism = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-size") && i + 1 < args.length) {
+                cacheMegabytes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--diff") && i + 1 < args.length) {
+                diffFile = args[++i];
+            } else if (args[i].equals("--git") && i + 1 < args.length) {
+                gitRevisions = args[++i];
+            } else if (args[i].equals("--format") && i + 1 < args.length) {
+                format = args[++i];
+            } else if (args[i].equals("--output") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (args[i].equals("--null-checks") && i + 1 < args.length) {
+                nullChecksOutput = args[++i];
+            } else if (args[i].equals("--source-roots") && i + 1 < args.length) {
+                sourceRoots.addAll(splitPaths(args[++i]));
+            } else if (args[i].equals("--jars") && i + 1 < args.length) {
+                jars.addAll(splitPaths(args[++i]));
+            } else if (args[i].equals("--daemon") && i + 1 < args.length) {
+                daemonSocket = args[++i];
+            } else if (args[i].equals("--metrics") && i + 1 < args.length) {
+                metricsOutput = args[++i];
+            } else if (args[i].equals("--metrics-prometheus") && i + 1 < args.length) {
+                prometheusOutput = args[++i];
+            } else if (args[i].equals("--metrics-per-file") && i + 1 < args.length) {
+                perFileMetricsOutput = args[++i];
+            } else if (args[i].equals("--no-prefilter")) {
+                prefilter = false;
+            } else if (args[i].equals("--method-memo")) {
+                methodMemo = true;
+            } else if (args[i].equals("--archives")) {
+                archives = true;
+            } else if (args[i].equals("--nullness")) {
+                nullness = true;
+            } else if (args[i].equals("--nullness-cache") && i + 1 < args.length) {
+                nullnessCache = Paths.get(args[++i]);
+            } else if (args[i].equals("--lock-order")) {
+                lockOrder = true;
+            } else if (args[i].equals("--rewrite") && i + 1 < args.length) {
+                rewritePolicies = NullCheckRewriter.Policy.parse(args[++i]);
+            } else if (args[i].equals("--dry-run")) {
+                dryRun = true;
+            } else if (args[i].equals("--patch") && i + 1 < args.length) {
+                dryRun = true;
+                patchFile = args[++i];
+            } else if (args[i].equals("--language-level") && i + 1 < args.length) {
+                languageLevel = args[++i];
+            } else if (args[i].equals("--max-file-size") && i + 1 < args.length) {
+                maxFileBytes = Long.parseLong(args[++i]) * 1024;
+            } else if (args[i].equals("--file-timeout") && i + 1 < args.length) {
+                fileTimeoutMillis = Long.parseLong(args[++i]) * 1000;
+            } else if (args[i].equals("--failure-report") && i + 1 < args.length) {
+                failureReportOutput = args[++i];
+            } else if (args[i].equals("--baseline") && i + 1 < args.length) {
+                baselineFile = Paths.get(args[++i]);
+            } else if (args[i].equals("--update-baseline")) {
+                updateBaseline = true;
+            } else if (args[i].equals("--store") && i + 1 < args.length) {
+                storeDirectory = Paths.get(args[++i]);
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+                return;
+            }
+        }
 
-        try (FileInputStream in = new FileInputStream(args[0])) {
-            ParseResult<CompilationUnit> parseResult = parser.parse(in);
+        if (rewritePolicies != null) {
+            rewriteNullChecks(args[0], rewritePolicies, dryRun, patchFile, languageLevel, parallelism);
+            return;
+        }
 
-            if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
-                CompilationUnit compilationUnit = parseResult.getResult().get();
+        FileBudget budget = new FileBudget(maxFileBytes, fileTimeoutMillis);
 
-                // Create an instance of AdvancedControlFlowAnalyzer
-                AdvancedControlFlowAnalyzer analyzer = new AdvancedControlFlowAnalyzer();
+        if (updateBaseline && baselineFile == null) {
+            System.out.println("--update-baseline requires --baseline <file>");
+            return;
+        }
+        Baseline baseline = null;
+        if (baselineFile != null) {
+            if (Files.exists(baselineFile)) {
+                baseline = Baseline.read(baselineFile);
+            } else if (updateBaseline) {
+                baseline = Baseline.EMPTY;
+            } else {
+                System.out.println("No baseline at " + baselineFile + "; create it with --update-baseline.");
+                return;
+            }
+        }
 
-                // Visit the CompilationUnit with the analyzer
-                analyzer.visit(compilationUnit, null);
+        // One type solver for all files and threads, so every type is resolved once per run.
+        TypeResolution typeResolution = new TypeResolution(sourceRoots, jars);
 
-                // Create an instance of NullCheckMethodVisitor
-                NullCheckMethodVisitor nullCheckVisitor = new NullCheckMethodVisitor();
+        if (daemonSocket != null) {
+            // Stays resident and answers AnalysisClient requests until told to shut down.
+            new AnalysisDaemon(Collections.singletonList(Paths.get(args[0])), typeResolution).serve(Paths.get(daemonSocket));
+            return;
+        }
 
-                // Visit the CompilationUnit with the nullCheckVisitor
-                nullCheckVisitor.visit(compilationUnit, null);
+        // Without any metrics option nothing is measured at all.
+        PerformanceMetrics metrics = metricsOutput == null && prometheusOutput == null && perFileMetricsOutput == null
+                ? null
+                : new PerformanceMetrics(perFileMetricsOutput == null ? null
+                        : Files.newBufferedWriter(Paths.get(perFileMetricsOutput), StandardCharsets.UTF_8));
 
-                // Optionally save the modified original CompilationUnit if modifications were made
-                try (FileWriter writer = new FileWriter("Refactored" + args[0])) {
-                    writer.write(LexicalPreservingPrinter.print(compilationUnit));
-                }
+        // Findings go to the sink; progress and summaries go to standard error so
+        // that machine-readable output on standard output stays parseable.
+        FindingSink outputSink = openSink(format, output);
+        BaselineFindingSink baselineSink = baseline == null ? null
+                : new BaselineFindingSink(outputSink, baseline, updateBaseline ? baselineFile : null);
+        FindingSink filteredSink = baselineSink != null ? baselineSink : outputSink;
+        // The store sees every finding, including those the baseline suppresses.
+        FindingsStoreSink storeSink = storeDirectory == null ? null
+                : new FindingsStoreSink(filteredSink, new FindingsStore(storeDirectory));
+        try (FindingSink sink = storeSink != null ? storeSink : filteredSink) {
+            if (nullness) {
+                analyzeNullness(args[0], archives, parallelism, nullnessCache, sink);
+            } else if (lockOrder) {
+                analyzeLockOrder(args[0], archives, parallelism, sink);
+            } else if (diffFile != null || gitRevisions != null) {
+                analyzeChanges(Paths.get(args[0]), diffFile, gitRevisions, typeResolution, sink);
+            } else if (!Files.isDirectory(Paths.get(args[0])) && !SourceFileLocator.isGlob(args[0])
+                    && !SourceFileLocator.isArchive(Paths.get(args[0]))) {
+                analyzeSingleFile(args[0], typeResolution, metrics, budget, sink);
             } else {
-                System.out.println("Failed to parse the source file.");
+                analyzeProject(args[0], archives, parallelism, cacheDirectory, cacheMegabytes, nullChecksOutput, typeResolution,
+                        metrics, prefilter, methodMemo ? new MethodMemo() : null, budget, failureReportOutput, sink);
             }
         }
+        if (storeSink != null) {
+            System.err.println("Stored " + storeSink.getFindingCount() + " findings as run " + storeSink.getRun()
+                    + " in " + storeDirectory + ".");
+        }
+        if (baselineSink != null) {
+            System.err.println("Baseline: " + baselineSink.getPassed() + " new findings, " + baselineSink.getSuppressed()
+                    + " suppressed by a baseline of " + baseline.size() + " findings"
+                    + (updateBaseline ? "; rewrote " + baselineFile : "") + ".");
+        }
+        if (metrics != null) {
+            writeMetrics(metrics, metricsOutput, prometheusOutput);
+        }
+        System.err.println("Type resolution: " + typeResolution.getTypeHits() + " type hits, "
+                + typeResolution.getTypeMisses() + " type misses, " + typeResolution.getAncestorHits()
+                + " ancestor hits, " + typeResolution.getAncestorMisses() + " ancestor misses, "
+                + typeResolution.getFailures() + " unresolved.");
+        if (baselineSink != null && !updateBaseline && baselineSink.getPassed() > 0) {
+            // Lets CI fail the build on new findings.
+            System.exit(1);
+        }
     }
-}
 
+    private static List<Path> splitPaths(String paths) {
+        List<Path> result = new ArrayList<>();
+        for (String path : paths.split(Pattern.quote(File.pathSeparator))) {
+            if (!path.isEmpty()) {
+                result.add(Paths.get(path));
+            }
+        }
+        return result;
+    }
 
+    private static FindingSink openSink(String format, String output) throws IOException {
+        if (format.equals("text")) {
+            return output == null ? ConsoleFindingSink.toStandardOutput()
+                    : new ConsoleFindingSink(new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(output))),
+                            false, "UTF-8"));
+        }
+        Writer writer = output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+        switch (format) {
+            case "jsonl":
+                return new JsonLinesFindingSink(writer);
+            case "sarif":
+                return new SarifFindingSink(writer);
+            default:
+                writer.close();
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
 
+    private static void analyzeProject(String sources, boolean archives, int parallelism, Path cacheDirectory,
+            long cacheMegabytes, String nullChecksOutput, TypeResolution typeResolution, PerformanceMetrics metrics, boolean prefilter,
+            MethodMemo memo, FileBudget budget, String failureReportOutput, FindingSink sink) throws Exception {
+        AnalysisCache cache = cacheDirectory == null ? null
+                : new AnalysisCache(cacheDirectory, cacheMegabytes * 1024 * 1024,
+                        SourceFileAnalyzer.cacheConfiguration() + ";" + typeResolution.describe());
+        List<Path> sourceFiles = SourceFileLocator.locate(sources, archives);
+        long start = System.nanoTime();
+        NullCheckStore nullCheckStore = nullChecksOutput == null ? null : new NullCheckStore();
+        AnalysisOptions options = AnalysisOptions.builder().cache(cache).typeResolution(typeResolution)
+                .nullCheckStore(nullCheckStore).metrics(metrics).prefilter(prefilter).memo(memo).budget(budget).build();
+        ProjectAnalyzer projectAnalyzer = new ProjectAnalyzer(parallelism, sink, options);
+        projectAnalyzer.analyze(sourceFiles);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        // Archives count as the files they contain, so the total is what was processed.
+        long archiveCount = sourceFiles.stream().filter(SourceFileLocator::isArchive).count();
+        System.err.println("Analyzed " + projectAnalyzer.getAnalyzedFiles() + " of "
+                + (projectAnalyzer.getAnalyzedFiles() + projectAnalyzer.getFailedFiles()) + " files ("
+                + projectAnalyzer.getSkippedFiles() + " skipped by the keyword prefilter, "
+                + projectAnalyzer.getDegradedFiles() + " analyzed in part, "
+                + projectAnalyzer.getFailedFiles() + " failed)"
+                + (archiveCount == 0 ? "" : " from " + sourceFiles.size() + " inputs including " + archiveCount + " archives") + " in " + elapsedMillis
+                + " ms using " + parallelism + " threads.");
+        for (StageStats stage : projectAnalyzer.getStageStats()) {
+            System.err.println("  " + stage);
+        }
+        if (failureReportOutput != null) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(failureReportOutput), StandardCharsets.UTF_8)) {
+                projectAnalyzer.getFailureReport().writeJsonLines(writer);
+            }
+        }
+        if (cache != null) {
+            System.err.println("Cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses.");
+        }
+        if (memo != null) {
+            System.err.println(String.format("Method memo: %d hits, %d misses, %d uncacheable (%.1f%% reused), %d methods stored.",
+                    memo.getHits(), memo.getMisses(), memo.getUncacheable(), memo.getHitRate() * 100, memo.size()));
+        }
+        if (nullCheckStore != null) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(nullChecksOutput), StandardCharsets.UTF_8)) {
+                nullCheckStore.writeJsonLines(writer);
+            }
+            System.err.println("Captured " + nullCheckStore.size() + " null checks in " + nullCheckStore.getMethodCount()
+                    + " methods (about " + nullCheckStore.estimateBytes() / 1024 + " KB).");
+        }
+    }
+
+    /**
+     * Computes the project-wide nullness summaries and reports the null checks
+     * they prove redundant.
+     */
+    private static void analyzeNullness(String sources, boolean archives, int parallelism, Path cacheFile,
+            FindingSink sink) throws Exception {
+        List<Path> sourceFiles = SourceFileLocator.locate(sources, archives);
+        long start = System.nanoTime();
+        NullnessSummaryCache cache = cacheFile == null ? null : new NullnessSummaryCache(cacheFile);
+        NullnessAnalyzer analyzer = new NullnessAnalyzer(parallelism, sink, cache);
+        analyzer.analyze(sourceFiles);
+        if (cache != null) {
+            cache.save();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.err.println("Computed nullness summaries of " + analyzer.getMethodCount() + " methods in "
+                + analyzer.getAnalyzedFiles() + " files (" + analyzer.getFailedFiles() + " failed) in " + elapsedMillis
+                + " ms using " + parallelism + " threads, " + analyzer.getSolveMillis() + " ms after parsing: "
+                + analyzer.getComponentCount()
+                + " call graph components (largest " + analyzer.getLargestComponent() + " methods), "
+                + analyzer.getRecomputedComponents() + " recomputed, " + analyzer.getReusedComponents()
+                + " reused from the cache; " + analyzer.getResolvedCalls() + " calls resolved, "
+                + analyzer.getUnresolvedCalls() + " unresolved; " + analyzer.getRedundantChecks()
+                + " redundant null checks.");
+        for (StageStats stage : analyzer.getStageStats()) {
+            System.err.println("  " + stage);
+        }
+    }
+
+    /**
+     * Rewrites the null checks captured in annotated methods according to the
+     * policies, in place or, in a dry run, into one unified diff.
+     */
+    private static void rewriteNullChecks(String sources, Set<NullCheckRewriter.Policy> policies, boolean dryRun,
+            String patchFile, String languageLevelOption, int parallelism) throws Exception {
+        List<Path> sourceFiles = SourceFileLocator.locate(sources);
+        LanguageLevel languageLevel;
+        if (languageLevelOption.equals("auto")) {
+            Path start = Files.isDirectory(Paths.get(sources)) ? Paths.get(sources)
+                    : sourceFiles.isEmpty() ? Paths.get("") : sourceFiles.get(0).toAbsolutePath().getParent();
+            LanguageLevel detected = LanguageLevels.detect(start);
+            languageLevel = detected != null ? detected : LanguageLevels.LATEST;
+        } else {
+            languageLevel = LanguageLevels.parse(languageLevelOption);
+        }
+        long start = System.nanoTime();
+        NullCheckRewriter rewriter = new NullCheckRewriter(policies, languageLevel, parallelism);
+        if (dryRun) {
+            try (Writer patch = patchFile == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : Files.newBufferedWriter(Paths.get(patchFile), StandardCharsets.UTF_8)) {
+                rewriter.writePatch(sourceFiles, Paths.get(""), patch);
+            }
+        } else {
+            rewriter.rewriteInPlace(sourceFiles);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        StringBuilder rewrites = new StringBuilder();
+        for (NullCheckRewriter.Policy policy : NullCheckRewriter.Policy.values()) {
+            rewrites.append(rewriter.getRewrites(policy)).append(' ').append(policy.getOptionName()).append(", ");
+        }
+        System.err.println((dryRun ? "Would change " : "Changed ") + rewriter.getChangedFiles() + " of " + sourceFiles.size()
+                + " files (" + rewriter.getUnchangedFiles() + " unchanged, " + rewriter.getFailedFiles() + " failed) in "
+                + elapsedMillis + " ms using " + parallelism + " threads: " + rewrites + rewriter.getKeptChecks()
+                + " null checks kept.");
+        for (StageStats stage : rewriter.getStageStats()) {
+            System.err.println("  " + stage);
+        }
+    }
+
+    /**
+     * Builds the project-wide lock acquisition graph and reports the locks
+     * that may be acquired in opposite orders.
+     */
+    private static void analyzeLockOrder(String sources, boolean archives, int parallelism, FindingSink sink)
+            throws Exception {
+        List<Path> sourceFiles = SourceFileLocator.locate(sources, archives);
+        long start = System.nanoTime();
+        LockOrderAnalyzer analyzer = new LockOrderAnalyzer(parallelism, sink);
+        analyzer.analyze(sourceFiles);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.err.println("Built the lock graph of " + analyzer.getMethodCount() + " methods in "
+                + analyzer.getAnalyzedFiles() + " files (" + analyzer.getFailedFiles() + " failed) in " + elapsedMillis
+                + " ms using " + parallelism + " threads, " + analyzer.getSolveMillis() + " ms after parsing: "
+                + analyzer.getAcquisitions() + " acquisitions of " + analyzer.getLockCount() + " locks, "
+                + analyzer.getEdgeCount() + " edges; " + analyzer.getResolvedCalls() + " calls resolved, "
+                + analyzer.getUnresolvedCalls() + " unresolved; " + analyzer.getCycles() + " lock order cycles.");
+        for (StageStats stage : analyzer.getStageStats()) {
+            System.err.println("  " + stage);
+        }
+    }
 
+    /**
+     * Analyzes only the members touched by a unified diff read from a file (or
+     * standard input for "-"), or by {@code git diff} between two revisions.
+     */
+    private static void analyzeChanges(Path root, String diffFile, String gitRevisions, TypeResolution typeResolution,
+            FindingSink sink) throws Exception {
+        long start = System.nanoTime();
+        ChangedLines changedLines;
+        if (diffFile != null) {
+            try (Reader diff = diffFile.equals("-")
+                    ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : Files.newBufferedReader(Paths.get(diffFile), StandardCharsets.UTF_8)) {
+                changedLines = ChangedLines.parse(diff);
+            }
+        } else {
+            int separator = gitRevisions.indexOf("..");
+            changedLines = separator < 0
+                    ? ChangedLines.fromGit(root, gitRevisions, null)
+                    : ChangedLines.fromGit(root, gitRevisions.substring(0, separator), gitRevisions.substring(separator + 2));
+        }
+        IncrementalAnalyzer incrementalAnalyzer = new IncrementalAnalyzer(sink, typeResolution);
+        incrementalAnalyzer.analyze(root, changedLines);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.err.println("Analyzed " + incrementalAnalyzer.getAnalyzedMembers() + " changed members in "
+                + changedLines.getLinesByFile().size() + " files in " + elapsedMillis + " ms.");
+    }
+
+    private static void analyzeSingleFile(String sourceFilePath, TypeResolution typeResolution, PerformanceMetrics metrics,
+            FileBudget budget, FindingSink sink) throws Exception {
+        AnalysisOptions options = AnalysisOptions.builder().typeResolution(typeResolution).metrics(metrics)
+                .budget(budget).build();
+        FileAnalysisResult result = new SourceFileAnalyzer(sink, options).analyze(Paths.get(sourceFilePath));
+        if (result == null) {
+            System.err.println("Failed to parse the source file: " + sourceFilePath);
+        } else if (result.isDegraded()) {
+            System.err.println("Analyzed the source file in part: " + sourceFilePath + " (" + result.getDegradation() + ")");
+        }
+    }
+
+    private static void writeMetrics(PerformanceMetrics metrics, String metricsOutput, String prometheusOutput)
+            throws IOException {
+        metrics.close();
+        if (metricsOutput != null) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(metricsOutput), StandardCharsets.UTF_8)) {
+                metrics.writeJson(writer);
+            }
+        }
+        if (prometheusOutput != null) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(prometheusOutput), StandardCharsets.UTF_8)) {
+                metrics.writePrometheus(writer);
+            }
+        }
+        for (Map.Entry<String, PerformanceMetrics.Counters> phase : metrics.getPhases().entrySet()) {
+            System.err.println("  " + phase.getKey() + ": " + phase.getValue().getCount() + " runs, "
+                    + phase.getValue().getWallNanos() / 1_000_000 + " ms");
+        }
+        for (Map.Entry<String, PerformanceMetrics.Counters> rule : metrics.getRules().entrySet()) {
+            System.err.println("  rule " + rule.getKey() + ": " + rule.getValue().getNodes() + " nodes, "
+                    + rule.getValue().getFindings() + " findings, " + rule.getValue().getWallNanos() / 1_000_000 + " ms");
+        }
+    }
+}
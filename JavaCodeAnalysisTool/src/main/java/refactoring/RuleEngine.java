@@ -0,0 +1,184 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ast.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Runs any number of {@link AnalysisRule}s in a single traversal of the AST.
+ * <p>
+ * For every concrete node class the engine computes (once, on first sight) the
+ * positions of the rules interested in it, so dispatching a node is a single
+ * table lookup no matter how many rules are registered. The table depends only
+ * on the node types of the rules, position by position, so it is computed once
+ * per rule set and shared by all engines and threads, even though the rules
+ * themselves are usually created anew for every file. Nodes are visited in
+ * post-order, which preserves the semantics of the visitors the rules were
+ * ported from. An engine is not thread-safe; use one per worker.
+ * <p>
+ * Given a {@link PerformanceMetrics.Recorder}, every rule is wrapped to measure
+ * its runs; without one the rules are called directly. Given a
+ * {@link FileBudget.Deadline}, a traversal stops with
+ * {@link FileBudget.ExceededException} once the deadline has passed.
+ */
+public class RuleEngine {
+
+    private static final int[] NO_RULES = new int[0];
+    private static final Map<List<List<Class<? extends Node>>>, DispatchTable> DISPATCH_TABLES = new ConcurrentHashMap<>();
+
+    private final AnalysisRule[] rules;
+    private final DispatchTable dispatchTable;
+    private final FileBudget.Deadline deadline;
+    private int visitedNodes;
+
+    public RuleEngine(AnalysisRule... rules) {
+        this(Arrays.asList(rules));
+    }
+
+    public RuleEngine(List<AnalysisRule> rules) {
+        this(rules, null, FileBudget.Deadline.NONE);
+    }
+
+    /**
+     * @param recorder measures every rule, or {@code null} to run them unmeasured
+     */
+    public RuleEngine(List<AnalysisRule> rules, PerformanceMetrics.Recorder recorder) {
+        this(rules, recorder, FileBudget.Deadline.NONE);
+    }
+
+    /**
+     * @param deadline the deadline of the file being analyzed, checked every few hundred nodes
+     */
+    public RuleEngine(List<AnalysisRule> rules, PerformanceMetrics.Recorder recorder, FileBudget.Deadline deadline) {
+        this.rules = new AnalysisRule[rules.size()];
+        List<List<Class<? extends Node>>> nodeTypes = new ArrayList<>(rules.size());
+        for (int i = 0; i < this.rules.length; i++) {
+            AnalysisRule rule = rules.get(i);
+            this.rules[i] = recorder == null ? rule : recorder.instrument(rule);
+            nodeTypes.add(rule.getNodeTypes());
+        }
+        this.dispatchTable = DISPATCH_TABLES.computeIfAbsent(nodeTypes, DispatchTable::new);
+        this.deadline = deadline;
+    }
+
+    /**
+     * Traverses the subtree rooted at {@code root} once and dispatches every node
+     * to the rules registered for its type. Child lists are copied before they
+     * are descended into, so rules may safely modify a node they are visiting.
+     */
+    public void run(Node root) {
+        run(root, node -> false);
+    }
+
+    /**
+     * Like {@link #run(Node)}, but skips the subtrees below the root for which
+     * {@code prune} returns true: those nodes are neither dispatched nor
+     * descended into.
+     */
+    public void run(Node root, Predicate<? super Node> prune) {
+        int visited = 0;
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.nextChild < frame.children.length) {
+                Node child = frame.children[frame.nextChild++];
+                if (!prune.test(child)) {
+                    stack.push(new Frame(child));
+                }
+            } else {
+                stack.pop();
+                dispatch(frame.node);
+                if ((++visited & 0xFF) == 0) {
+                    deadline.check();
+                }
+            }
+        }
+        visitedNodes = visited;
+    }
+
+    /**
+     * The number of nodes the last {@link #run} traversed.
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private void dispatch(Node node) {
+        for (int rule : dispatchTable.rulesFor(node.getClass())) {
+            rules[rule].visit(node);
+        }
+    }
+
+    /**
+     * Maps node classes to the positions of the rules interested in them, for
+     * every rule list with the given node types.
+     */
+    private static final class DispatchTable {
+
+        private final List<List<Class<? extends Node>>> nodeTypes;
+        private final Map<Class<?>, int[]> rulesByNodeClass = new ConcurrentHashMap<>();
+
+        DispatchTable(List<List<Class<? extends Node>>> nodeTypes) {
+            this.nodeTypes = nodeTypes;
+        }
+
+        int[] rulesFor(Class<?> nodeClass) {
+            int[] rules = rulesByNodeClass.get(nodeClass);
+            return rules != null ? rules : rulesByNodeClass.computeIfAbsent(nodeClass, this::computeRulesFor);
+        }
+
+        private int[] computeRulesFor(Class<?> nodeClass) {
+            int[] interested = new int[nodeTypes.size()];
+            int count = 0;
+            for (int i = 0; i < nodeTypes.size(); i++) {
+                for (Class<? extends Node> nodeType : nodeTypes.get(i)) {
+                    if (nodeType.isAssignableFrom(nodeClass)) {
+                        interested[count++] = i;
+                        break;
+                    }
+                }
+            }
+            return count == 0 ? NO_RULES : Arrays.copyOf(interested, count);
+        }
+    }
+
+    private static final class Frame {
+
+        final Node node;
+        final Node[] children;
+        int nextChild;
+
+        Frame(Node node) {
+            this.node = node;
+            this.children = node.getChildNodes().toArray(new Node[0]);
+        }
+    }
+}
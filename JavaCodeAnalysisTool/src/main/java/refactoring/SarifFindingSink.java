@@ -0,0 +1,106 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes findings as a SARIF 2.1.0 log with a single run. Results are streamed
+ * as they arrive; the tool description with the rules that actually fired is
+ * appended when the sink is closed, so nothing but the rule ids is kept in memory.
+ */
+public class SarifFindingSink implements FindingSink {
+
+    private static final String TOOL_NAME = "JavaCodeAnalysisTool";
+
+    private final Writer out;
+    private final StringBuilder buffer = new StringBuilder(512);
+    private final Set<String> ruleIds = new TreeSet<>();
+    private boolean firstResult = true;
+
+    public SarifFindingSink(Writer out) throws IOException {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+        this.out.write("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\","
+                + "\"runs\":[{\"results\":[\n");
+    }
+
+    @Override
+    public void accept(Finding finding) {
+        ruleIds.add(finding.getRuleId());
+        buffer.setLength(0);
+        if (!firstResult) {
+            buffer.append(",\n");
+        }
+        firstResult = false;
+        buffer.append("{\"ruleId\":");
+        Json.appendString(buffer, finding.getRuleId());
+        buffer.append(",\"level\":\"").append(finding.getSeverity().getSarifLevel()).append('"');
+        buffer.append(",\"message\":{\"text\":");
+        Json.appendString(buffer, finding.getMessage());
+        buffer.append("},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+        Json.appendString(buffer, finding.getFile().replace('\\', '/'));
+        buffer.append('}');
+        if (finding.getBeginLine() > 0) {
+            buffer.append(",\"region\":{\"startLine\":").append(finding.getBeginLine())
+                    .append(",\"startColumn\":").append(finding.getBeginColumn())
+                    .append(",\"endLine\":").append(finding.getEndLine())
+                    .append(",\"endColumn\":").append(finding.getEndColumn() + 1)
+                    .append('}');
+        }
+        buffer.append('}');
+        if (finding.getMember() != null) {
+            buffer.append(",\"logicalLocations\":[{\"fullyQualifiedName\":");
+            Json.appendString(buffer, finding.getMember());
+            buffer.append("}]");
+        }
+        buffer.append("}],\"partialFingerprints\":{\"findingFingerprint/v1\":\"")
+                .append(Baseline.toHex(finding.getFingerprint())).append("\"}}");
+        try {
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.setLength(0);
+        buffer.append("\n],\"tool\":{\"driver\":{\"name\":\"").append(TOOL_NAME).append("\",\"rules\":[");
+        boolean first = true;
+        for (String ruleId : ruleIds) {
+            if (!first) {
+                buffer.append(',');
+            }
+            first = false;
+            buffer.append("{\"id\":");
+            Json.appendString(buffer, ruleId);
+            buffer.append('}');
+        }
+        buffer.append("]}}}]}\n");
+        out.append(buffer);
+        out.close();
+    }
+}
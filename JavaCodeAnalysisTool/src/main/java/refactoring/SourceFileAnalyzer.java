@@ -0,0 +1,461 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the analysis pipeline on single source files. An instance owns its own
+ * {@link JavaParser} and creates a fresh {@link AdvancedControlFlowAnalyzer} and
+ * {@link NullCheckMethodVisitor} per file, because all three hold mutable state.
+ * Instances are therefore confined to one worker thread; the optional
+ * {@link AnalysisCache}, {@link TypeResolution} and {@link MethodMemo} may be shared.
+ * <p>
+ * Every file gets a {@link FileBudget}. Files above its size, and files that
+ * do not parse as a whole or not in time, are parsed body by body by a
+ * {@link PartialParser} instead of being given up, and analysis stops at the
+ * file's deadline. Such files yield a degraded result with the findings of the
+ * parts that were analyzed.
+ */
+public class SourceFileAnalyzer {
+
+    private static final String CACHED_RULES = "rules=try,synchronized,for,while,null-dereference,null-check";
+
+    private final JavaParser parser;
+    private final FindingSink sink;
+    private final AnalysisCache cache;
+    private final TypeResolution typeResolution;
+    private final PerformanceMetrics.Recorder recorder;
+    private final KeywordPrefilter prefilter;
+    private final long[] ruleTriggers;
+    private final List<String> triggerKeywords = new ArrayList<>();
+    private final MethodMemo memo;
+    private final FileBudget budget;
+    private final PartialParser partialParser;
+
+    /**
+     * @param sink receives the findings of every analyzed file; shared sinks must be thread-safe
+     * @param options the cache, type resolution, metrics, prefilter, memo and budget;
+     *        the null check store is not used here
+     */
+    public SourceFileAnalyzer(FindingSink sink, AnalysisOptions options) {
+        TypeResolution typeResolution = options.getTypeResolution();
+        PerformanceMetrics metrics = options.getMetrics();
+        ParserConfiguration configuration = new ParserConfiguration();
+        if (typeResolution != null) {
+            typeResolution.configure(configuration);
+        }
+        this.parser = new JavaParser(configuration);
+        this.sink = sink;
+        this.cache = options.getCache();
+        this.typeResolution = typeResolution;
+        this.recorder = metrics == null ? null : metrics.newRecorder();
+        this.memo = options.getMemo();
+        this.budget = options.getBudget();
+        this.partialParser = new PartialParser(parser);
+
+        // The rules are created per file, always in the same order; index i of
+        // ruleTriggers holds the keyword bits of the i-th rule, 0 if it always runs.
+        List<AnalysisRule> rules = createRules(new AdvancedControlFlowAnalyzer("", finding -> {
+        }, null), new NullCheckMethodVisitor());
+        this.ruleTriggers = new long[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            for (String keyword : rules.get(i).getTriggerKeywords()) {
+                if (!triggerKeywords.contains(keyword)) {
+                    triggerKeywords.add(keyword);
+                }
+                ruleTriggers[i] |= 1L << triggerKeywords.indexOf(keyword);
+            }
+        }
+        this.prefilter = options.isPrefilter() && !triggerKeywords.isEmpty() ? new KeywordPrefilter(triggerKeywords) : null;
+    }
+
+    /**
+     * Identifies the analysis rules and their behaviour in cache keys. The
+     * version comes from the build, see {@link BuildVersion}, so results of a
+     * build with different rules are never reused.
+     */
+    public static String cacheConfiguration() {
+        return "analysis-" + BuildVersion.get() + ";" + CACHED_RULES;
+    }
+
+    private static List<AnalysisRule> createRules(AdvancedControlFlowAnalyzer analyzer, NullCheckMethodVisitor nullCheckVisitor) {
+        List<AnalysisRule> rules = new ArrayList<>(analyzer.getRules());
+        rules.addAll(nullCheckVisitor.getRules());
+        return rules;
+    }
+
+    /**
+     * Analyzes the given file, or restores its result from the cache if the
+     * content was analyzed before. Findings are sent to the sink in both cases.
+     *
+     * @return the analysis result, or {@code null} if not even the file's declarations could be parsed
+     */
+    public FileAnalysisResult analyze(Path sourceFile) throws IOException {
+        return analyze(sourceFile, ByteBuffer.wrap(Files.readAllBytes(sourceFile)));
+    }
+
+    /**
+     * Analyzes content that was already read, e.g. by the reader stage of a
+     * {@link StagedPipeline}. The buffer may be memory-mapped; it is not modified.
+     *
+     * @return the analysis result, or {@code null} if not even the declarations could be parsed
+     */
+    public FileAnalysisResult analyze(Path sourceFile, ByteBuffer content) {
+        String file = sourceFile.toString();
+        if (recorder == null) {
+            return analyze(file, content);
+        }
+        try {
+            return analyze(file, content);
+        } finally {
+            recorder.finishFile(file);
+        }
+    }
+
+    private FileAnalysisResult analyze(String file, ByteBuffer content) {
+        long keywords = -1L;
+        if (prefilter != null) {
+            startPhase();
+            keywords = prefilter.scan(content);
+            stopPhase("prefilter");
+            if (!triggersAnyRule(keywords)) {
+                return FileAnalysisResult.skipped();
+            }
+        }
+
+        FileBudget.Deadline deadline = budget.start();
+        if (budget.isOversized(content.remaining())) {
+            return analyzePartially(file, decode(content), keywords, deadline,
+                    "larger than " + budget.getMaxBytes() + " bytes");
+        }
+
+        String cacheKey = null;
+        if (cache != null) {
+            startPhase();
+            cacheKey = cache.keyFor(content);
+            FileAnalysisResult cached = cache.get(cacheKey, file);
+            stopPhase("cache-lookup");
+            if (cached != null) {
+                cached.getFindings().forEach(sink::accept);
+                return cached;
+            }
+        }
+
+        startPhase();
+        // The method memo fingerprints methods by their text, so it needs the decoded source.
+        String source = memo == null ? null : decode(content);
+        ParseResult<CompilationUnit> parseResult = source == null ? parser.parse(deadline.limit(asInputStream(content)))
+                : parser.parse(deadline.limit(new StringReader(source)));
+        stopPhase("parse");
+        if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+            // The time budget starts over for the partial parse, which is cheaper and stops at its deadline.
+            String reason = deadline.isExpired() ? "parsing exceeded the time budget" : "the file does not parse as a whole";
+            return analyzePartially(file, source != null ? source : decode(content), keywords, budget.start(), reason);
+        }
+        FileAnalysisResult result = analyzeUnit(file, source, parseResult.getResult().get(), keywords, deadline);
+        if (cache != null && !result.isDegraded()) {
+            startPhase();
+            cache.put(cacheKey, result);
+            stopPhase("cache-store");
+        }
+        return result;
+    }
+
+    /**
+     * Runs every rule on a unit that was already parsed, e.g. to measure the
+     * rules without parsing. Neither the prefilter nor the cache is used.
+     *
+     * @param source the text the unit was parsed from, which the method memo needs
+     */
+    public FileAnalysisResult analyze(Path sourceFile, String source, CompilationUnit compilationUnit) {
+        String file = sourceFile.toString();
+        if (recorder == null) {
+            return analyzeUnit(file, source, compilationUnit, -1L, budget.start());
+        }
+        try {
+            return analyzeUnit(file, source, compilationUnit, -1L, budget.start());
+        } finally {
+            recorder.finishFile(file);
+        }
+    }
+
+    private FileAnalysisResult analyzeUnit(String file, String source, CompilationUnit compilationUnit, long keywords,
+            FileBudget.Deadline deadline) {
+        // Without the memo, all checks run in a single traversal of the compilation unit.
+        startPhase();
+        List<Finding> findings = new ArrayList<>();
+        FindingSink fileSink = finding -> {
+            findings.add(finding);
+            sink.accept(finding);
+            if (recorder != null) {
+                recorder.finding();
+            }
+        };
+        AdvancedControlFlowAnalyzer analyzer = new AdvancedControlFlowAnalyzer(file, fileSink, typeResolution);
+        NullCheckMethodVisitor nullCheckVisitor = new NullCheckMethodVisitor();
+        List<AnalysisRule> allRules = createRules(analyzer, nullCheckVisitor);
+        int visitedNodes = 0;
+        boolean expired = false;
+        try {
+            if (memo == null || source == null) {
+                RuleEngine engine = new RuleEngine(activeRules(allRules, keywords), recorder, deadline);
+                engine.run(compilationUnit);
+                visitedNodes = engine.getVisitedNodes();
+            } else {
+                visitedNodes = runMemoized(file, source, compilationUnit, keywords, allRules, fileSink,
+                        nullCheckVisitor.getCapturedLogic(), deadline);
+            }
+        } catch (FileBudget.ExceededException e) {
+            expired = true;
+        }
+        stopRulesPhase(visitedNodes, findings.size());
+
+        return expired
+                ? FileAnalysisResult.degraded(findings, nullCheckVisitor.getCapturedLogic(), "analysis exceeded the time budget")
+                : new FileAnalysisResult(findings, nullCheckVisitor.getCapturedLogic(), compilationUnit);
+    }
+
+    /**
+     * Analyzes a file body by body, for files too large or too slow to parse
+     * as a whole, or that do not parse. Each body is analyzed while attached to
+     * the skeleton of the file, and the rest of the skeleton afterwards, so
+     * checks that look across methods only see part of the file.
+     *
+     * @param reason why the file is not analyzed as a whole
+     * @return the degraded result, or {@code null} if not even the skeleton parses
+     */
+    private FileAnalysisResult analyzePartially(String file, String source, long keywords, FileBudget.Deadline deadline,
+            String reason) {
+        startPhase();
+        CompilationUnit skeleton = partialParser.parseSkeleton(source, deadline);
+        stopPhase("parse");
+        if (skeleton == null) {
+            return null;
+        }
+
+        startPhase();
+        List<Finding> findings = new ArrayList<>();
+        FindingSink fileSink = finding -> {
+            findings.add(finding);
+            sink.accept(finding);
+            if (recorder != null) {
+                recorder.finding();
+            }
+        };
+        NullCheckMethodVisitor nullCheckVisitor = new NullCheckMethodVisitor();
+        RuleEngine engine = new RuleEngine(activeRules(createRules(
+                new AdvancedControlFlowAnalyzer(file, fileSink, typeResolution), nullCheckVisitor), keywords), recorder, deadline);
+        int[] visitedNodes = new int[1];
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        PartialParser.Result partial = partialParser.forEachBody(source, skeleton, deadline, owner -> {
+            visited.add(owner);
+            engine.run(owner);
+            visitedNodes[0] += engine.getVisitedNodes();
+        });
+        String degradation = reason + ": " + partial;
+        if (!partial.isExpired()) {
+            try {
+                engine.run(skeleton, visited::contains);
+                visitedNodes[0] += engine.getVisitedNodes();
+            } catch (FileBudget.ExceededException e) {
+                degradation += ", stopped at the time budget";
+            }
+        }
+        stopRulesPhase(visitedNodes[0], findings.size());
+        return FileAnalysisResult.degraded(findings, nullCheckVisitor.getCapturedLogic(), degradation);
+    }
+
+    private List<AnalysisRule> activeRules(List<AnalysisRule> rules, long keywords) {
+        List<AnalysisRule> active = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            if (isActive(i, keywords)) {
+                active.add(rules.get(i));
+            }
+        }
+        return active;
+    }
+
+    private void stopRulesPhase(int visitedNodes, int findings) {
+        if (recorder != null) {
+            PerformanceMetrics.Counters phase = recorder.phase("rules");
+            phase.nodes += visitedNodes;
+            phase.findings += findings;
+            recorder.stop(phase);
+        }
+    }
+
+    /**
+     * Runs the method-local rules on each method through the memo, and the
+     * others on the whole unit. The local rules get their own analyzer and
+     * visitor, so their results can be told apart per method. The other rules
+     * skip the methods whose code contains none of their trigger keywords.
+     *
+     * @return the number of nodes traversed
+     */
+    private int runMemoized(String file, String source, CompilationUnit compilationUnit, long keywords,
+            List<AnalysisRule> rules, FindingSink fileSink,
+            Map<String, List<NullCheckMethodVisitor.NullCheckInfo>> capturedLogic, FileBudget.Deadline deadline) {
+        List<AnalysisRule> contextualRules = new ArrayList<>();
+        List<AnalysisRule> unitLocalRules = new ArrayList<>();
+        long contextualTriggers = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            if (!isActive(i, keywords)) {
+                continue;
+            }
+            if (rules.get(i).isMethodLocal()) {
+                unitLocalRules.add(rules.get(i));
+            } else {
+                contextualRules.add(rules.get(i));
+                contextualTriggers |= ruleTriggers[i] == 0 ? -1L : ruleTriggers[i];
+            }
+        }
+
+        // Outside of methods, e.g. in constructors and initializers, the local
+        // rules run as usual; the methods are collected for the memo.
+        List<MethodDeclaration> methods = new ArrayList<>();
+        RuleEngine unitEngine = new RuleEngine(unitLocalRules, recorder, deadline);
+        unitEngine.run(compilationUnit, node -> {
+            if (node instanceof MethodDeclaration) {
+                methods.add((MethodDeclaration) node);
+                return true;
+            }
+            return false;
+        });
+        int visitedNodes = unitEngine.getVisitedNodes();
+
+        Set<Node> untriggered = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!methods.isEmpty()) {
+            List<Finding> methodFindings = new ArrayList<>();
+            NullCheckMethodVisitor methodVisitor = new NullCheckMethodVisitor();
+            List<AnalysisRule> methodRules = createRules(
+                    new AdvancedControlFlowAnalyzer(file, methodFindings::add, typeResolution), methodVisitor);
+            List<AnalysisRule> localRules = new ArrayList<>();
+            long activeRules = 0;
+            for (int i = 0; i < methodRules.size(); i++) {
+                if (methodRules.get(i).isMethodLocal() && isActive(i, keywords)) {
+                    localRules.add(methodRules.get(i));
+                    activeRules |= 1L << i;
+                }
+            }
+            RuleEngine methodEngine = new RuleEngine(localRules, recorder, deadline);
+            int[] methodNodes = new int[1];
+            MethodMemo.Analysis analysis = (method, findings, nullChecks) -> {
+                methodEngine.run(method);
+                methodNodes[0] += methodEngine.getVisitedNodes();
+                findings.addAll(methodFindings);
+                methodFindings.clear();
+                nullChecks.putAll(methodVisitor.getCapturedLogic());
+                methodVisitor.getCapturedLogic().clear();
+            };
+            MethodMemo.Source methodSource = memo.forSource(file, source, activeRules, triggerKeywords);
+            for (MethodDeclaration method : methods) {
+                long methodKeywords = methodSource.analyze(method, analysis, fileSink, capturedLogic);
+                if ((methodKeywords & contextualTriggers) == 0) {
+                    untriggered.add(method);
+                }
+            }
+            visitedNodes += methodNodes[0];
+        }
+
+        if (!contextualRules.isEmpty()) {
+            RuleEngine contextualEngine = new RuleEngine(contextualRules, recorder, deadline);
+            contextualEngine.run(compilationUnit, untriggered::contains);
+            visitedNodes += contextualEngine.getVisitedNodes();
+        }
+        return visitedNodes;
+    }
+
+    private boolean triggersAnyRule(long keywords) {
+        for (int i = 0; i < ruleTriggers.length; i++) {
+            if (isActive(i, keywords)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the i-th rule runs on a file or method containing the given keywords.
+     */
+    private boolean isActive(int rule, long keywords) {
+        return ruleTriggers[rule] == 0 || (ruleTriggers[rule] & keywords) != 0;
+    }
+
+    private void startPhase() {
+        if (recorder != null) {
+            recorder.start();
+        }
+    }
+
+    private void stopPhase(String phase) {
+        if (recorder != null) {
+            recorder.stop(recorder.phase(phase));
+        }
+    }
+
+    private static String decode(ByteBuffer content) {
+        return StandardCharsets.UTF_8.decode(content.duplicate()).toString();
+    }
+
+    private static InputStream asInputStream(ByteBuffer content) {
+        if (content.hasArray()) {
+            return new ByteArrayInputStream(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        }
+        ByteBuffer source = content.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return source.hasRemaining() ? source.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!source.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, source.remaining());
+                source.get(bytes, offset, count);
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves a command line argument into the list of Java source files to analyze.
+ * The argument may be a single file, a directory (walked recursively) or a glob
+ * pattern such as {@code src/main/java/**}{@code /*.java}. Jar and zip archives,
+ * e.g. matched by {@code **}{@code /*-sources.jar}, are returned as they are;
+ * the {@link StagedPipeline} reads the Java sources inside them.
+ */
+public class SourceFileLocator {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    public static List<Path> locate(String argument) throws IOException {
+        return locate(argument, false);
+    }
+
+    /**
+     * @param archives whether a directory walk also returns the jar and zip archives in it
+     */
+    public static List<Path> locate(String argument, boolean archives) throws IOException {
+        if (isGlob(argument)) {
+            return locateByGlob(argument);
+        }
+        Path path = Paths.get(argument);
+        if (Files.isDirectory(path)) {
+            return walk(path, file -> isJavaSource(file.getFileName().toString()) || (archives && isArchive(file)));
+        }
+        List<Path> single = new ArrayList<>();
+        single.add(path);
+        return single;
+    }
+
+    static boolean isGlob(String argument) {
+        for (int i = 0; i < argument.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(argument.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Path> locateByGlob(String pattern) throws IOException {
+        // Walk from the longest leading directory that contains no glob characters.
+        String normalized = pattern.replace('\\', '/');
+        int firstGlob = 0;
+        while (firstGlob < normalized.length() && GLOB_CHARACTERS.indexOf(normalized.charAt(firstGlob)) < 0) {
+            firstGlob++;
+        }
+        int lastSeparator = normalized.lastIndexOf('/', firstGlob);
+        Path base = lastSeparator < 0 ? Paths.get(".") : Paths.get(normalized.substring(0, lastSeparator + 1));
+        String relativePattern = lastSeparator < 0 ? normalized : normalized.substring(lastSeparator + 1);
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String variant : collapseDirectoryWildcards(relativePattern)) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + variant));
+        }
+        return walk(base, path -> {
+            Path relative = base.relativize(path);
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(relative)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * The pattern with every combination of its {@code **}{@code /} segments
+     * left in place or removed. In Java's globs, {@code **}{@code /} needs at
+     * least one directory, while users expect {@code src/**}{@code /*.java} to
+     * match {@code src/Top.java} as well.
+     */
+    static List<String> collapseDirectoryWildcards(String pattern) {
+        List<String> variants = new ArrayList<>();
+        variants.add("");
+        int copied = 0;
+        for (int i = pattern.indexOf("**/"); i >= 0; i = pattern.indexOf("**/", i + 3)) {
+            if (i > 0 && pattern.charAt(i - 1) != '/') {
+                continue;
+            }
+            List<String> extended = new ArrayList<>(variants.size() * 2);
+            for (String variant : variants) {
+                String prefix = variant + pattern.substring(copied, i);
+                extended.add(prefix + "**/");
+                extended.add(prefix);
+            }
+            variants = extended;
+            copied = i + 3;
+        }
+        List<String> patterns = new ArrayList<>(variants.size());
+        for (String variant : variants) {
+            patterns.add(variant + pattern.substring(copied));
+        }
+        return patterns;
+    }
+
+    private static List<Path> walk(Path root, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(filter)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static boolean isJavaSource(String name) {
+        return name.endsWith(".java");
+    }
+
+    /**
+     * Whether the file is a jar or zip archive, judged by its name.
+     */
+    public static boolean isArchive(Path path) {
+        Path name = path.getFileName();
+        if (name == null) {
+            return false;
+        }
+        String lowerCase = name.toString().toLowerCase(Locale.ROOT);
+        return lowerCase.endsWith(".jar") || lowerCase.endsWith(".zip");
+    }
+}
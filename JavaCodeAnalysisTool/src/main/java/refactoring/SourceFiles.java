@@ -0,0 +1,100 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes rewritten source files. A file is replaced by moving a fully written
+ * temporary file from the same directory over it, so a reader never sees a
+ * half-written file, and files whose content would not change are not touched
+ * at all, which keeps their timestamps and spares build tools a recompile.
+ */
+public final class SourceFiles {
+
+    private SourceFiles() {
+    }
+
+    /**
+     * Writes the content to the target unless the target already holds exactly
+     * that content.
+     *
+     * @return whether the file was written
+     */
+    public static boolean writeIfChanged(Path target, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (Files.isRegularFile(target) && Files.size(target) == bytes.length
+                && Arrays.equals(Files.readAllBytes(target), bytes)) {
+            return false;
+        }
+        writeAtomically(target, bytes);
+        return true;
+    }
+
+    /**
+     * Replaces the target with the given bytes through a temporary file in the
+     * target's directory. The replaced file keeps the target's permissions; a
+     * new file gets the permissions any newly created file would get.
+     */
+    public static void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path temporary = createTemporary(absolute);
+        try {
+            Files.write(temporary, bytes);
+            // Only after writing, as the target may well be read-only.
+            if (Files.exists(absolute) && absolute.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(absolute));
+            }
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file next to the target. Unlike
+     * {@link Files#createTempFile}, which restricts the file to its owner, this
+     * leaves the permissions to the process's umask.
+     */
+    private static Path createTemporary(Path target) throws IOException {
+        while (true) {
+            Path temporary = target.resolveSibling("." + target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temporary);
+            } catch (FileAlreadyExistsException e) {
+                // Try another name.
+            }
+        }
+    }
+}
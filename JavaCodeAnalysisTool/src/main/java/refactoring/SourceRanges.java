@@ -0,0 +1,93 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+
+/**
+ * Helpers for mapping JavaParser ranges (1-based, inclusive line/column pairs)
+ * back onto the source text they were parsed from.
+ */
+public class SourceRanges {
+
+    private SourceRanges() {
+    }
+
+    /**
+     * Returns the text covered by {@code range}, or an empty string if the range
+     * lies outside of {@code source}.
+     */
+    public static String slice(String source, Range range) {
+        int begin = offsetOf(source, range.begin);
+        int end = offsetOf(source, range.end);
+        if (begin < 0 || end < 0 || end < begin) {
+            return "";
+        }
+        return source.substring(begin, Math.min(end + 1, source.length()));
+    }
+
+    /**
+     * The character offset of {@code position} in {@code source}, or -1 if there
+     * is no such position.
+     */
+    public static int offsetOf(String source, Position position) {
+        int offset = 0;
+        for (int line = 1; line < position.line; line++) {
+            offset = source.indexOf('\n', offset);
+            if (offset < 0) {
+                return -1;
+            }
+            offset++;
+        }
+        int result = offset + position.column - 1;
+        return result < source.length() ? result : -1;
+    }
+
+    /**
+     * The offset of the first character of every line, for mapping many
+     * positions of one source without scanning it again each time.
+     */
+    public static int[] lineStarts(String source) {
+        int lines = 1;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        int[] lineStarts = new int[lines];
+        int line = 1;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                lineStarts[line++] = i + 1;
+            }
+        }
+        return lineStarts;
+    }
+
+    /**
+     * The character offset of {@code position}, given the {@link #lineStarts}
+     * of its source.
+     */
+    public static int offsetOf(int[] lineStarts, Position position) {
+        return lineStarts[position.line - 1] + position.column - 1;
+    }
+}
@@ -0,0 +1,140 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one stage of a {@link StagedPipeline}: items and bytes processed,
+ * time spent working, waiting for input and blocked on a full output queue, and
+ * the depth of the output queue. The stage with the highest utilization is the
+ * bottleneck; a stage blocked on its output waits for a slower stage downstream.
+ */
+public class StageStats {
+
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder inputWaitNanos = new LongAdder();
+    private final LongAdder outputWaitNanos = new LongAdder();
+    private final LongAdder queueDepthSum = new LongAdder();
+    private final LongAdder queueDepthSamples = new LongAdder();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private volatile long wallNanos;
+
+    /**
+     * @param queueCapacity the capacity of the stage's output queue, or 0 if it has none
+     */
+    StageStats(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    void recordItem(long itemBytes, long itemBusyNanos) {
+        items.increment();
+        bytes.add(itemBytes);
+        busyNanos.add(itemBusyNanos);
+    }
+
+    void recordInputWait(long nanos) {
+        inputWaitNanos.add(nanos);
+    }
+
+    void recordOutput(long waitNanos, int queueDepth) {
+        outputWaitNanos.add(waitNanos);
+        queueDepthSum.add(queueDepth);
+        queueDepthSamples.increment();
+        maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+    }
+
+    void finish(long pipelineWallNanos) {
+        this.wallNanos = pipelineWallNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getBusyNanos() {
+        return busyNanos.sum();
+    }
+
+    public long getInputWaitNanos() {
+        return inputWaitNanos.sum();
+    }
+
+    public long getOutputWaitNanos() {
+        return outputWaitNanos.sum();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public double getAverageQueueDepth() {
+        long samples = queueDepthSamples.sum();
+        return samples == 0 ? 0 : (double) queueDepthSum.sum() / samples;
+    }
+
+    /**
+     * The share of the stage's thread time spent working, between 0 and 1.
+     */
+    public double getUtilization() {
+        return wallNanos == 0 ? 0 : Math.min(1, (double) getBusyNanos() / ((double) wallNanos * threads));
+    }
+
+    /**
+     * Items per second of pipeline wall time.
+     */
+    public double getThroughput() {
+        return wallNanos == 0 ? 0 : getItems() * 1e9 / wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-8s %2d threads %7d items %9.1f items/s %9.1f MB  utilization %3.0f%%  "
+                        + "waiting for input %6d ms  blocked on output %6d ms",
+                name, threads, getItems(), getThroughput(), getBytes() / 1048576.0, getUtilization() * 100,
+                getInputWaitNanos() / 1_000_000, getOutputWaitNanos() / 1_000_000));
+        if (queueCapacity > 0) {
+            text.append(String.format("  queue avg %.1f max %d/%d", getAverageQueueDepth(), getMaxQueueDepth(), queueCapacity));
+        }
+        return text.toString();
+    }
+}
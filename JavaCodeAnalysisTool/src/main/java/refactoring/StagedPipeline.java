@@ -0,0 +1,420 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Processes files in three overlapping stages connected by bounded queues:
+ * <ol>
+ * <li>read: many I/O threads read files with NIO, memory-mapping large ones;</li>
+ * <li>process: a fixed, CPU-sized pool parses and analyzes, one
+ * {@link Worker} per thread;</li>
+ * <li>write: the calling thread emits every result, so writers need not be
+ * thread-safe.</li>
+ * </ol>
+ * A full queue blocks the stage feeding it, and at most {@code readers} files are
+ * being read at any time, so the amount of content in flight is bounded no
+ * matter how many files there are. Readers run on virtual threads where the
+ * runtime offers them as a final feature, and on a pool of platform threads
+ * otherwise.
+ * <p>
+ * Jar and zip archives among the files are not processed themselves. Each of
+ * their Java source entries is, streamed out of the archive without extracting
+ * it to disk, under the name {@code <archive>!/<entry>}. Entries of one archive
+ * are read in parallel like files, and an archive is closed as soon as its
+ * last entry is read, so only archives with reads in flight are open.
+ *
+ * @param <R> the result of processing one file
+ */
+public class StagedPipeline<R> {
+
+    public static final int DEFAULT_READERS = 32;
+    public static final long DEFAULT_MAP_THRESHOLD = 1024 * 1024;
+
+    private static final Object END = new Object();
+
+    private final int readers;
+    private final int workers;
+    private final int queueCapacity;
+    private final long mapThreshold;
+    private final StageStats readStats;
+    private final StageStats processStats;
+    private final StageStats writeStats;
+
+    /**
+     * Creates a pipeline with {@value #DEFAULT_READERS} readers and queues holding
+     * four items per worker.
+     */
+    public StagedPipeline(int workers) {
+        this(DEFAULT_READERS, workers, 4 * workers, DEFAULT_MAP_THRESHOLD);
+    }
+
+    /**
+     * @param readers the maximum number of files read concurrently
+     * @param workers the number of threads processing files
+     * @param queueCapacity the capacity of each of the two queues
+     * @param mapThreshold the size in bytes from which files are memory-mapped instead of read
+     */
+    public StagedPipeline(int readers, int workers, int queueCapacity, long mapThreshold) {
+        if (readers < 1 || workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Readers, workers and queue capacity must be at least 1");
+        }
+        this.readers = readers;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.mapThreshold = mapThreshold;
+        this.readStats = new StageStats("read", readers, queueCapacity);
+        this.processStats = new StageStats("process", workers, queueCapacity);
+        this.writeStats = new StageStats("write", 1, 0);
+    }
+
+    /**
+     * Processes one file on a worker thread. Instances are confined to their thread.
+     */
+    @FunctionalInterface
+    public interface Worker<R> {
+
+        /**
+         * @return the result to write, or {@code null} if there is nothing to write
+         */
+        R process(Source source) throws IOException;
+    }
+
+    /**
+     * Emits results on the thread that runs the pipeline.
+     */
+    @FunctionalInterface
+    public interface ResultWriter<R> {
+
+        void write(R result) throws IOException;
+    }
+
+    /**
+     * A file as read by the reader stage, or the error that occurred reading it.
+     */
+    public static final class Source {
+
+        private final Path file;
+        private final ByteBuffer content;
+        private final IOException failure;
+
+        private Source(Path file, ByteBuffer content, IOException failure) {
+            this.file = file;
+            this.content = content;
+            this.failure = failure;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * The file's content; memory-mapped for large files.
+         *
+         * @throws IOException if the file could not be read
+         */
+        public ByteBuffer getContent() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            return content;
+        }
+
+        long size() {
+            return content == null ? 0 : content.remaining();
+        }
+    }
+
+    /**
+     * Runs all files, and the Java sources in all archives, through the pipeline
+     * and returns when every result is written.
+     * If a worker or the writer fails, the remaining files are abandoned and the
+     * failure is rethrown.
+     *
+     * @param workerFactory creates the worker of each processing thread
+     */
+    public void run(List<Path> files, Supplier<? extends Worker<R>> workerFactory, ResultWriter<? super R> writer)
+            throws IOException, InterruptedException {
+        BlockingQueue<Object> sources = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> results = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService readerExecutor = newReaderExecutor();
+        ExecutorService workerExecutor = Executors.newFixedThreadPool(workers, namedThreads("pipeline-worker-"));
+        Thread feeder = new Thread(() -> feed(files, readerExecutor, sources, failure), "pipeline-feeder");
+        feeder.setDaemon(true);
+
+        long start = System.nanoTime();
+        try {
+            feeder.start();
+            for (int i = 0; i < workers; i++) {
+                workerExecutor.execute(() -> process(workerFactory, sources, results, failure));
+            }
+            write(writer, results, failure);
+        } finally {
+            feeder.interrupt();
+            readerExecutor.shutdownNow();
+            workerExecutor.shutdownNow();
+            long wallNanos = System.nanoTime() - start;
+            readStats.finish(wallNanos);
+            processStats.finish(wallNanos);
+            writeStats.finish(wallNanos);
+        }
+    }
+
+    public List<StageStats> getStats() {
+        return Arrays.asList(readStats, processStats, writeStats);
+    }
+
+    /**
+     * Starts one read per file, never more than {@code readers} at a time, and
+     * signals the end of input to every worker once all reads are done.
+     */
+    private void feed(List<Path> files, ExecutorService readerExecutor, BlockingQueue<Object> sources,
+            AtomicReference<Throwable> failure) {
+        Semaphore readPermits = new Semaphore(readers);
+        try {
+            for (Path file : files) {
+                if (SourceFileLocator.isArchive(file)) {
+                    feedArchive(file, readerExecutor, sources, failure, readPermits);
+                    continue;
+                }
+                readPermits.acquire();
+                readerExecutor.execute(() -> {
+                    try {
+                        readInto(() -> read(file), sources, failure);
+                    } finally {
+                        readPermits.release();
+                    }
+                });
+            }
+            readPermits.acquire(readers);
+            for (int i = 0; i < workers; i++) {
+                sources.put(END);
+            }
+        } catch (InterruptedException e) {
+            // The pipeline is being shut down.
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Starts one read per Java source entry of the archive. The last read to
+     * finish, or the feeder if there are none, closes the archive.
+     */
+    private void feedArchive(Path archive, ExecutorService readerExecutor, BlockingQueue<Object> sources,
+            AtomicReference<Throwable> failure, Semaphore readPermits) throws InterruptedException {
+        ZipFile zip;
+        try {
+            zip = new ZipFile(archive.toFile());
+        } catch (IOException e) {
+            sources.put(new Source(archive, null, e));
+            return;
+        }
+        // One reference for the feeder and one per read in flight.
+        AtomicInteger references = new AtomicInteger(1);
+        try {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !SourceFileLocator.isJavaSource(entry.getName())) {
+                    continue;
+                }
+                readPermits.acquire();
+                references.incrementAndGet();
+                readerExecutor.execute(() -> {
+                    try {
+                        readInto(() -> read(zip, archive, entry), sources, failure);
+                    } finally {
+                        release(zip, references);
+                        readPermits.release();
+                    }
+                });
+            }
+        } finally {
+            release(zip, references);
+        }
+    }
+
+    private static void release(ZipFile zip, AtomicInteger references) {
+        if (references.decrementAndGet() == 0) {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // Everything was read; nothing is lost.
+            }
+        }
+    }
+
+    private void readInto(Supplier<Source> reader, BlockingQueue<Object> sources, AtomicReference<Throwable> failure) {
+        try {
+            long readStart = System.nanoTime();
+            Source source = reader.get();
+            long readEnd = System.nanoTime();
+            readStats.recordItem(source.size(), readEnd - readStart);
+            sources.put(source);
+            readStats.recordOutput(System.nanoTime() - readEnd, sources.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Reads an archive entry into memory; entries cannot be mapped.
+     */
+    private static Source read(ZipFile zip, Path archive, ZipEntry entry) {
+        Path name = Paths.get(archive + "!/" + entry.getName());
+        try (InputStream in = zip.getInputStream(entry)) {
+            if (entry.getSize() > Integer.MAX_VALUE) {
+                throw new IOException("Entry too large: " + entry.getSize() + " bytes");
+            }
+            return new Source(name, ByteBuffer.wrap(in.readAllBytes()), null);
+        } catch (IOException e) {
+            return new Source(name, null, e);
+        }
+    }
+
+    private Source read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= mapThreshold) {
+                return new Source(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), null);
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // Keep reading until the buffer is full or the file ends early.
+            }
+            content.flip();
+            return new Source(file, content, null);
+        } catch (IOException e) {
+            return new Source(file, null, e);
+        }
+    }
+
+    private void process(Supplier<? extends Worker<R>> workerFactory, BlockingQueue<Object> sources,
+            BlockingQueue<Object> results, AtomicReference<Throwable> failure) {
+        try {
+            Worker<R> worker = workerFactory.get();
+            while (true) {
+                long waitStart = System.nanoTime();
+                Object next = sources.take();
+                long processStart = System.nanoTime();
+                processStats.recordInputWait(processStart - waitStart);
+                if (next == END) {
+                    break;
+                }
+                Source source = (Source) next;
+                R result = worker.process(source);
+                long processEnd = System.nanoTime();
+                processStats.recordItem(source.size(), processEnd - processStart);
+                if (result != null) {
+                    results.put(result);
+                    processStats.recordOutput(System.nanoTime() - processEnd, results.size());
+                }
+            }
+            results.put(END);
+        } catch (InterruptedException e) {
+            // The pipeline is being shut down.
+        } catch (IOException | RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(ResultWriter<? super R> writer, BlockingQueue<Object> results, AtomicReference<Throwable> failure)
+            throws IOException, InterruptedException {
+        int finishedWorkers = 0;
+        while (finishedWorkers < workers) {
+            long waitStart = System.nanoTime();
+            Object next = results.poll(100, TimeUnit.MILLISECONDS);
+            long writeStart = System.nanoTime();
+            writeStats.recordInputWait(writeStart - waitStart);
+            rethrow(failure.get());
+            if (next == null) {
+                continue;
+            }
+            if (next == END) {
+                finishedWorkers++;
+                continue;
+            }
+            writer.write((R) next);
+            writeStats.recordItem(0, System.nanoTime() - writeStart);
+        }
+        rethrow(failure.get());
+    }
+
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * A virtual thread per read on runtimes where virtual threads are final
+     * (Java 21 and later); this project targets Java 19, where they are a preview
+     * feature, so the method is looked up reflectively. Elsewhere a fixed pool of
+     * platform threads is used.
+     */
+    private ExecutorService newReaderExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(readers, namedThreads("pipeline-reader-"));
+        }
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
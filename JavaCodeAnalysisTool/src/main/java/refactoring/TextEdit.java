@@ -0,0 +1,120 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Replaces a range of characters of a source text. Edits computed from a parsed
+ * compilation unit are applied to the original text, so everything outside
+ * them, formatting and comments included, stays exactly as it was, and no
+ * printer has to run over the unit.
+ */
+public final class TextEdit {
+
+    private static final Comparator<TextEdit> BY_OFFSET = Comparator.comparingInt(TextEdit::getOffset)
+            .thenComparingInt(TextEdit::getLength);
+
+    private final int offset;
+    private final int length;
+    private final String replacement;
+
+    /**
+     * @param offset the offset of the first replaced character
+     * @param length the number of replaced characters, 0 for an insertion
+     */
+    public TextEdit(int offset, int length, String replacement) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid range " + offset + "+" + length);
+        }
+        this.offset = offset;
+        this.length = length;
+        this.replacement = replacement;
+    }
+
+    public static TextEdit insert(int offset, String text) {
+        return new TextEdit(offset, 0, text);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getEnd() {
+        return offset + length;
+    }
+
+    public String getReplacement() {
+        return replacement;
+    }
+
+    /**
+     * Whether both edits touch the same characters, or insert at the same
+     * offset, so that the result would depend on their order.
+     */
+    public boolean overlaps(TextEdit other) {
+        if (offset == other.offset) {
+            return true;
+        }
+        return offset < other.getEnd() && other.offset < getEnd();
+    }
+
+    /**
+     * Applies the edits in one pass over the source.
+     *
+     * @param edits edits in any order, none of which overlap
+     * @throws IllegalArgumentException if two edits overlap or one lies outside the source
+     */
+    public static String apply(String source, List<TextEdit> edits) {
+        List<TextEdit> sorted = new ArrayList<>(edits);
+        sorted.sort(BY_OFFSET);
+        int growth = 0;
+        for (TextEdit edit : sorted) {
+            growth += edit.replacement.length() - edit.length;
+        }
+        StringBuilder result = new StringBuilder(Math.max(source.length() + growth, 16));
+        int copied = 0;
+        TextEdit previous = null;
+        for (TextEdit edit : sorted) {
+            if (previous != null && previous.overlaps(edit)) {
+                throw new IllegalArgumentException("Overlapping edits at " + previous.offset + " and " + edit.offset);
+            }
+            if (edit.getEnd() > source.length()) {
+                throw new IllegalArgumentException("Edit at " + edit.offset + " ends after the source");
+            }
+            result.append(source, copied, edit.offset).append(edit.replacement);
+            copied = edit.getEnd();
+            previous = edit;
+        }
+        return result.append(source, copied, source.length()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return offset + "+" + length + ": " + replacement;
+    }
+}
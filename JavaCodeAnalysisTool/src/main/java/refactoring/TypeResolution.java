@@ -0,0 +1,202 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Type resolution shared by all files and worker threads of a run. Types are
+ * looked up in the JDK, then in the configured source roots, then in the
+ * configured jar files.
+ * <p>
+ * Two concurrent memo caches sit in front of the symbol solver: one maps
+ * qualified names to their declarations (including names that could not be
+ * solved), the other maps a type to the qualified names of all its ancestors.
+ * Resolving the same types across thousands of loops therefore costs one map
+ * lookup after the first time.
+ */
+public class TypeResolution {
+
+    private final List<Path> sourceRoots;
+    private final List<Path> jars;
+    private final MemoizingTypeSolver typeSolver;
+    private final JavaSymbolSolver symbolResolver;
+    private final ConcurrentHashMap<String, Set<String>> ancestorNames = new ConcurrentHashMap<>();
+    private final LongAdder ancestorHits = new LongAdder();
+    private final LongAdder ancestorMisses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Resolves JDK types only.
+     */
+    public TypeResolution() throws IOException {
+        this(Collections.emptyList(), Collections.emptyList());
+    }
+
+    public TypeResolution(List<Path> sourceRoots, List<Path> jars) throws IOException {
+        this.sourceRoots = new ArrayList<>(sourceRoots);
+        this.jars = new ArrayList<>(jars);
+        CombinedTypeSolver combined = new CombinedTypeSolver(new ReflectionTypeSolver());
+        for (Path sourceRoot : sourceRoots) {
+            combined.add(new JavaParserTypeSolver(sourceRoot));
+        }
+        for (Path jar : jars) {
+            combined.add(new JarTypeSolver(jar));
+        }
+        this.typeSolver = new MemoizingTypeSolver(combined);
+        this.symbolResolver = new JavaSymbolSolver(typeSolver);
+    }
+
+    /**
+     * Makes compilation units parsed with the given configuration resolvable
+     * through this instance.
+     */
+    public ParserConfiguration configure(ParserConfiguration configuration) {
+        return configuration.setSymbolResolver(symbolResolver);
+    }
+
+    /**
+     * Whether the given type is, or extends or implements, the type with the given
+     * qualified name. Type arguments are ignored.
+     */
+    public boolean isSubtypeOf(ResolvedReferenceType type, String qualifiedName) {
+        if (type.getQualifiedName().equals(qualifiedName)) {
+            return true;
+        }
+        return getAncestorNames(type).contains(qualifiedName);
+    }
+
+    private Set<String> getAncestorNames(ResolvedReferenceType type) {
+        String name = type.getQualifiedName();
+        Set<String> names = ancestorNames.get(name);
+        if (names != null) {
+            ancestorHits.increment();
+            return names;
+        }
+        ancestorMisses.increment();
+        names = new HashSet<>();
+        // Throws if an ancestor cannot be solved; such types are not memoized.
+        for (ResolvedReferenceType ancestor : type.getAllAncestors()) {
+            names.add(ancestor.getQualifiedName());
+        }
+        Set<String> previous = ancestorNames.putIfAbsent(name, Collections.unmodifiableSet(names));
+        return previous != null ? previous : names;
+    }
+
+    /**
+     * Counts a type-aware check that had to give up because a type could not be
+     * resolved.
+     */
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * Identifies the resolution inputs in cache keys, since they decide which
+     * type-aware findings are reported.
+     */
+    public String describe() {
+        return "sourceRoots=" + sourceRoots + ";jars=" + jars;
+    }
+
+    public long getTypeHits() {
+        return typeSolver.hits.sum();
+    }
+
+    public long getTypeMisses() {
+        return typeSolver.misses.sum();
+    }
+
+    public long getAncestorHits() {
+        return ancestorHits.sum();
+    }
+
+    public long getAncestorMisses() {
+        return ancestorMisses.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * The root of the type solver hierarchy. Every type lookup of the symbol
+     * solver, including those of the source root and jar solvers, goes through
+     * the root and is answered from the memo after its first occurrence.
+     */
+    private static final class MemoizingTypeSolver implements TypeSolver {
+
+        private final TypeSolver delegate;
+        private final ConcurrentHashMap<String, SymbolReference<ResolvedReferenceTypeDeclaration>> solvedTypes =
+                new ConcurrentHashMap<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        MemoizingTypeSolver(TypeSolver delegate) {
+            this.delegate = delegate;
+            delegate.setParent(this);
+        }
+
+        @Override
+        public TypeSolver getParent() {
+            return null;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            throw new UnsupportedOperationException("The memoizing type solver must be the root");
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> reference = solvedTypes.get(name);
+            if (reference != null) {
+                hits.increment();
+                return reference;
+            }
+            misses.increment();
+            // Not computeIfAbsent: solving a type recursively solves others, which
+            // must not happen inside a ConcurrentHashMap update.
+            reference = delegate.tryToSolveType(name);
+            SymbolReference<ResolvedReferenceTypeDeclaration> previous = solvedTypes.putIfAbsent(name, reference);
+            return previous != null ? previous : reference;
+        }
+    }
+}
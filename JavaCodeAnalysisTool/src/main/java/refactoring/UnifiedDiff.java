@@ -0,0 +1,214 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders the difference between two versions of a file as a unified diff that
+ * {@code git apply} and {@code patch -p1} accept, with three lines of context.
+ * Lines are compared with Myers' algorithm after stripping the common prefix and
+ * suffix, which for the typical small edit leaves almost nothing to compare.
+ */
+public final class UnifiedDiff {
+
+    private static final int CONTEXT = 3;
+
+    /**
+     * Above this many differing lines the shortest edit script is not searched
+     * for any further; the remaining middle part is replaced as a whole.
+     */
+    private static final int MAX_EDIT_DISTANCE = 2000;
+
+    private UnifiedDiff() {
+    }
+
+    /**
+     * @param path the file's path relative to the patch root, using {@code /} separators
+     * @return the diff, or an empty string if both versions are equal
+     */
+    public static String diff(String path, String original, String revised) {
+        if (original.equals(revised)) {
+            return "";
+        }
+        String[] a = lines(original);
+        String[] b = lines(revised);
+        boolean[] deleted = new boolean[a.length];
+        boolean[] inserted = new boolean[b.length];
+        compare(a, b, deleted, inserted);
+
+        StringBuilder out = new StringBuilder();
+        out.append("--- a/").append(path).append('\n');
+        out.append("+++ b/").append(path).append('\n');
+        List<int[]> changes = changes(deleted, inserted);
+        int first = 0;
+        while (first < changes.size()) {
+            // Changes closer than twice the context share one hunk.
+            int last = first;
+            while (last + 1 < changes.size() && changes.get(last + 1)[0] - changes.get(last)[1] <= 2 * CONTEXT) {
+                last++;
+            }
+            appendHunk(out, a, b, deleted, inserted, changes.get(first), changes.get(last));
+            first = last + 1;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Splits text into lines that keep their terminator, so that a missing final
+     * newline is a difference too.
+     */
+    private static String[] lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    private static void compare(String[] a, String[] b, boolean[] deleted, boolean[] inserted) {
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix].equals(b[prefix])) {
+            prefix++;
+        }
+        int aEnd = a.length;
+        int bEnd = b.length;
+        while (aEnd > prefix && bEnd > prefix && a[aEnd - 1].equals(b[bEnd - 1])) {
+            aEnd--;
+            bEnd--;
+        }
+        int n = aEnd - prefix;
+        int m = bEnd - prefix;
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            // Only diagonals -d..d are read by the backtracking of step d.
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1] : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[prefix + x].equals(b[prefix + y])) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(trace, n, m, prefix, deleted, inserted);
+                    return;
+                }
+            }
+        }
+        Arrays.fill(deleted, prefix, aEnd, true);
+        Arrays.fill(inserted, prefix, bEnd, true);
+    }
+
+    private static void backtrack(List<int[]> trace, int n, int m, int prefix, boolean[] deleted, boolean[] inserted) {
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            // v holds diagonals -d..d at indexes 0..2d.
+            int previousK = k == -d || (k != d && v[k - 1 + d] < v[k + 1 + d]) ? k + 1 : k - 1;
+            int previousX = v[previousK + d];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+            }
+            if (x == previousX) {
+                inserted[prefix + previousY] = true;
+            } else {
+                deleted[prefix + previousX] = true;
+            }
+            x = previousX;
+            y = previousY;
+        }
+    }
+
+    /**
+     * Groups the changed lines into blocks of {aStart, aEnd, bStart, bEnd}.
+     */
+    private static List<int[]> changes(boolean[] deleted, boolean[] inserted) {
+        List<int[]> changes = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < deleted.length || j < inserted.length) {
+            if ((i < deleted.length && deleted[i]) || (j < inserted.length && inserted[j])) {
+                int aStart = i;
+                int bStart = j;
+                while (i < deleted.length && deleted[i]) {
+                    i++;
+                }
+                while (j < inserted.length && inserted[j]) {
+                    j++;
+                }
+                changes.add(new int[] {aStart, i, bStart, j});
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return changes;
+    }
+
+    private static void appendHunk(StringBuilder out, String[] a, String[] b, boolean[] deleted, boolean[] inserted,
+            int[] firstChange, int[] lastChange) {
+        int aFrom = Math.max(0, firstChange[0] - CONTEXT);
+        int bFrom = firstChange[2] - (firstChange[0] - aFrom);
+        int aTo = Math.min(a.length, lastChange[1] + CONTEXT);
+        int bTo = lastChange[3] + (aTo - lastChange[1]);
+        out.append("@@ -").append(aTo == aFrom ? aFrom : aFrom + 1).append(',').append(aTo - aFrom)
+                .append(" +").append(bTo == bFrom ? bFrom : bFrom + 1).append(',').append(bTo - bFrom)
+                .append(" @@\n");
+        int i = aFrom;
+        int j = bFrom;
+        while (i < aTo || j < bTo) {
+            if (i < aTo && deleted[i]) {
+                appendLine(out, '-', a[i++]);
+            } else if (j < bTo && inserted[j]) {
+                appendLine(out, '+', b[j++]);
+            } else {
+                appendLine(out, ' ', a[i++]);
+                j++;
+            }
+        }
+    }
+
+    private static void appendLine(StringBuilder out, char prefix, String line) {
+        out.append(prefix).append(line);
+        if (!line.endsWith("\n")) {
+            out.append("\n\\ No newline at end of file\n");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BaselineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void suppressesEachKnownCopyOnce() throws Exception {
+        Path file = directory.resolve("baseline");
+        Baseline.of(new long[] {7, 3, 7}, 3).write(file);
+        Baseline baseline = Baseline.read(file);
+        assertEquals(3, baseline.size());
+
+        Baseline.Matcher matcher = baseline.matcher();
+        assertTrue(matcher.match(7));
+        assertTrue(matcher.match(3));
+        assertTrue(matcher.match(7));
+        // A third identical finding in the member is new.
+        assertFalse(matcher.match(7));
+        assertFalse(matcher.match(3));
+        assertFalse(matcher.match(5));
+    }
+
+    @Test
+    public void eachRunStartsWithAllCopies() {
+        Baseline baseline = Baseline.of(new long[] {-1, -1}, 2);
+        for (int run = 0; run < 2; run++) {
+            Baseline.Matcher matcher = baseline.matcher();
+            assertTrue(matcher.match(-1));
+            assertTrue(matcher.match(-1));
+            assertFalse(matcher.match(-1));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ChangedLinesTest {
+
+    @Test
+    public void contentLookingLikeFileHeadersStaysInTheHunk() throws Exception {
+        String diff = String.join("\n",
+                "diff --git a/A.java b/A.java",
+                "--- a/A.java",
+                "+++ b/A.java",
+                "@@ -3,2 +3,2 @@",
+                "--- removed;",
+                "-- x;",
+                "+++ added;",
+                "++ y;",
+                "@@ -10 +10 @@ class A {",
+                "-old();",
+                "+changed();",
+                "diff --git a/B.java b/B.java",
+                "--- a/B.java",
+                "+++ b/B.java",
+                "@@ -1,0 +2 @@",
+                "+added();",
+                "");
+        Map<String, BitSet> lines = ChangedLines.parse(diff).getLinesByFile();
+        assertEquals(2, lines.size());
+        BitSet a = new BitSet();
+        a.set(3);
+        a.set(4);
+        a.set(10);
+        assertEquals(a, lines.get("A.java"));
+        BitSet b = new BitSet();
+        b.set(2);
+        assertEquals(b, lines.get("B.java"));
+    }
+}
@@ -0,0 +1,162 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.visitor.GenericVisitor;
+import com.github.javaparser.ast.visitor.VoidVisitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The lock checks of the {@link AdvancedControlFlowAnalyzer} must traverse each
+ * compilation unit once, however many synchronized blocks it has. The work is
+ * counted in nodes, not in time, so the test is stable on any machine: every
+ * name in the unit is replaced by one that counts how often a traversal reaches
+ * it while the synchronized rule runs, whether through a tree iterator such as
+ * {@code findAll} or through a visitor. A scan of the unit per synchronized
+ * block makes the count per block grow with the number of blocks and fails it.
+ */
+public class LockUsageScalingTest {
+
+    @Test
+    public void visitsPerSynchronizedBlockStayFlat() {
+        double smallest = visitsPerBlock(500);
+        double largest = visitsPerBlock(4000);
+        assertTrue(largest <= smallest * 1.1,
+                "Visits per synchronized block grew from " + smallest + " to " + largest);
+    }
+
+    private static double visitsPerBlock(int blocks) {
+        CompilationUnit compilationUnit = new JavaParser().parse(generateSource(blocks)).getResult().orElseThrow();
+        Visits visits = new Visits();
+        compilationUnit.findAll(NameExpr.class).forEach(name -> name.replace(new CountingNameExpr(name, visits)));
+
+        AdvancedControlFlowAnalyzer analyzer = new AdvancedControlFlowAnalyzer("Generated.java", finding -> { });
+        AnalysisRule synchronizedRule = analyzer.getRules().stream()
+                .filter(rule -> rule.getName().equals("synchronized"))
+                .findFirst()
+                .orElseThrow();
+        new RuleEngine(counting(synchronizedRule, visits)).run(compilationUnit);
+        assertTrue(analyzer.getLockIndexVisits() > 0, "The lock checks did not run");
+        return (double) visits.count / blocks;
+    }
+
+    /**
+     * The given rule, counting visits only while it runs, so the engine's own
+     * traversal is left out.
+     */
+    private static AnalysisRule counting(AnalysisRule rule, Visits visits) {
+        return new AnalysisRule() {
+            @Override
+            public List<Class<? extends Node>> getNodeTypes() {
+                return rule.getNodeTypes();
+            }
+
+            @Override
+            public void visit(Node node) {
+                visits.counting = true;
+                try {
+                    rule.visit(node);
+                } finally {
+                    visits.counting = false;
+                }
+            }
+        };
+    }
+
+    private static final class Visits {
+
+        boolean counting;
+        long count;
+    }
+
+    /**
+     * A name that counts every traversal reaching it: the tree iterators behind
+     * {@code findAll}, {@code walk} and {@code stream} ask each node for its
+     * children, and visitors call {@code accept}.
+     */
+    private static final class CountingNameExpr extends NameExpr {
+
+        private final Visits visits;
+
+        CountingNameExpr(NameExpr original, Visits visits) {
+            super(original.getTokenRange().orElse(null), original.getName().clone());
+            this.visits = visits;
+        }
+
+        private void count() {
+            // Null while the superclass constructor runs.
+            if (visits != null && visits.counting) {
+                visits.count++;
+            }
+        }
+
+        @Override
+        public List<Node> getChildNodes() {
+            count();
+            return super.getChildNodes();
+        }
+
+        @Override
+        public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+            count();
+            return super.accept(v, arg);
+        }
+
+        @Override
+        public <A> void accept(VoidVisitor<A> v, A arg) {
+            count();
+            super.accept(v, arg);
+        }
+    }
+
+    /**
+     * A class with {@code blocks} methods, each synchronizing on one of a few
+     * lock fields and referencing that lock inside the block.
+     */
+    private static String generateSource(int blocks) {
+        StringBuilder source = new StringBuilder();
+        source.append("public class Generated {\n");
+        int locks = 16;
+        for (int i = 0; i < locks; i++) {
+            source.append("    private final Object lock").append(i).append(" = new Object();\n");
+        }
+        source.append("    private int counter;\n");
+        for (int i = 0; i < blocks; i++) {
+            String lock = "lock" + (i % locks);
+            source.append("    void method").append(i).append("() {\n")
+                    .append("        synchronized (").append(lock).append(") {\n")
+                    .append("            counter += ").append(lock).append(".hashCode();\n")
+                    .append("        }\n")
+                    .append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SourceFileLocatorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void recursiveGlobMatchesFilesDirectlyUnderTheBase() throws Exception {
+        Path top = write("src/Top.java");
+        Path nested = write("src/a/b/Nested.java");
+        write("src/a/notes.txt");
+        write("other/Other.java");
+
+        List<Path> located = SourceFileLocator.locate(directory.resolve("src").toString().replace('\\', '/') + "/**/*.java");
+
+        assertEquals(Arrays.asList(top, nested), located);
+    }
+
+    @Test
+    public void recursiveGlobInTheMiddleMatchesZeroDirectories() throws Exception {
+        Path direct = write("src/main/Direct.java");
+        Path nested = write("src/x/main/Nested.java");
+        write("src/main/deeper/Deeper.java");
+
+        List<Path> located = SourceFileLocator.locate(directory.resolve("src").toString().replace('\\', '/') + "/**/main/*.java");
+
+        assertEquals(Arrays.asList(direct, nested), located);
+    }
+
+    @Test
+    public void collapsesEveryDirectoryWildcard() {
+        assertEquals(Arrays.asList("**/a/**/*.java", "**/a/*.java", "a/**/*.java", "a/*.java"),
+                SourceFileLocator.collapseDirectoryWildcards("**/a/**/*.java"));
+        assertEquals(Arrays.asList("x**/*.java"), SourceFileLocator.collapseDirectoryWildcards("x**/*.java"));
+    }
+
+    private Path write(String relative) throws Exception {
+        Path file = directory.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "class C {}\n");
+        return file;
+    }
+}
@@ -0,0 +1,150 @@
+package refactoring;
+/*
+ * Application.java
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Example: java AnnotationRemover MyJavaFile.java com.example.MyAnnotation
+ *
+ * @author Freya Ebba Christ 
+ */
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Project analysis must stream: the heap still in use after a collection may
+ * not grow with the number of files analyzed. The live heap is sampled when the
+ * findings of an early and of a late file arrive; a pipeline that kept the
+ * compilation units or sources of finished files would retain megabytes per
+ * file in between and fail the test.
+ */
+public class StreamingHeapTest {
+
+    private static final int FILES = 60;
+    private static final int EARLY_FILE = 10;
+    private static final int FILES_PER_ARCHIVE = 10;
+    private static final long ALLOWED_GROWTH_BYTES = 16 * 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void retainedHeapDoesNotGrowWithFiles() throws Exception {
+        for (int i = 0; i < FILES; i++) {
+            Files.writeString(directory.resolve("Generated" + i + ".java"), generateSource("Generated" + i));
+        }
+        assertStreams(SourceFileLocator.locate(directory.toString()));
+    }
+
+    /**
+     * Sources inside archives are read straight out of them, without being
+     * extracted to temporary files.
+     */
+    @Test
+    public void archivesStreamWithoutTemporaryFiles() throws Exception {
+        for (int first = 0; first < FILES; first += FILES_PER_ARCHIVE) {
+            Path archive = directory.resolve("generated-" + first / FILES_PER_ARCHIVE + "-sources.jar");
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+                for (int i = first; i < first + FILES_PER_ARCHIVE; i++) {
+                    out.putNextEntry(new ZipEntry("generated/Generated" + i + ".java"));
+                    out.write(generateSource("Generated" + i).getBytes(StandardCharsets.UTF_8));
+                    out.closeEntry();
+                }
+            }
+        }
+        List<Path> sourceFiles = SourceFileLocator.locate(directory.toString(), true);
+        Set<Path> temporaryFiles = listTemporaryFiles();
+        assertStreams(sourceFiles);
+        Set<Path> createdFiles = listTemporaryFiles();
+        createdFiles.removeAll(temporaryFiles);
+        assertTrue(createdFiles.isEmpty(), "Temporary files created: " + createdFiles);
+    }
+
+    private static void assertStreams(List<Path> sourceFiles) throws IOException, InterruptedException {
+        long[] liveBytes = new long[2];
+        FindingSink sink = finding -> {
+            if (liveBytes[0] == 0 && finding.getFile().endsWith("Generated" + EARLY_FILE + ".java")) {
+                liveBytes[0] = liveHeapBytes();
+            } else if (liveBytes[1] == 0 && finding.getFile().endsWith("Generated" + (FILES - 1) + ".java")) {
+                liveBytes[1] = liveHeapBytes();
+            }
+        };
+        ProjectAnalyzer projectAnalyzer = new ProjectAnalyzer(1, sink, AnalysisOptions.DEFAULT);
+        projectAnalyzer.analyze(sourceFiles);
+
+        assertEquals(FILES, projectAnalyzer.getAnalyzedFiles());
+        assertTrue(liveBytes[0] > 0 && liveBytes[1] > 0, "No findings were sampled");
+        long growth = liveBytes[1] - liveBytes[0];
+        assertTrue(growth < ALLOWED_GROWTH_BYTES, "The live heap grew by " + (growth >> 10) + " KB over "
+                + (FILES - 1 - EARLY_FILE) + " files");
+    }
+
+    private static long liveHeapBytes() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Set<Path> listTemporaryFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return paths.collect(Collectors.toCollection(HashSet::new));
+        }
+    }
+
+    /**
+     * A class with enough methods, null checks and synchronized blocks that its
+     * syntax tree takes megabytes of heap.
+     */
+    private static String generateSource(String className) {
+        StringBuilder source = new StringBuilder();
+        source.append("public class ").append(className).append(" {\n")
+                .append("    private final Object lock = new Object();\n")
+                .append("    private String value;\n");
+        for (int i = 0; i < 60; i++) {
+            source.append("    String method").append(i).append("(String argument) {\n")
+                    .append("        if (argument != null) {\n")
+                    .append("            synchronized (lock) {\n")
+                    .append("                value = argument.trim() + ").append(i).append(";\n")
+                    .append("            }\n")
+                    .append("        }\n")
+                    .append("        for (int i = 0; i < argument.length(); i++) {\n")
+                    .append("            value = value + argument.charAt(i);\n")
+                    .append("        }\n")
+                    .append("        return value;\n")
+                    .append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}